@@ -0,0 +1,187 @@
+package handsoncode.bitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/** A container of at most {@link #MAX_ARRAY} values, stored as a sorted array. */
+final class ArrayContainer extends Container {
+
+    private char[] values;
+    private int size;
+
+    ArrayContainer() {
+        this(new char[4], 0);
+    }
+
+    ArrayContainer(char[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    static ArrayContainer from(Container container) {
+        char[] values = new char[container.cardinality()];
+        int[] size = new int[1];
+        container.forEach(0, value -> values[size[0]++] = (char) value);
+        return new ArrayContainer(values, size[0]);
+    }
+
+    static int sizeInBytes(int cardinality) {
+        return 2 * cardinality;
+    }
+
+    static Container or(ArrayContainer a, ArrayContainer b) {
+        char[] merged = new char[a.size + b.size];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.size && j < b.size) {
+            char x = a.values[i];
+            char y = b.values[j];
+            if (x < y) {
+                merged[count++] = x;
+                i++;
+            } else if (x > y) {
+                merged[count++] = y;
+                j++;
+            } else {
+                merged[count++] = x;
+                i++;
+                j++;
+            }
+        }
+        while (i < a.size) {
+            merged[count++] = a.values[i++];
+        }
+        while (j < b.size) {
+            merged[count++] = b.values[j++];
+        }
+        ArrayContainer union = new ArrayContainer(merged, count);
+        return count <= MAX_ARRAY ? union : BitmapContainer.from(union);
+    }
+
+    /** Keeps the values that {@code other} contains if {@code keep} is {@code true}, or does not contain otherwise. */
+    Container filter(Container other, boolean keep) {
+        char[] filtered = new char[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (other.contains(values[i]) == keep) {
+                filtered[count++] = values[i];
+            }
+        }
+        return new ArrayContainer(filtered, count);
+    }
+
+    @Override
+    Container add(char value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return this;
+        }
+        if (size == MAX_ARRAY) {
+            return BitmapContainer.from(this).add(value);
+        }
+        int insertion = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.min(MAX_ARRAY, Math.max(4, size * 2)));
+        }
+        System.arraycopy(values, insertion, values, insertion + 1, size - insertion);
+        values[insertion] = value;
+        size++;
+        return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    @Override
+    int cardinality() {
+        return size;
+    }
+
+    private int lowerBound(int from) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < from) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    int nextValue(int from) {
+        int index = lowerBound(from);
+        return index < size ? values[index] : -1;
+    }
+
+    @Override
+    int nextAbsent(int from) {
+        int value = from;
+        for (int index = lowerBound(from); index < size && values[index] == value; index++) {
+            value++;
+        }
+        return value;
+    }
+
+    @Override
+    void forEach(int high, IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(high | values[i]);
+        }
+    }
+
+    @Override
+    void fill(long[] words) {
+        for (int i = 0; i < size; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+    }
+
+    @Override
+    int sizeInBytes() {
+        return sizeInBytes(size);
+    }
+
+    @Override
+    void writeTo(DataOutput out) throws IOException {
+        out.writeByte(ARRAY);
+        out.writeShort(size);
+        for (int i = 0; i < size; i++) {
+            out.writeChar(values[i]);
+        }
+    }
+
+    static ArrayContainer read(DataInput in) throws IOException {
+        int size = in.readUnsignedShort();
+        char[] values = new char[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = in.readChar();
+        }
+        return new ArrayContainer(values, size);
+    }
+
+    @Override
+    Container copy() {
+        return new ArrayContainer(Arrays.copyOf(values, size), size);
+    }
+
+    @Override
+    int numberOfRuns() {
+        int runs = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || values[i] != values[i - 1] + 1) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+}
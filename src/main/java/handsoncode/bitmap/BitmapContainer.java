@@ -0,0 +1,133 @@
+package handsoncode.bitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.IntConsumer;
+
+/** A container of more than {@link #MAX_ARRAY} values, stored as {@code 2^16} bits. */
+final class BitmapContainer extends Container {
+
+    final long[] words;
+    private int cardinality;
+
+    BitmapContainer(long[] words, int cardinality) {
+        this.words = words;
+        this.cardinality = cardinality;
+    }
+
+    static BitmapContainer from(Container container) {
+        long[] words = new long[VALUES / 64];
+        container.fill(words);
+        return new BitmapContainer(words, container.cardinality());
+    }
+
+    @Override
+    Container add(char value) {
+        long bit = 1L << value;
+        if ((words[value >>> 6] & bit) == 0) {
+            words[value >>> 6] |= bit;
+            cardinality++;
+        }
+        return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+        return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    int nextValue(int from) {
+        if (from >= VALUES) {
+            return -1;
+        }
+        int index = from >>> 6;
+        long word = words[index] & (-1L << from);
+        while (word == 0) {
+            if (++index == words.length) {
+                return -1;
+            }
+            word = words[index];
+        }
+        return (index << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    int nextAbsent(int from) {
+        if (from >= VALUES) {
+            return VALUES;
+        }
+        int index = from >>> 6;
+        long word = ~words[index] & (-1L << from);
+        while (word == 0) {
+            if (++index == words.length) {
+                return VALUES;
+            }
+            word = ~words[index];
+        }
+        return (index << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    void forEach(int high, IntConsumer action) {
+        for (int index = 0; index < words.length; index++) {
+            long word = words[index];
+            while (word != 0) {
+                action.accept(high | (index << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    @Override
+    void fill(long[] target) {
+        for (int i = 0; i < words.length; i++) {
+            target[i] |= words[i];
+        }
+    }
+
+    @Override
+    int sizeInBytes() {
+        return BITMAP_BYTES;
+    }
+
+    @Override
+    void writeTo(DataOutput out) throws IOException {
+        out.writeByte(BITMAP);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    static BitmapContainer read(DataInput in) throws IOException {
+        long[] words = new long[VALUES / 64];
+        int cardinality = 0;
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+            cardinality += Long.bitCount(words[i]);
+        }
+        return new BitmapContainer(words, cardinality);
+    }
+
+    @Override
+    Container copy() {
+        return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    int numberOfRuns() {
+        int runs = 0;
+        long previous = 0;
+        for (long word : words) {
+            runs += Long.bitCount(word & ~((word << 1) | (previous >>> 63)));
+            previous = word;
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,156 @@
+package handsoncode.bitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of 16-bit values, the low halves of the values of a {@link RoaringBitmap} sharing the same high half.
+ * <p>
+ * Containers are immutable once they are part of a bitmap produced by an operation; only the bitmap being
+ * built by {@link RoaringBitmap#add(int)} mutates its containers, through {@link #add(char)}.
+ * </p>
+ */
+abstract class Container {
+
+    /** Values of a container, {@code 2^16}. */
+    static final int VALUES = 1 << 16;
+
+    /** Largest cardinality stored as a sorted array; larger sets are stored as a bitmap. */
+    static final int MAX_ARRAY = 4096;
+
+    /** Size in bytes of a bitmap container. */
+    static final int BITMAP_BYTES = VALUES / 8;
+
+    static final byte ARRAY = 0;
+    static final byte BITMAP = 1;
+    static final byte RUN = 2;
+
+    /** Adds a value, returning the container holding the result, which may be a different representation. */
+    abstract Container add(char value);
+
+    abstract boolean contains(char value);
+
+    abstract int cardinality();
+
+    /** Returns the smallest value not less than {@code from}, or {@code -1}. */
+    abstract int nextValue(int from);
+
+    /** Returns the smallest value not less than {@code from} that is absent, or {@link #VALUES}. */
+    abstract int nextAbsent(int from);
+
+    /** Calls {@code action} with every value, in increasing order, combined with the high half {@code high}. */
+    abstract void forEach(int high, IntConsumer action);
+
+    /** Sets the bits of the values in {@code words}, an array of {@code 1024} words. */
+    abstract void fill(long[] words);
+
+    abstract int sizeInBytes();
+
+    /** Returns a container with the same values that later {@link #add(char)} calls on this one do not modify. */
+    abstract Container copy();
+
+    /** Writes the representation tag of this container and its values, see {@link #readFrom(DataInput)}. */
+    abstract void writeTo(DataOutput out) throws IOException;
+
+    /** Reads a container written by {@link #writeTo(DataOutput)}. */
+    static Container readFrom(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case ARRAY:
+                return ArrayContainer.read(in);
+            case BITMAP:
+                return BitmapContainer.read(in);
+            case RUN:
+                return RunContainer.read(in);
+            default:
+                throw new IOException("Unknown container type: " + type);
+        }
+    }
+
+    /** Returns the number of runs of consecutive values. */
+    int numberOfRuns() {
+        int runs = 0;
+        int value = nextValue(0);
+        while (value >= 0) {
+            runs++;
+            int end = nextAbsent(value);
+            value = end < VALUES ? nextValue(end) : -1;
+        }
+        return runs;
+    }
+
+    /** Returns the smallest of the array, bitmap and run representations of this container. */
+    Container optimize() {
+        int cardinality = cardinality();
+        int runBytes = RunContainer.sizeInBytes(numberOfRuns());
+        int otherBytes = cardinality <= MAX_ARRAY ? ArrayContainer.sizeInBytes(cardinality) : BITMAP_BYTES;
+        if (runBytes < otherBytes) {
+            return this instanceof RunContainer ? this : RunContainer.from(this);
+        }
+        return this instanceof RunContainer ? repair(words(this)) : this;
+    }
+
+    static Container and(Container a, Container b) {
+        if (a instanceof ArrayContainer) {
+            return ((ArrayContainer) a).filter(b, true);
+        }
+        if (b instanceof ArrayContainer) {
+            return ((ArrayContainer) b).filter(a, true);
+        }
+        if (a instanceof RunContainer && b instanceof RunContainer) {
+            return RunContainer.and((RunContainer) a, (RunContainer) b);
+        }
+        long[] words = words(a);
+        long[] other = words(b);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= other[i];
+        }
+        return repair(words);
+    }
+
+    static Container or(Container a, Container b) {
+        if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+            return ArrayContainer.or((ArrayContainer) a, (ArrayContainer) b);
+        }
+        if (a instanceof RunContainer && b instanceof RunContainer) {
+            return RunContainer.or((RunContainer) a, (RunContainer) b);
+        }
+        long[] words = words(a);
+        b.fill(words);
+        return repair(words);
+    }
+
+    static Container andNot(Container a, Container b) {
+        if (a instanceof ArrayContainer) {
+            return ((ArrayContainer) a).filter(b, false);
+        }
+        long[] words = words(a);
+        long[] other = words(b);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other[i];
+        }
+        return repair(words);
+    }
+
+    /** Returns the values of a container as a new array of {@code 1024} words. */
+    static long[] words(Container container) {
+        if (container instanceof BitmapContainer) {
+            return ((BitmapContainer) container).words.clone();
+        }
+        long[] words = new long[VALUES / 64];
+        container.fill(words);
+        return words;
+    }
+
+    /** Stores the values of {@code words} as an array or a bitmap, depending on their number. */
+    static Container repair(long[] words) {
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        BitmapContainer bitmap = new BitmapContainer(words, cardinality);
+        return cardinality <= MAX_ARRAY ? ArrayContainer.from(bitmap) : bitmap;
+    }
+}
@@ -0,0 +1,441 @@
+package handsoncode.bitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * {@code RoaringBitmap} is a compressed set of non-negative {@code int} values, such as the ids of the records
+ * matching a filter.
+ * <p>
+ * Values are partitioned by their high 16 bits; the low 16 bits of each partition are kept in the smallest fitting
+ * container: a sorted array for sparse partitions, a {@code 2^16}-bit bitmap for dense ones, or runs of consecutive
+ * values, after {@link #runOptimize()} or for {@link #range(int, int)}. A set of 100 million record ids takes at most
+ * about 12 MiB, and far less when it is sparse or clustered.
+ * </p>
+ * <p>
+ * {@link #and(RoaringBitmap)}, {@link #or(RoaringBitmap)} and {@link #andNot(RoaringBitmap)} map onto
+ * {@link handsoncode.filter.AndFilter}, {@link handsoncode.filter.OrFilter} and {@link handsoncode.filter.NotFilter}:
+ * they only visit the partitions present in their operands and combine containers directly, word by word for bitmaps.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * RoaringBitmap admins = RoaringBitmap.of(1, 5, 9);
+ * RoaringBitmap adults = RoaringBitmap.range(4, 10);
+ * RoaringBitmap adultAdmins = admins.and(adults);          // {5, 9}
+ * RoaringBitmap others = RoaringBitmap.range(0, 10).andNot(admins);
+ * }</pre>
+ *
+ * <p>Operations return new bitmaps and never modify their operands. A bitmap is not thread-safe while it is
+ * modified by {@link #add(int)} or {@link #runOptimize()}; otherwise it can be read concurrently.</p>
+ */
+public final class RoaringBitmap implements Cloneable {
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    /**
+     * Constructs an empty bitmap.
+     */
+    public RoaringBitmap() {
+        this(new char[4], new Container[4], 0);
+    }
+
+    private RoaringBitmap(char[] keys, Container[] containers, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    /**
+     * Creates a bitmap holding values.
+     *
+     * @param values the values, in any order.
+     * @return a new bitmap.
+     * @throws IllegalArgumentException if a value is negative.
+     */
+    public static RoaringBitmap of(int... values) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Creates a bitmap holding a range of consecutive values, stored as runs.
+     *
+     * @param from the first value, inclusive.
+     * @param to the last value, exclusive.
+     * @return a new bitmap.
+     * @throws IllegalArgumentException if {@code from} is negative or greater than {@code to}.
+     */
+    public static RoaringBitmap range(int from, int to) {
+        if (from < 0 || from > to) {
+            throw new IllegalArgumentException("Invalid range [" + from + ", " + to + ")");
+        }
+        RoaringBitmap bitmap = new RoaringBitmap();
+        int start = from;
+        while (start < to) {
+            int high = start >>> 16;
+            int end = (int) Math.min(to, ((long) high + 1) << 16);
+            bitmap.append((char) high, RunContainer.range(start & 0xFFFF, end - (high << 16)));
+            start = end;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Adds a value. Adding values in increasing order is the fastest.
+     *
+     * @param value the value to add.
+     * @throws IllegalArgumentException if {@code value} is negative.
+     */
+    public void add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must not be negative, but found: " + value);
+        }
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+        if (size > 0 && keys[size - 1] == key) {
+            containers[size - 1] = containers[size - 1].add(low);
+            return;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            containers[index] = containers[index].add(low);
+            return;
+        }
+        int insertion = -index - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(keys, insertion, keys, insertion + 1, size - insertion);
+        System.arraycopy(containers, insertion, containers, insertion + 1, size - insertion);
+        keys[insertion] = key;
+        containers[insertion] = new ArrayContainer().add(low);
+        size++;
+    }
+
+    /**
+     * Checks whether a value is in this bitmap.
+     *
+     * @param value the value.
+     * @return {@code true} if the bitmap holds {@code value}.
+     */
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * Returns the number of values in this bitmap.
+     *
+     * @return the cardinality.
+     */
+    public long getCardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    /**
+     * Checks whether this bitmap holds no value.
+     *
+     * @return {@code true} if the bitmap is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the values held by both bitmaps.
+     *
+     * @param other the other bitmap (must not be {@code null}).
+     * @return a new bitmap, the intersection.
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.append(keys[i], Container.and(containers[i++], other.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values held by either bitmap.
+     *
+     * @param other the other bitmap (must not be {@code null}).
+     * @return a new bitmap, the union.
+     */
+    public RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        result.ensureCapacity(size + other.size);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.append(keys[i], containers[i++].copy());
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.containers[j++].copy());
+            } else {
+                result.append(keys[i], Container.or(containers[i++], other.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the values held by this bitmap and not by {@code other}.
+     *
+     * @param other the other bitmap (must not be {@code null}).
+     * @return a new bitmap, the difference.
+     */
+    public RoaringBitmap andNot(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        result.ensureCapacity(size);
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.append(keys[i], Container.andNot(containers[i], other.containers[j]));
+            } else {
+                result.append(keys[i], containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the smallest value not less than {@code from}, in the manner of {@link java.util.BitSet#nextSetBit(int)}.
+     *
+     * @param from the value to start from.
+     * @return the next value held by this bitmap, or {@code -1} if there is none.
+     */
+    public int nextValue(int from) {
+        int start = Math.max(0, from);
+        char key = (char) (start >>> 16);
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            int low = containers[index].nextValue(start & 0xFFFF);
+            if (low >= 0) {
+                return (key << 16) | low;
+            }
+            index++;
+        } else {
+            index = -index - 1;
+        }
+        return index < size ? (keys[index] << 16) | containers[index].nextValue(0) : -1;
+    }
+
+    /**
+     * Returns the smallest non-negative value not less than {@code from} that this bitmap does not hold,
+     * in the manner of {@link java.util.BitSet#nextClearBit(int)}.
+     *
+     * @param from the value to start from.
+     * @return the next absent value, or {@code -1} if every value up to {@link Integer#MAX_VALUE} is held.
+     */
+    public int nextAbsentValue(int from) {
+        int value = Math.max(0, from);
+        while (true) {
+            int index = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+            if (index < 0) {
+                return value;
+            }
+            int low = containers[index].nextAbsent(value & 0xFFFF);
+            if (low < Container.VALUES) {
+                return (keys[index] << 16) | low;
+            }
+            if (keys[index] == Short.MAX_VALUE) {
+                return -1;
+            }
+            value = (keys[index] + 1) << 16;
+        }
+    }
+
+    /**
+     * Calls {@code action} with every value, in increasing order.
+     *
+     * @param action the action receiving the values (must not be {@code null}).
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * Returns the values of this bitmap.
+     *
+     * @return a new array of the values, in increasing order.
+     * @throws IllegalStateException if the bitmap holds more values than an array can.
+     */
+    public int[] toArray() {
+        long cardinality = getCardinality();
+        if (cardinality > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many values for an array: " + cardinality);
+        }
+        int[] values = new int[(int) cardinality];
+        int[] count = new int[1];
+        forEach(value -> values[count[0]++] = value);
+        return values;
+    }
+
+    /**
+     * Converts every container to its smallest representation, using runs where values are clustered.
+     *
+     * @return this bitmap.
+     */
+    public RoaringBitmap runOptimize() {
+        for (int i = 0; i < size; i++) {
+            containers[i] = containers[i].optimize();
+        }
+        return this;
+    }
+
+    /**
+     * Returns the approximate memory used by the values of this bitmap.
+     *
+     * @return the size in bytes of the containers and their keys.
+     */
+    public long getSizeInBytes() {
+        long bytes = 6L * size;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the values of this bitmap, keeping the representation of every container.
+     *
+     * @param out the output (must not be {@code null}).
+     * @throws IOException if {@code out} fails.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeChar(keys[i]);
+            containers[i].writeTo(out);
+        }
+    }
+
+    /**
+     * Reads a bitmap written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in the input (must not be {@code null}).
+     * @return a new bitmap.
+     * @throws IOException if {@code in} fails or does not hold a bitmap.
+     */
+    public static RoaringBitmap readFrom(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0 || size > Container.VALUES) {
+            throw new IOException("Invalid number of containers: " + size);
+        }
+        char[] keys = new char[Math.max(4, size)];
+        Container[] containers = new Container[keys.length];
+        for (int i = 0; i < size; i++) {
+            keys[i] = in.readChar();
+            containers[i] = Container.readFrom(in);
+        }
+        return new RoaringBitmap(keys, containers, size);
+    }
+
+    /**
+     * Returns a copy of this bitmap, which later modifications of either bitmap do not affect.
+     *
+     * @return a new bitmap holding the same values.
+     */
+    @Override
+    public RoaringBitmap clone() {
+        Container[] copies = new Container[Math.max(4, size)];
+        for (int i = 0; i < size; i++) {
+            copies[i] = containers[i].copy();
+        }
+        return new RoaringBitmap(Arrays.copyOf(keys, copies.length), copies, size);
+    }
+
+    private void append(char key, Container container) {
+        if (container.cardinality() == 0) {
+            return;
+        }
+        ensureCapacity(size + 1);
+        keys[size] = key;
+        containers[size] = container;
+        size++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            int length = Math.max(capacity, keys.length * 2);
+            keys = Arrays.copyOf(keys, length);
+            containers = Arrays.copyOf(containers, length);
+        }
+    }
+
+    /**
+     * Compares the values of two bitmaps, whatever their container representations.
+     *
+     * @param other the object to compare with.
+     * @return {@code true} if {@code other} is a bitmap holding the same values.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof RoaringBitmap)) {
+            return false;
+        }
+        RoaringBitmap bitmap = (RoaringBitmap) other;
+        if (size != bitmap.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != bitmap.keys[i] || containers[i].cardinality() != bitmap.containers[i].cardinality()
+                || !Arrays.equals(Container.words(containers[i]), Container.words(bitmap.containers[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int[] hash = {1};
+        forEach(value -> hash[0] = 31 * hash[0] + value);
+        return hash[0];
+    }
+
+    /**
+     * Returns a string representation of this {@code RoaringBitmap} with its cardinality and its first values.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code RoaringBitmap}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder values = new StringBuilder("[");
+        int value = nextValue(0);
+        for (int shown = 0; value >= 0 && shown < 32; shown++) {
+            values.append(shown > 0 ? ", " : "").append(value);
+            value = value == Integer.MAX_VALUE ? -1 : nextValue(value + 1);
+        }
+        values.append(value >= 0 ? ", ...]" : "]");
+        return "{\"type\":\"RoaringBitmap\",\"cardinality\":\"" + getCardinality() + "\",\"values\":\"" + values + "\"}";
+    }
+}
@@ -0,0 +1,206 @@
+package handsoncode.bitmap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/** A container stored as sorted, disjoint and non-adjacent runs of consecutive values. */
+final class RunContainer extends Container {
+
+    /** Start and inclusive end of every run, as consecutive pairs. */
+    private final char[] runs;
+    private final int count;
+
+    private RunContainer(char[] runs, int count) {
+        this.runs = runs;
+        this.count = count;
+    }
+
+    /** Returns the container of the values from {@code start} inclusive to {@code end} exclusive. */
+    static RunContainer range(int start, int end) {
+        return new RunContainer(new char[] {(char) start, (char) (end - 1)}, 1);
+    }
+
+    static RunContainer from(Container container) {
+        char[] runs = new char[2 * container.numberOfRuns()];
+        int count = 0;
+        int value = container.nextValue(0);
+        while (value >= 0) {
+            int end = container.nextAbsent(value);
+            runs[2 * count] = (char) value;
+            runs[2 * count + 1] = (char) (end - 1);
+            count++;
+            value = end < VALUES ? container.nextValue(end) : -1;
+        }
+        return new RunContainer(runs, count);
+    }
+
+    static int sizeInBytes(int runs) {
+        return 2 + 4 * runs;
+    }
+
+    static Container and(RunContainer a, RunContainer b) {
+        char[] runs = new char[2 * (a.count + b.count)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.count && j < b.count) {
+            int start = Math.max(a.start(i), b.start(j));
+            int end = Math.min(a.end(i), b.end(j));
+            if (start <= end) {
+                runs[2 * count] = (char) start;
+                runs[2 * count + 1] = (char) end;
+                count++;
+            }
+            if (a.end(i) < b.end(j)) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return new RunContainer(runs, count);
+    }
+
+    static Container or(RunContainer a, RunContainer b) {
+        char[] runs = new char[2 * (a.count + b.count)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.count || j < b.count) {
+            int start;
+            int end;
+            if (j == b.count || (i < a.count && a.start(i) <= b.start(j))) {
+                start = a.start(i);
+                end = a.end(i++);
+            } else {
+                start = b.start(j);
+                end = b.end(j++);
+            }
+            if (count > 0 && start <= runs[2 * count - 1] + 1) {
+                runs[2 * count - 1] = (char) Math.max(runs[2 * count - 1], end);
+            } else {
+                runs[2 * count] = (char) start;
+                runs[2 * count + 1] = (char) end;
+                count++;
+            }
+        }
+        return new RunContainer(runs, count);
+    }
+
+    private int start(int run) {
+        return runs[2 * run];
+    }
+
+    private int end(int run) {
+        return runs[2 * run + 1];
+    }
+
+    /** Returns the index of the first run ending at or after {@code value}. */
+    private int runEndingFrom(int value) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (end(middle) < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    Container add(char value) {
+        Container container = cardinality() <= MAX_ARRAY ? ArrayContainer.from(this) : BitmapContainer.from(this);
+        return container.add(value);
+    }
+
+    @Override
+    boolean contains(char value) {
+        int run = runEndingFrom(value);
+        return run < count && start(run) <= value;
+    }
+
+    @Override
+    int cardinality() {
+        int cardinality = 0;
+        for (int run = 0; run < count; run++) {
+            cardinality += end(run) - start(run) + 1;
+        }
+        return cardinality;
+    }
+
+    @Override
+    int nextValue(int from) {
+        int run = runEndingFrom(from);
+        return run < count ? Math.max(start(run), from) : -1;
+    }
+
+    @Override
+    int nextAbsent(int from) {
+        int run = runEndingFrom(from);
+        return run < count && start(run) <= from ? end(run) + 1 : from;
+    }
+
+    @Override
+    void forEach(int high, IntConsumer action) {
+        for (int run = 0; run < count; run++) {
+            for (int value = start(run); value <= end(run); value++) {
+                action.accept(high | value);
+            }
+        }
+    }
+
+    @Override
+    void fill(long[] words) {
+        for (int run = 0; run < count; run++) {
+            int start = start(run);
+            int end = end(run) + 1;
+            int first = start >>> 6;
+            int last = (end - 1) >>> 6;
+            if (first == last) {
+                words[first] |= (-1L << start) & (-1L >>> -end);
+            } else {
+                words[first] |= -1L << start;
+                Arrays.fill(words, first + 1, last, -1L);
+                words[last] |= -1L >>> -end;
+            }
+        }
+    }
+
+    @Override
+    int sizeInBytes() {
+        return sizeInBytes(count);
+    }
+
+    @Override
+    void writeTo(DataOutput out) throws IOException {
+        out.writeByte(RUN);
+        out.writeShort(count);
+        for (int i = 0; i < 2 * count; i++) {
+            out.writeChar(runs[i]);
+        }
+    }
+
+    static RunContainer read(DataInput in) throws IOException {
+        int count = in.readUnsignedShort();
+        char[] runs = new char[2 * count];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = in.readChar();
+        }
+        return new RunContainer(runs, count);
+    }
+
+    @Override
+    Container copy() {
+        return this;
+    }
+
+    @Override
+    int numberOfRuns() {
+        return count;
+    }
+}
@@ -0,0 +1,106 @@
+package handsoncode.cache;
+
+/**
+ * {@code CacheStatistics} is an immutable snapshot of the counters of an {@link EvaluationCache}.
+ *
+ * Example Usage:
+ * <pre>{@code
+ * CacheStatistics statistics = cache.getStatistics();
+ * double hitRate = statistics.getHitRate();  // 0.0 to 1.0
+ * }</pre>
+ */
+public final class CacheStatistics {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long invalidations;
+    private final int size;
+
+    CacheStatistics(long hits, long misses, long evictions, long expirations, long invalidations, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return the hit count.
+     */
+    public long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that evaluated the filter: absent, expired or outdated entries.
+     *
+     * @return the miss count.
+     */
+    public long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the fraction of lookups answered from the cache.
+     *
+     * @return the hit rate, {@code 0} if there was no lookup.
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Returns the number of entries evicted as least recently used to respect the maximum size.
+     *
+     * @return the eviction count.
+     */
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of entries dropped because their time to live elapsed.
+     *
+     * @return the expiration count.
+     */
+    public long getExpirationCount() {
+        return expirations;
+    }
+
+    /**
+     * Returns the number of entries dropped by invalidation.
+     *
+     * @return the invalidation count.
+     */
+    public long getInvalidationCount() {
+        return invalidations;
+    }
+
+    /**
+     * Returns the number of entries in the cache when the snapshot was taken.
+     *
+     * @return the number of entries.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns a string representation of this {@code CacheStatistics}.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code CacheStatistics}.
+     */
+    @Override
+    public String toString() {
+        return "{\"type\":\"CacheStatistics\",\"hits\":\"" + hits + "\",\"misses\":\"" + misses
+            + "\",\"hitRate\":\"" + getHitRate() + "\",\"evictions\":\"" + evictions + "\",\"expirations\":\"" + expirations
+            + "\",\"invalidations\":\"" + invalidations + "\",\"size\":\"" + size + "\"}";
+    }
+}
@@ -0,0 +1,488 @@
+package handsoncode.cache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import handsoncode.filter.AndFilter;
+import handsoncode.filter.EvaluationContext;
+import handsoncode.filter.FalseFilter;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterVisitor;
+import handsoncode.filter.GreaterThanFilter;
+import handsoncode.filter.IsEqualFilter;
+import handsoncode.filter.IsPresentFilter;
+import handsoncode.filter.LessThanFilter;
+import handsoncode.filter.MatchesExpressionFilter;
+import handsoncode.filter.NotFilter;
+import handsoncode.filter.OrFilter;
+import handsoncode.filter.TrueFilter;
+import handsoncode.utils.StripedWeakCache;
+
+/**
+ * {@code EvaluationCache} remembers the results of filters evaluated on versioned resources, so that evaluating
+ * the same filter on an unchanged resource again does not run the filter.
+ * <p>
+ * Results are keyed by the canonical identity of the filter, see {@link #identity(Filter)}, the id of the resource
+ * and its version: any change of the version is a miss, and the new result replaces the outdated one. Entries
+ * expire after a time to live, and the least recently used entries are evicted beyond the maximum size.
+ * Applications changing a resource without bumping its version, or wanting to release memory early, call
+ * {@link #invalidate(String)}.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * EvaluationCache cache = new EvaluationCache(100_000, Duration.ofMinutes(5));
+ * boolean result = cache.matches(filter, "joe", 7, resource);   // evaluates the filter
+ * result = cache.matches(filter, "joe", 7, resource);           // cached
+ * result = cache.matches(filter, "joe", 8, updatedResource);    // new version: evaluates the filter
+ * double hitRate = cache.getStatistics().getHitRate();
+ * }</pre>
+ *
+ * <p>Instances are thread-safe. Entries are spread over independently locked segments by resource id, each an
+ * exact LRU list of its share of the maximum size, and filters are evaluated outside any lock. A result whose
+ * evaluation overlapped an invalidation of its segment is returned but not cached. Evaluation errors are thrown
+ * and not cached.</p>
+ */
+public final class EvaluationCache {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 64;
+    private static final String NOT_PREFIX = "{\"type\":\"NOT\",\"filter\":";
+
+    private final int maximumSize;
+    private final long timeToLive;
+    private final LongSupplier ticker;
+    private final Segment[] segments;
+    private final StripedWeakCache<Filter, String> identities = new StripedWeakCache<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Constructs an {@code EvaluationCache} measuring time with {@link System#nanoTime()}.
+     *
+     * @param maximumSize the maximum number of results kept (must be positive).
+     * @param timeToLive how long a result is kept after it is computed (must be positive).
+     * @throws NullPointerException if {@code timeToLive} is {@code null}.
+     * @throws IllegalArgumentException if {@code maximumSize} or {@code timeToLive} is not positive.
+     */
+    public EvaluationCache(int maximumSize, Duration timeToLive) {
+        this(maximumSize, timeToLive, System::nanoTime);
+    }
+
+    /**
+     * Constructs an {@code EvaluationCache} measuring time with {@code ticker}.
+     *
+     * @param maximumSize the maximum number of results kept (must be positive).
+     * @param timeToLive how long a result is kept after it is computed (must be positive).
+     * @param ticker the source of the current time in nanoseconds (must not be {@code null}).
+     * @throws NullPointerException if {@code timeToLive} or {@code ticker} is {@code null}.
+     * @throws IllegalArgumentException if {@code maximumSize} or {@code timeToLive} is not positive.
+     */
+    public EvaluationCache(int maximumSize, Duration timeToLive, LongSupplier ticker) {
+        Objects.requireNonNull(timeToLive, "timeToLive must not be null");
+        this.ticker = Objects.requireNonNull(ticker, "ticker must not be null");
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("timeToLive must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.timeToLive = timeToLive.toNanos();
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maximumSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            // Sizes differ by one at most and add up to the maximum size.
+            segments[i] = new Segment(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+
+    /** The key of a result: the identity of the filter and the id of the resource. */
+    private static final class Key {
+
+        final String filter;
+        final String resource;
+        final int hash;
+
+        Key(String filter, String resource) {
+            this.filter = filter;
+            this.resource = resource;
+            this.hash = 31 * filter.hashCode() + resource.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && filter.equals(key.filter) && resource.equals(key.resource);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /** A result, valid for one version of the resource until its expiration time. */
+    private static final class Entry {
+
+        final long version;
+        final boolean result;
+        final long expiresAt;
+
+        Entry(long version, boolean result, long expiresAt) {
+            this.version = version;
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /** The entries of a share of the resources, in access order, with the keys of every resource. */
+    private final class Segment extends LinkedHashMap<Key, Entry> {
+
+        private static final long serialVersionUID = 1L;
+
+        final int capacity;
+        final Map<String, Set<Key>> keysByResource = new HashMap<>();
+        /** Incremented by every invalidation, so that an evaluation started before one does not store its result. */
+        long generation;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            unlink(eldest.getKey());
+            evictions.increment();
+            return true;
+        }
+
+        void link(Key key) {
+            keysByResource.computeIfAbsent(key.resource, resource -> new HashSet<>()).add(key);
+        }
+
+        void unlink(Key key) {
+            Set<Key> keys = keysByResource.get(key.resource);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByResource.remove(key.resource);
+            }
+        }
+    }
+
+    private Segment segment(String resourceId) {
+        int hash = resourceId.hashCode();
+        return segments[(hash ^ hash >>> 16) & (segments.length - 1)];
+    }
+
+    /**
+     * Evaluates a filter on a version of a resource, or returns the result cached for that version.
+     *
+     * @param filter the filter to evaluate (must not be {@code null}).
+     * @param resourceId the id of the resource (must not be {@code null}).
+     * @param version the version of the resource, changed whenever its data changes.
+     * @param resource a {@link Map} representing the resource data.
+     * @return {@code true} if {@code filter} matches the resource.
+     * @throws NullPointerException if {@code filter} or {@code resourceId} is {@code null}.
+     * @throws IllegalArgumentException if the filter cannot evaluate the resource, see {@link Filter#matches(Map)}.
+     */
+    public boolean matches(Filter filter, String resourceId, long version, Map<String, String> resource) {
+        return matches(filter, resourceId, version, resource, null);
+    }
+
+    /**
+     * Evaluates a filter on a version of a resource with a shared context, or returns the result cached for that
+     * version.
+     *
+     * @param filter the filter to evaluate (must not be {@code null}).
+     * @param resourceId the id of the resource (must not be {@code null}).
+     * @param version the version of the resource, changed whenever its data changes.
+     * @param resource a {@link Map} representing the resource data.
+     * @param context the evaluation context of {@code resource}, or {@code null} for none.
+     * @return {@code true} if {@code filter} matches the resource.
+     * @throws NullPointerException if {@code filter} or {@code resourceId} is {@code null}.
+     * @throws IllegalArgumentException if the filter cannot evaluate the resource, see {@link Filter#matches(Map)}.
+     */
+    public boolean matches(Filter filter, String resourceId, long version, Map<String, String> resource, EvaluationContext context) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        Objects.requireNonNull(resourceId, "resourceId must not be null");
+        Key key = new Key(identity(filter), resourceId);
+        Segment segment = segment(resourceId);
+        long generation;
+        synchronized (segment) {
+            generation = segment.generation;
+            Entry entry = segment.get(key);
+            if (entry != null && ticker.getAsLong() - entry.expiresAt >= 0) {
+                segment.remove(key);
+                segment.unlink(key);
+                expirations.increment();
+            } else if (entry != null && entry.version == version) {
+                hits.increment();
+                return entry.result;
+            }
+        }
+        misses.increment();
+        boolean result = context == null ? filter.matches(resource) : filter.matches(resource, context);
+        Entry computed = new Entry(version, result, ticker.getAsLong() + timeToLive);
+        synchronized (segment) {
+            // A concurrent evaluation of a later version wins, and a concurrent invalidation drops the result.
+            Entry current = segment.get(key);
+            if (segment.generation == generation && (current == null || current.version <= version)) {
+                segment.put(key, computed);
+                segment.link(key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops the results cached for a resource, typically when it changes or is deleted.
+     *
+     * @param resourceId the id of the resource (must not be {@code null}).
+     * @return the number of results dropped.
+     * @throws NullPointerException if {@code resourceId} is {@code null}.
+     */
+    public int invalidate(String resourceId) {
+        Objects.requireNonNull(resourceId, "resourceId must not be null");
+        Segment segment = segment(resourceId);
+        synchronized (segment) {
+            segment.generation++;
+            Set<Key> keys = segment.keysByResource.remove(resourceId);
+            if (keys == null) {
+                return 0;
+            }
+            for (Key key : keys) {
+                segment.remove(key);
+            }
+            invalidations.add(keys.size());
+            return keys.size();
+        }
+    }
+
+    /**
+     * Drops the results cached for a filter, and for every filter of the same identity, on all resources.
+     *
+     * @param filter the filter (must not be {@code null}).
+     * @return the number of results dropped.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     */
+    public int invalidate(Filter filter) {
+        String identity = identity(filter);
+        int dropped = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.generation++;
+                Iterator<Key> keys = segment.keySet().iterator();
+                while (keys.hasNext()) {
+                    Key key = keys.next();
+                    if (key.filter.equals(identity)) {
+                        keys.remove();
+                        segment.unlink(key);
+                        dropped++;
+                    }
+                }
+            }
+        }
+        invalidations.add(dropped);
+        return dropped;
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.generation++;
+                invalidations.add(segment.size());
+                segment.clear();
+                segment.keysByResource.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the canonical identity of a filter: its JSON representation with the children of every {@code AND}
+     * and {@code OR} deduplicated and flattened into a parent of the same type, single children unwrapped and
+     * double negations removed. Equivalent filters written differently in these ways share cached results.
+     * Children keep their declared order: they are evaluated from left to right, so a reordered filter may throw
+     * where the cached one short-circuited and does not share its results.
+     * The identity of a filter instance is computed once.
+     *
+     * @param filter the filter (must not be {@code null}).
+     * @return the canonical identity of {@code filter}.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     */
+    public String identity(Filter filter) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        return identities.get(filter, key -> key.accept(new Canonicalizer()));
+    }
+
+    /**
+     * Returns the number of cached results, expired ones included until they are looked up or evicted.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of cached results.
+     *
+     * @return the maximum size.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns how long a result is kept after it is computed.
+     *
+     * @return the time to live.
+     */
+    public Duration getTimeToLive() {
+        return Duration.ofNanos(timeToLive);
+    }
+
+    /**
+     * Returns a snapshot of the counters of this cache.
+     *
+     * @return the statistics of this cache.
+     */
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), invalidations.sum(), size());
+    }
+
+    /**
+     * Returns a string representation of this {@code EvaluationCache}.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code EvaluationCache}.
+     */
+    @Override
+    public String toString() {
+        return "{\"type\":\"EvaluationCache\",\"maximumSize\":\"" + maximumSize + "\",\"timeToLive\":\"" + getTimeToLive()
+            + "\",\"size\":\"" + size() + "\"}";
+    }
+
+    /**
+     * Computes canonical identities. After an {@code AND} or {@code OR}, {@link #junction} and {@link #terms} hold
+     * its type and children in declared order, so that a parent of the same type can take them over.
+     */
+    private static final class Canonicalizer implements FilterVisitor<String> {
+
+        private String junction;
+        private Set<String> terms;
+
+        private String leaf(Filter filter) {
+            junction = null;
+            return filter.toString();
+        }
+
+        private String junction(String type, List<Filter> children) {
+            Set<String> all = new LinkedHashSet<>();
+            for (Filter child : children) {
+                String term = child.accept(this);
+                if (type.equals(junction)) {
+                    all.addAll(terms);
+                } else {
+                    all.add(term);
+                }
+            }
+            if (all.size() == 1) {
+                junction = null;
+                return all.iterator().next();
+            }
+            junction = type;
+            terms = all;
+            return "{\"type\":\"" + type + "\",\"filters\":[" + String.join(",", all) + "]}";
+        }
+
+        @Override
+        public String visitTrue(TrueFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public String visitFalse(FalseFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public String visitGreaterThan(GreaterThanFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public String visitLessThan(LessThanFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public String visitEqualsTo(IsEqualFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public String visitIsPresent(IsPresentFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public String visitMatchesExpression(MatchesExpressionFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public String visitNot(NotFilter filter) {
+            String inner = filter.getFilter().accept(this);
+            junction = null;
+            if (inner.startsWith(NOT_PREFIX)) {
+                return inner.substring(NOT_PREFIX.length(), inner.length() - 1);
+            }
+            return NOT_PREFIX + inner + "}";
+        }
+
+        @Override
+        public String visitAnd(AndFilter filter) {
+            return junction("AND", filter.getFilters());
+        }
+
+        @Override
+        public String visitOr(OrFilter filter) {
+            return junction("OR", filter.getFilters());
+        }
+
+        @Override
+        public String visitOther(Filter filter) {
+            return leaf(filter);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package handsoncode.column;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import handsoncode.filter.AndFilter;
+import handsoncode.filter.FalseFilter;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterVisitor;
+import handsoncode.filter.GreaterThanFilter;
+import handsoncode.filter.IsEqualFilter;
+import handsoncode.filter.IsPresentFilter;
+import handsoncode.filter.LessThanFilter;
+import handsoncode.filter.MatchesExpressionFilter;
+import handsoncode.filter.NotFilter;
+import handsoncode.filter.OrFilter;
+import handsoncode.filter.TrueFilter;
+
+/**
+ * {@code ColumnKernels} evaluates numeric thresholds over whole {@code double[]} columns at once, producing
+ * bitmasks of the matching rows: bit {@code i % 64} of word {@code i / 64} is set when row {@code i} matches,
+ * and bits past the last row are always clear. {@code NaN} stands for a missing value and, as with
+ * {@link GreaterThanFilter} and {@link LessThanFilter} on a resource without the property, matches no threshold.
+ * <p>
+ * When the {@code jdk.incubator.vector} module is available, compiled in with the {@code vector} Maven profile and
+ * resolved at run time with {@code --add-modules jdk.incubator.vector}, comparisons and bitmask combinations run
+ * on SIMD registers; otherwise the same operations run as scalar loops. The system property
+ * {@code handsoncode.column.scalar=true} forces the scalar loops.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * double[] ages = {17, 42, Double.NaN, 30};
+ * long[] adults = ColumnKernels.greaterThan(ages, 18);               // rows 1 and 3
+ * long[] thirties = ColumnKernels.between(ages, 29, 40);             // row 3
+ * long[] mask = ColumnKernels.evaluate(filter, Map.of("age", ages), ages.length);
+ * long count = ColumnKernels.cardinality(mask);
+ * }</pre>
+ */
+public final class ColumnKernels {
+
+    /** Name of the system property forcing the scalar loops. */
+    public static final String SCALAR_PROPERTY = "handsoncode.column.scalar";
+
+    private static final Kernels KERNELS = load();
+
+    private ColumnKernels() {
+    }
+
+    private static Kernels load() {
+        if (!Boolean.getBoolean(SCALAR_PROPERTY)) {
+            try {
+                // Loaded by name: the class is only compiled with the vector profile, and only links with the module.
+                return (Kernels) Class.forName(ColumnKernels.class.getPackageName() + ".VectorKernels")
+                    .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Fall back to the scalar loops.
+            }
+        }
+        return new ScalarKernels();
+    }
+
+    /**
+     * Returns whether the kernels run on the Vector API.
+     *
+     * @return {@code true} if comparisons and combinations are vectorized, {@code false} if they are scalar loops.
+     */
+    public static boolean isVectorized() {
+        return !(KERNELS instanceof ScalarKernels);
+    }
+
+    /**
+     * Returns the number of {@code long} words of a bitmask of {@code rows} rows.
+     *
+     * @param rows the number of rows.
+     * @return the length of the bitmask.
+     * @throws IllegalArgumentException if {@code rows} is negative.
+     */
+    public static int words(int rows) {
+        if (rows < 0) {
+            throw new IllegalArgumentException("rows must not be negative");
+        }
+        return (rows + 63) >>> 6;
+    }
+
+    /**
+     * Selects the rows whose value is greater than {@code threshold}.
+     *
+     * @param column the column values, {@code NaN} for missing values (must not be {@code null}).
+     * @param threshold the exclusive lower bound.
+     * @return the bitmask of the matching rows.
+     * @throws NullPointerException if {@code column} is {@code null}.
+     */
+    public static long[] greaterThan(double[] column, double threshold) {
+        Objects.requireNonNull(column, "column must not be null");
+        long[] mask = new long[words(column.length)];
+        KERNELS.greaterThan(column, threshold, mask);
+        return mask;
+    }
+
+    /**
+     * Selects the rows whose value is less than {@code threshold}.
+     *
+     * @param column the column values, {@code NaN} for missing values (must not be {@code null}).
+     * @param threshold the exclusive upper bound.
+     * @return the bitmask of the matching rows.
+     * @throws NullPointerException if {@code column} is {@code null}.
+     */
+    public static long[] lessThan(double[] column, double threshold) {
+        Objects.requireNonNull(column, "column must not be null");
+        long[] mask = new long[words(column.length)];
+        KERNELS.lessThan(column, threshold, mask);
+        return mask;
+    }
+
+    /**
+     * Selects the rows whose value is strictly between {@code low} and {@code high}, in a single pass.
+     *
+     * @param column the column values, {@code NaN} for missing values (must not be {@code null}).
+     * @param low the exclusive lower bound.
+     * @param high the exclusive upper bound.
+     * @return the bitmask of the matching rows.
+     * @throws NullPointerException if {@code column} is {@code null}.
+     */
+    public static long[] between(double[] column, double low, double high) {
+        Objects.requireNonNull(column, "column must not be null");
+        long[] mask = new long[words(column.length)];
+        KERNELS.between(column, low, high, mask);
+        return mask;
+    }
+
+    /**
+     * Selects the rows with a value, that is not {@code NaN}.
+     *
+     * @param column the column values, {@code NaN} for missing values (must not be {@code null}).
+     * @return the bitmask of the rows with a value.
+     * @throws NullPointerException if {@code column} is {@code null}.
+     */
+    public static long[] present(double[] column) {
+        Objects.requireNonNull(column, "column must not be null");
+        long[] mask = new long[words(column.length)];
+        for (int i = 0; i < column.length; i++) {
+            mask[i >>> 6] |= (column[i] == column[i] ? 1L : 0L) << i;
+        }
+        return mask;
+    }
+
+    /**
+     * Intersects two bitmasks.
+     *
+     * @param a a bitmask (must not be {@code null}).
+     * @param b a bitmask of the same length (must not be {@code null}).
+     * @return a new bitmask of the rows set in both.
+     * @throws NullPointerException if {@code a} or {@code b} is {@code null}.
+     * @throws IllegalArgumentException if the bitmasks differ in length.
+     */
+    public static long[] and(long[] a, long[] b) {
+        long[] result = new long[checkLengths(a, b)];
+        KERNELS.and(a, b, result);
+        return result;
+    }
+
+    /**
+     * Unites two bitmasks.
+     *
+     * @param a a bitmask (must not be {@code null}).
+     * @param b a bitmask of the same length (must not be {@code null}).
+     * @return a new bitmask of the rows set in either.
+     * @throws NullPointerException if {@code a} or {@code b} is {@code null}.
+     * @throws IllegalArgumentException if the bitmasks differ in length.
+     */
+    public static long[] or(long[] a, long[] b) {
+        long[] result = new long[checkLengths(a, b)];
+        KERNELS.or(a, b, result);
+        return result;
+    }
+
+    /**
+     * Complements a bitmask within its rows.
+     *
+     * @param mask a bitmask (must not be {@code null}).
+     * @param rows the number of rows of {@code mask}.
+     * @return a new bitmask of the rows not set in {@code mask}.
+     * @throws NullPointerException if {@code mask} is {@code null}.
+     * @throws IllegalArgumentException if {@code mask} is not a bitmask of {@code rows} rows.
+     */
+    public static long[] not(long[] mask, int rows) {
+        Objects.requireNonNull(mask, "mask must not be null");
+        if (mask.length != words(rows)) {
+            throw new IllegalArgumentException("mask has " + mask.length + " words, expected " + words(rows));
+        }
+        long[] result = new long[mask.length];
+        for (int i = 0; i < mask.length; i++) {
+            result[i] = ~mask[i];
+        }
+        if ((rows & 63) != 0) {
+            result[result.length - 1] &= (1L << rows) - 1;
+        }
+        return result;
+    }
+
+    /**
+     * Counts the rows set in a bitmask.
+     *
+     * @param mask a bitmask (must not be {@code null}).
+     * @return the number of bits set.
+     * @throws NullPointerException if {@code mask} is {@code null}.
+     */
+    public static long cardinality(long[] mask) {
+        Objects.requireNonNull(mask, "mask must not be null");
+        long count = 0;
+        for (long word : mask) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Evaluates a filter over columns, one bitmask per node. Thresholds of an {@code AND} on one property are
+     * folded into the tightest bounds and, when bounded on both sides, evaluated with {@link #between}.
+     *
+     * @param filter a filter made of thresholds, presence checks, {@code TRUE}, {@code FALSE}, {@code NOT},
+     *               {@code AND} and {@code OR} (must not be {@code null}).
+     * @param columns the columns by property name, each of {@code rows} values (must not be {@code null}).
+     * @param rows the number of rows.
+     * @return the bitmask of the rows matched by {@code filter}.
+     * @throws NullPointerException if {@code filter} or {@code columns} is {@code null}.
+     * @throws IllegalArgumentException if {@code filter} compares strings or patterns, a referenced column is
+     *                                  missing, or a column does not have {@code rows} values.
+     */
+    public static long[] evaluate(Filter filter, Map<String, double[]> columns, int rows) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        Objects.requireNonNull(columns, "columns must not be null");
+        return filter.accept(new Evaluator(columns, rows));
+    }
+
+    private static int checkLengths(long[] a, long[] b) {
+        Objects.requireNonNull(a, "a must not be null");
+        Objects.requireNonNull(b, "b must not be null");
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Bitmasks differ in length: " + a.length + " and " + b.length);
+        }
+        return a.length;
+    }
+
+    /** The tightest bounds of the thresholds of an {@code AND} on one property; a {@code NaN} bound matches nothing. */
+    private static final class Range {
+
+        double low;
+        double high;
+        boolean floored;
+        boolean bounded;
+
+        void above(double value) {
+            low = floored ? Math.max(low, value) : value;
+            floored = true;
+        }
+
+        void below(double value) {
+            high = bounded ? Math.min(high, value) : value;
+            bounded = true;
+        }
+    }
+
+    /** Computes the bitmask of every node of a filter tree. */
+    private static final class Evaluator implements FilterVisitor<long[]> {
+
+        private final Map<String, double[]> columns;
+        private final int rows;
+
+        Evaluator(Map<String, double[]> columns, int rows) {
+            this.columns = columns;
+            this.rows = rows;
+            words(rows);
+        }
+
+        private double[] column(String property) {
+            double[] column = columns.get(property);
+            if (column == null) {
+                throw new IllegalArgumentException("No column for property '" + property + "'");
+            }
+            if (column.length != rows) {
+                throw new IllegalArgumentException("Column '" + property + "' has " + column.length + " values, expected " + rows);
+            }
+            return column;
+        }
+
+        @Override
+        public long[] visitTrue(TrueFilter filter) {
+            return not(new long[words(rows)], rows);
+        }
+
+        @Override
+        public long[] visitFalse(FalseFilter filter) {
+            return new long[words(rows)];
+        }
+
+        @Override
+        public long[] visitGreaterThan(GreaterThanFilter filter) {
+            return greaterThan(column(filter.getProperty()), filter.getValue());
+        }
+
+        @Override
+        public long[] visitLessThan(LessThanFilter filter) {
+            return lessThan(column(filter.getProperty()), filter.getValue());
+        }
+
+        @Override
+        public long[] visitEqualsTo(IsEqualFilter filter) {
+            throw new IllegalArgumentException("Numeric columns cannot evaluate " + filter);
+        }
+
+        @Override
+        public long[] visitIsPresent(IsPresentFilter filter) {
+            return present(column(filter.getProperty()));
+        }
+
+        @Override
+        public long[] visitMatchesExpression(MatchesExpressionFilter filter) {
+            throw new IllegalArgumentException("Numeric columns cannot evaluate " + filter);
+        }
+
+        @Override
+        public long[] visitNot(NotFilter filter) {
+            return not(filter.getFilter().accept(this), rows);
+        }
+
+        @Override
+        public long[] visitAnd(AndFilter filter) {
+            Map<String, Range> ranges = new LinkedHashMap<>();
+            long[] result = null;
+            for (Filter child : filter.getFilters()) {
+                if (child instanceof GreaterThanFilter) {
+                    GreaterThanFilter greaterThan = (GreaterThanFilter) child;
+                    ranges.computeIfAbsent(greaterThan.getProperty(), property -> new Range()).above(greaterThan.getValue());
+                } else if (child instanceof LessThanFilter) {
+                    LessThanFilter lessThan = (LessThanFilter) child;
+                    ranges.computeIfAbsent(lessThan.getProperty(), property -> new Range()).below(lessThan.getValue());
+                } else {
+                    result = intersect(result, child.accept(this));
+                }
+            }
+            for (Map.Entry<String, Range> entry : ranges.entrySet()) {
+                double[] column = column(entry.getKey());
+                Range range = entry.getValue();
+                long[] mask;
+                if (!range.bounded) {
+                    mask = greaterThan(column, range.low);
+                } else if (!range.floored) {
+                    mask = lessThan(column, range.high);
+                } else {
+                    mask = between(column, range.low, range.high);
+                }
+                result = intersect(result, mask);
+            }
+            return result;
+        }
+
+        private static long[] intersect(long[] result, long[] mask) {
+            if (result == null) {
+                return mask;
+            }
+            KERNELS.and(result, mask, result);
+            return result;
+        }
+
+        @Override
+        public long[] visitOr(OrFilter filter) {
+            List<Filter> children = filter.getFilters();
+            long[] result = children.get(0).accept(this);
+            for (int i = 1; i < children.size(); i++) {
+                KERNELS.or(result, children.get(i).accept(this), result);
+            }
+            return result;
+        }
+
+        @Override
+        public long[] visitOther(Filter filter) {
+            throw new IllegalArgumentException("Numeric columns cannot evaluate " + filter);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package handsoncode.column;
+
+/**
+ * Bulk comparisons of a {@code double} column against thresholds, and bitwise combinations of bitmasks.
+ * Kernels set bit {@code i % 64} of word {@code i / 64} of {@code mask} for every matching row {@code i},
+ * ORing into words that must be zero on entry; {@code NaN}, a missing value, never matches.
+ */
+interface Kernels {
+
+    void greaterThan(double[] column, double threshold, long[] mask);
+
+    void lessThan(double[] column, double threshold, long[] mask);
+
+    /** Rows strictly between {@code low} and {@code high}. */
+    void between(double[] column, double low, double high, long[] mask);
+
+    /** Stores {@code a & b} into {@code result}, which may be either operand. */
+    void and(long[] a, long[] b, long[] result);
+
+    /** Stores {@code a | b} into {@code result}, which may be either operand. */
+    void or(long[] a, long[] b, long[] result);
+}
@@ -0,0 +1,56 @@
+package handsoncode.column;
+
+/** Portable {@link Kernels}, building every mask word in a register with branch-free comparisons. */
+final class ScalarKernels implements Kernels {
+
+    @Override
+    public void greaterThan(double[] column, double threshold, long[] mask) {
+        for (int base = 0; base < column.length; base += 64) {
+            int end = Math.min(column.length, base + 64);
+            long word = 0;
+            for (int i = base; i < end; i++) {
+                word |= (column[i] > threshold ? 1L : 0L) << i;
+            }
+            mask[base >>> 6] |= word;
+        }
+    }
+
+    @Override
+    public void lessThan(double[] column, double threshold, long[] mask) {
+        for (int base = 0; base < column.length; base += 64) {
+            int end = Math.min(column.length, base + 64);
+            long word = 0;
+            for (int i = base; i < end; i++) {
+                word |= (column[i] < threshold ? 1L : 0L) << i;
+            }
+            mask[base >>> 6] |= word;
+        }
+    }
+
+    @Override
+    public void between(double[] column, double low, double high, long[] mask) {
+        for (int base = 0; base < column.length; base += 64) {
+            int end = Math.min(column.length, base + 64);
+            long word = 0;
+            for (int i = base; i < end; i++) {
+                double value = column[i];
+                word |= (value > low & value < high ? 1L : 0L) << i;
+            }
+            mask[base >>> 6] |= word;
+        }
+    }
+
+    @Override
+    public void and(long[] a, long[] b, long[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] & b[i];
+        }
+    }
+
+    @Override
+    public void or(long[] a, long[] b, long[] result) {
+        for (int i = 0; i < result.length; i++) {
+            result[i] = a[i] | b[i];
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package handsoncode.column;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link Kernels} on the {@code jdk.incubator.vector} API: each comparison covers a full vector of rows and its
+ * lane mask is shifted into the mask word as is, since the number of lanes divides 64. Rows past the last full
+ * vector are compared one at a time.
+ * <p>Only compiled by the {@code vector} Maven profile, and only loaded when the module is resolved at run time,
+ * see {@link ColumnKernels}.</p>
+ */
+final class VectorKernels implements Kernels {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public void greaterThan(double[] column, double threshold, long[] mask) {
+        int bound = DOUBLES.loopBound(column.length);
+        for (int i = 0; i < bound; i += DOUBLES.length()) {
+            long bits = DoubleVector.fromArray(DOUBLES, column, i).compare(VectorOperators.GT, threshold).toLong();
+            mask[i >>> 6] |= bits << i;
+        }
+        for (int i = bound; i < column.length; i++) {
+            mask[i >>> 6] |= (column[i] > threshold ? 1L : 0L) << i;
+        }
+    }
+
+    @Override
+    public void lessThan(double[] column, double threshold, long[] mask) {
+        int bound = DOUBLES.loopBound(column.length);
+        for (int i = 0; i < bound; i += DOUBLES.length()) {
+            long bits = DoubleVector.fromArray(DOUBLES, column, i).compare(VectorOperators.LT, threshold).toLong();
+            mask[i >>> 6] |= bits << i;
+        }
+        for (int i = bound; i < column.length; i++) {
+            mask[i >>> 6] |= (column[i] < threshold ? 1L : 0L) << i;
+        }
+    }
+
+    @Override
+    public void between(double[] column, double low, double high, long[] mask) {
+        int bound = DOUBLES.loopBound(column.length);
+        for (int i = 0; i < bound; i += DOUBLES.length()) {
+            DoubleVector values = DoubleVector.fromArray(DOUBLES, column, i);
+            long bits = values.compare(VectorOperators.GT, low).and(values.compare(VectorOperators.LT, high)).toLong();
+            mask[i >>> 6] |= bits << i;
+        }
+        for (int i = bound; i < column.length; i++) {
+            double value = column[i];
+            mask[i >>> 6] |= (value > low & value < high ? 1L : 0L) << i;
+        }
+    }
+
+    @Override
+    public void and(long[] a, long[] b, long[] result) {
+        int bound = LONGS.loopBound(result.length);
+        for (int i = 0; i < bound; i += LONGS.length()) {
+            LongVector.fromArray(LONGS, a, i).and(LongVector.fromArray(LONGS, b, i)).intoArray(result, i);
+        }
+        for (int i = bound; i < result.length; i++) {
+            result[i] = a[i] & b[i];
+        }
+    }
+
+    @Override
+    public void or(long[] a, long[] b, long[] result) {
+        int bound = LONGS.loopBound(result.length);
+        for (int i = 0; i < bound; i += LONGS.length()) {
+            LongVector.fromArray(LONGS, a, i).or(LongVector.fromArray(LONGS, b, i)).intoArray(result, i);
+        }
+        for (int i = bound; i < result.length; i++) {
+            result[i] = a[i] | b[i];
+        }
+    }
+}
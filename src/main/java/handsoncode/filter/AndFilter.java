@@ -4,6 +4,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.RandomAccess;
+
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
 
 /**
  * {@code AndFilter} is a concrete implementation of the {@link Filter} interface
@@ -22,6 +26,8 @@ import java.util.Objects;
 public class AndFilter implements Filter {
     
     private final List<Filter> filters;
+    /** Whether {@link #filters} is iterated by index, which unlike its iterator allocates nothing. */
+    private final boolean indexed;
     
     /**
      * Constructs an {@code AndFilter} with the specified list of filters.
@@ -37,6 +43,7 @@ public class AndFilter implements Filter {
             throw new IllegalArgumentException("At least one filter is required");
         }
         this.filters = filters;
+        this.indexed = filters instanceof RandomAccess;
     }
 
      /**
@@ -48,6 +55,15 @@ public class AndFilter implements Filter {
      */
     @Override
     public boolean matches(Map<String,String> resource) {
+        if (indexed) {
+            for (int i = 0; i < filters.size(); i++){
+                if(!filters.get(i).matches(resource))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
         for (Filter filter : filters){
             if(!filter.matches(resource))
             {
@@ -58,6 +74,76 @@ public class AndFilter implements Filter {
 
     }
 
+    /**
+     * Checks whether all filters match the resource, sharing {@code context} between them.
+     *
+     * @param resource a {@link Map} representing the resource data.
+     * @param context the evaluation context of {@code resource}.
+     * @return {@code true} if all filters match, {@code false} otherwise.
+     */
+    @Override
+    public boolean matches(Map<String,String> resource, EvaluationContext context) {
+        if (indexed) {
+            for (int i = 0; i < filters.size(); i++){
+                if(!filters.get(i).matches(resource, context))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (Filter filter : filters){
+            if(!filter.matches(resource, context))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Binds every child filter to {@code schema}; the bound filter stops at the first child that does not match.
+     *
+     * @param schema the schema of the resources to evaluate.
+     * @return a {@link BoundFilter} equivalent to this {@code AndFilter}.
+     */
+    @Override
+    public BoundFilter bind(ResourceSchema schema) {
+        BoundFilter[] bound = new BoundFilter[filters.size()];
+        for (int i = 0; i < bound.length; i++) {
+            bound[i] = filters.get(i).bind(schema);
+        }
+        return (resource, context) -> {
+            for (BoundFilter filter : bound) {
+                if (!filter.matches(resource, context)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Returns the filters combined by this logical AND.
+     *
+     * @return an unmodifiable list of the child filters.
+     */
+    public List<Filter> getFilters() {
+        return LazyFilter.parsed(filters);
+    }
+
+    /**
+     * Dispatches to {@link FilterVisitor#visitAnd(AndFilter)}.
+     *
+     * @param <R> the type of the result of the visit.
+     * @param visitor the visitor.
+     * @return the result of the visit.
+     */
+    @Override
+    public <R> R accept(FilterVisitor<R> visitor) {
+        return visitor.visitAnd(this);
+    }
+
     /**
      * Returns a string representation of this {@code AndFilter}, describing the type and filters applied.
      * The string format is a JSON-like representation.
@@ -0,0 +1,98 @@
+package handsoncode.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+
+/**
+ * Evaluates sibling {@link MatchesExpressionFilter}s of an {@link OrFilter} on the same property with a single
+ * {@link MultiPatternMatcher}, so the property value is scanned once whatever the number of patterns.
+ * It only exists inside the evaluation plan of an {@code OrFilter}, see {@link OrFilter#getEvaluatedFilters()}, and
+ * is never exposed by its {@code getFilters()}. Visitors receive it through {@link FilterVisitor#visitOther(Filter)}.
+ */
+public final class CombinedPatternsFilter implements Filter {
+
+    private final String property;
+    private final List<MatchesExpressionFilter> filters;
+    private final MultiPatternMatcher matcher;
+
+    CombinedPatternsFilter(String property, List<MatchesExpressionFilter> filters) {
+        this.property = property;
+        this.filters = filters;
+        List<String> regexes = new ArrayList<>();
+        for (MatchesExpressionFilter filter : filters) {
+            regexes.add(filter.getValue());
+        }
+        this.matcher = MultiPatternMatcher.compile(regexes);
+    }
+
+    /**
+     * Checks whether the property is present in the resource and at least one of the patterns is found in its
+     * value, scanning the value once.
+     *
+     * @param resource a {@link Map} representing the resource data, where the key is a {@link String}
+     *                 (the property name), and the value is a {@link String} (the property value).
+     * @return {@code true} if one of the patterns matches the property value, {@code false} otherwise.
+     */
+    @Override
+    public boolean matches(Map<String, String> resource) {
+        return resource.containsKey(property) && matcher.find(resource.get(property));
+    }
+
+    /**
+     * Resolves the property to its slot in {@code schema}, matching the patterns against the text of the value
+     * without copying it. A property the schema does not declare never matches, so the bound filter is
+     * {@link FalseFilter}'s.
+     *
+     * @param schema the schema of the resources to evaluate.
+     * @return a {@link BoundFilter} equivalent to this {@code CombinedPatternsFilter}.
+     */
+    @Override
+    public BoundFilter bind(ResourceSchema schema) {
+        int slot = schema.slotOf(property);
+        if (slot == ResourceSchema.NO_SLOT) {
+            return FalseFilter.getInstance().bind(schema);
+        }
+        return (resource, context) -> {
+            CharSequence propertyValue = resource.getText(slot);
+            return propertyValue != null && matcher.find(propertyValue);
+        };
+    }
+
+    /**
+     * Returns the property whose value the patterns are searched in.
+     *
+     * @return the property name.
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Returns the pattern filters evaluated together, in declared order.
+     *
+     * @return an unmodifiable list of the pattern filters.
+     */
+    public List<MatchesExpressionFilter> getFilters() {
+        return Collections.unmodifiableList(filters);
+    }
+
+    /**
+     * Returns a string representation of this {@code CombinedPatternsFilter}: the {@code OR} of the combined
+     * patterns, in declared order. The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code CombinedPatternsFilter}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder filterstring = new StringBuilder("{\"type\":\"OR\",\"filters\":[");
+        for (int i = 0; i < filters.size(); i++) {
+            filterstring.append(i > 0 ? "," : "").append(filters.get(i));
+        }
+        return filterstring.append("]}").toString();
+    }
+}
@@ -0,0 +1,168 @@
+package handsoncode.filter;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+import static handsoncode.utils.UtilsFilter.parseNumericProperty;
+
+/**
+ * {@code EvaluationContext} carries per-resource state through {@link Filter#matches(Map, EvaluationContext)}.
+ * <p>
+ * It memoizes the numeric value of every property read by {@link GreaterThanFilter} and {@link LessThanFilter}
+ * leaves, so that a property is parsed at most once per resource no matter how many leaves compare it.
+ * Values are kept as primitive {@code double}s in an open-addressing table; {@link #reset()} forgets them in
+ * constant time and must be called before evaluating the next resource.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * EvaluationContext context = new EvaluationContext();
+ * for (Map<String, String> resource : resources) {
+ *     boolean result = context.matches(filter, resource);  // resets the cache, then evaluates
+ * }
+ * }</pre>
+ *
+ * <p>A context is not thread-safe: use one instance per evaluating thread.</p>
+ */
+public final class EvaluationContext {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final EvaluationContext UNCACHED = new EvaluationContext(false);
+
+    private final boolean caching;
+    private String[] properties;
+    private double[] values;
+    private boolean[] invalid;
+    private int[] generations;
+    private int generation = 1;
+    private int size;
+
+    /**
+     * Constructs an empty {@code EvaluationContext}.
+     */
+    public EvaluationContext() {
+        this(true);
+    }
+
+    private EvaluationContext(boolean caching) {
+        this.caching = caching;
+        if (caching) {
+            allocate(INITIAL_CAPACITY);
+        }
+    }
+
+    /**
+     * Returns a shared context that caches nothing and parses every value it is asked for.
+     * It is stateless and can be used from any thread.
+     *
+     * @return the shared non-caching context.
+     */
+    public static EvaluationContext uncached() {
+        return UNCACHED;
+    }
+
+    /**
+     * Forgets every value cached for the previous resource.
+     */
+    public void reset() {
+        if (!caching) {
+            return;
+        }
+        size = 0;
+        if (++generation == 0) {
+            Arrays.fill(generations, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Resets this context and evaluates {@code filter} against {@code resource}.
+     *
+     * @param filter the filter to evaluate (must not be {@code null}).
+     * @param resource the resource to check (must not be {@code null}).
+     * @return {@code true} if the filter matches, {@code false} otherwise.
+     */
+    public boolean matches(Filter filter, Map<String, String> resource) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        reset();
+        return filter.matches(resource, this);
+    }
+
+    /**
+     * Returns the numeric value of a property of the current resource, parsing it only on first access.
+     *
+     * @param property the property name.
+     * @param value the raw value of the property in the current resource.
+     * @return the parsed value.
+     * @throws IllegalArgumentException if {@code value} is not a valid number. Failures are cached too.
+     */
+    public double numericValue(String property, String value) {
+        if (!caching) {
+            return parseNumericProperty(property, value);
+        }
+        int mask = properties.length - 1;
+        int index = property.hashCode() & mask;
+        while (generations[index] == generation) {
+            String cached = properties[index];
+            if (cached == property || cached.equals(property)) {
+                if (invalid[index]) {
+                    return parseNumericProperty(property, value);
+                }
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+
+        double parsed;
+        try {
+            parsed = parseNumericProperty(property, value);
+        } catch (IllegalArgumentException e) {
+            store(index, property, 0, true);
+            throw e;
+        }
+        store(index, property, parsed, false);
+        return parsed;
+    }
+
+    private void store(int index, String property, double value, boolean failed) {
+        properties[index] = property;
+        values[index] = value;
+        invalid[index] = failed;
+        generations[index] = generation;
+        if (++size * 2 > properties.length) {
+            grow();
+        }
+    }
+
+    private void grow() {
+        String[] oldProperties = properties;
+        double[] oldValues = values;
+        boolean[] oldInvalid = invalid;
+        int[] oldGenerations = generations;
+        int oldGeneration = generation;
+
+        allocate(oldProperties.length * 2);
+        int mask = properties.length - 1;
+        for (int i = 0; i < oldProperties.length; i++) {
+            if (oldGenerations[i] == oldGeneration) {
+                int index = oldProperties[i].hashCode() & mask;
+                while (generations[index] == generation) {
+                    index = (index + 1) & mask;
+                }
+                properties[index] = oldProperties[i];
+                values[index] = oldValues[i];
+                invalid[index] = oldInvalid[i];
+                generations[index] = generation;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        properties = new String[capacity];
+        values = new double[capacity];
+        invalid = new boolean[capacity];
+        generations = new int[capacity];
+        generation = 1;
+    }
+}
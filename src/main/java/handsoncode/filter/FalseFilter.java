@@ -2,6 +2,9 @@ package handsoncode.filter;
 
 import java.util.Map;
 
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+
 /**
  * {@code FalseFilter} is a singleton implementation of the {@link Filter} interface 
  * that always returns {@code false}.
@@ -40,6 +43,29 @@ public class FalseFilter implements Filter {
         return value;
     }
 
+    /**
+     * Returns a bound filter that always returns {@code false}.
+     *
+     * @param schema the schema of the resources to evaluate (not used in this implementation).
+     * @return a {@link BoundFilter} that always returns {@code false}.
+     */
+    @Override
+    public BoundFilter bind(ResourceSchema schema) {
+        return (resource, context) -> false;
+    }
+
+    /**
+     * Dispatches to {@link FilterVisitor#visitFalse(FalseFilter)}.
+     *
+     * @param <R> the type of the result of the visit.
+     * @param visitor the visitor.
+     * @return the result of the visit.
+     */
+    @Override
+    public <R> R accept(FilterVisitor<R> visitor) {
+        return visitor.visitFalse(this);
+    }
+
     /**
      * Returns a string representation of the {@code FalseFilter}.
      * The string format is a JSON-like representation.
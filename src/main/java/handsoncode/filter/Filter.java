@@ -1,6 +1,11 @@
 package handsoncode.filter;
 
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
 
 /**
  * Represents a filter that evaluates whether a given resource matches certain criteria.
@@ -24,6 +29,79 @@ public interface Filter
      */
     boolean matches(Map<String,String> resource);
 
+    /**
+     * Checks if the filter matches the given resource, sharing per-resource state such as parsed
+     * numeric values through {@code context}.
+     * <p>
+     * The default implementation ignores the context and calls {@link #matches(Map)}. Composite filters
+     * pass the context on to their children so that every leaf of a tree shares it.
+     * </p>
+     *
+     * @param resource A map {@code Map<String,String>} representing the resource to check (never {@code null}).
+     * @param context The evaluation context of {@code resource} (never {@code null}).
+     * @return {@code true} if the filter matches, {@code false} otherwise.
+     */
+    default boolean matches(Map<String,String> resource, EvaluationContext context) {
+        return matches(resource);
+    }
+
+    /**
+     * Adapts this filter to a {@link Predicate}, for use with {@link java.util.stream.Stream#filter(Predicate)}
+     * and the other {@code java.util.function} based APIs.
+     *
+     * @return a predicate that is {@code true} for the resources this filter matches.
+     */
+    default Predicate<Map<String,String>> asPredicate() {
+        return this::matches;
+    }
+
+    /**
+     * Binds this filter to a schema, resolving every property name it reads to a slot once so that
+     * evaluating the returned {@link BoundFilter} against a {@link handsoncode.resource.Resource}
+     * is plain array indexing.
+     * <p>
+     * The default implementation keeps custom filters working by adapting the resource to a
+     * {@code Map} with {@link handsoncode.resource.Resource#asMap()} and calling {@link #matches(Map)}.
+     * </p>
+     *
+     * @param schema the schema of the resources the bound filter will be evaluated against (must not be {@code null}).
+     * @return a {@link BoundFilter} equivalent to this filter on resources of {@code schema}.
+     * @throws NullPointerException if {@code schema} is {@code null}.
+     */
+    default BoundFilter bind(ResourceSchema schema) {
+        Objects.requireNonNull(schema, "schema must not be null");
+        return (resource, context) -> matches(resource.asMap(), context);
+    }
+
+    /**
+     * Dispatches to the method of {@code visitor} matching the type of this filter.
+     * <p>
+     * The default implementation calls {@link FilterVisitor#visitOther(Filter)}, so custom filters
+     * can be traversed by every visitor.
+     * </p>
+     *
+     * @param <R> the type of the result of the visit.
+     * @param visitor the visitor (must not be {@code null}).
+     * @return the result of the visit.
+     */
+    default <R> R accept(FilterVisitor<R> visitor) {
+        return visitor.visitOther(this);
+    }
+
+    /**
+     * Returns the resource properties this filter reads and how it reads them.
+     * <p>
+     * Library filters are immutable; the default implementation computes this once per instance and caches
+     * the result, see {@link ReferencedProperties#of(Filter)}. It reports custom filters as reading unknown
+     * properties, see {@link ReferencedProperties#isComplete()}.
+     * </p>
+     *
+     * @return the referenced properties of this filter.
+     */
+    default ReferencedProperties referencedProperties() {
+        return ReferencedProperties.of(this);
+    }
+
     /**
      * Provides a string representation of the filter.
      *
@@ -1,7 +1,10 @@
 package handsoncode.filter;
 
 import com.google.gson.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * A factory class for creating various types of {@link Filter} objects.
@@ -184,5 +187,75 @@ public class FilterFactory {
     public static Filter fromString(String filterString) {
         return gson.fromJson(filterString, Filter.class);
     }
-}
 
+    /**
+     * Converts a JSON string representation of a filter into a {@link Filter} object, deferring the parsing of
+     * the children of {@code AND}, {@code OR} and {@code NOT} filters until they are first evaluated.
+     * <p>
+     * Each child is kept as a slice of {@code filterString} and parsed, thread-safely, the first time it is used;
+     * its own children stay unparsed until then in turn. A large generated {@code OR} whose evaluation usually
+     * stops after a few children thus only pays for those. The filters behave exactly like the ones returned by
+     * {@link #fromString(String)}, except that an invalid child is only reported when it is first evaluated or
+     * returned by an accessor such as {@link AndFilter#getFilters()}, which parses the children it returns.
+     * </p>
+     *
+     * Example Usage:
+     * <pre>{@code
+     * Filter blocklist = FilterFactory.fromStringLazy(Files.readString(Path.of("blocklist.json")));
+     * boolean blocked = blocklist.matches(resource);  // parses the children up to the first match
+     * }</pre>
+     *
+     * @param filterString The JSON string representing a filter.
+     * @return A {@link Filter} object parsed from the JSON string, or {@code null} like {@link #fromString(String)}.
+     * @throws JsonParseException If the JSON string is not a valid filter representation, at the top level.
+     */
+    public static Filter fromStringLazy(String filterString) {
+        if (filterString == null) {
+            return fromString(filterString);
+        }
+        return LazyFilter.parse(filterString, 0, filterString.length());
+    }
+
+    /**
+     * Builds the lazily computed state of every node of a filter: parses the children left unparsed by
+     * {@link #fromStringLazy(String)}, builds the evaluation plan of every {@code OR} and computes the
+     * {@link Filter#referencedProperties()}, so that the first evaluations do not pay for them. Unlike evaluating
+     * the filter once, this reaches the nodes an evaluation would skip by short-circuiting.
+     *
+     * Example Usage:
+     * <pre>{@code
+     * Filter filter = FilterFactory.fromStringLazy(json);
+     * FilterFactory.prepare(filter);  // reports an invalid child now, not on first evaluation
+     * }</pre>
+     *
+     * @param filter the filter to prepare (must not be {@code null}).
+     * @return {@code filter}.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     * @throws JsonParseException if a child left unparsed is not a valid filter representation.
+     */
+    public static Filter prepare(Filter filter) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        filter.referencedProperties();
+        // An explicit stack rather than a visitor, so that deeply nested filters do not overflow the call stack.
+        Deque<Filter> pending = new ArrayDeque<>();
+        pending.push(filter);
+        while (!pending.isEmpty()) {
+            Filter node = pending.pop();
+            if (node instanceof LazyFilter) {
+                node = ((LazyFilter) node).filter();
+            }
+            if (node instanceof NotFilter) {
+                pending.push(((NotFilter) node).getFilter());
+            } else if (node instanceof AndFilter) {
+                ((AndFilter) node).getFilters().forEach(pending::push);
+            } else if (node instanceof OrFilter) {
+                // Parses the children first, so that the plan sees what they are.
+                for (Filter child : ((OrFilter) node).getFilters()) {
+                    pending.push(child instanceof LazyFilter ? ((LazyFilter) child).filter() : child);
+                }
+                ((OrFilter) node).evaluated();
+            }
+        }
+        return filter;
+    }
+}
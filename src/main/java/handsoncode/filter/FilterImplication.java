@@ -0,0 +1,459 @@
+package handsoncode.filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import handsoncode.utils.UtilsFilter;
+
+/**
+ * {@code FilterImplication} decides whether a filter implies another: whether every resource matched by the
+ * premise is matched by the conclusion. A narrowed query can then be answered from the results of the broader one.
+ * <p>
+ * The premise is conjoined with the negation of the conclusion, both rewritten with negations on the leaves, and
+ * every branch of the {@code OR}s is refuted: a branch is contradictory when its leaves on a property cannot hold
+ * together. Numeric thresholds are intervals, with their negations allowing a missing value, {@code EqualsTo}
+ * values are compared ignoring case, also against thresholds when they are plain numbers, and {@code isPresent}
+ * excludes missing and blank values. Patterns and custom filters are only related to themselves.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * Filter adults = FilterFactory.greaterThan("age", 17);
+ * Filter adultAdmins = FilterFactory.and(List.of(FilterFactory.equalsTo("role", "admin"), FilterFactory.greaterThan("age", 20)));
+ * boolean narrower = FilterImplication.implies(adultAdmins, adults);  // true
+ * boolean broader = FilterImplication.implies(adults, adultAdmins);   // false
+ * }</pre>
+ *
+ * <p>The procedure is sound: {@code true} is always right, for the resources on which both filters evaluate without
+ * throwing. It is incomplete: beyond {@value #MAX_BRANCHES} branches, or outside the relations above, it answers
+ * {@code false}.</p>
+ */
+public final class FilterImplication {
+
+    /** Maximal number of {@code OR} branches explored before giving up. */
+    static final int MAX_BRANCHES = 4096;
+
+    private FilterImplication() {
+        throw new AssertionError("Utility class, should not be instantiated");
+    }
+
+    /**
+     * Decides whether {@code premise} implies {@code conclusion}.
+     *
+     * @param premise the narrower filter (must not be {@code null}).
+     * @param conclusion the broader filter (must not be {@code null}).
+     * @return {@code true} if every resource matching {@code premise} provably matches {@code conclusion}.
+     * @throws NullPointerException if {@code premise} or {@code conclusion} is {@code null}.
+     */
+    public static boolean implies(Filter premise, Filter conclusion) {
+        Objects.requireNonNull(premise, "premise must not be null");
+        Objects.requireNonNull(conclusion, "conclusion must not be null");
+        Node refuted = Node.and(List.of(premise.accept(new Converter()), conclusion.accept(new Converter()).negate()));
+        return isContradictory(refuted);
+    }
+
+    /**
+     * Decides whether two filters match the same resources.
+     *
+     * @param first a filter (must not be {@code null}).
+     * @param second a filter (must not be {@code null}).
+     * @return {@code true} if each filter provably implies the other.
+     * @throws NullPointerException if {@code first} or {@code second} is {@code null}.
+     */
+    public static boolean isEquivalent(Filter first, Filter second) {
+        return implies(first, second) && implies(second, first);
+    }
+
+    /**
+     * Decides whether a filter matches no resource.
+     *
+     * @param filter the filter (must not be {@code null}).
+     * @return {@code true} if {@code filter} provably matches no resource.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     */
+    public static boolean isUnsatisfiable(Filter filter) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        return isContradictory(filter.accept(new Converter()));
+    }
+
+    private static boolean isContradictory(Node node) {
+        List<Node> pending = new ArrayList<>();
+        pending.add(node);
+        try {
+            return new Search().refutes(pending, new Constraints());
+        } catch (BudgetExceeded e) {
+            return false;
+        }
+    }
+
+    /** A filter with negations on the leaves. */
+    private static final class Node {
+
+        static final int TRUE = 0;
+        static final int FALSE = 1;
+        static final int AND = 2;
+        static final int OR = 3;
+        static final int LITERAL = 4;
+
+        static final Node ALWAYS = new Node(TRUE, null, null);
+        static final Node NEVER = new Node(FALSE, null, null);
+
+        final int kind;
+        final List<Node> children;
+        final Literal literal;
+
+        private Node(int kind, List<Node> children, Literal literal) {
+            this.kind = kind;
+            this.children = children;
+            this.literal = literal;
+        }
+
+        static Node and(List<Node> children) {
+            return new Node(AND, children, null);
+        }
+
+        static Node literal(Literal literal) {
+            return new Node(LITERAL, null, literal);
+        }
+
+        Node negate() {
+            switch (kind) {
+                case TRUE:
+                    return NEVER;
+                case FALSE:
+                    return ALWAYS;
+                case LITERAL:
+                    return literal(literal.negate());
+                default:
+                    List<Node> negated = new ArrayList<>(children.size());
+                    for (Node child : children) {
+                        negated.add(child.negate());
+                    }
+                    return new Node(kind == AND ? OR : AND, negated, null);
+            }
+        }
+    }
+
+    /** A leaf, possibly negated. Opaque leaves are identified by {@link #key}. */
+    private static final class Literal {
+
+        static final int GREATER = 0;
+        static final int LESS = 1;
+        static final int EQUALS = 2;
+        static final int PRESENT = 3;
+        static final int OPAQUE = 4;
+
+        final int kind;
+        final String property;
+        final double threshold;
+        final String value;
+        final Object key;
+        final boolean negated;
+
+        Literal(int kind, String property, double threshold, String value, Object key, boolean negated) {
+            this.kind = kind;
+            this.property = property;
+            this.threshold = threshold;
+            this.value = value;
+            this.key = key;
+            this.negated = negated;
+        }
+
+        Literal negate() {
+            return new Literal(kind, property, threshold, value, key, !negated);
+        }
+    }
+
+    /** Converts filters to {@link Node}s, keeping the children of {@code OR} as written rather than as evaluated. */
+    private static final class Converter implements FilterVisitor<Node> {
+
+        @Override
+        public Node visitTrue(TrueFilter filter) {
+            return Node.ALWAYS;
+        }
+
+        @Override
+        public Node visitFalse(FalseFilter filter) {
+            return Node.NEVER;
+        }
+
+        @Override
+        public Node visitGreaterThan(GreaterThanFilter filter) {
+            return Node.literal(new Literal(Literal.GREATER, filter.getProperty(), filter.getValue(), null, null, false));
+        }
+
+        @Override
+        public Node visitLessThan(LessThanFilter filter) {
+            return Node.literal(new Literal(Literal.LESS, filter.getProperty(), filter.getValue(), null, null, false));
+        }
+
+        @Override
+        public Node visitEqualsTo(IsEqualFilter filter) {
+            return Node.literal(new Literal(Literal.EQUALS, filter.getProperty(), 0, UtilsFilter.foldCase(filter.getValue()), null, false));
+        }
+
+        @Override
+        public Node visitIsPresent(IsPresentFilter filter) {
+            return Node.literal(new Literal(Literal.PRESENT, filter.getProperty(), 0, null, null, false));
+        }
+
+        @Override
+        public Node visitMatchesExpression(MatchesExpressionFilter filter) {
+            return Node.literal(new Literal(Literal.OPAQUE, filter.getProperty(), 0, null,
+                List.of(filter.getProperty(), filter.getValue()), false));
+        }
+
+        @Override
+        public Node visitNot(NotFilter filter) {
+            return filter.getFilter().accept(this).negate();
+        }
+
+        @Override
+        public Node visitAnd(AndFilter filter) {
+            return junction(Node.AND, filter.getFilters());
+        }
+
+        @Override
+        public Node visitOr(OrFilter filter) {
+            return junction(Node.OR, filter.getFilters());
+        }
+
+        private Node junction(int kind, List<Filter> filters) {
+            List<Node> children = new ArrayList<>(filters.size());
+            for (Filter child : filters) {
+                children.add(child.accept(this));
+            }
+            return new Node(kind, children, null);
+        }
+
+        @Override
+        public Node visitOther(Filter filter) {
+            return Node.literal(new Literal(Literal.OPAQUE, null, 0, null, filter, false));
+        }
+    }
+
+    /** Thrown when the search explores more than {@link #MAX_BRANCHES} branches. */
+    private static final class BudgetExceeded extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        BudgetExceeded() {
+            super(null, null, false, false);
+        }
+    }
+
+    /** Depth-first search for a branch whose literals are consistent. */
+    private static final class Search {
+
+        private int branches;
+
+        /**
+         * Whether every branch of the conjunction of {@code pending} and {@code constraints} is contradictory.
+         * Literals are added before branching on an {@code OR}, so that contradictions prune the search early.
+         */
+        boolean refutes(List<Node> pending, Constraints constraints) {
+            List<Node> disjunctions = new ArrayList<>();
+            while (!pending.isEmpty()) {
+                Node node = pending.remove(pending.size() - 1);
+                switch (node.kind) {
+                    case Node.TRUE:
+                        break;
+                    case Node.FALSE:
+                        return true;
+                    case Node.LITERAL:
+                        if (!constraints.add(node.literal)) {
+                            return true;
+                        }
+                        break;
+                    case Node.AND:
+                        pending.addAll(node.children);
+                        break;
+                    default:
+                        disjunctions.add(node);
+                }
+            }
+            if (disjunctions.isEmpty()) {
+                return false;
+            }
+            Node disjunction = disjunctions.remove(disjunctions.size() - 1);
+            for (Node child : disjunction.children) {
+                if (++branches > MAX_BRANCHES) {
+                    throw new BudgetExceeded();
+                }
+                List<Node> branch = new ArrayList<>(disjunctions);
+                branch.add(child);
+                if (!refutes(branch, constraints.copy())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** The literals of a branch, summarized per property. */
+    private static final class Constraints {
+
+        private final Map<String, PropertyConstraint> properties = new HashMap<>();
+        private final Set<Object> opaque = new HashSet<>();
+        private final Set<Object> negatedOpaque = new HashSet<>();
+
+        Constraints copy() {
+            Constraints copy = new Constraints();
+            for (Map.Entry<String, PropertyConstraint> entry : properties.entrySet()) {
+                copy.properties.put(entry.getKey(), entry.getValue().copy());
+            }
+            copy.opaque.addAll(opaque);
+            copy.negatedOpaque.addAll(negatedOpaque);
+            return copy;
+        }
+
+        /** Adds a literal, returning {@code false} if the branch became contradictory. */
+        boolean add(Literal literal) {
+            if (literal.kind == Literal.OPAQUE) {
+                (literal.negated ? negatedOpaque : opaque).add(literal.key);
+                return !(literal.negated ? opaque : negatedOpaque).contains(literal.key);
+            }
+            return properties.computeIfAbsent(literal.property, property -> new PropertyConstraint()).add(literal);
+        }
+    }
+
+    /**
+     * What a branch requires of one property. A threshold holds on a present, numeric, non-{@code NaN} value;
+     * its negation on a missing value, {@code NaN} or a value out of the range.
+     */
+    private static final class PropertyConstraint {
+
+        /** Whether the value is present and not blank. */
+        boolean present;
+        /** Whether the value is a number other than {@code NaN}. */
+        boolean numeric;
+        /** Whether the value is missing or blank. */
+        boolean absentOrBlank;
+        /** Exclusive bounds from thresholds, inclusive bounds from negated thresholds; {@code null} for none. */
+        Double above;
+        Double below;
+        Double atLeast;
+        Double atMost;
+        /** The case-folded value, if some {@code EqualsTo} requires one. */
+        String equalTo;
+        Set<String> notEqualTo = new HashSet<>();
+
+        PropertyConstraint copy() {
+            PropertyConstraint copy = new PropertyConstraint();
+            copy.present = present;
+            copy.numeric = numeric;
+            copy.absentOrBlank = absentOrBlank;
+            copy.above = above;
+            copy.below = below;
+            copy.atLeast = atLeast;
+            copy.atMost = atMost;
+            copy.equalTo = equalTo;
+            copy.notEqualTo = new HashSet<>(notEqualTo);
+            return copy;
+        }
+
+        boolean add(Literal literal) {
+            double threshold = literal.threshold;
+            switch (literal.kind) {
+                case Literal.GREATER:
+                    if (literal.negated) {
+                        // NOT (x > NaN) always holds: no constraint.
+                        if (!Double.isNaN(threshold)) {
+                            atMost = atMost == null ? threshold : Math.min(atMost, threshold);
+                        }
+                    } else {
+                        above = above == null ? threshold : Math.max(above, threshold);
+                        numeric = true;
+                        present = true;
+                    }
+                    break;
+                case Literal.LESS:
+                    if (literal.negated) {
+                        if (!Double.isNaN(threshold)) {
+                            atLeast = atLeast == null ? threshold : Math.max(atLeast, threshold);
+                        }
+                    } else {
+                        below = below == null ? threshold : Math.min(below, threshold);
+                        numeric = true;
+                        present = true;
+                    }
+                    break;
+                case Literal.EQUALS:
+                    if (literal.negated) {
+                        notEqualTo.add(literal.value);
+                    } else if (equalTo != null && !equalTo.equals(literal.value)) {
+                        return false;
+                    } else {
+                        equalTo = literal.value;
+                        if (!equalTo.isBlank()) {
+                            present = true;
+                        } else {
+                            absentOrBlank = true;
+                        }
+                    }
+                    break;
+                default:
+                    if (literal.negated) {
+                        absentOrBlank = true;
+                    } else {
+                        present = true;
+                    }
+            }
+            return isConsistent();
+        }
+
+        private boolean isConsistent() {
+            if (present && absentOrBlank) {
+                return false;
+            }
+            // NaN thresholds compare false, so that a threshold on NaN never holds.
+            if (above != null && Double.isNaN(above) || below != null && Double.isNaN(below)) {
+                return false;
+            }
+            if (equalTo != null && notEqualTo.contains(equalTo)) {
+                return false;
+            }
+            if (equalTo != null && !hasLetter(equalTo)) {
+                // Without letters, case does not change the value, nor how it parses.
+                Double number = parse(equalTo);
+                if (number == null || Double.isNaN(number)) {
+                    return !numeric;
+                }
+                numeric = true;
+                return inRange(number);
+            }
+            if (numeric) {
+                if (above != null && below != null && above >= below
+                    || above != null && atMost != null && above >= atMost
+                    || atLeast != null && below != null && atLeast >= below
+                    || atLeast != null && atMost != null && atLeast > atMost) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean inRange(double number) {
+            return (above == null || number > above) && (below == null || number < below)
+                && (atLeast == null || number >= atLeast) && (atMost == null || number <= atMost);
+        }
+
+        private static boolean hasLetter(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                if (Character.isLetter(value.charAt(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static Double parse(String value) {
+            return UtilsFilter.safeParseDouble(value);
+        }
+    }
+}
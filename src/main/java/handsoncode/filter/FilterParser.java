@@ -0,0 +1,299 @@
+package handsoncode.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import com.google.gson.JsonParseException;
+
+/**
+ * Single-pass parser of the JSON representation of filters, keeping the filters being built on an explicit stack
+ * instead of the call stack, so that it accepts any nesting depth. It accepts the same types as
+ * {@link FilterDeserializer}; members other than {@code type}, {@code property}, {@code value}, {@code filter}
+ * and {@code filters} are skipped.
+ */
+final class FilterParser {
+
+    private final String json;
+    private int position;
+
+    private FilterParser(String json) {
+        this.json = json;
+    }
+
+    /** A filter object being parsed. */
+    private static final class Frame {
+
+        String type;
+        String property;
+        String value;
+        Filter filter;
+        List<Filter> filters;
+        boolean inArray;
+        int members;
+    }
+
+    /**
+     * Parses a filter.
+     *
+     * @return the filter, or {@code null} if {@code json} is blank.
+     * @throws JsonParseException if {@code json} is not a valid filter representation.
+     */
+    static Filter parse(String json) {
+        return new FilterParser(json).parse();
+    }
+
+    private Filter parse() {
+        skipWhitespace();
+        if (position == json.length()) {
+            return null;
+        }
+        Deque<Frame> stack = new ArrayDeque<>();
+        expect('{');
+        stack.push(new Frame());
+        while (true) {
+            Frame frame = stack.peek();
+            if (frame.inArray) {
+                if (consume(']')) {
+                    frame.inArray = false;
+                    frame.members++;
+                    continue;
+                }
+                if (!frame.filters.isEmpty()) {
+                    expect(',');
+                }
+                expect('{');
+                stack.push(new Frame());
+                continue;
+            }
+            if (consume('}')) {
+                Filter filter = build(stack.pop());
+                if (stack.isEmpty()) {
+                    skipWhitespace();
+                    if (position != json.length()) {
+                        throw error("Unexpected content after the filter");
+                    }
+                    return filter;
+                }
+                Frame parent = stack.peek();
+                if (parent.inArray) {
+                    parent.filters.add(filter);
+                } else {
+                    parent.filter = filter;
+                    parent.members++;
+                }
+                continue;
+            }
+            if (frame.members > 0) {
+                expect(',');
+            }
+            String key = readString();
+            expect(':');
+            switch (key) {
+                case "filter":
+                    expect('{');
+                    stack.push(new Frame());
+                    break;
+                case "filters":
+                    expect('[');
+                    frame.filters = new ArrayList<>();
+                    frame.inArray = true;
+                    break;
+                case "type":
+                    frame.type = readPrimitive();
+                    frame.members++;
+                    break;
+                case "property":
+                    frame.property = readPrimitive();
+                    frame.members++;
+                    break;
+                case "value":
+                    frame.value = readPrimitive();
+                    frame.members++;
+                    break;
+                default:
+                    skipValue();
+                    frame.members++;
+            }
+        }
+    }
+
+    private Filter build(Frame frame) {
+        if (frame.type == null) {
+            throw error("Missing filter type");
+        }
+        switch (frame.type.toLowerCase()) {
+            case "truefilter":
+                return TrueFilter.getInstance();
+
+            case "falsefilter":
+                return FalseFilter.getInstance();
+
+            case "greaterthan":
+                return new GreaterThanFilter(require(frame.property, "property"), number(require(frame.value, "value")));
+
+            case "lessthan":
+                return new LessThanFilter(require(frame.property, "property"), number(require(frame.value, "value")));
+
+            case "equalsto":
+                return new IsEqualFilter(require(frame.property, "property"), require(frame.value, "value"));
+
+            case "ispresent":
+                return new IsPresentFilter(require(frame.property, "property"));
+
+            case "matchesexpression":
+                return new MatchesExpressionFilter(require(frame.property, "property"), require(frame.value, "value"));
+
+            case "not":
+                return new NotFilter(require(frame.filter, "filter"));
+
+            case "and":
+                return new AndFilter(require(frame.filters, "filters"));
+
+            case "or":
+                return new OrFilter(require(frame.filters, "filters"));
+
+            default:
+                throw new JsonParseException("Unknown filter type: " + frame.type);
+        }
+    }
+
+    private <T> T require(T member, String name) {
+        if (member == null) {
+            throw error("Missing member '" + name + "'");
+        }
+        return member;
+    }
+
+    private Double number(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw error("Value '" + value + "' is not a number");
+        }
+    }
+
+    private JsonParseException error(String message) {
+        return new JsonParseException(message + " at position " + position);
+    }
+
+    private void skipWhitespace() {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+    }
+
+    private boolean consume(char c) {
+        skipWhitespace();
+        if (position < json.length() && json.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!consume(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    /** Reads a string, or the text of a number or literal; {@code null} for the {@code null} literal. */
+    private String readPrimitive() {
+        skipWhitespace();
+        if (position < json.length() && json.charAt(position) == '"') {
+            return readString();
+        }
+        int start = position;
+        while (position < json.length() && ",:{}[]\"".indexOf(json.charAt(position)) < 0
+            && !Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+        if (start == position) {
+            throw error("Expected a value");
+        }
+        String literal = json.substring(start, position);
+        return literal.equals("null") ? null : literal;
+    }
+
+    private String readString() {
+        expect('"');
+        StringBuilder string = new StringBuilder();
+        while (position < json.length()) {
+            char c = json.charAt(position++);
+            if (c == '"') {
+                return string.toString();
+            }
+            if (c != '\\') {
+                string.append(c);
+                continue;
+            }
+            if (position == json.length()) {
+                break;
+            }
+            char escaped = json.charAt(position++);
+            switch (escaped) {
+                case 'b':
+                    string.append('\b');
+                    break;
+                case 'f':
+                    string.append('\f');
+                    break;
+                case 'n':
+                    string.append('\n');
+                    break;
+                case 'r':
+                    string.append('\r');
+                    break;
+                case 't':
+                    string.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > json.length()) {
+                        throw error("Invalid unicode escape");
+                    }
+                    try {
+                        string.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    string.append(escaped);
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    /** Skips a value of a member this parser ignores, counting brackets instead of recursing. */
+    private void skipValue() {
+        skipWhitespace();
+        if (position < json.length() && json.charAt(position) == '"') {
+            readString();
+            return;
+        }
+        if (position < json.length() && (json.charAt(position) == '{' || json.charAt(position) == '[')) {
+            int depth = 0;
+            do {
+                char c = json.charAt(position);
+                if (c == '"') {
+                    readString();
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+                position++;
+            } while (depth > 0 && position < json.length());
+            if (depth != 0) {
+                throw error("Unbalanced value");
+            }
+            return;
+        }
+        readPrimitive();
+    }
+}
@@ -0,0 +1,344 @@
+package handsoncode.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.Resource;
+import handsoncode.resource.ResourceSchema;
+
+/**
+ * {@code FilterProgram} is a {@link Filter} tree compiled into a flat array of instructions, run by a loop
+ * instead of recursive calls, so that the depth of the tree costs neither stack frames nor time.
+ * <p>
+ * Leaves become instructions setting a single boolean register. {@code AND} and {@code OR} become their children
+ * separated by conditional jumps to their end, taken as soon as the register decides the result; chains of
+ * {@code NOT} fold into at most one negation. Jumps landing on a jump of the same condition are redirected to its
+ * target, so a short-circuit leaves a chain of nested {@code AND}s or {@code OR}s in a single step.
+ * Compilation and {@link #parse(String)} use explicit stacks too, and accept filters nested at any depth.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * FilterProgram program = FilterProgram.parse(generatedJson);  // thousands of levels deep
+ * boolean result = program.matches(resource);
+ * }</pre>
+ *
+ * <p>Instances are immutable and thread-safe. Leaves keep their own semantics, exceptions included.</p>
+ */
+public final class FilterProgram {
+
+    static final int LEAF = 0;
+    static final int TRUE = 1;
+    static final int FALSE = 2;
+    static final int NOT = 3;
+    static final int JUMP_IF_FALSE = 4;
+    static final int JUMP_IF_TRUE = 5;
+
+    /** Opcode and operand of every instruction, as consecutive pairs; operands are leaf indexes or jump targets. */
+    private final int[] code;
+    private final Filter[] leaves;
+
+    private FilterProgram(int[] code, Filter[] leaves) {
+        this.code = code;
+        this.leaves = leaves;
+    }
+
+    /** A logical filter whose children are being compiled. */
+    private static final class Frame {
+
+        final List<Filter> children;
+        final int jump;
+        final boolean negate;
+        final List<Integer> exits = new ArrayList<>();
+        int next;
+
+        Frame(List<Filter> children, int jump, boolean negate) {
+            this.children = children;
+            this.jump = jump;
+            this.negate = negate;
+        }
+    }
+
+    /**
+     * Compiles a filter.
+     *
+     * @param filter the filter to compile (must not be {@code null}).
+     * @return the program evaluating {@code filter}.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     */
+    public static FilterProgram compile(Filter filter) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        int[] code = new int[16];
+        int size = 0;
+        List<Filter> leaves = new ArrayList<>();
+        Deque<Frame> stack = new ArrayDeque<>();
+        Filter pending = filter;
+        while (true) {
+            if (pending != null) {
+                boolean negate = false;
+                while (true) {
+                    if (pending instanceof LazyFilter) {
+                        pending = ((LazyFilter) pending).filter();
+                    } else if (pending instanceof NotFilter) {
+                        pending = ((NotFilter) pending).getFilter();
+                        negate = !negate;
+                    } else {
+                        break;
+                    }
+                }
+                List<Filter> children = null;
+                int jump = 0;
+                if (pending instanceof AndFilter) {
+                    children = ((AndFilter) pending).getFilters();
+                    jump = JUMP_IF_FALSE;
+                } else if (pending instanceof OrFilter) {
+                    children = ((OrFilter) pending).evaluated();
+                    jump = JUMP_IF_TRUE;
+                }
+                if (children != null && children.size() > 1) {
+                    stack.push(new Frame(children, jump, negate));
+                } else if (children != null) {
+                    pending = children.get(0);
+                    if (negate) {
+                        pending = new NotFilter(pending);
+                    }
+                    continue;
+                } else {
+                    if (size + 4 > code.length) {
+                        code = Arrays.copyOf(code, code.length * 2);
+                    }
+                    if (pending instanceof TrueFilter) {
+                        code[size++] = negate ? FALSE : TRUE;
+                        code[size++] = 0;
+                    } else if (pending instanceof FalseFilter) {
+                        code[size++] = negate ? TRUE : FALSE;
+                        code[size++] = 0;
+                    } else {
+                        code[size++] = LEAF;
+                        code[size++] = leaves.size();
+                        leaves.add(pending);
+                        if (negate) {
+                            code[size++] = NOT;
+                            code[size++] = 0;
+                        }
+                    }
+                }
+                pending = null;
+            }
+            Frame frame = stack.peek();
+            if (frame == null) {
+                break;
+            }
+            if (frame.next > 0 && frame.next < frame.children.size()) {
+                if (size + 2 > code.length) {
+                    code = Arrays.copyOf(code, code.length * 2);
+                }
+                frame.exits.add(size);
+                code[size++] = frame.jump;
+                code[size++] = -1;
+            }
+            if (frame.next < frame.children.size()) {
+                pending = frame.children.get(frame.next++);
+                continue;
+            }
+            stack.pop();
+            for (int exit : frame.exits) {
+                code[exit + 1] = size;
+            }
+            if (frame.negate) {
+                if (size + 2 > code.length) {
+                    code = Arrays.copyOf(code, code.length * 2);
+                }
+                code[size++] = NOT;
+                code[size++] = 0;
+            }
+        }
+        code = Arrays.copyOf(code, size);
+        thread(code);
+        return new FilterProgram(code, leaves.toArray(new Filter[0]));
+    }
+
+    /**
+     * Redirects every jump landing on a jump of the same condition to that jump's target, and every jump landing
+     * on a jump of the opposite condition, which cannot be taken, past it. Targets are resolved from the end,
+     * where they are final, since jumps only go forward.
+     */
+    private static void thread(int[] code) {
+        for (int pc = code.length - 2; pc >= 0; pc -= 2) {
+            int op = code[pc];
+            if (op != JUMP_IF_FALSE && op != JUMP_IF_TRUE) {
+                continue;
+            }
+            int target = code[pc + 1];
+            while (target < code.length) {
+                int landing = code[target];
+                if (landing == op) {
+                    target = code[target + 1];
+                } else if (landing == JUMP_IF_FALSE || landing == JUMP_IF_TRUE) {
+                    target += 2;
+                } else {
+                    break;
+                }
+            }
+            code[pc + 1] = target;
+        }
+    }
+
+    /**
+     * Parses the JSON representation of a filter, as produced by {@link Filter#toString()}, and compiles it.
+     * Unlike {@link FilterFactory#fromString(String)}, parsing does not recurse and accepts any nesting depth.
+     *
+     * @param json the JSON representation of a filter (must not be {@code null}).
+     * @return the program evaluating the filter.
+     * @throws NullPointerException if {@code json} is {@code null}.
+     * @throws com.google.gson.JsonParseException if {@code json} is blank or not a valid filter representation.
+     */
+    public static FilterProgram parse(String json) {
+        Objects.requireNonNull(json, "json must not be null");
+        Filter filter = FilterParser.parse(json);
+        if (filter == null) {
+            throw new com.google.gson.JsonParseException("No filter to parse");
+        }
+        return compile(filter);
+    }
+
+    /**
+     * Evaluates the program on a resource.
+     *
+     * @param resource a {@link Map} representing the resource data.
+     * @return {@code true} if the compiled filter matches the resource.
+     * @throws IllegalArgumentException if a leaf cannot evaluate the resource, see {@link Filter#matches(Map)}.
+     */
+    public boolean matches(Map<String, String> resource) {
+        return matches(resource, new EvaluationContext());
+    }
+
+    /**
+     * Evaluates the program on a resource, sharing {@code context} between the leaves.
+     *
+     * @param resource a {@link Map} representing the resource data.
+     * @param context the evaluation context of {@code resource}.
+     * @return {@code true} if the compiled filter matches the resource.
+     * @throws IllegalArgumentException if a leaf cannot evaluate the resource, see {@link Filter#matches(Map)}.
+     */
+    public boolean matches(Map<String, String> resource, EvaluationContext context) {
+        int[] code = this.code;
+        boolean result = false;
+        int pc = 0;
+        while (pc < code.length) {
+            int operand = code[pc + 1];
+            switch (code[pc]) {
+                case LEAF:
+                    result = leaves[operand].matches(resource, context);
+                    break;
+                case TRUE:
+                    result = true;
+                    break;
+                case FALSE:
+                    result = false;
+                    break;
+                case NOT:
+                    result = !result;
+                    break;
+                case JUMP_IF_FALSE:
+                    if (!result) {
+                        pc = operand;
+                        continue;
+                    }
+                    break;
+                default:
+                    if (result) {
+                        pc = operand;
+                        continue;
+                    }
+            }
+            pc += 2;
+        }
+        return result;
+    }
+
+    /**
+     * Binds the leaves of the program to {@code schema}. The bound filter runs the same instructions.
+     *
+     * @param schema the schema of the resources to evaluate (must not be {@code null}).
+     * @return a {@link BoundFilter} equivalent to the compiled filter.
+     * @throws NullPointerException if {@code schema} is {@code null}.
+     */
+    public BoundFilter bind(ResourceSchema schema) {
+        Objects.requireNonNull(schema, "schema must not be null");
+        BoundFilter[] bound = new BoundFilter[leaves.length];
+        for (int i = 0; i < bound.length; i++) {
+            bound[i] = leaves[i].bind(schema);
+        }
+        int[] code = this.code;
+        return (Resource resource, EvaluationContext context) -> {
+            boolean result = false;
+            int pc = 0;
+            while (pc < code.length) {
+                int operand = code[pc + 1];
+                switch (code[pc]) {
+                    case LEAF:
+                        result = bound[operand].matches(resource, context);
+                        break;
+                    case TRUE:
+                        result = true;
+                        break;
+                    case FALSE:
+                        result = false;
+                        break;
+                    case NOT:
+                        result = !result;
+                        break;
+                    case JUMP_IF_FALSE:
+                        if (!result) {
+                            pc = operand;
+                            continue;
+                        }
+                        break;
+                    default:
+                        if (result) {
+                            pc = operand;
+                            continue;
+                        }
+                }
+                pc += 2;
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Returns the number of instructions of the program.
+     *
+     * @return the number of instructions.
+     */
+    public int getInstructionCount() {
+        return code.length / 2;
+    }
+
+    /**
+     * Returns the number of leaves the program evaluates at most.
+     *
+     * @return the number of leaf instructions.
+     */
+    public int getLeafCount() {
+        return leaves.length;
+    }
+
+    /**
+     * Returns a string representation of this {@code FilterProgram}.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code FilterProgram}.
+     */
+    @Override
+    public String toString() {
+        return "{\"type\":\"FilterProgram\",\"instructions\":\"" + getInstructionCount() + "\",\"leaves\":\"" + leaves.length + "\"}";
+    }
+}
@@ -0,0 +1,110 @@
+package handsoncode.filter;
+
+/**
+ * A visitor over the node types of a {@link Filter} tree.
+ * <p>
+ * Every filter dispatches to the method matching its own type through {@link Filter#accept(FilterVisitor)},
+ * so analyses and rewrites can traverse a tree without chains of {@code instanceof} checks.
+ * Filter types that are not part of this library dispatch to {@link #visitOther(Filter)}.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * int depth = filter.accept(new FilterVisitor<Integer>() {
+ *     public Integer visitNot(NotFilter not) { return 1 + not.getFilter().accept(this); }
+ *     ...
+ * });
+ * }</pre>
+ *
+ * @param <R> the type of the result of the visit.
+ */
+public interface FilterVisitor<R> {
+
+    /**
+     * Visits a {@link TrueFilter}.
+     *
+     * @param filter the visited filter.
+     * @return the result of the visit.
+     */
+    R visitTrue(TrueFilter filter);
+
+    /**
+     * Visits a {@link FalseFilter}.
+     *
+     * @param filter the visited filter.
+     * @return the result of the visit.
+     */
+    R visitFalse(FalseFilter filter);
+
+    /**
+     * Visits a {@link GreaterThanFilter}.
+     *
+     * @param filter the visited filter.
+     * @return the result of the visit.
+     */
+    R visitGreaterThan(GreaterThanFilter filter);
+
+    /**
+     * Visits a {@link LessThanFilter}.
+     *
+     * @param filter the visited filter.
+     * @return the result of the visit.
+     */
+    R visitLessThan(LessThanFilter filter);
+
+    /**
+     * Visits an {@link IsEqualFilter}.
+     *
+     * @param filter the visited filter.
+     * @return the result of the visit.
+     */
+    R visitEqualsTo(IsEqualFilter filter);
+
+    /**
+     * Visits an {@link IsPresentFilter}.
+     *
+     * @param filter the visited filter.
+     * @return the result of the visit.
+     */
+    R visitIsPresent(IsPresentFilter filter);
+
+    /**
+     * Visits a {@link MatchesExpressionFilter}.
+     *
+     * @param filter the visited filter.
+     * @return the result of the visit.
+     */
+    R visitMatchesExpression(MatchesExpressionFilter filter);
+
+    /**
+     * Visits a {@link NotFilter}. Implementations decide whether to visit the negated filter.
+     *
+     * @param filter the visited filter.
+     * @return the result of the visit.
+     */
+    R visitNot(NotFilter filter);
+
+    /**
+     * Visits an {@link AndFilter}. Implementations decide whether to visit the child filters.
+     *
+     * @param filter the visited filter.
+     * @return the result of the visit.
+     */
+    R visitAnd(AndFilter filter);
+
+    /**
+     * Visits an {@link OrFilter}. Implementations decide whether to visit the child filters.
+     *
+     * @param filter the visited filter.
+     * @return the result of the visit.
+     */
+    R visitOr(OrFilter filter);
+
+    /**
+     * Visits a filter whose type is not known to this visitor, such as a custom {@link Filter} implementation.
+     *
+     * @param filter the visited filter.
+     * @return the result of the visit.
+     */
+    R visitOther(Filter filter);
+}
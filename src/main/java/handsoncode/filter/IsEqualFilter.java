@@ -3,6 +3,9 @@ package handsoncode.filter;
 import java.util.Map;
 import java.util.Objects;
 
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+
 /**
  * {@code IsEqualFilter} is a concrete implementation of the {@link Filter} interface
  * A filter that checks if a field's value is equal to a given value.
@@ -52,6 +55,52 @@ public class IsEqualFilter implements Filter {
     
     }
 
+    /**
+     * Resolves the property to its slot in {@code schema}.
+     * A property the schema does not declare never equals the value, so the bound filter is {@link FalseFilter}'s.
+     *
+     * @param schema the schema of the resources to evaluate.
+     * @return a {@link BoundFilter} equivalent to this {@code IsEqualFilter}.
+     */
+    @Override
+    public BoundFilter bind(ResourceSchema schema) {
+        int slot = schema.slotOf(property);
+        if (slot == ResourceSchema.NO_SLOT) {
+            return FalseFilter.getInstance().bind(schema);
+        }
+        return (resource, context) -> resource.equalsIgnoreCase(slot, value);
+    }
+
+    /**
+     * Returns the name of the property checked by this filter.
+     *
+     * @return the property name.
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Returns the value the property is compared to, ignoring case.
+     *
+     * @return the expected value.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Dispatches to {@link FilterVisitor#visitEqualsTo(IsEqualFilter)}.
+     *
+     * @param <R> the type of the result of the visit.
+     * @param visitor the visitor.
+     * @return the result of the visit.
+     */
+    @Override
+    public <R> R accept(FilterVisitor<R> visitor) {
+        return visitor.visitEqualsTo(this);
+    }
+
     /**
      * Returns a string representation of this {@code IsEqualFilter}, describing the type, property and value applied.
      * The string format is a JSON-like representation.
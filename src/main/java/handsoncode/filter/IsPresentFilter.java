@@ -3,6 +3,9 @@ package handsoncode.filter;
 import java.util.Map;
 import java.util.Objects;
 
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+
 /**
  * {@code IsPresentFilter} is an implementation of the {@link Filter} interface 
  * that checks whether a specified property exists in the provided resource 
@@ -44,6 +47,43 @@ public class IsPresentFilter implements Filter {
         return resource.containsKey(property) && !resource.get(property).isBlank() && resource.get(property) != null ;
     }
 
+    /**
+     * Resolves the property to its slot in {@code schema}.
+     * A property the schema does not declare can never be present, so the bound filter is {@link FalseFilter}'s.
+     *
+     * @param schema the schema of the resources to evaluate.
+     * @return a {@link BoundFilter} equivalent to this {@code IsPresentFilter}.
+     */
+    @Override
+    public BoundFilter bind(ResourceSchema schema) {
+        int slot = schema.slotOf(property);
+        if (slot == ResourceSchema.NO_SLOT) {
+            return FalseFilter.getInstance().bind(schema);
+        }
+        return (resource, context) -> resource.isPresent(slot);
+    }
+
+    /**
+     * Returns the name of the property checked by this filter.
+     *
+     * @return the property name.
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Dispatches to {@link FilterVisitor#visitIsPresent(IsPresentFilter)}.
+     *
+     * @param <R> the type of the result of the visit.
+     * @param visitor the visitor.
+     * @return the result of the visit.
+     */
+    @Override
+    public <R> R accept(FilterVisitor<R> visitor) {
+        return visitor.visitIsPresent(this);
+    }
+
     /**
      * Returns a string representation of this {@code IsPresentFilter}, describing the type, property and value applied.
      * The string format is a JSON-like representation.
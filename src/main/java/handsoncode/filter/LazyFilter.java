@@ -0,0 +1,342 @@
+package handsoncode.filter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonParser;
+
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+
+/**
+ * A filter kept as an unparsed slice of its JSON source until it is first used, see
+ * {@link FilterFactory#fromStringLazy(String)}.
+ * <p>
+ * Materializing an {@code AND}, {@code OR} or {@code NOT} slice only splits it into the slices of its children,
+ * which stay lazy in turn: the first evaluation of a large {@code OR} parses the children it visits, up to the first
+ * match, and the sibling patterns it evaluates together, see {@link OrFilter}. Other filter types are parsed by {@link FilterFactory#fromString(String)}. Every method
+ * delegates to the materialized filter; visitors receive the materialized filter, never a {@code LazyFilter}.
+ * </p>
+ * <p>Materialization happens once, under the lock of this filter; afterwards it reads one volatile field.</p>
+ */
+final class LazyFilter implements Filter {
+
+    private String source;
+    private final int start;
+    private final int end;
+    private volatile Filter filter;
+
+    LazyFilter(String source, int start, int end) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    /** Returns the parsed filter, parsing it on first call. */
+    Filter filter() {
+        Filter parsed = filter;
+        if (parsed == null) {
+            synchronized (this) {
+                parsed = filter;
+                if (parsed == null) {
+                    parsed = parse(source, start, end);
+                    filter = parsed;
+                    source = null;
+                }
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Returns the property of this filter if it is a {@link MatchesExpressionFilter}, or {@code null}. An unparsed
+     * slice is only scanned for its type and property, and stays unparsed.
+     */
+    String patternProperty() {
+        Filter parsed = filter;
+        if (parsed == null) {
+            synchronized (this) {
+                parsed = filter;
+                if (parsed == null) {
+                    return patternProperty(source, start, end);
+                }
+            }
+        }
+        return parsed.getClass() == MatchesExpressionFilter.class ? ((MatchesExpressionFilter) parsed).getProperty() : null;
+    }
+
+    /** Returns {@code filter}, or its parsed filter if it is a {@code LazyFilter}. */
+    static Filter parsed(Filter filter) {
+        return filter instanceof LazyFilter ? ((LazyFilter) filter).filter() : filter;
+    }
+
+    /**
+     * Returns an unmodifiable view of {@code filters} in which every {@code LazyFilter} reads as its parsed filter,
+     * parsed when first read, so that the public accessors of logical filters never expose this class.
+     */
+    static List<Filter> parsed(List<Filter> filters) {
+        return new AbstractList<>() {
+
+            @Override
+            public Filter get(int index) {
+                return parsed(filters.get(index));
+            }
+
+            @Override
+            public int size() {
+                return filters.size();
+            }
+
+            @Override
+            public Iterator<Filter> iterator() {
+                Iterator<Filter> iterator = filters.iterator();
+                return new Iterator<>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Filter next() {
+                        return parsed(iterator.next());
+                    }
+                };
+            }
+        };
+    }
+
+    /** Checks whether this filter was parsed. */
+    boolean isMaterialized() {
+        return filter != null;
+    }
+
+    @Override
+    public boolean matches(Map<String, String> resource) {
+        return filter().matches(resource);
+    }
+
+    @Override
+    public boolean matches(Map<String, String> resource, EvaluationContext context) {
+        return filter().matches(resource, context);
+    }
+
+    @Override
+    public BoundFilter bind(ResourceSchema schema) {
+        return filter().bind(schema);
+    }
+
+    @Override
+    public <R> R accept(FilterVisitor<R> visitor) {
+        return filter().accept(visitor);
+    }
+
+    @Override
+    public ReferencedProperties referencedProperties() {
+        return filter().referencedProperties();
+    }
+
+    /**
+     * Returns the string representation of the materialized filter, which this method materializes.
+     *
+     * @return a string representation of the filter.
+     */
+    @Override
+    public String toString() {
+        return filter().toString();
+    }
+
+    /**
+     * Parses the filter of {@code source} from {@code start} to {@code end}, keeping the children of a logical
+     * filter as lazy slices. Slices the scanner does not understand are left to the lenient parser of
+     * {@link FilterFactory#fromString(String)}, which also reports malformed JSON.
+     */
+    static Filter parse(String source, int start, int end) {
+        Scanner scanner = new Scanner(source, start, end);
+        String type = null;
+        LazyFilter negated = null;
+        List<Filter> children = null;
+        try {
+            scanner.skipWhitespace();
+            scanner.expect('{');
+            if (!scanner.consume('}')) {
+                do {
+                    String key = scanner.readString();
+                    scanner.expect(':');
+                    if (key.equals("type")) {
+                        type = scanner.readString().toLowerCase();
+                    } else if (key.equals("filter")) {
+                        int from = scanner.skipValue();
+                        negated = new LazyFilter(source, from, scanner.position);
+                    } else if (key.equals("filters")) {
+                        children = new ArrayList<>();
+                        scanner.expect('[');
+                        if (!scanner.consume(']')) {
+                            do {
+                                int from = scanner.skipValue();
+                                children.add(new LazyFilter(source, from, scanner.position));
+                            } while (scanner.consume(','));
+                            scanner.expect(']');
+                        }
+                    } else {
+                        scanner.skipValue();
+                    }
+                } while (scanner.consume(','));
+                scanner.expect('}');
+            }
+            scanner.skipWhitespace();
+            if (!scanner.atEnd()) {
+                type = null;
+            }
+        } catch (IllegalStateException malformed) {
+            type = null;
+        }
+        if ("and".equals(type) && children != null) {
+            return new AndFilter(children);
+        }
+        if ("or".equals(type) && children != null) {
+            return new OrFilter(children);
+        }
+        if ("not".equals(type) && negated != null) {
+            return new NotFilter(negated);
+        }
+        return FilterFactory.fromString(source.substring(start, end));
+    }
+
+    /** Scans the type and the property of a slice; returns the property of a pattern, {@code null} otherwise. */
+    private static String patternProperty(String source, int start, int end) {
+        Scanner scanner = new Scanner(source, start, end);
+        String type = null;
+        String property = null;
+        try {
+            scanner.expect('{');
+            if (!scanner.consume('}')) {
+                do {
+                    String key = scanner.readString();
+                    scanner.expect(':');
+                    if (key.equals("type")) {
+                        type = scanner.readString().toLowerCase();
+                    } else if (key.equals("property") && scanner.peek() == '"') {
+                        property = scanner.readString();
+                    } else {
+                        scanner.skipValue();
+                    }
+                } while (scanner.consume(','));
+            }
+        } catch (IllegalStateException malformed) {
+            return null;
+        }
+        return "matchesexpression".equals(type) ? property : null;
+    }
+
+    /** Finds the boundaries of JSON values without building them; throws {@link IllegalStateException} when lost. */
+    private static final class Scanner {
+
+        private final String source;
+        private final int end;
+        int position;
+
+        Scanner(String source, int start, int end) {
+            this.source = source;
+            this.position = start;
+            this.end = end;
+        }
+
+        boolean atEnd() {
+            return position >= end;
+        }
+
+        void skipWhitespace() {
+            while (position < end && Character.isWhitespace(source.charAt(position))) {
+                position++;
+            }
+        }
+
+        char peek() {
+            skipWhitespace();
+            return position < end ? source.charAt(position) : 0;
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (position < end && source.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalStateException("Expected '" + c + "' at " + position);
+            }
+        }
+
+        String readString() {
+            skipWhitespace();
+            int from = position;
+            skipString();
+            String quoted = source.substring(from, position);
+            return quoted.indexOf('\\') < 0 ? quoted.substring(1, quoted.length() - 1) : JsonParser.parseString(quoted).getAsString();
+        }
+
+        private void skipString() {
+            if (position >= end || source.charAt(position) != '"') {
+                throw new IllegalStateException("Expected a string at " + position);
+            }
+            position++;
+            while (position < end) {
+                char c = source.charAt(position++);
+                if (c == '\\') {
+                    position++;
+                } else if (c == '"') {
+                    return;
+                }
+            }
+            throw new IllegalStateException("Unterminated string");
+        }
+
+        /** Skips a value and returns its start; {@link #position} is left at its end. */
+        int skipValue() {
+            skipWhitespace();
+            int from = position;
+            if (position >= end) {
+                throw new IllegalStateException("Expected a value at " + position);
+            }
+            char first = source.charAt(position);
+            if (first == '"') {
+                skipString();
+            } else if (first == '{' || first == '[') {
+                int depth = 0;
+                do {
+                    char c = source.charAt(position);
+                    if (c == '"') {
+                        skipString();
+                        continue;
+                    }
+                    if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    }
+                    position++;
+                } while (depth > 0 && position < end);
+                if (depth != 0) {
+                    throw new IllegalStateException("Unbalanced value");
+                }
+            } else {
+                while (position < end && ",:}]".indexOf(source.charAt(position)) < 0
+                    && !Character.isWhitespace(source.charAt(position))) {
+                    position++;
+                }
+                if (position == from) {
+                    throw new IllegalStateException("Expected a value at " + position);
+                }
+            }
+            return from;
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package handsoncode.filter;
-import static handsoncode.utils.UtilsFilter.safeParseDouble;
+import static handsoncode.utils.UtilsFilter.parseNumericProperty;
 
 import java.util.Map;
 import java.util.Objects;
 
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+
 /**
  * {@code LessThanFilter} is a concrete implementation of the {@link Filter} interface
  * A filter that checks if a field's value is less than a given threshold.
@@ -44,19 +47,76 @@ public class LessThanFilter implements Filter {
      */
     @Override
     public boolean matches(Map<String, String> resource) {
-
         if (!resource.containsKey(property)){
             return false;
         }
-        
-        Double intValue  = safeParseDouble(resource.get(property));
+        return parseNumericProperty(property, resource.get(property)) < value;
+    }
 
-        if (intValue == null){
-            throw new IllegalArgumentException("Property '" + property + "' must be a valid integer, but found: '" + resource.get(property) + "'");
+    /**
+     * Checks whether the value of the specified property is less than the threshold value,
+     * parsing the property at most once per resource through {@code context}.
+     *
+     * @param resource a {@link Map} representing the resource data.
+     * @param context the evaluation context of {@code resource}, which memoizes the parsed value.
+     * @return {@code true} if the value of the property is less than the threshold value, {@code false} otherwise.
+     * @throws IllegalArgumentException if the property value cannot be parsed as a valid {@code Double}.
+     */
+    @Override
+    public boolean matches(Map<String, String> resource, EvaluationContext context) {
+        String propertyValue = resource.get(property);
+        if (propertyValue == null && !resource.containsKey(property)){
+            return false;
         }
+        return context.numericValue(property, propertyValue) < value;
+    }
 
-        return intValue < value;
+    /**
+     * Resolves the property to its slot in {@code schema}.
+     * A property the schema does not declare is never less than the threshold, so the bound filter is {@link FalseFilter}'s.
+     *
+     * @param schema the schema of the resources to evaluate.
+     * @return a {@link BoundFilter} equivalent to this {@code LessThanFilter}.
+     * @throws IllegalArgumentException when evaluated, if the property value cannot be parsed as a valid {@code Double}.
+     */
+    @Override
+    public BoundFilter bind(ResourceSchema schema) {
+        int slot = schema.slotOf(property);
+        if (slot == ResourceSchema.NO_SLOT) {
+            return FalseFilter.getInstance().bind(schema);
+        }
+        double threshold = value;
+        return (resource, context) -> resource.contains(slot) && resource.numericValue(slot, context) < threshold;
+    }
+
+    /**
+     * Returns the name of the property checked by this filter.
+     *
+     * @return the property name.
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Returns the threshold the property value must be less than.
+     *
+     * @return the threshold value.
+     */
+    public double getValue() {
+        return value;
+    }
 
+    /**
+     * Dispatches to {@link FilterVisitor#visitLessThan(LessThanFilter)}.
+     *
+     * @param <R> the type of the result of the visit.
+     * @param visitor the visitor.
+     * @return the result of the visit.
+     */
+    @Override
+    public <R> R accept(FilterVisitor<R> visitor) {
+        return visitor.visitLessThan(this);
     }
 
     /**
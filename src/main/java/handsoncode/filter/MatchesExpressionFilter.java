@@ -6,6 +6,9 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+
 /**
  * {@code MatchesExpressionFilter} is an implementation of the {@link Filter} interface 
  * that checks if a specified property in the resource matches a given regular expression.
@@ -65,6 +68,55 @@ public class MatchesExpressionFilter implements Filter{
         return false;
     }
 
+    /**
+     * Resolves the property to its slot in {@code schema}, reusing the compiled regular expression.
+     * A property the schema does not declare never matches, so the bound filter is {@link FalseFilter}'s.
+     *
+     * @param schema the schema of the resources to evaluate.
+     * @return a {@link BoundFilter} equivalent to this {@code MatchesExpressionFilter}.
+     */
+    @Override
+    public BoundFilter bind(ResourceSchema schema) {
+        int slot = schema.slotOf(property);
+        if (slot == ResourceSchema.NO_SLOT) {
+            return FalseFilter.getInstance().bind(schema);
+        }
+        return (resource, context) -> {
+            CharSequence propertyValue = resource.getText(slot);
+            return propertyValue != null && regex.matcher(propertyValue).find();
+        };
+    }
+
+    /**
+     * Returns the name of the property checked by this filter.
+     *
+     * @return the property name.
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Returns the regular expression the property value is matched against.
+     *
+     * @return the regular expression, as given at construction.
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Dispatches to {@link FilterVisitor#visitMatchesExpression(MatchesExpressionFilter)}.
+     *
+     * @param <R> the type of the result of the visit.
+     * @param visitor the visitor.
+     * @return the result of the visit.
+     */
+    @Override
+    public <R> R accept(FilterVisitor<R> visitor) {
+        return visitor.visitMatchesExpression(this);
+    }
+
     /**
      * Returns a string representation of this {@code MatchesExpressionFilter}, describing the type of filter,
      * the field (property) being checked, and the regular expression value. The string format is JSON-like.
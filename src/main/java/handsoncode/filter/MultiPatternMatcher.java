@@ -0,0 +1,294 @@
+package handsoncode.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * {@code MultiPatternMatcher} checks whether a text contains a match of any of several regular expressions,
+ * with the semantics of {@link MatchesExpressionFilter}: {@link java.util.regex.Matcher#find()} with
+ * {@link Pattern#CASE_INSENSITIVE}, which folds the case of US-ASCII characters only.
+ * <p>
+ * Patterns that are plain literals, such as {@code "viagra"} or {@code "free\\.money"}, are compiled into a
+ * single Aho–Corasick automaton that scans the text once, whatever the number of literals. The other patterns are
+ * combined into one alternation, so the regular expression engine also walks the text once, except for patterns
+ * whose meaning depends on their position in a larger expression (back-references, quoting, comment mode), which
+ * are kept apart.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * MultiPatternMatcher banned = MultiPatternMatcher.compile(List.of("viagra", "casino", "fr[e3]{2} money"));
+ * boolean flagged = banned.find("Visit our CASINO today");  // true
+ * }</pre>
+ *
+ * <p>Instances are immutable and thread-safe.</p>
+ */
+public final class MultiPatternMatcher {
+
+    private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    private final Automaton literals;
+    private final List<Pattern> patterns;
+    private final int literalCount;
+    private final int regexCount;
+
+    private MultiPatternMatcher(Automaton literals, List<Pattern> patterns, int literalCount, int regexCount) {
+        this.literals = literals;
+        this.patterns = patterns;
+        this.literalCount = literalCount;
+        this.regexCount = regexCount;
+    }
+
+    /**
+     * Compiles regular expressions into a matcher.
+     *
+     * @param regexes the regular expressions (must not be {@code null} nor contain {@code null}).
+     * @return a matcher finding any of the expressions.
+     * @throws NullPointerException if {@code regexes} or one of them is {@code null}.
+     * @throws IllegalArgumentException if an expression is not a valid regular expression.
+     */
+    public static MultiPatternMatcher compile(List<String> regexes) {
+        Objects.requireNonNull(regexes, "regexes must not be null");
+        List<String> literals = new ArrayList<>();
+        List<String> combinable = new ArrayList<>();
+        List<Pattern> patterns = new ArrayList<>();
+        for (String regex : regexes) {
+            Objects.requireNonNull(regex, "regex must not be null");
+            String literal = literal(regex);
+            if (literal != null) {
+                literals.add(literal);
+                continue;
+            }
+            Pattern pattern = compile(regex);
+            if (isCombinable(regex)) {
+                combinable.add(regex);
+            } else {
+                patterns.add(pattern);
+            }
+        }
+        if (combinable.size() == 1) {
+            patterns.add(0, compile(combinable.get(0)));
+        } else if (!combinable.isEmpty()) {
+            StringBuilder alternation = new StringBuilder();
+            for (String regex : combinable) {
+                alternation.append(alternation.length() == 0 ? "" : "|").append("(?:").append(regex).append(")");
+            }
+            try {
+                patterns.add(0, Pattern.compile(alternation.toString(), Pattern.CASE_INSENSITIVE));
+            } catch (PatternSyntaxException e) {
+                // Such as duplicate group names across expressions: keep them apart.
+                for (int i = combinable.size() - 1; i >= 0; i--) {
+                    patterns.add(0, compile(combinable.get(i)));
+                }
+            }
+        }
+        Automaton automaton = literals.isEmpty() ? null : new Automaton(literals);
+        return new MultiPatternMatcher(automaton, List.copyOf(patterns), literals.size(), regexes.size() - literals.size());
+    }
+
+    private static Pattern compile(String regex) {
+        try {
+            return Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Value '" + regex + "' is not a proper Regular Expression.");
+        }
+    }
+
+    /** Returns the text matched by {@code regex} if it is a plain literal, or {@code null}. */
+    static String literal(String regex) {
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 == regex.length()) {
+                    return null;
+                }
+                char escaped = regex.charAt(++i);
+                if (Character.isLetterOrDigit(escaped) || escaped > 127) {
+                    return null;
+                }
+                literal.append(escaped);
+            } else if (METACHARACTERS.indexOf(c) >= 0 || Character.isSurrogate(c)) {
+                return null;
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.toString();
+    }
+
+    /** Checks whether {@code regex} keeps its meaning inside a larger alternation. */
+    private static boolean isCombinable(String regex) {
+        return !regex.contains("\\Q") && !regex.matches("(?s).*\\\\(?:[1-9]|k<).*")
+            && !regex.matches("(?s).*\\(\\?[a-zA-Z-]*x.*");
+    }
+
+    /**
+     * Checks whether {@code text} contains a match of any of the expressions.
+     *
+     * @param text the text to search (must not be {@code null}).
+     * @return {@code true} if at least one expression is found in {@code text}.
+     */
+    public boolean find(CharSequence text) {
+        if (literals != null && literals.find(text)) {
+            return true;
+        }
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(text).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of expressions matched by the literal automaton.
+     *
+     * @return the number of literal expressions.
+     */
+    public int getLiteralCount() {
+        return literalCount;
+    }
+
+    /**
+     * Returns the number of expressions matched by the regular expression engine.
+     *
+     * @return the number of non-literal expressions.
+     */
+    public int getRegexCount() {
+        return regexCount;
+    }
+
+    /**
+     * Returns the number of scans {@link #find(CharSequence)} performs over a text at most:
+     * one for the literals and one per compiled pattern.
+     *
+     * @return the number of scans.
+     */
+    public int getScanCount() {
+        return (literals == null ? 0 : 1) + patterns.size();
+    }
+
+    /**
+     * Returns a string representation of this {@code MultiPatternMatcher}.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code MultiPatternMatcher}.
+     */
+    @Override
+    public String toString() {
+        return "{\"type\":\"MultiPatternMatcher\",\"literals\":\"" + literalCount + "\",\"regexes\":\"" + regexCount
+            + "\",\"scans\":\"" + getScanCount() + "\"}";
+    }
+
+    /** Folds the case of US-ASCII letters, like {@link Pattern#CASE_INSENSITIVE}. */
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Aho–Corasick automaton over the folded literals. Transitions on US-ASCII characters are resolved into
+     * a table; other characters follow the failure links.
+     */
+    private static final class Automaton {
+
+        private int[][] ascii = new int[16][];
+        private List<Map<Character, Integer>> other = new ArrayList<>();
+        private int[] fail;
+        private boolean[] accept = new boolean[16];
+        private int states;
+
+        Automaton(List<String> literals) {
+            newState();
+            for (String literal : literals) {
+                int state = 0;
+                for (int i = 0; i < literal.length(); i++) {
+                    char c = fold(literal.charAt(i));
+                    int next = c < 128 ? ascii[state][c] : other.get(state).getOrDefault(c, 0);
+                    if (next == 0) {
+                        next = newState();
+                        if (c < 128) {
+                            ascii[state][c] = next;
+                        } else {
+                            other.get(state).put(c, next);
+                        }
+                    }
+                    state = next;
+                }
+                accept[state] = true;
+            }
+            link();
+        }
+
+        private int newState() {
+            if (states == ascii.length) {
+                ascii = Arrays.copyOf(ascii, states * 2);
+                accept = Arrays.copyOf(accept, states * 2);
+            }
+            ascii[states] = new int[128];
+            other.add(new HashMap<>());
+            return states++;
+        }
+
+        /** Computes the failure links breadth-first and resolves the US-ASCII transitions through them. */
+        private void link() {
+            fail = new int[states];
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int c = 0; c < 128; c++) {
+                if (ascii[0][c] != 0) {
+                    queue.add(ascii[0][c]);
+                }
+            }
+            queue.addAll(other.get(0).values());
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                accept[state] |= accept[fail[state]];
+                for (int c = 0; c < 128; c++) {
+                    int next = ascii[state][c];
+                    if (next != 0) {
+                        fail[next] = ascii[fail[state]][c];
+                        queue.add(next);
+                    } else {
+                        ascii[state][c] = ascii[fail[state]][c];
+                    }
+                }
+                for (Map.Entry<Character, Integer> transition : other.get(state).entrySet()) {
+                    fail[transition.getValue()] = step(fail[state], transition.getKey());
+                    queue.add(transition.getValue());
+                }
+            }
+        }
+
+        private int step(int state, char c) {
+            if (c < 128) {
+                return ascii[state][c];
+            }
+            while (state != 0 && !other.get(state).containsKey(c)) {
+                state = fail[state];
+            }
+            return other.get(state).getOrDefault(c, 0);
+        }
+
+        boolean find(CharSequence text) {
+            if (accept[0]) {
+                return true;
+            }
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                state = step(state, fold(text.charAt(i)));
+                if (accept[state]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,575 @@
+package handsoncode.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * {@code NormalForm} is a {@link Filter} rewritten as a disjunction of conjunctions (DNF) or a conjunction of
+ * disjunctions (CNF) of literals, so that an index planner can turn each clause into index probes.
+ * <p>
+ * Negations are first pushed down to the leaves by {@link #pushNegations(Filter)}: a literal is a leaf or a
+ * {@link NotFilter} of a leaf. A negated {@link GreaterThanFilter} or {@link LessThanFilter} is a complemented
+ * range, which also holds for records missing the property; {@link #ranges(List)} folds the range literals of a
+ * conjunction into one {@link Range} per property, keeping track of the records missing it.
+ * </p>
+ * <p>
+ * Distributing {@code AND} over {@code OR}, or the converse, may multiply the number of clauses. When a clause
+ * count would exceed the limit, the subtree is kept undistributed as a single literal and the form is reported
+ * as incomplete: it is still equivalent to the filter, only coarser.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * NormalForm dnf = NormalForm.toDnf(filter);
+ * for (List<Filter> conjunction : dnf.getClauses()) {
+ *     for (NormalForm.Range range : NormalForm.ranges(conjunction)) {
+ *         // probe the sorted values of range.getProperty()
+ *     }
+ * }
+ * }</pre>
+ *
+ * <p>The normal form is equivalent to the filter on resources on which the filter evaluates without throwing;
+ * it may evaluate its leaves in another order, so a resource on which a leaf throws may be reported differently.
+ * Instances are immutable.</p>
+ */
+public final class NormalForm {
+
+    /** The default maximum number of clauses of a normal form. */
+    public static final int DEFAULT_MAX_CLAUSES = 1024;
+
+    private final boolean disjunctive;
+    private final List<List<Filter>> clauses;
+    private final boolean complete;
+
+    private NormalForm(boolean disjunctive, List<List<Filter>> clauses, boolean complete) {
+        this.disjunctive = disjunctive;
+        this.clauses = clauses;
+        this.complete = complete;
+    }
+
+    /**
+     * Rewrites a filter so that {@code NOT} only applies to leaves: double negations are removed, negated
+     * {@code AND}s and {@code OR}s are rewritten by De Morgan's laws and negated constants are folded.
+     *
+     * @param filter the filter to rewrite (must not be {@code null}).
+     * @return an equivalent filter in negation normal form.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     */
+    public static Filter pushNegations(Filter filter) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        return filter.accept(new NegationPusher(false));
+    }
+
+    /**
+     * Converts a filter to disjunctive normal form with at most {@link #DEFAULT_MAX_CLAUSES} clauses.
+     *
+     * @param filter the filter to convert (must not be {@code null}).
+     * @return the disjunctive normal form of {@code filter}.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     */
+    public static NormalForm toDnf(Filter filter) {
+        return toDnf(filter, DEFAULT_MAX_CLAUSES);
+    }
+
+    /**
+     * Converts a filter to disjunctive normal form: an {@code OR} of {@code AND}s of literals.
+     *
+     * @param filter the filter to convert (must not be {@code null}).
+     * @param maxClauses the number of clauses above which subtrees are left undistributed (must be positive).
+     * @return the disjunctive normal form of {@code filter}.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     * @throws IllegalArgumentException if {@code maxClauses} is not positive.
+     */
+    public static NormalForm toDnf(Filter filter, int maxClauses) {
+        return normalize(filter, maxClauses, true);
+    }
+
+    /**
+     * Converts a filter to conjunctive normal form with at most {@link #DEFAULT_MAX_CLAUSES} clauses.
+     *
+     * @param filter the filter to convert (must not be {@code null}).
+     * @return the conjunctive normal form of {@code filter}.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     */
+    public static NormalForm toCnf(Filter filter) {
+        return toCnf(filter, DEFAULT_MAX_CLAUSES);
+    }
+
+    /**
+     * Converts a filter to conjunctive normal form: an {@code AND} of {@code OR}s of literals.
+     *
+     * @param filter the filter to convert (must not be {@code null}).
+     * @param maxClauses the number of clauses above which subtrees are left undistributed (must be positive).
+     * @return the conjunctive normal form of {@code filter}.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     * @throws IllegalArgumentException if {@code maxClauses} is not positive.
+     */
+    public static NormalForm toCnf(Filter filter, int maxClauses) {
+        return normalize(filter, maxClauses, false);
+    }
+
+    private static NormalForm normalize(Filter filter, int maxClauses, boolean disjunctive) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        if (maxClauses <= 0) {
+            throw new IllegalArgumentException("maxClauses must be positive");
+        }
+        Distributor distributor = new Distributor(disjunctive, maxClauses);
+        List<List<Filter>> clauses = distributor.clauses(pushNegations(filter));
+        List<List<Filter>> unmodifiable = new ArrayList<>(clauses.size());
+        for (List<Filter> clause : clauses) {
+            unmodifiable.add(Collections.unmodifiableList(clause));
+        }
+        return new NormalForm(disjunctive, Collections.unmodifiableList(unmodifiable), distributor.complete);
+    }
+
+    /**
+     * Returns whether this is a disjunctive normal form, whose clauses are conjunctions, rather than a
+     * conjunctive one, whose clauses are disjunctions.
+     *
+     * @return {@code true} for a DNF, {@code false} for a CNF.
+     */
+    public boolean isDisjunctive() {
+        return disjunctive;
+    }
+
+    /**
+     * Returns the clauses of this normal form. A DNF without clauses never matches and a DNF clause without
+     * literals always does; conversely for a CNF.
+     *
+     * @return an unmodifiable list of the clauses, each an unmodifiable list of literals.
+     */
+    public List<List<Filter>> getClauses() {
+        return clauses;
+    }
+
+    /**
+     * Returns whether every literal is a leaf or a negated leaf, that is, whether no subtree was left
+     * undistributed because of the clause limit.
+     *
+     * @return {@code true} if the normalization is complete.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Returns the normal form as a filter.
+     *
+     * @return a filter equivalent to this normal form.
+     */
+    public Filter toFilter() {
+        List<Filter> outer = new ArrayList<>(clauses.size());
+        for (List<Filter> clause : clauses) {
+            if (clause.isEmpty()) {
+                return disjunctive ? FilterFactory.trueFilter() : FilterFactory.falseFilter();
+            }
+            outer.add(clause.size() == 1 ? clause.get(0) : disjunctive ? FilterFactory.and(clause) : FilterFactory.or(clause));
+        }
+        if (outer.isEmpty()) {
+            return disjunctive ? FilterFactory.falseFilter() : FilterFactory.trueFilter();
+        }
+        return outer.size() == 1 ? outer.get(0) : disjunctive ? FilterFactory.or(outer) : FilterFactory.and(outer);
+    }
+
+    /**
+     * Returns a string representation of this {@code NormalForm}.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code NormalForm}.
+     */
+    @Override
+    public String toString() {
+        return "{\"type\":\"" + (disjunctive ? "DNF" : "CNF") + "\",\"clauses\":\"" + clauses.size() + "\",\"complete\":\""
+            + complete + "\",\"filter\":" + toFilter() + "}";
+    }
+
+    /**
+     * Folds the range literals of a conjunction, such as a DNF clause, into one range per property.
+     * {@link GreaterThanFilter} and {@link LessThanFilter} literals bound the range and require the property;
+     * their negations bound it inclusively and also hold for records missing the property or holding
+     * {@code NaN}. A comparison with a {@code NaN} threshold never holds and empties the range, while its negation
+     * always holds and leaves the range unchanged. Other literals are ignored.
+     *
+     * @param conjunction the literals of a conjunction (must not be {@code null}).
+     * @return the ranges, in the order their properties first appear.
+     * @throws NullPointerException if {@code conjunction} is {@code null}.
+     */
+    public static List<Range> ranges(List<Filter> conjunction) {
+        Objects.requireNonNull(conjunction, "conjunction must not be null");
+        Map<String, Range> ranges = new LinkedHashMap<>();
+        for (Filter literal : conjunction) {
+            boolean negated = literal instanceof NotFilter;
+            Filter leaf = negated ? ((NotFilter) literal).getFilter() : literal;
+            if (leaf instanceof GreaterThanFilter) {
+                GreaterThanFilter greaterThan = (GreaterThanFilter) leaf;
+                Range range = ranges.computeIfAbsent(greaterThan.getProperty(), Range::new);
+                if (negated) {
+                    // NOT (x > NaN) always holds: no bound.
+                    if (!Double.isNaN(greaterThan.getValue())) {
+                        range.restrictHigh(greaterThan.getValue(), true);
+                    }
+                } else {
+                    range.restrictLow(greaterThan.getValue(), false);
+                    range.includesMissing = false;
+                }
+            } else if (leaf instanceof LessThanFilter) {
+                LessThanFilter lessThan = (LessThanFilter) leaf;
+                Range range = ranges.computeIfAbsent(lessThan.getProperty(), Range::new);
+                if (negated) {
+                    if (!Double.isNaN(lessThan.getValue())) {
+                        range.restrictLow(lessThan.getValue(), true);
+                    }
+                } else {
+                    range.restrictHigh(lessThan.getValue(), false);
+                    range.includesMissing = false;
+                }
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<>(ranges.values()));
+    }
+
+    /**
+     * The numeric values of a property allowed by the range literals of a conjunction, and whether records
+     * missing the property, or holding {@code NaN}, are allowed too.
+     *
+     * Example Usage:
+     * <pre>{@code
+     * // NOT age > 65 AND NOT age < 18
+     * Range range = NormalForm.ranges(clause).get(0);  // [18, 65], also matching records without an age
+     * }</pre>
+     */
+    public static final class Range {
+
+        private final String property;
+        private double low = Double.NEGATIVE_INFINITY;
+        private boolean lowInclusive = true;
+        private double high = Double.POSITIVE_INFINITY;
+        private boolean highInclusive = true;
+        private boolean includesMissing = true;
+
+        private Range(String property) {
+            this.property = property;
+        }
+
+        private void restrictLow(double value, boolean inclusive) {
+            if (value > low || (value == low && !inclusive) || Double.isNaN(value)) {
+                low = value;
+                lowInclusive = inclusive;
+            }
+        }
+
+        private void restrictHigh(double value, boolean inclusive) {
+            if (value < high || (value == high && !inclusive) || Double.isNaN(value)) {
+                high = value;
+                highInclusive = inclusive;
+            }
+        }
+
+        /**
+         * Returns the property this range applies to.
+         *
+         * @return the property name.
+         */
+        public String getProperty() {
+            return property;
+        }
+
+        /**
+         * Returns the lower bound of the range, {@link Double#NEGATIVE_INFINITY} when unbounded.
+         *
+         * @return the lower bound.
+         */
+        public double getLow() {
+            return low;
+        }
+
+        /**
+         * Returns whether the lower bound belongs to the range.
+         *
+         * @return {@code true} if the lower bound is inclusive.
+         */
+        public boolean isLowInclusive() {
+            return lowInclusive;
+        }
+
+        /**
+         * Returns the upper bound of the range, {@link Double#POSITIVE_INFINITY} when unbounded.
+         *
+         * @return the upper bound.
+         */
+        public double getHigh() {
+            return high;
+        }
+
+        /**
+         * Returns whether the upper bound belongs to the range.
+         *
+         * @return {@code true} if the upper bound is inclusive.
+         */
+        public boolean isHighInclusive() {
+            return highInclusive;
+        }
+
+        /**
+         * Returns whether records missing the property, or holding {@code NaN}, satisfy the range: only
+         * negated comparisons restrict the property.
+         *
+         * @return {@code true} if missing and {@code NaN} values are allowed.
+         */
+        public boolean includesMissing() {
+            return includesMissing;
+        }
+
+        /**
+         * Returns whether no numeric value lies within the bounds. Records missing the property may still
+         * satisfy an empty range, see {@link #includesMissing()}.
+         *
+         * @return {@code true} if the bounds exclude every number.
+         */
+        public boolean isEmpty() {
+            return !(low < high || (low == high && lowInclusive && highInclusive));
+        }
+
+        /**
+         * Returns a string representation of this {@code Range}.
+         * The string format is a JSON-like representation.
+         *
+         * @return a string representation of the {@code Range}.
+         */
+        @Override
+        public String toString() {
+            return "{\"type\":\"Range\",\"property\":\"" + property + "\",\"low\":\"" + low + "\",\"lowInclusive\":\""
+                + lowInclusive + "\",\"high\":\"" + high + "\",\"highInclusive\":\"" + highInclusive
+                + "\",\"includesMissing\":\"" + includesMissing + "\"}";
+        }
+    }
+
+    /** Pushes negations down to the leaves; {@code negate} tells whether the visited filter is negated. */
+    private static final class NegationPusher implements FilterVisitor<Filter> {
+
+        private final boolean negate;
+
+        NegationPusher(boolean negate) {
+            this.negate = negate;
+        }
+
+        private Filter leaf(Filter filter) {
+            return negate ? FilterFactory.not(filter) : filter;
+        }
+
+        @Override
+        public Filter visitTrue(TrueFilter filter) {
+            return negate ? FilterFactory.falseFilter() : filter;
+        }
+
+        @Override
+        public Filter visitFalse(FalseFilter filter) {
+            return negate ? FilterFactory.trueFilter() : filter;
+        }
+
+        @Override
+        public Filter visitGreaterThan(GreaterThanFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public Filter visitLessThan(LessThanFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public Filter visitEqualsTo(IsEqualFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public Filter visitIsPresent(IsPresentFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public Filter visitMatchesExpression(MatchesExpressionFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public Filter visitNot(NotFilter filter) {
+            return filter.getFilter().accept(new NegationPusher(!negate));
+        }
+
+        @Override
+        public Filter visitAnd(AndFilter filter) {
+            return junction(filter.getFilters(), !negate);
+        }
+
+        @Override
+        public Filter visitOr(OrFilter filter) {
+            return junction(filter.getFilters(), negate);
+        }
+
+        /** Rewrites the children of an {@code AND} ({@code and}) or an {@code OR}. */
+        private Filter junction(List<Filter> filters, boolean and) {
+            List<Filter> children = new ArrayList<>(filters.size());
+            for (Filter child : filters) {
+                children.add(child.accept(this));
+            }
+            return and ? FilterFactory.and(children) : FilterFactory.or(children);
+        }
+
+        @Override
+        public Filter visitOther(Filter filter) {
+            return leaf(filter);
+        }
+    }
+
+    /**
+     * Computes the clauses of a filter in negation normal form. The outer junction is {@code OR} for a DNF and
+     * {@code AND} for a CNF; the inner one, distributed over the outer one, is the other.
+     */
+    private static final class Distributor {
+
+        private final boolean disjunctive;
+        private final int maxClauses;
+        /** The JSON representations identifying literals, as filters do not implement {@code equals}. */
+        private final Map<Filter, String> keys = new IdentityHashMap<>();
+        boolean complete = true;
+
+        Distributor(boolean disjunctive, int maxClauses) {
+            this.disjunctive = disjunctive;
+            this.maxClauses = maxClauses;
+        }
+
+        List<List<Filter>> clauses(Filter filter) {
+            if (filter instanceof TrueFilter || filter instanceof FalseFilter) {
+                // TRUE is a DNF clause without literals and a CNF without clauses; FALSE conversely.
+                List<List<Filter>> clauses = new ArrayList<>();
+                if (filter instanceof TrueFilter == disjunctive) {
+                    clauses.add(new ArrayList<>());
+                }
+                return clauses;
+            }
+            boolean outer = disjunctive ? filter instanceof OrFilter : filter instanceof AndFilter;
+            boolean inner = disjunctive ? filter instanceof AndFilter : filter instanceof OrFilter;
+            if (outer) {
+                return concatenate(children(filter));
+            }
+            if (inner) {
+                return distribute(children(filter));
+            }
+            List<List<Filter>> clauses = new ArrayList<>();
+            clauses.add(literals(filter));
+            return clauses;
+        }
+
+        private List<Filter> children(Filter filter) {
+            return filter instanceof AndFilter ? ((AndFilter) filter).getFilters() : ((OrFilter) filter).getFilters();
+        }
+
+        /** Returns the clauses of an outer junction: those of its children, a child kept whole past the limit. */
+        private List<List<Filter>> concatenate(List<Filter> children) {
+            List<List<Filter>> clauses = new ArrayList<>();
+            Set<Set<String>> seen = new HashSet<>();
+            for (Filter child : children) {
+                List<List<Filter>> childClauses = clauses(child);
+                if (childClauses.size() > 1 && clauses.size() + childClauses.size() > maxClauses) {
+                    childClauses = List.of(literals(child));
+                    complete = false;
+                }
+                for (List<Filter> clause : childClauses) {
+                    if (clause.isEmpty()) {
+                        // An absorbing clause: TRUE in a DNF, FALSE in a CNF.
+                        List<List<Filter>> absorbing = new ArrayList<>();
+                        absorbing.add(new ArrayList<>());
+                        return absorbing;
+                    }
+                    if (seen.add(keys(clause))) {
+                        clauses.add(clause);
+                    }
+                }
+            }
+            return clauses;
+        }
+
+        /** Returns the clauses of an inner junction, the cross product of those of its children within the limit. */
+        private List<List<Filter>> distribute(List<Filter> children) {
+            List<List<Filter>> product = new ArrayList<>();
+            product.add(new ArrayList<>());
+            for (Filter child : children) {
+                List<List<Filter>> childClauses = clauses(child);
+                if ((long) product.size() * childClauses.size() > maxClauses) {
+                    childClauses = List.of(literals(child));
+                    complete = false;
+                }
+                List<List<Filter>> next = new ArrayList<>();
+                Set<Set<String>> seen = new HashSet<>();
+                for (List<Filter> clause : product) {
+                    for (List<Filter> childClause : childClauses) {
+                        List<Filter> merged = merge(clause, childClause);
+                        if (merged != null && seen.add(keys(merged))) {
+                            next.add(merged);
+                        }
+                    }
+                }
+                product = next;
+                if (product.isEmpty()) {
+                    break;
+                }
+            }
+            return product;
+        }
+
+        /** Returns the literals of a filter kept whole: itself, or its children when it is an inner junction. */
+        private List<Filter> literals(Filter filter) {
+            boolean inner = disjunctive ? filter instanceof AndFilter : filter instanceof OrFilter;
+            List<Filter> literals = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            for (Filter literal : inner ? children(filter) : List.of(filter)) {
+                if (seen.add(key(literal))) {
+                    literals.add(literal);
+                }
+            }
+            return literals;
+        }
+
+        /**
+         * Merges two clauses, removing duplicate literals; returns {@code null} when they hold a literal and its
+         * negation, an empty DNF conjunction or a CNF disjunction that always holds.
+         */
+        private List<Filter> merge(List<Filter> first, List<Filter> second) {
+            List<Filter> merged = new ArrayList<>(first);
+            Set<String> present = keys(first);
+            for (Filter literal : second) {
+                if (present.contains(complementKey(literal))) {
+                    return null;
+                }
+                if (present.add(key(literal))) {
+                    merged.add(literal);
+                }
+            }
+            return merged;
+        }
+
+        private String key(Filter literal) {
+            return keys.computeIfAbsent(literal, Filter::toString);
+        }
+
+        private Set<String> keys(List<Filter> clause) {
+            Set<String> keys = new HashSet<>();
+            for (Filter literal : clause) {
+                keys.add(key(literal));
+            }
+            return keys;
+        }
+
+        private String complementKey(Filter literal) {
+            return literal instanceof NotFilter ? key(((NotFilter) literal).getFilter()) : "{\"type\":\"NOT\",\"filter\":" + key(literal) + "}";
+        }
+    }
+}
@@ -3,6 +3,9 @@ package handsoncode.filter;
 import java.util.Map;
 import java.util.Objects;
 
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+
 /**
  * {@code NotFilter} is an implementation of the {@link Filter} interface that negates the result of 
  * another filter.
@@ -45,6 +48,51 @@ public class NotFilter implements Filter {
         return !filter.matches(resource);
     }
 
+    /**
+     * Negates the result of the provided filter, passing {@code context} on to it.
+     *
+     * @param resource a {@link Map} representing the resource data.
+     * @param context the evaluation context of {@code resource}.
+     * @return the negation of the result of the provided filter's {@code matches} method.
+     */
+    @Override
+    public boolean matches(Map<String,String> resource, EvaluationContext context) {
+        return !filter.matches(resource, context);
+    }
+
+    /**
+     * Binds the negated filter to {@code schema}.
+     *
+     * @param schema the schema of the resources to evaluate.
+     * @return a {@link BoundFilter} equivalent to this {@code NotFilter}.
+     */
+    @Override
+    public BoundFilter bind(ResourceSchema schema) {
+        BoundFilter bound = filter.bind(schema);
+        return (resource, context) -> !bound.matches(resource, context);
+    }
+
+    /**
+     * Returns the filter negated by this {@code NotFilter}.
+     *
+     * @return the negated filter.
+     */
+    public Filter getFilter() {
+        return LazyFilter.parsed(filter);
+    }
+
+    /**
+     * Dispatches to {@link FilterVisitor#visitNot(NotFilter)}.
+     *
+     * @param <R> the type of the result of the visit.
+     * @param visitor the visitor.
+     * @return the result of the visit.
+     */
+    @Override
+    public <R> R accept(FilterVisitor<R> visitor) {
+        return visitor.visitNot(this);
+    }
+
     /**
      * Returns a string representation of this {@code NotFilter}, describing the type of filter 
      * and the negated filter it contains. The string format is JSON-like.
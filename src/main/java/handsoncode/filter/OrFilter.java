@@ -1,10 +1,16 @@
 package handsoncode.filter;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+
 /**
  * {@code OrFilter} is an implementation of the {@link Filter} interface that checks if at least one 
  * of the provided filters matches the resource. It applies a logical OR operation across the filters.
@@ -16,10 +22,21 @@ import java.util.Objects;
  * Filter orFilter = new OrFilter(filter1, filter2);
  * boolean result = orFilter.matches(resource);  // Returns true if at least one of the filters match
  * }</pre>
+ *
+ * <p>Child {@link MatchesExpressionFilter}s, subclasses excluded, on the same property are evaluated together by a
+ * {@link MultiPatternMatcher}, at the position of the first of them, so the property value is scanned once
+ * whatever the number of patterns. Only patterns separated by siblings that cannot throw (patterns,
+ * {@link IsPresentFilter}, {@link IsEqualFilter} and boolean literals) are combined, so that combining never changes
+ * the result nor which child throws. Children left unparsed by {@link FilterFactory#fromStringLazy(String)} take part too: the patterns combined
+ * are parsed when the plan is built, the other children stay unparsed.</p>
  */
 
 public class OrFilter implements Filter{
+    /** Minimal number of sibling patterns on one property evaluated by a {@link MultiPatternMatcher}. */
+    static final int MIN_COMBINED_PATTERNS = 2;
+
     private final List<Filter> filters;
+    private volatile List<Filter> evaluated;
 
     /**
      * Constructs an {@code OrFilter} that applies a logical OR operation across the provided filters.
@@ -45,14 +62,167 @@ public class OrFilter implements Filter{
      */
     @Override
     public boolean matches(Map<String,String> resource) {
-        for (Filter filter : filters){
-            if(filter.matches(resource))
+        List<Filter> evaluated = evaluated();
+        // Indexed: the plan is an unmodifiable list, whose iterator would be allocated on every call.
+        for (int i = 0; i < evaluated.size(); i++){
+            if(evaluated.get(i).matches(resource))
+            {
+                return true;
+            }
+        }
+        return false;
+
+    }
+
+    /**
+     * Checks whether at least one filter matches the resource, sharing {@code context} between them.
+     *
+     * @param resource a {@link Map} representing the resource data.
+     * @param context the evaluation context of {@code resource}.
+     * @return {@code true} if at least one filter matches, {@code false} otherwise.
+     */
+    @Override
+    public boolean matches(Map<String,String> resource, EvaluationContext context) {
+        List<Filter> evaluated = evaluated();
+        for (int i = 0; i < evaluated.size(); i++){
+            if(evaluated.get(i).matches(resource, context))
             {
                 return true;
             }
         }
         return false;
+    }
+
+    /**
+     * Binds every child filter to {@code schema}; the bound filter stops at the first child that matches.
+     *
+     * @param schema the schema of the resources to evaluate.
+     * @return a {@link BoundFilter} equivalent to this {@code OrFilter}.
+     */
+    @Override
+    public BoundFilter bind(ResourceSchema schema) {
+        List<Filter> evaluated = evaluated();
+        BoundFilter[] bound = new BoundFilter[evaluated.size()];
+        for (int i = 0; i < bound.length; i++) {
+            bound[i] = evaluated.get(i).bind(schema);
+        }
+        return (resource, context) -> {
+            for (BoundFilter filter : bound) {
+                if (filter.matches(resource, context)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Returns the children as evaluated: within every run of children that cannot throw, the patterns on one
+     * property replaced, at the position of the first of them, by a single filter running a
+     * {@link MultiPatternMatcher}. Computed on first call and cached.
+     */
+    List<Filter> evaluated() {
+        List<Filter> plan = evaluated;
+        if (plan == null) {
+            plan = new ArrayList<>();
+            int from = 0;
+            for (int i = 0; i <= filters.size(); i++) {
+                if (i == filters.size() || !cannotThrow(filters.get(i))) {
+                    combine(filters.subList(from, i), plan);
+                    if (i < filters.size()) {
+                        plan.add(filters.get(i));
+                    }
+                    from = i + 1;
+                }
+            }
+            plan = Collections.unmodifiableList(plan);
+            evaluated = plan;
+        }
+        return plan;
+    }
 
+    /** Adds a run of children that cannot throw to {@code plan}, combining the patterns on one property. */
+    private static void combine(List<Filter> run, List<Filter> plan) {
+        Map<String, List<Filter>> patterns = new LinkedHashMap<>();
+        for (Filter filter : run) {
+            String property = patternProperty(filter);
+            if (property != null) {
+                patterns.computeIfAbsent(property, key -> new ArrayList<>()).add(filter);
+            }
+        }
+        for (Filter filter : run) {
+            String property = patternProperty(filter);
+            List<Filter> group = property == null ? null : patterns.get(property);
+            if (group == null || (!group.isEmpty() && group.size() < MIN_COMBINED_PATTERNS)) {
+                plan.add(filter);
+            } else if (!group.isEmpty()) {
+                List<MatchesExpressionFilter> combined = new ArrayList<>();
+                for (Filter pattern : group) {
+                    combined.add((MatchesExpressionFilter) (pattern instanceof LazyFilter ? ((LazyFilter) pattern).filter() : pattern));
+                }
+                plan.add(new CombinedPatternsFilter(property, combined));
+                patterns.put(property, Collections.emptyList());
+            }
+        }
+    }
+
+    /**
+     * Checks whether a child never throws, so that evaluating it or not cannot change which child throws.
+     * Unparsed lazy children other than patterns may fail to parse, and are assumed to throw.
+     */
+    private static boolean cannotThrow(Filter filter) {
+        if (filter instanceof LazyFilter) {
+            LazyFilter lazy = (LazyFilter) filter;
+            return lazy.isMaterialized() ? cannotThrow(lazy.filter()) : lazy.patternProperty() != null;
+        }
+        Class<?> type = filter.getClass();
+        return type == MatchesExpressionFilter.class || type == IsPresentFilter.class || type == IsEqualFilter.class
+            || type == TrueFilter.class || type == FalseFilter.class;
+    }
+
+    /**
+     * Returns the property of a child that can be combined with sibling patterns, or {@code null}. Subclasses may
+     * override {@code matches()}, which a combined matcher would bypass, and are never combined. Lazy children are
+     * recognized without being parsed.
+     */
+    private static String patternProperty(Filter filter) {
+        if (filter instanceof LazyFilter) {
+            return ((LazyFilter) filter).patternProperty();
+        }
+        return filter.getClass() == MatchesExpressionFilter.class ? ((MatchesExpressionFilter) filter).getProperty() : null;
+    }
+
+    /**
+     * Returns the children as evaluated, in evaluation order: sibling patterns on one property, separated by
+     * children that cannot throw only, are replaced at the position of the first of them by a single
+     * {@link CombinedPatternsFilter}. Evaluators walking the tree
+     * instead of calling {@link #matches(Map)} use this list to scan each property value once.
+     *
+     * @return an unmodifiable list of the evaluated child filters.
+     */
+    public List<Filter> getEvaluatedFilters() {
+        return LazyFilter.parsed(evaluated());
+    }
+
+    /**
+     * Returns the filters combined by this logical OR.
+     *
+     * @return an unmodifiable list of the child filters.
+     */
+    public List<Filter> getFilters() {
+        return LazyFilter.parsed(filters);
+    }
+
+    /**
+     * Dispatches to {@link FilterVisitor#visitOr(OrFilter)}.
+     *
+     * @param <R> the type of the result of the visit.
+     * @param visitor the visitor.
+     * @return the result of the visit.
+     */
+    @Override
+    public <R> R accept(FilterVisitor<R> visitor) {
+        return visitor.visitOr(this);
     }
 
     /**
@@ -0,0 +1,19 @@
+package handsoncode.filter;
+
+/**
+ * The ways a {@link Filter} can read a resource property, as reported by {@link ReferencedProperties}.
+ */
+public enum PropertyUsage {
+
+    /** The property is checked for presence, by {@link IsPresentFilter}. */
+    PRESENCE,
+
+    /** The property is compared to a string, ignoring case, by {@link IsEqualFilter}. */
+    EQUALITY,
+
+    /** The property is parsed as a number and compared, by {@link GreaterThanFilter} and {@link LessThanFilter}. */
+    NUMERIC,
+
+    /** The property is matched against a regular expression, by {@link MatchesExpressionFilter}. */
+    REGEX
+}
@@ -0,0 +1,270 @@
+package handsoncode.filter;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import handsoncode.utils.StripedWeakCache;
+
+/**
+ * {@code ReferencedProperties} is the set of resource properties read by a {@link Filter}, together with
+ * the {@link PropertyUsage} of each of them.
+ * <p>
+ * It is the result of {@link Filter#referencedProperties()}, used for projection, dependency tracking and
+ * cache invalidation: a filter's result on a resource can only change when one of its referenced properties
+ * changes. When a tree contains filter types this analysis does not know, the result is not
+ * {@linkplain #isComplete() complete} and callers must assume the filter may read any property.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * Filter filter = FilterFactory.and(List.of(FilterFactory.greaterThan("age", 30), FilterFactory.isPresent("role")));
+ * ReferencedProperties properties = filter.referencedProperties();
+ * properties.getProperties();      // [age, role]
+ * properties.getUsages("age");     // [NUMERIC]
+ * }</pre>
+ *
+ * <p>Instances are immutable. The result of {@link #of(Filter)} is cached per filter instance in a
+ * {@link StripedWeakCache}, so that every node of a tree is analyzed once.</p>
+ */
+public final class ReferencedProperties {
+
+    private static final ReferencedProperties NONE = new ReferencedProperties(Collections.emptyMap(), true);
+    private static final ReferencedProperties UNKNOWN = new ReferencedProperties(Collections.emptyMap(), false);
+    private static final StripedWeakCache<Filter, ReferencedProperties> CACHE = new StripedWeakCache<>();
+
+    /** Computes the referenced properties of a node from the cached results of its children. */
+    static final FilterVisitor<ReferencedProperties> ANALYZER = new FilterVisitor<>() {
+
+        @Override
+        public ReferencedProperties visitTrue(TrueFilter filter) {
+            return NONE;
+        }
+
+        @Override
+        public ReferencedProperties visitFalse(FalseFilter filter) {
+            return NONE;
+        }
+
+        @Override
+        public ReferencedProperties visitGreaterThan(GreaterThanFilter filter) {
+            return of(filter.getProperty(), PropertyUsage.NUMERIC);
+        }
+
+        @Override
+        public ReferencedProperties visitLessThan(LessThanFilter filter) {
+            return of(filter.getProperty(), PropertyUsage.NUMERIC);
+        }
+
+        @Override
+        public ReferencedProperties visitEqualsTo(IsEqualFilter filter) {
+            return of(filter.getProperty(), PropertyUsage.EQUALITY);
+        }
+
+        @Override
+        public ReferencedProperties visitIsPresent(IsPresentFilter filter) {
+            return of(filter.getProperty(), PropertyUsage.PRESENCE);
+        }
+
+        @Override
+        public ReferencedProperties visitMatchesExpression(MatchesExpressionFilter filter) {
+            return of(filter.getProperty(), PropertyUsage.REGEX);
+        }
+
+        @Override
+        public ReferencedProperties visitNot(NotFilter filter) {
+            return filter.getFilter().referencedProperties();
+        }
+
+        @Override
+        public ReferencedProperties visitAnd(AndFilter filter) {
+            return union(filter.getFilters());
+        }
+
+        @Override
+        public ReferencedProperties visitOr(OrFilter filter) {
+            return union(filter.getFilters());
+        }
+
+        @Override
+        public ReferencedProperties visitOther(Filter filter) {
+            return UNKNOWN;
+        }
+    };
+
+    private final Map<String, Set<PropertyUsage>> usages;
+    private final boolean complete;
+
+    private ReferencedProperties(Map<String, Set<PropertyUsage>> usages, boolean complete) {
+        this.usages = usages;
+        this.complete = complete;
+    }
+
+    private static ReferencedProperties of(String property, PropertyUsage usage) {
+        return new ReferencedProperties(Map.of(property, Collections.unmodifiableSet(EnumSet.of(usage))), true);
+    }
+
+    private static ReferencedProperties union(Iterable<Filter> filters) {
+        Map<String, Set<PropertyUsage>> merged = new LinkedHashMap<>();
+        boolean complete = true;
+        for (Filter filter : filters) {
+            ReferencedProperties child = filter.referencedProperties();
+            complete &= child.complete;
+            for (Map.Entry<String, Set<PropertyUsage>> entry : child.usages.entrySet()) {
+                merged.computeIfAbsent(entry.getKey(), key -> EnumSet.noneOf(PropertyUsage.class)).addAll(entry.getValue());
+            }
+        }
+        merged.replaceAll((property, usage) -> Collections.unmodifiableSet(usage));
+        return new ReferencedProperties(Collections.unmodifiableMap(merged), complete);
+    }
+
+    /**
+     * Returns the referenced properties of a filter, computed on first call for this instance and cached.
+     * This is the default implementation of {@link Filter#referencedProperties()}; the children of a logical
+     * filter are looked up through their own {@code referencedProperties()}, so shared subtrees are analyzed once.
+     *
+     * @param filter the filter (must not be {@code null}).
+     * @return the properties read by {@code filter}.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     */
+    public static ReferencedProperties of(Filter filter) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        return CACHE.get(filter, ReferencedProperties::analyze);
+    }
+
+    /**
+     * Caches the result of every descendant of a filter, children before parents, with an explicit stack: the
+     * analysis of each node then finds its children's results in the cache instead of recursing into them, so that
+     * deeply nested filters do not overflow the call stack.
+     */
+    private static void analyzeDescendants(Filter filter) {
+        Deque<Filter> pending = new ArrayDeque<>();
+        Set<Filter> expanded = Collections.newSetFromMap(new IdentityHashMap<>());
+        pushChildren(filter, pending);
+        while (!pending.isEmpty()) {
+            Filter node = pending.peek();
+            if (node instanceof LazyFilter) {
+                // Its referencedProperties() reads those of the parsed filter.
+                node = ((LazyFilter) node).filter();
+            }
+            boolean done = CACHE.get(node) != null;
+            if (!done && expanded.add(node) && pushChildren(node, pending)) {
+                continue;
+            }
+            pending.pop();
+            if (!done) {
+                CACHE.put(node, node.accept(ANALYZER));
+            }
+        }
+    }
+
+    private static boolean pushChildren(Filter filter, Deque<Filter> pending) {
+        if (filter instanceof LazyFilter) {
+            filter = ((LazyFilter) filter).filter();
+        }
+        if (filter instanceof NotFilter) {
+            pending.push(((NotFilter) filter).getFilter());
+        } else if (filter instanceof AndFilter) {
+            ((AndFilter) filter).getFilters().forEach(pending::push);
+        } else if (filter instanceof OrFilter) {
+            ((OrFilter) filter).getFilters().forEach(pending::push);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Computes the referenced properties of any filter, without caching the result for {@code filter} itself.
+     * See {@link #of(Filter)} for the cached analysis.
+     *
+     * @param filter the filter to analyze (must not be {@code null}).
+     * @return the properties read by {@code filter}.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     */
+    public static ReferencedProperties analyze(Filter filter) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        analyzeDescendants(filter);
+        return filter.accept(ANALYZER);
+    }
+
+    /**
+     * Returns the names of the referenced properties.
+     *
+     * @return an unmodifiable set of property names.
+     */
+    public Set<String> getProperties() {
+        return usages.keySet();
+    }
+
+    /**
+     * Returns how a property is read.
+     *
+     * @param property the property name.
+     * @return an unmodifiable set of usages, empty if the property is not referenced.
+     */
+    public Set<PropertyUsage> getUsages(String property) {
+        return usages.getOrDefault(property, Collections.emptySet());
+    }
+
+    /**
+     * Checks whether a property is referenced.
+     *
+     * @param property the property name.
+     * @return {@code true} if the filter reads {@code property}.
+     */
+    public boolean contains(String property) {
+        return usages.containsKey(property);
+    }
+
+    /**
+     * Checks whether every node of the analyzed tree is known to this analysis.
+     *
+     * @return {@code true} if the filter reads no other property than {@link #getProperties()},
+     *         {@code false} if it contains custom filter types that may read any property.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ReferencedProperties)) {
+            return false;
+        }
+        ReferencedProperties properties = (ReferencedProperties) other;
+        return complete == properties.complete && usages.equals(properties.usages);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(usages, complete);
+    }
+
+    /**
+     * Returns a string representation of these {@code ReferencedProperties}, listing every property and its usages.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code ReferencedProperties}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder propertiesstring = new StringBuilder("{\"complete\":\"" + complete + "\",\"properties\":{");
+        Iterator<Map.Entry<String, Set<PropertyUsage>>> entryIterator = usages.entrySet().iterator();
+        while (entryIterator.hasNext()) {
+            Map.Entry<String, Set<PropertyUsage>> entry = entryIterator.next();
+            propertiesstring.append("\"").append(entry.getKey()).append("\":\"").append(entry.getValue()).append("\"");
+            if (entryIterator.hasNext()) {
+                propertiesstring.append(",");
+            }
+        }
+        return propertiesstring.append("}}").toString();
+    }
+}
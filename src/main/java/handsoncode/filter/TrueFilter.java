@@ -2,6 +2,9 @@ package handsoncode.filter;
 
 import java.util.Map;
 
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+
 /**
  * {@code TrueFilter} is a singleton implementation of the {@link Filter} interface 
  * that always returns {@code true}.
@@ -40,6 +43,29 @@ public class TrueFilter implements Filter {
         return value;
     }
 
+    /**
+     * Returns a bound filter that always returns {@code true}.
+     *
+     * @param schema the schema of the resources to evaluate (not used in this implementation).
+     * @return a {@link BoundFilter} that always returns {@code true}.
+     */
+    @Override
+    public BoundFilter bind(ResourceSchema schema) {
+        return (resource, context) -> true;
+    }
+
+    /**
+     * Dispatches to {@link FilterVisitor#visitTrue(TrueFilter)}.
+     *
+     * @param <R> the type of the result of the visit.
+     * @param visitor the visitor.
+     * @return the result of the visit.
+     */
+    @Override
+    public <R> R accept(FilterVisitor<R> visitor) {
+        return visitor.visitTrue(this);
+    }
+
     /**
      * Returns a string representation of the {@code FalseFilter}.
      * The string format is a JSON-like representation.
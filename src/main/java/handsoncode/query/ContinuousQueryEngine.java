@@ -0,0 +1,265 @@
+package handsoncode.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import handsoncode.filter.EvaluationContext;
+import handsoncode.filter.Filter;
+import handsoncode.filter.ReferencedProperties;
+
+/**
+ * {@code ContinuousQueryEngine} keeps the match set of every registered (standing) {@link Filter}
+ * up to date while resources are upserted and removed.
+ * <p>
+ * Each filter is indexed by its {@link Filter#referencedProperties()}. When a resource is updated, only the filters
+ * reading at least one property whose value changed are re-evaluated, and every resource entering or
+ * leaving a match set is reported to the registered {@link MatchListener}s as a {@link MatchDelta}.
+ * Filters whose referenced properties are not complete are re-evaluated on every update.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * ContinuousQueryEngine engine = new ContinuousQueryEngine();
+ * engine.addListener(delta -> System.out.println(delta));
+ * engine.register("adults", FilterFactory.greaterThan("age", 17));
+ *
+ * engine.upsert("joe", Map.of("age", "35"));    // {"type":"ADDED","filter":"adults","resource":"joe"}
+ * engine.upsert("joe", Map.of("age", "15"));    // {"type":"REMOVED","filter":"adults","resource":"joe"}
+ * }</pre>
+ *
+ * <p>All operations are synchronized on the engine. Evaluation errors, such as a non-numeric value
+ * compared by a {@code GreaterThanFilter}, are thrown before any state is modified.</p>
+ */
+public class ContinuousQueryEngine {
+
+    private final Map<String, Filter> filters = new LinkedHashMap<>();
+    private final Map<String, Set<String>> matches = new HashMap<>();
+    private final Map<String, Set<String>> filtersByProperty = new HashMap<>();
+    private final Set<String> unindexedFilters = new LinkedHashSet<>();
+    private final Map<String, Map<String, String>> resources = new LinkedHashMap<>();
+    private final List<MatchListener> listeners = new CopyOnWriteArrayList<>();
+    private final EvaluationContext context = new EvaluationContext();
+
+    /**
+     * Registers a listener notified of every match set change.
+     *
+     * @param listener the listener to add (must not be {@code null}).
+     */
+    public void addListener(MatchListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+    }
+
+    /**
+     * Removes a previously registered listener.
+     *
+     * @param listener the listener to remove.
+     * @return {@code true} if the listener was registered.
+     */
+    public boolean removeListener(MatchListener listener) {
+        return listeners.remove(listener);
+    }
+
+    /**
+     * Registers a standing filter and computes its match set over the current resources,
+     * reporting every current match as an {@link MatchDelta.Type#ADDED} delta.
+     *
+     * @param filterId the id of the filter (must not be {@code null}).
+     * @param filter the filter (must not be {@code null}).
+     * @throws NullPointerException if {@code filterId} or {@code filter} is {@code null}.
+     * @throws IllegalArgumentException if a filter is already registered under {@code filterId}.
+     */
+    public synchronized void register(String filterId, Filter filter) {
+        Objects.requireNonNull(filterId, "filterId must not be null");
+        Objects.requireNonNull(filter, "filter must not be null");
+        if (filters.containsKey(filterId)) {
+            throw new IllegalArgumentException("Filter '" + filterId + "' is already registered");
+        }
+
+        Set<String> matching = new LinkedHashSet<>();
+        for (Map.Entry<String, Map<String, String>> resource : resources.entrySet()) {
+            if (context.matches(filter, resource.getValue())) {
+                matching.add(resource.getKey());
+            }
+        }
+
+        filters.put(filterId, filter);
+        matches.put(filterId, matching);
+        ReferencedProperties properties = filter.referencedProperties();
+        if (properties.isComplete()) {
+            for (String property : properties.getProperties()) {
+                filtersByProperty.computeIfAbsent(property, key -> new LinkedHashSet<>()).add(filterId);
+            }
+        } else {
+            unindexedFilters.add(filterId);
+        }
+
+        List<MatchDelta> deltas = new ArrayList<>();
+        for (String resourceId : matching) {
+            deltas.add(new MatchDelta(filterId, resourceId, MatchDelta.Type.ADDED));
+        }
+        publish(deltas);
+    }
+
+    /**
+     * Unregisters a standing filter, reporting every current match as a {@link MatchDelta.Type#REMOVED} delta.
+     *
+     * @param filterId the id of the filter.
+     * @return {@code true} if a filter was registered under {@code filterId}.
+     */
+    public synchronized boolean unregister(String filterId) {
+        if (filters.remove(filterId) == null) {
+            return false;
+        }
+        unindexedFilters.remove(filterId);
+        filtersByProperty.values().removeIf(ids -> ids.remove(filterId) && ids.isEmpty());
+
+        List<MatchDelta> deltas = new ArrayList<>();
+        for (String resourceId : matches.remove(filterId)) {
+            deltas.add(new MatchDelta(filterId, resourceId, MatchDelta.Type.REMOVED));
+        }
+        publish(deltas);
+        return true;
+    }
+
+    /**
+     * Inserts or replaces a resource and updates the match sets of the affected filters.
+     * <p>
+     * A new resource is evaluated against every filter; a replaced resource only against the filters
+     * reading a property whose value changed. The resource is copied.
+     * </p>
+     *
+     * @param resourceId the id of the resource (must not be {@code null}).
+     * @param resource the new content of the resource (must not be {@code null}).
+     * @throws NullPointerException if {@code resourceId} or {@code resource} is {@code null}.
+     * @throws IllegalArgumentException if a filter cannot evaluate the resource; the engine is left unchanged.
+     */
+    public synchronized void upsert(String resourceId, Map<String, String> resource) {
+        Objects.requireNonNull(resourceId, "resourceId must not be null");
+        Map<String, String> current = Collections.unmodifiableMap(new HashMap<>(Objects.requireNonNull(resource, "resource must not be null")));
+        Map<String, String> previous = resources.get(resourceId);
+
+        Collection<String> candidates = previous == null ? filters.keySet() : affectedFilters(previous, current);
+
+        List<MatchDelta> deltas = new ArrayList<>();
+        for (String filterId : candidates) {
+            boolean matched = matches.get(filterId).contains(resourceId);
+            if (context.matches(filters.get(filterId), current) != matched) {
+                deltas.add(new MatchDelta(filterId, resourceId, matched ? MatchDelta.Type.REMOVED : MatchDelta.Type.ADDED));
+            }
+        }
+
+        resources.put(resourceId, current);
+        apply(deltas);
+        publish(deltas);
+    }
+
+    /**
+     * Removes a resource, reporting a {@link MatchDelta.Type#REMOVED} delta for every filter it matched.
+     *
+     * @param resourceId the id of the resource.
+     * @return {@code true} if a resource was stored under {@code resourceId}.
+     */
+    public synchronized boolean remove(String resourceId) {
+        if (resources.remove(resourceId) == null) {
+            return false;
+        }
+        List<MatchDelta> deltas = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> matching : matches.entrySet()) {
+            if (matching.getValue().contains(resourceId)) {
+                deltas.add(new MatchDelta(matching.getKey(), resourceId, MatchDelta.Type.REMOVED));
+            }
+        }
+        apply(deltas);
+        publish(deltas);
+        return true;
+    }
+
+    /**
+     * Returns the ids of the resources currently matching a registered filter.
+     *
+     * @param filterId the id of the filter.
+     * @return an immutable snapshot of the match set.
+     * @throws IllegalArgumentException if no filter is registered under {@code filterId}.
+     */
+    public synchronized Set<String> getMatches(String filterId) {
+        Set<String> matching = matches.get(filterId);
+        if (matching == null) {
+            throw new IllegalArgumentException("Filter '" + filterId + "' is not registered");
+        }
+        return Set.copyOf(matching);
+    }
+
+    /**
+     * Returns the ids of the registered filters.
+     *
+     * @return an immutable snapshot of the filter ids.
+     */
+    public synchronized Set<String> getFilterIds() {
+        return Set.copyOf(filters.keySet());
+    }
+
+    /**
+     * Returns the stored content of a resource.
+     *
+     * @param resourceId the id of the resource.
+     * @return the unmodifiable resource, or {@code null} if no resource is stored under {@code resourceId}.
+     */
+    public synchronized Map<String, String> getResource(String resourceId) {
+        return resources.get(resourceId);
+    }
+
+    private Collection<String> affectedFilters(Map<String, String> previous, Map<String, String> current) {
+        Set<String> affected = new LinkedHashSet<>(unindexedFilters);
+        for (String property : changedProperties(previous, current)) {
+            Set<String> ids = filtersByProperty.get(property);
+            if (ids != null) {
+                affected.addAll(ids);
+            }
+        }
+        return affected;
+    }
+
+    private static Set<String> changedProperties(Map<String, String> previous, Map<String, String> current) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, String> entry : previous.entrySet()) {
+            if (!current.containsKey(entry.getKey()) || !Objects.equals(entry.getValue(), current.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String property : current.keySet()) {
+            if (!previous.containsKey(property)) {
+                changed.add(property);
+            }
+        }
+        return changed;
+    }
+
+    private void apply(List<MatchDelta> deltas) {
+        for (MatchDelta delta : deltas) {
+            Set<String> matching = matches.get(delta.getFilterId());
+            if (delta.getType() == MatchDelta.Type.ADDED) {
+                matching.add(delta.getResourceId());
+            } else {
+                matching.remove(delta.getResourceId());
+            }
+        }
+    }
+
+    private void publish(List<MatchDelta> deltas) {
+        for (MatchDelta delta : deltas) {
+            for (MatchListener listener : listeners) {
+                listener.onMatchChange(delta);
+            }
+        }
+    }
+}
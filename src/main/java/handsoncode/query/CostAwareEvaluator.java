@@ -0,0 +1,412 @@
+package handsoncode.query;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import handsoncode.filter.AndFilter;
+import handsoncode.filter.EvaluationContext;
+import handsoncode.filter.FalseFilter;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterVisitor;
+import handsoncode.filter.GreaterThanFilter;
+import handsoncode.filter.IsEqualFilter;
+import handsoncode.filter.IsPresentFilter;
+import handsoncode.filter.LessThanFilter;
+import handsoncode.filter.MatchesExpressionFilter;
+import handsoncode.filter.NotFilter;
+import handsoncode.filter.OrFilter;
+import handsoncode.filter.ReferencedProperties;
+import handsoncode.filter.TrueFilter;
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.LazyResource;
+import handsoncode.resource.ResourceSchema;
+
+/**
+ * {@code CostAwareEvaluator} evaluates a {@link Filter} on {@link LazyResource}s, choosing the order of the
+ * children of every {@code AND} and {@code OR} by what reading their properties would cost on the resource at
+ * hand.
+ * <p>
+ * Before each child is evaluated, the remaining children are ranked by the fetch cost of their properties not
+ * loaded yet, see {@link LazyResource#fetchCost(int)}, plus their {@link FilterCost} estimate; the cheapest runs
+ * first. A child whose properties are already loaded thus runs before one needing a lookup, and a short-circuit
+ * can spare the lookup altogether. Ties keep the declared order.
+ * </p>
+ * <p>
+ * The properties the evaluation would read first, following the cheapest child of every {@code AND} and
+ * {@code OR} down to a leaf, can be loaded in one batch before evaluation begins with
+ * {@link #prefetch(LazyResource)}, or in the background with {@link #matchesAsync(LazyResource, Executor)}.
+ * Callers whose source loads many properties for the price of one can batch {@link #getReferencedSlots()}
+ * instead.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * CostAwareEvaluator evaluator = CostAwareEvaluator.compile(filter, schema);
+ * CompletableFuture<Boolean> result = evaluator.matchesAsync(new LazyResource(source), executor);
+ * }</pre>
+ *
+ * <p>The result is that of the filter on resources on which it evaluates without throwing; as the children run
+ * in another order, a resource on which a leaf throws may be reported differently. Children beyond the 64th of
+ * a logical filter run in the declared order, after the others. Instances are immutable and thread-safe.</p>
+ */
+public final class CostAwareEvaluator {
+
+    /** The number of children of a logical filter that are ranked by cost. */
+    static final int RANKED_CHILDREN = 64;
+
+    private final Node root;
+    private final ResourceSchema schema;
+
+    private CostAwareEvaluator(Node root, ResourceSchema schema) {
+        this.root = root;
+        this.schema = schema;
+    }
+
+    /** A compiled filter, with the slots it may read and those it always reads. */
+    private abstract static class Node {
+
+        final int[] slots;
+        final int[] required;
+        final double cost;
+
+        Node(int[] slots, int[] required, double cost) {
+            this.slots = slots;
+            this.required = required;
+            this.cost = cost;
+        }
+
+        /** Returns the cost of evaluating this node on {@code resource}, given the properties already loaded. */
+        final double cost(LazyResource resource) {
+            double total = cost;
+            for (int slot : slots) {
+                total += resource.fetchCost(slot);
+            }
+            return total;
+        }
+
+        /** Adds the slots read by the leaf this node would evaluate first on {@code resource}. */
+        void firstSlots(LazyResource resource, BitSet slots) {
+            for (int slot : required) {
+                slots.set(slot);
+            }
+        }
+
+        abstract boolean matches(LazyResource resource, EvaluationContext context);
+    }
+
+    private static final class Leaf extends Node {
+
+        private final BoundFilter bound;
+
+        Leaf(BoundFilter bound, int[] slots, int[] required, double cost) {
+            super(slots, required, cost);
+            this.bound = bound;
+        }
+
+        @Override
+        boolean matches(LazyResource resource, EvaluationContext context) {
+            return bound.matches(resource, context);
+        }
+    }
+
+    private static final class Not extends Node {
+
+        private final Node child;
+
+        Not(Node child) {
+            super(child.slots, child.required, child.cost);
+            this.child = child;
+        }
+
+        @Override
+        void firstSlots(LazyResource resource, BitSet slots) {
+            child.firstSlots(resource, slots);
+        }
+
+        @Override
+        boolean matches(LazyResource resource, EvaluationContext context) {
+            return !child.matches(resource, context);
+        }
+    }
+
+    /** An {@code AND}, stopping at the first child that fails, or an {@code OR}, at the first that matches. */
+    private static final class Junction extends Node {
+
+        private final Node[] children;
+        private final boolean stopOn;
+
+        Junction(Node[] children, boolean stopOn, int[] slots, int[] required, double cost) {
+            super(slots, required, cost);
+            this.children = children;
+            this.stopOn = stopOn;
+        }
+
+        @Override
+        void firstSlots(LazyResource resource, BitSet slots) {
+            children[cheapest(resource, 0, Math.min(children.length, RANKED_CHILDREN))].firstSlots(resource, slots);
+        }
+
+        /** Returns the cheapest of the first {@code ranked} children not in {@code done}, the first one on ties. */
+        private int cheapest(LazyResource resource, long done, int ranked) {
+            int next = -1;
+            double cheapest = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < ranked; i++) {
+                if ((done & 1L << i) == 0) {
+                    double cost = children[i].cost(resource);
+                    if (next < 0 || cost < cheapest) {
+                        next = i;
+                        cheapest = cost;
+                    }
+                }
+            }
+            return next;
+        }
+
+        @Override
+        boolean matches(LazyResource resource, EvaluationContext context) {
+            int ranked = Math.min(children.length, RANKED_CHILDREN);
+            long done = 0;
+            for (int step = 0; step < ranked; step++) {
+                int next = cheapest(resource, done, ranked);
+                done |= 1L << next;
+                if (children[next].matches(resource, context) == stopOn) {
+                    return stopOn;
+                }
+            }
+            for (int i = ranked; i < children.length; i++) {
+                if (children[i].matches(resource, context) == stopOn) {
+                    return stopOn;
+                }
+            }
+            return !stopOn;
+        }
+    }
+
+    /**
+     * Compiles a filter for the resources of a schema.
+     *
+     * @param filter the filter to evaluate (must not be {@code null}).
+     * @param schema the schema of the resources to evaluate (must not be {@code null}).
+     * @return the evaluator of {@code filter}.
+     * @throws NullPointerException if {@code filter} or {@code schema} is {@code null}.
+     */
+    public static CostAwareEvaluator compile(Filter filter, ResourceSchema schema) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        Objects.requireNonNull(schema, "schema must not be null");
+        return new CostAwareEvaluator(filter.accept(new Compiler(schema)), schema);
+    }
+
+    /**
+     * Evaluates the filter on a resource, loading its properties as the chosen children read them.
+     *
+     * @param resource the resource to evaluate (must not be {@code null}).
+     * @return {@code true} if the filter matches the resource.
+     * @throws NullPointerException if {@code resource} is {@code null}.
+     * @throws IllegalArgumentException if the schema of {@code resource} is not the one the filter was compiled
+     *                                  for, or if a leaf cannot evaluate the resource, see {@link Filter#matches(java.util.Map)}.
+     */
+    public boolean matches(LazyResource resource) {
+        return matches(resource, new EvaluationContext());
+    }
+
+    /**
+     * Evaluates the filter on a resource, sharing {@code context} between the leaves.
+     *
+     * @param resource the resource to evaluate (must not be {@code null}).
+     * @param context the evaluation context of {@code resource} (must not be {@code null}).
+     * @return {@code true} if the filter matches the resource.
+     * @throws NullPointerException if {@code resource} or {@code context} is {@code null}.
+     * @throws IllegalArgumentException if the schema of {@code resource} is not the one the filter was compiled
+     *                                  for, or if a leaf cannot evaluate the resource, see {@link Filter#matches(java.util.Map)}.
+     */
+    public boolean matches(LazyResource resource, EvaluationContext context) {
+        Objects.requireNonNull(resource, "resource must not be null");
+        Objects.requireNonNull(context, "context must not be null");
+        ResourceSchema resourceSchema = resource.getSchema();
+        if (resourceSchema != schema && !resourceSchema.getProperties().equals(schema.getProperties())) {
+            throw new IllegalArgumentException("Resource schema " + resourceSchema + " does not match " + schema);
+        }
+        return root.matches(resource, context);
+    }
+
+    /**
+     * Loads, in one batch, the properties the evaluation would read first on {@code resource}: those of the leaf
+     * reached by following the cheapest child of every {@code AND} and {@code OR}. They include the properties
+     * read by every evaluation, see {@link #getRequiredSlots()}.
+     *
+     * @param resource the resource to prefetch (must not be {@code null}).
+     * @throws NullPointerException if {@code resource} is {@code null}.
+     */
+    public void prefetch(LazyResource resource) {
+        Objects.requireNonNull(resource, "resource must not be null").prefetch(firstSlots(resource));
+    }
+
+    /**
+     * Loads the properties the evaluation would read first, see {@link #prefetch(LazyResource)}, on
+     * {@code executor}, then evaluates the filter on the thread completing the batch.
+     *
+     * @param resource the resource to evaluate (must not be {@code null}), not read by the caller until the
+     *                 returned future completes.
+     * @param executor the executor loading the batch (must not be {@code null}).
+     * @return a future completed with the result of the filter, or exceptionally if loading or evaluation failed.
+     * @throws NullPointerException if {@code resource} or {@code executor} is {@code null}.
+     */
+    public CompletableFuture<Boolean> matchesAsync(LazyResource resource, Executor executor) {
+        Objects.requireNonNull(resource, "resource must not be null");
+        return resource.prefetchAsync(executor, firstSlots(resource)).thenApply(this::matches);
+    }
+
+    private int[] firstSlots(LazyResource resource) {
+        BitSet slots = new BitSet();
+        root.firstSlots(resource, slots);
+        return slots.stream().toArray();
+    }
+
+    /**
+     * Returns the slots the filter may read. A custom filter, whose properties are unknown, may read any slot.
+     *
+     * @return the slots, in increasing order.
+     */
+    public int[] getReferencedSlots() {
+        return root.slots.clone();
+    }
+
+    /**
+     * Returns the slots read by every evaluation of the filter, whatever the resource: those read by every
+     * child of each {@code AND} or {@code OR}, as at least one of them runs.
+     *
+     * @return the slots, in increasing order.
+     */
+    public int[] getRequiredSlots() {
+        return root.required.clone();
+    }
+
+    /**
+     * Returns a string representation of this {@code CostAwareEvaluator}.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code CostAwareEvaluator}.
+     */
+    @Override
+    public String toString() {
+        return "{\"type\":\"CostAwareEvaluator\",\"referenced\":\"" + Arrays.toString(root.slots) + "\",\"required\":\""
+            + Arrays.toString(root.required) + "\"}";
+    }
+
+    /** Compiles filters into {@link Node}s, keeping the children of {@code OR} as written. */
+    private static final class Compiler implements FilterVisitor<Node> {
+
+        private static final int[] NONE = new int[0];
+
+        private final ResourceSchema schema;
+
+        Compiler(ResourceSchema schema) {
+            this.schema = schema;
+        }
+
+        private Node leaf(Filter filter) {
+            ReferencedProperties properties = filter.referencedProperties();
+            int[] slots;
+            int[] required;
+            if (properties.isComplete()) {
+                BitSet referenced = new BitSet();
+                for (String property : properties.getProperties()) {
+                    int slot = schema.slotOf(property);
+                    if (slot != ResourceSchema.NO_SLOT) {
+                        referenced.set(slot);
+                    }
+                }
+                slots = referenced.stream().toArray();
+                required = slots;
+            } else {
+                slots = new int[schema.size()];
+                Arrays.setAll(slots, slot -> slot);
+                required = NONE;
+            }
+            return new Leaf(filter.bind(schema), slots, required, FilterCost.estimate(filter));
+        }
+
+        @Override
+        public Node visitTrue(TrueFilter filter) {
+            return new Leaf(filter.bind(schema), NONE, NONE, FilterCost.LITERAL);
+        }
+
+        @Override
+        public Node visitFalse(FalseFilter filter) {
+            return new Leaf(filter.bind(schema), NONE, NONE, FilterCost.LITERAL);
+        }
+
+        @Override
+        public Node visitGreaterThan(GreaterThanFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public Node visitLessThan(LessThanFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public Node visitEqualsTo(IsEqualFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public Node visitIsPresent(IsPresentFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public Node visitMatchesExpression(MatchesExpressionFilter filter) {
+            return leaf(filter);
+        }
+
+        @Override
+        public Node visitNot(NotFilter filter) {
+            return new Not(filter.getFilter().accept(this));
+        }
+
+        @Override
+        public Node visitAnd(AndFilter filter) {
+            return junction(filter.getFilters(), false);
+        }
+
+        @Override
+        public Node visitOr(OrFilter filter) {
+            return junction(filter.getFilters(), true);
+        }
+
+        private Node junction(List<Filter> filters, boolean stopOn) {
+            Node[] children = new Node[filters.size()];
+            BitSet slots = new BitSet();
+            BitSet required = null;
+            double cost = FilterCost.OPERATOR;
+            for (int i = 0; i < children.length; i++) {
+                children[i] = filters.get(i).accept(this);
+                BitSet childRequired = new BitSet();
+                for (int slot : children[i].slots) {
+                    slots.set(slot);
+                }
+                for (int slot : children[i].required) {
+                    childRequired.set(slot);
+                }
+                if (required == null) {
+                    required = childRequired;
+                } else {
+                    required.and(childRequired);
+                }
+                cost += children[i].cost;
+            }
+            return new Junction(children, stopOn, slots.stream().toArray(), required.stream().toArray(), cost);
+        }
+
+        @Override
+        public Node visitOther(Filter filter) {
+            return leaf(filter);
+        }
+    }
+}
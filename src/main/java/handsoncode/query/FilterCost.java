@@ -0,0 +1,133 @@
+package handsoncode.query;
+
+import java.util.List;
+import java.util.Objects;
+
+import handsoncode.filter.AndFilter;
+import handsoncode.filter.CombinedPatternsFilter;
+import handsoncode.filter.FalseFilter;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterVisitor;
+import handsoncode.filter.GreaterThanFilter;
+import handsoncode.filter.IsEqualFilter;
+import handsoncode.filter.IsPresentFilter;
+import handsoncode.filter.LessThanFilter;
+import handsoncode.filter.MatchesExpressionFilter;
+import handsoncode.filter.NotFilter;
+import handsoncode.filter.OrFilter;
+import handsoncode.filter.TrueFilter;
+
+/**
+ * Static estimate of the cost of evaluating a {@link Filter} against one resource.
+ * <p>
+ * Costs are relative units ordered by the work each leaf does: a regular expression search costs more than
+ * parsing a number, which costs more than a case-insensitive comparison, which costs more than a presence check.
+ * The cost of a logical filter is the cost of evaluating all of its children, i.e. an upper bound that ignores
+ * short-circuiting.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * double cost = FilterCost.estimate(FilterFactory.matchesExpression("email", "@example\\.com$"));  // 16.0
+ * }</pre>
+ */
+public final class FilterCost {
+
+    /** Cost of a boolean literal. */
+    public static final double LITERAL = 0.1;
+    /** Cost of an {@link IsPresentFilter}. */
+    public static final double PRESENCE = 1;
+    /** Cost of an {@link IsEqualFilter}. */
+    public static final double EQUALITY = 2;
+    /** Cost of a {@link GreaterThanFilter} or {@link LessThanFilter}. */
+    public static final double NUMERIC = 4;
+    /** Cost of a {@link MatchesExpressionFilter}. */
+    public static final double REGEX = 16;
+    /** Cost assumed for custom filter types. */
+    public static final double UNKNOWN = 8;
+    /** Overhead added by every logical operator. */
+    public static final double OPERATOR = 0.2;
+
+    private static final FilterVisitor<Double> ESTIMATOR = new FilterVisitor<>() {
+
+        @Override
+        public Double visitTrue(TrueFilter filter) {
+            return LITERAL;
+        }
+
+        @Override
+        public Double visitFalse(FalseFilter filter) {
+            return LITERAL;
+        }
+
+        @Override
+        public Double visitGreaterThan(GreaterThanFilter filter) {
+            return NUMERIC;
+        }
+
+        @Override
+        public Double visitLessThan(LessThanFilter filter) {
+            return NUMERIC;
+        }
+
+        @Override
+        public Double visitEqualsTo(IsEqualFilter filter) {
+            return EQUALITY;
+        }
+
+        @Override
+        public Double visitIsPresent(IsPresentFilter filter) {
+            return PRESENCE;
+        }
+
+        @Override
+        public Double visitMatchesExpression(MatchesExpressionFilter filter) {
+            return REGEX;
+        }
+
+        @Override
+        public Double visitNot(NotFilter filter) {
+            return OPERATOR + filter.getFilter().accept(this);
+        }
+
+        @Override
+        public Double visitAnd(AndFilter filter) {
+            return sum(filter.getFilters());
+        }
+
+        @Override
+        public Double visitOr(OrFilter filter) {
+            return sum(filter.getFilters());
+        }
+
+        @Override
+        public Double visitOther(Filter filter) {
+            // Combined patterns scan the value once, like a single regular expression.
+            return filter instanceof CombinedPatternsFilter ? REGEX : UNKNOWN;
+        }
+
+        private Double sum(List<Filter> filters) {
+            double cost = OPERATOR;
+            for (Filter child : filters) {
+                cost += child.accept(this);
+            }
+            return cost;
+        }
+    };
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private FilterCost() {
+        throw new AssertionError("Utility class, should not be instantiated");
+    }
+
+    /**
+     * Estimates the cost of evaluating a filter against one resource.
+     *
+     * @param filter the filter (must not be {@code null}).
+     * @return the estimated cost, in relative units.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     */
+    public static double estimate(Filter filter) {
+        return Objects.requireNonNull(filter, "filter must not be null").accept(ESTIMATOR);
+    }
+}
@@ -0,0 +1,196 @@
+package handsoncode.query;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import handsoncode.filter.EvaluationContext;
+import handsoncode.filter.Filter;
+
+/**
+ * {@code FilteredSpliterator} wraps a {@link Spliterator} of resources and only reports those matching a {@link Filter}.
+ * <p>
+ * In a parallel stream the cost of the filter sets a lower bound on the work of a split: a split is only made if
+ * both halves carry at least {@link #DEFAULT_TARGET_SPLIT_NANOS} of evaluation work. The cost per resource starts
+ * from {@link FilterCost#estimate(Filter)} and is refined by timing a sample of the evaluations, shared by all the
+ * splits of a stream. Cheap filters are therefore split more coarsely than the stream framework alone would, which
+ * avoids task overhead. Expensive filters are split as finely as the framework allows, but never more finely.
+ * </p>
+ * <p>
+ * {@link #trySplit()} refuses to split once the work of a split is below twice the target, and
+ * {@link #estimateSize()} reports the number of resources left in the source. The stream framework stops asking
+ * for splits below a fixed fraction of the root size, which bounds how finely expensive data is split.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * List<Map<String, String>> admins = FilteredSpliterator.stream(users, FilterFactory.equalsTo("role", "admin"), true)
+ *     .collect(Collectors.toList());
+ * }</pre>
+ *
+ * <p>{@link #tryAdvance(Consumer)} stops at the first matching resource, so short-circuiting operations such as
+ * {@link Stream#findFirst()} do not evaluate the rest of the source.</p>
+ */
+public class FilteredSpliterator implements Spliterator<Map<String, String>> {
+
+    /** Default amount of evaluation work, in nanoseconds, a split should carry. */
+    public static final long DEFAULT_TARGET_SPLIT_NANOS = 100_000;
+
+    /** Nanoseconds assumed per {@link FilterCost} unit until evaluations have been timed. */
+    static final double NANOS_PER_COST_UNIT = 25;
+
+    private static final int SAMPLE_INTERVAL = 64;
+
+    private final Spliterator<? extends Map<String, String>> source;
+    private final Filter filter;
+    private final CostModel cost;
+    private final EvaluationContext context = new EvaluationContext();
+
+    private Map<String, String> current;
+    private final Consumer<Map<String, String>> holder = resource -> current = resource;
+    private int evaluations;
+
+    /**
+     * Constructs a {@code FilteredSpliterator} with the default target split cost.
+     *
+     * @param source the spliterator of the resources to filter (must not be {@code null}).
+     * @param filter the filter resources must match (must not be {@code null}).
+     * @throws NullPointerException if {@code source} or {@code filter} is {@code null}.
+     */
+    public FilteredSpliterator(Spliterator<? extends Map<String, String>> source, Filter filter) {
+        this(source, filter, DEFAULT_TARGET_SPLIT_NANOS);
+    }
+
+    /**
+     * Constructs a {@code FilteredSpliterator}.
+     *
+     * @param source the spliterator of the resources to filter (must not be {@code null}).
+     * @param filter the filter resources must match (must not be {@code null}).
+     * @param targetSplitNanos the evaluation work, in nanoseconds, below which a split is not split further.
+     * @throws NullPointerException if {@code source} or {@code filter} is {@code null}.
+     * @throws IllegalArgumentException if {@code targetSplitNanos} is not positive.
+     */
+    public FilteredSpliterator(Spliterator<? extends Map<String, String>> source, Filter filter, long targetSplitNanos) {
+        this(Objects.requireNonNull(source, "source must not be null"),
+             Objects.requireNonNull(filter, "filter must not be null"),
+             new CostModel(FilterCost.estimate(filter) * NANOS_PER_COST_UNIT, targetSplitNanos));
+        if (targetSplitNanos <= 0) {
+            throw new IllegalArgumentException("targetSplitNanos must be positive, but found: " + targetSplitNanos);
+        }
+    }
+
+    private FilteredSpliterator(Spliterator<? extends Map<String, String>> source, Filter filter, CostModel cost) {
+        this.source = source;
+        this.filter = filter;
+        this.cost = cost;
+    }
+
+    /**
+     * Creates a stream of the resources of a collection matching a filter.
+     *
+     * @param resources the resources to filter (must not be {@code null}).
+     * @param filter the filter resources must match (must not be {@code null}).
+     * @param parallel whether the stream is parallel.
+     * @return a stream of the matching resources, in the order of the collection if it has one.
+     */
+    public static Stream<Map<String, String>> stream(Collection<? extends Map<String, String>> resources, Filter filter, boolean parallel) {
+        Objects.requireNonNull(resources, "resources must not be null");
+        return StreamSupport.stream(new FilteredSpliterator(resources.spliterator(), filter), parallel);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Map<String, String>> action) {
+        while (source.tryAdvance(holder)) {
+            Map<String, String> resource = current;
+            current = null;
+            if (evaluate(resource)) {
+                action.accept(resource);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Map<String, String>> action) {
+        source.forEachRemaining(resource -> {
+            if (evaluate(resource)) {
+                action.accept(resource);
+            }
+        });
+    }
+
+    private boolean evaluate(Map<String, String> resource) {
+        context.reset();
+        if (++evaluations % SAMPLE_INTERVAL != 0) {
+            return filter.matches(resource, context);
+        }
+        long start = System.nanoTime();
+        boolean matches = filter.matches(resource, context);
+        cost.sample(System.nanoTime() - start);
+        return matches;
+    }
+
+    /**
+     * Splits off a prefix of the resources, unless the remaining work is below twice the target split work,
+     * estimated from the number of resources left and the current cost per resource.
+     *
+     * @return a spliterator over a prefix of the resources, or {@code null} if this spliterator does not split.
+     */
+    @Override
+    public Spliterator<Map<String, String>> trySplit() {
+        if (!cost.worthSplitting(source.estimateSize())) {
+            return null;
+        }
+        Spliterator<? extends Map<String, String>> prefix = source.trySplit();
+        return prefix == null ? null : new FilteredSpliterator(prefix, filter, cost);
+    }
+
+    /**
+     * Returns the estimated number of resources left to evaluate, an upper bound of the number of matches.
+     *
+     * @return the estimated number of resources left in the source.
+     */
+    @Override
+    public long estimateSize() {
+        return source.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+        return source.characteristics() & (ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE | CONCURRENT);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Comparator<? super Map<String, String>> getComparator() {
+        return (Comparator<? super Map<String, String>>) source.getComparator();
+    }
+
+    /** Cost per resource shared by all the splits of one stream. */
+    private static final class CostModel {
+
+        private final long targetSplitNanos;
+        private volatile double nanosPerResource;
+
+        CostModel(double nanosPerResource, long targetSplitNanos) {
+            this.nanosPerResource = nanosPerResource;
+            this.targetSplitNanos = targetSplitNanos;
+        }
+
+        /** Folds a timed evaluation into the moving average. Concurrent updates may be lost, which only delays convergence. */
+        void sample(long nanos) {
+            nanosPerResource = nanosPerResource * 0.9 + nanos * 0.1;
+        }
+
+        /** Checks whether {@code size} resources carry at least twice the target work, so both halves carry enough. */
+        boolean worthSplitting(long size) {
+            return size * nanosPerResource >= 2 * targetSplitNanos;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package handsoncode.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import handsoncode.filter.EvaluationContext;
+import handsoncode.filter.Filter;
+
+/**
+ * {@code LimitQuery} returns at most a given number of the resources matching a {@link Filter}: either the
+ * first ones in the order of the collection, or the top ones by a numeric property.
+ * <p>
+ * A first-N query stops scanning as soon as enough matches are found. A top-K query scans every resource
+ * but only keeps the {@code limit} best matches in a bounded heap. Resources lacking the sort property, or
+ * holding a {@code null} value for it, rank after all the others; ties keep the order of the collection.
+ * </p>
+ * <p>
+ * In parallel mode the collection is cut into chunks of {@link #DEFAULT_CHUNK_SIZE} resources that worker
+ * tasks of the common {@link ForkJoinPool} claim in order. For a first-N query, workers stop claiming chunks
+ * once the finished chunks hold enough matches, and every chunk stops after {@code limit} matches, so the
+ * result is the same as the sequential one. A failing evaluation stops the claiming of later chunks and is only
+ * thrown if the chunks before it hold fewer than {@code limit} matches, that is if the sequential scan would reach
+ * it too. For a top-K query, which evaluates every resource, a failing evaluation cancels the other workers.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * List<Map<String, String>> firstAdmins = LimitQuery.first(FilterFactory.equalsTo("role", "admin"), 50).execute(users);
+ * List<Map<String, String>> oldestAdmins = LimitQuery.top(FilterFactory.equalsTo("role", "admin"), "age", true, 50)
+ *     .executeParallel(users);
+ * }</pre>
+ *
+ * <p>Instances are immutable and can be executed concurrently.</p>
+ */
+public final class LimitQuery {
+
+    /** Number of resources a worker claims at once in parallel mode. */
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private final Filter filter;
+    private final String sortProperty;
+    private final boolean descending;
+    private final int limit;
+
+    private LimitQuery(Filter filter, String sortProperty, boolean descending, int limit) {
+        this.filter = Objects.requireNonNull(filter, "filter must not be null");
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative, but found: " + limit);
+        }
+        this.sortProperty = sortProperty;
+        this.descending = descending;
+        this.limit = limit;
+    }
+
+    /**
+     * Creates a query returning the first matching resources, in the order of the collection.
+     *
+     * @param filter the filter resources must match (must not be {@code null}).
+     * @param limit the maximal number of resources returned.
+     * @return a new first-N query.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     * @throws IllegalArgumentException if {@code limit} is negative.
+     */
+    public static LimitQuery first(Filter filter, int limit) {
+        return new LimitQuery(filter, null, false, limit);
+    }
+
+    /**
+     * Creates a query returning the matching resources with the highest or lowest numeric value of a property.
+     *
+     * @param filter the filter resources must match (must not be {@code null}).
+     * @param sortProperty the numeric property to rank the matches by (must not be {@code null}).
+     * @param descending {@code true} to return the highest values first, {@code false} for the lowest.
+     * @param limit the maximal number of resources returned.
+     * @return a new top-K query.
+     * @throws NullPointerException if {@code filter} or {@code sortProperty} is {@code null}.
+     * @throws IllegalArgumentException if {@code limit} is negative.
+     */
+    public static LimitQuery top(Filter filter, String sortProperty, boolean descending, int limit) {
+        return new LimitQuery(filter, Objects.requireNonNull(sortProperty, "sortProperty must not be null"), descending, limit);
+    }
+
+    /**
+     * Returns the filter resources must match.
+     *
+     * @return the filter.
+     */
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Returns the property the matches are ranked by.
+     *
+     * @return the sort property, or {@code null} for a first-N query.
+     */
+    public String getSortProperty() {
+        return sortProperty;
+    }
+
+    /**
+     * Returns the maximal number of resources returned.
+     *
+     * @return the limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Runs the query in the calling thread.
+     *
+     * @param resources the resources to query (must not be {@code null}).
+     * @return the matching resources, at most {@link #getLimit()}, in result order.
+     * @throws NullPointerException if {@code resources} is {@code null}.
+     * @throws IllegalArgumentException if the filter cannot evaluate a resource, see {@link Filter#matches(Map)},
+     *                                  or if a match holds a non-numeric value for the sort property.
+     */
+    public List<Map<String, String>> execute(Iterable<? extends Map<String, String>> resources) {
+        Objects.requireNonNull(resources, "resources must not be null");
+        EvaluationContext context = new EvaluationContext();
+        if (sortProperty == null) {
+            List<Map<String, String>> matches = new ArrayList<>();
+            for (Map<String, String> resource : resources) {
+                if (matches.size() >= limit) {
+                    break;
+                }
+                if (context.matches(filter, resource)) {
+                    matches.add(resource);
+                }
+            }
+            return matches;
+        }
+        TopHeap heap = new TopHeap();
+        long position = 0;
+        for (Map<String, String> resource : resources) {
+            if (context.matches(filter, resource)) {
+                heap.offer(resource, position, context);
+            }
+            position++;
+        }
+        return heap.sorted();
+    }
+
+    /**
+     * Runs the query with the worker tasks of the common {@link ForkJoinPool}.
+     *
+     * @param resources the resources to query (must not be {@code null}).
+     * @return the same resources as {@link #execute(Iterable)}, in the same order.
+     * @throws NullPointerException if {@code resources} is {@code null}.
+     * @throws IllegalArgumentException if the filter cannot evaluate a resource, see {@link Filter#matches(Map)},
+     *                                  or if a match holds a non-numeric value for the sort property.
+     */
+    public List<Map<String, String>> executeParallel(List<? extends Map<String, String>> resources) {
+        Objects.requireNonNull(resources, "resources must not be null");
+        List<? extends Map<String, String>> source = resources instanceof RandomAccess ? resources : new ArrayList<>(resources);
+        if (limit == 0 || source.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Execution execution = new Execution(source);
+        List<Worker> workers = new ArrayList<>();
+        int parallelism = Math.min(ForkJoinPool.getCommonPoolParallelism(), execution.chunks.length);
+        for (int i = 0; i < Math.max(1, parallelism); i++) {
+            workers.add(new Worker(execution));
+        }
+        ForkJoinTask.invokeAll(workers);
+        return execution.result();
+    }
+
+    /**
+     * Returns a string representation of this {@code LimitQuery}.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code LimitQuery}.
+     */
+    @Override
+    public String toString() {
+        String query = "{\"type\":\"" + (sortProperty == null ? "First" : "Top") + "\",\"limit\":\"" + limit + "\"";
+        if (sortProperty != null) {
+            query += ",\"property\":\"" + sortProperty + "\",\"order\":\"" + (descending ? "DESC" : "ASC") + "\"";
+        }
+        return query + ",\"filter\":" + filter + "}";
+    }
+
+    /** A match of a top-K query with its rank key. */
+    private static final class Ranked {
+
+        final Map<String, String> resource;
+        final boolean missing;
+        final double key;
+        final long position;
+
+        Ranked(Map<String, String> resource, boolean missing, double key, long position) {
+            this.resource = resource;
+            this.missing = missing;
+            this.key = key;
+            this.position = position;
+        }
+    }
+
+    /** Bounded heap keeping the {@code limit} best matches, the worst one at its head. */
+    private final class TopHeap {
+
+        private final Comparator<Ranked> order = Comparator
+            .comparing((Ranked ranked) -> ranked.missing)
+            .thenComparing((a, b) -> descending ? Double.compare(b.key, a.key) : Double.compare(a.key, b.key))
+            .thenComparingLong(ranked -> ranked.position);
+        private final PriorityQueue<Ranked> heap = new PriorityQueue<>(Math.max(1, Math.min(limit, 1024)), order.reversed());
+
+        void offer(Map<String, String> resource, long position, EvaluationContext context) {
+            if (limit == 0) {
+                return;
+            }
+            String value = resource.get(sortProperty);
+            Ranked ranked = value == null
+                ? new Ranked(resource, true, 0, position)
+                : new Ranked(resource, false, context.numericValue(sortProperty, value), position);
+            offer(ranked);
+        }
+
+        void offer(Ranked ranked) {
+            if (heap.size() < limit) {
+                heap.add(ranked);
+            } else if (order.compare(ranked, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(ranked);
+            }
+        }
+
+        void addAll(TopHeap other) {
+            for (Ranked ranked : other.heap) {
+                offer(ranked);
+            }
+        }
+
+        List<Map<String, String>> sorted() {
+            List<Ranked> ranked = new ArrayList<>(heap);
+            ranked.sort(order);
+            List<Map<String, String>> resources = new ArrayList<>(ranked.size());
+            for (Ranked match : ranked) {
+                resources.add(match.resource);
+            }
+            return resources;
+        }
+    }
+
+    /** State shared by the workers of one parallel execution. */
+    private final class Execution {
+
+        final List<? extends Map<String, String>> resources;
+        final List<Map<String, String>>[] chunks;
+        final RuntimeException[] failures;
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final AtomicLong finishedMatches = new AtomicLong();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final List<TopHeap> heaps = Collections.synchronizedList(new ArrayList<>());
+
+        @SuppressWarnings("unchecked")
+        Execution(List<? extends Map<String, String>> resources) {
+            this.resources = resources;
+            this.chunks = (List<Map<String, String>>[]) new List<?>[(resources.size() + DEFAULT_CHUNK_SIZE - 1) / DEFAULT_CHUNK_SIZE];
+            this.failures = new RuntimeException[chunks.length];
+        }
+
+        List<Map<String, String>> result() {
+            if (sortProperty != null) {
+                TopHeap merged = new TopHeap();
+                for (TopHeap heap : heaps) {
+                    merged.addAll(heap);
+                }
+                return merged.sorted();
+            }
+            List<Map<String, String>> matches = new ArrayList<>();
+            for (int i = 0; i < chunks.length && chunks[i] != null && matches.size() < limit; i++) {
+                matches.addAll(chunks[i].subList(0, Math.min(chunks[i].size(), limit - matches.size())));
+                // The matches found before the failure may still satisfy the query, as they do sequentially.
+                if (failures[i] != null && matches.size() < limit) {
+                    throw failures[i];
+                }
+            }
+            return matches;
+        }
+    }
+
+    /** Claims chunks in order until none is left or the query is satisfied. */
+    private final class Worker extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Execution execution;
+
+        Worker(Execution execution) {
+            this.execution = execution;
+        }
+
+        @Override
+        protected void compute() {
+            EvaluationContext context = new EvaluationContext();
+            TopHeap heap = sortProperty == null ? null : new TopHeap();
+            try {
+                int chunk;
+                while (!execution.cancelled.get() && (chunk = execution.nextChunk.getAndIncrement()) < execution.chunks.length) {
+                    int from = chunk * DEFAULT_CHUNK_SIZE;
+                    int to = Math.min(from + DEFAULT_CHUNK_SIZE, execution.resources.size());
+                    if (heap != null) {
+                        for (int i = from; i < to && !execution.cancelled.get(); i++) {
+                            Map<String, String> resource = execution.resources.get(i);
+                            if (context.matches(filter, resource)) {
+                                heap.offer(resource, i, context);
+                            }
+                        }
+                    } else {
+                        List<Map<String, String>> matches = new ArrayList<>();
+                        try {
+                            for (int i = from; i < to && matches.size() < limit; i++) {
+                                Map<String, String> resource = execution.resources.get(i);
+                                if (context.matches(filter, resource)) {
+                                    matches.add(resource);
+                                }
+                            }
+                        } catch (RuntimeException e) {
+                            // Chunks after this one are never needed; the earlier ones decide whether it is.
+                            execution.failures[chunk] = e;
+                            execution.cancelled.set(true);
+                        }
+                        execution.chunks[chunk] = matches;
+                        if (execution.finishedMatches.addAndGet(matches.size()) >= limit) {
+                            execution.cancelled.set(true);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                execution.cancelled.set(true);
+                throw e;
+            }
+            if (heap != null) {
+                execution.heaps.add(heap);
+            }
+        }
+    }
+}
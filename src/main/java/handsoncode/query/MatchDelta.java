@@ -0,0 +1,90 @@
+package handsoncode.query;
+
+import java.util.Objects;
+
+/**
+ * {@code MatchDelta} describes a single change of a standing filter's match set in a
+ * {@link ContinuousQueryEngine}: a resource started or stopped matching a registered filter.
+ */
+public final class MatchDelta {
+
+    /**
+     * The direction of a match set change.
+     */
+    public enum Type {
+        /** The resource started matching the filter. */
+        ADDED,
+        /** The resource stopped matching the filter, or was removed. */
+        REMOVED
+    }
+
+    private final String filterId;
+    private final String resourceId;
+    private final Type type;
+
+    /**
+     * Constructs a {@code MatchDelta}.
+     *
+     * @param filterId the id of the registered filter whose match set changed.
+     * @param resourceId the id of the resource that entered or left the match set.
+     * @param type whether the resource was added to or removed from the match set.
+     * @throws NullPointerException if any argument is {@code null}.
+     */
+    public MatchDelta(String filterId, String resourceId, Type type) {
+        this.filterId = Objects.requireNonNull(filterId, "filterId must not be null");
+        this.resourceId = Objects.requireNonNull(resourceId, "resourceId must not be null");
+        this.type = Objects.requireNonNull(type, "type must not be null");
+    }
+
+    /**
+     * Returns the id of the registered filter whose match set changed.
+     *
+     * @return the filter id.
+     */
+    public String getFilterId() {
+        return filterId;
+    }
+
+    /**
+     * Returns the id of the resource that entered or left the match set.
+     *
+     * @return the resource id.
+     */
+    public String getResourceId() {
+        return resourceId;
+    }
+
+    /**
+     * Returns whether the resource entered or left the match set.
+     *
+     * @return the type of change.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof MatchDelta)) {
+            return false;
+        }
+        MatchDelta delta = (MatchDelta) other;
+        return filterId.equals(delta.filterId) && resourceId.equals(delta.resourceId) && type == delta.type;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(filterId, resourceId, type);
+    }
+
+    /**
+     * Returns a string representation of this {@code MatchDelta}.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code MatchDelta}.
+     */
+    @Override
+    public String toString() {
+        return "{\"type\":\"" + type + "\",\"filter\":\"" + filterId + "\",\"resource\":\"" + resourceId + "\"}";
+    }
+}
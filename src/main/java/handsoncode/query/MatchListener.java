@@ -0,0 +1,19 @@
+package handsoncode.query;
+
+/**
+ * Receives the match set changes of a {@link ContinuousQueryEngine}.
+ * <p>
+ * Listeners are called synchronously, on the thread that modified the engine, after the
+ * engine state has been updated. They must not modify the engine they listen to.
+ * </p>
+ */
+@FunctionalInterface
+public interface MatchListener {
+
+    /**
+     * Called once for every resource entering or leaving the match set of a registered filter.
+     *
+     * @param delta the change (never {@code null}).
+     */
+    void onMatchChange(MatchDelta delta);
+}
@@ -0,0 +1,223 @@
+package handsoncode.query;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import handsoncode.filter.Filter;
+
+/**
+ * {@code PlanNode} is one node of the plan tree produced by {@link Explain}: a filter of the evaluated tree,
+ * its static cost estimate and, for {@link Explain#analyze(Filter, Iterable)}, the statistics collected while
+ * evaluating a sample of resources.
+ * <p>
+ * Times are inclusive: the time of a logical filter contains the time of the children it evaluated.
+ * </p>
+ */
+public final class PlanNode {
+
+    private final Filter filter;
+    private final String type;
+    private final String property;
+    private final String value;
+    private final double cost;
+    private final List<PlanNode> children;
+    private final boolean analyzed;
+
+    long invocations;
+    long matches;
+    long errors;
+    long nanos;
+
+    PlanNode(Filter filter, String type, String property, String value, double cost, List<PlanNode> children, boolean analyzed) {
+        this.filter = filter;
+        this.type = type;
+        this.property = property;
+        this.value = value;
+        this.cost = cost;
+        this.children = Collections.unmodifiableList(children);
+        this.analyzed = analyzed;
+    }
+
+    /**
+     * Returns the filter this node describes.
+     *
+     * @return the filter.
+     */
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Returns the type of the filter, as written by its {@code toString()}.
+     *
+     * @return the filter type, such as {@code "GreaterThan"} or {@code "AND"}.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns the nodes of the child filters, in evaluation order.
+     *
+     * @return an unmodifiable list of child nodes, empty for leaves.
+     */
+    public List<PlanNode> getChildren() {
+        return children;
+    }
+
+    /**
+     * Returns the static cost estimate of the subtree rooted at this node, see {@link FilterCost}.
+     *
+     * @return the estimated cost per resource, in relative units.
+     */
+    public double getCost() {
+        return cost;
+    }
+
+    /**
+     * Checks whether this plan was produced by {@link Explain#analyze(Filter, Iterable)}.
+     *
+     * @return {@code true} if the runtime statistics are available.
+     */
+    public boolean isAnalyzed() {
+        return analyzed;
+    }
+
+    /**
+     * Returns the number of times the filter was evaluated. Children of logical filters may be evaluated
+     * fewer times than their parent because of short-circuiting.
+     *
+     * @return the number of evaluations.
+     */
+    public long getInvocations() {
+        return invocations;
+    }
+
+    /**
+     * Returns the number of evaluations that matched.
+     *
+     * @return the number of matches.
+     */
+    public long getMatches() {
+        return matches;
+    }
+
+    /**
+     * Returns the number of evaluations that threw an exception.
+     *
+     * @return the number of failed evaluations.
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns the fraction of the evaluations that matched.
+     *
+     * @return the selectivity between {@code 0} and {@code 1}, or {@code NaN} if the filter was never evaluated.
+     */
+    public double getSelectivity() {
+        return invocations == 0 ? Double.NaN : (double) matches / invocations;
+    }
+
+    /**
+     * Returns the total time spent evaluating the filter, children included.
+     *
+     * @return the inclusive evaluation time in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Renders the plan as indented text, one node per line.
+     *
+     * @return the text rendering of the plan.
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        appendText(text, 0);
+        return text.toString();
+    }
+
+    private void appendText(StringBuilder text, int depth) {
+        text.append("  ".repeat(depth)).append(type);
+        if (property != null) {
+            text.append(" ").append(property);
+        }
+        if (value != null) {
+            text.append(" ").append(value);
+        }
+        text.append(String.format(Locale.ROOT, "  (cost=%.1f", cost));
+        if (analyzed) {
+            text.append(String.format(Locale.ROOT, " calls=%d matched=%d selectivity=%.3f time=%.3fms",
+                invocations, matches, getSelectivity(), nanos / 1e6));
+            if (errors > 0) {
+                text.append(" errors=").append(errors);
+            }
+        }
+        text.append(")\n");
+        for (PlanNode child : children) {
+            child.appendText(text, depth + 1);
+        }
+    }
+
+    /**
+     * Returns the plan as JSON, in the style of the filters' {@code toString()}: every node keeps the
+     * {@code type}, {@code property}, {@code value} and {@code filters} fields of its filter and adds its statistics.
+     *
+     * @return the JSON rendering of the plan.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        appendJson(json);
+        return json.toString();
+    }
+
+    private void appendJson(StringBuilder json) {
+        json.append("{\"type\":\"").append(escape(type)).append("\"");
+        if (property != null) {
+            json.append(",\"property\":\"").append(escape(property)).append("\"");
+        }
+        if (value != null) {
+            json.append(",\"value\":\"").append(escape(value)).append("\"");
+        }
+        json.append(",\"cost\":\"").append(String.format(Locale.ROOT, "%.1f", cost)).append("\"");
+        if (analyzed) {
+            json.append(",\"invocations\":\"").append(invocations).append("\"")
+                .append(",\"matches\":\"").append(matches).append("\"")
+                .append(",\"errors\":\"").append(errors).append("\"")
+                .append(",\"selectivity\":\"").append(String.format(Locale.ROOT, "%.3f", getSelectivity())).append("\"")
+                .append(",\"nanos\":\"").append(nanos).append("\"");
+        }
+        if ("NOT".equals(type)) {
+            json.append(",\"filter\":");
+            children.get(0).appendJson(json);
+        } else if (!children.isEmpty()) {
+            json.append(",\"filters\":[");
+            for (int i = 0; i < children.size(); i++) {
+                if (i > 0) {
+                    json.append(",");
+                }
+                children.get(i).appendJson(json);
+            }
+            json.append("]");
+        }
+        json.append("}");
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Returns the JSON rendering of the plan, see {@link #toJson()}.
+     *
+     * @return a string representation of the {@code PlanNode}.
+     */
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,217 @@
+package handsoncode.query;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import handsoncode.bitmap.RoaringBitmap;
+import handsoncode.filter.EvaluationContext;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterImplication;
+import handsoncode.resource.BoundFilter;
+import handsoncode.store.ResourceStore;
+import handsoncode.store.StoredResource;
+
+/**
+ * {@code QueryResultCache} keeps the ids matched by the last filters run over a {@link ResourceStore}, and answers
+ * a new filter from the results of a broader one instead of scanning the store.
+ * <p>
+ * When a user narrows a query, adding an {@code AND} clause or tightening a bound, the new filter implies a
+ * cached one, see {@link FilterImplication#implies(Filter, Filter)}: only the records of the smallest such result
+ * are evaluated, plus the records appended since it was computed. The same filter run again on an unchanged store
+ * is answered without evaluating anything.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * QueryResultCache cache = new QueryResultCache(store, 64);
+ * RoaringBitmap adults = cache.matching(FilterFactory.greaterThan("age", 17));     // scans the store
+ * RoaringBitmap adultAdmins = cache.matching(FilterFactory.and(List.of(
+ *     FilterFactory.greaterThan("age", 17), FilterFactory.equalsTo("role", "admin"))));  // re-filters the adults
+ * }</pre>
+ *
+ * <p>A reused result does not evaluate the records the broader filter excludes, so it may succeed where a scan
+ * would throw on such a record. Stores only grow: results stay valid for the records they cover. Ids must fit in
+ * an {@code int}. Operations are synchronized on the cache; the least recently used results are evicted first.</p>
+ */
+public class QueryResultCache {
+
+    private final ResourceStore store;
+    private final int maximumEntries;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+    private long reuses;
+    private long scans;
+
+    /** The ids matched by a filter among the first {@code size} records of the store. */
+    private static final class Entry {
+
+        final Filter filter;
+        final RoaringBitmap ids;
+        final long size;
+
+        Entry(Filter filter, RoaringBitmap ids, long size) {
+            this.filter = filter;
+            this.ids = ids;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Constructs an empty {@code QueryResultCache}.
+     *
+     * @param store the store the filters are run over (must not be {@code null}).
+     * @param maximumEntries the maximum number of results kept (must be positive).
+     * @throws NullPointerException if {@code store} is {@code null}.
+     * @throws IllegalArgumentException if {@code maximumEntries} is not positive.
+     */
+    public QueryResultCache(ResourceStore store, int maximumEntries) {
+        this.store = Objects.requireNonNull(store, "store must not be null");
+        if (maximumEntries <= 0) {
+            throw new IllegalArgumentException("maximumEntries must be positive");
+        }
+        this.maximumEntries = maximumEntries;
+    }
+
+    /**
+     * Returns the ids of the records matching a filter, from the cache where possible, and caches them.
+     *
+     * @param filter the filter to evaluate (must not be {@code null}).
+     * @return a new bitmap of the ids of the matching records.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     * @throws IllegalArgumentException if the filter cannot evaluate a record it has to visit, see {@link Filter#matches(java.util.Map)}.
+     * @throws IllegalStateException if the store holds more than {@link Integer#MAX_VALUE} records.
+     */
+    public synchronized RoaringBitmap matching(Filter filter) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        long size = store.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Ids of a store of " + size + " records do not fit in a bitmap");
+        }
+        String key = filter.toString();
+        Entry same = entries.get(key);
+        if (same != null && same.size == size) {
+            hits++;
+            return same.ids.clone();
+        }
+
+        Entry broader = same;
+        for (Entry entry : entries.values()) {
+            if ((broader == null || entry.ids.getCardinality() < broader.ids.getCardinality())
+                && entry != same && FilterImplication.implies(filter, entry.filter)) {
+                broader = entry;
+            }
+        }
+
+        RoaringBitmap ids = broader == same && same != null ? same.ids.clone() : new RoaringBitmap();
+        long from = 0;
+        if (broader == null) {
+            scans++;
+        } else {
+            reuses++;
+            from = broader.size;
+            if (broader != same) {
+                BoundFilter bound = filter.bind(store.getSchema());
+                StoredResource resource = store.cursor();
+                EvaluationContext context = new EvaluationContext();
+                broader.ids.forEach(id -> {
+                    resource.moveTo(id);
+                    context.reset();
+                    if (bound.matches(resource, context)) {
+                        ids.add(id);
+                    }
+                });
+            }
+        }
+        if (from < size) {
+            BoundFilter bound = filter.bind(store.getSchema());
+            StoredResource resource = store.cursor();
+            EvaluationContext context = new EvaluationContext();
+            for (long id = from; id < size; id++) {
+                resource.moveTo(id);
+                context.reset();
+                if (bound.matches(resource, context)) {
+                    ids.add((int) id);
+                }
+            }
+        }
+
+        entries.put(key, new Entry(filter, ids, size));
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maximumEntries) {
+            eldest.next();
+            eldest.remove();
+        }
+        return ids.clone();
+    }
+
+    /**
+     * Counts the records matching a filter, see {@link #matching(Filter)}.
+     *
+     * @param filter the filter to evaluate (must not be {@code null}).
+     * @return the number of matching records.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     * @throws IllegalArgumentException if the filter cannot evaluate a record it has to visit, see {@link Filter#matches(java.util.Map)}.
+     */
+    public long count(Filter filter) {
+        return matching(filter).getCardinality();
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of cached results.
+     *
+     * @return the number of entries.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of filters answered by a cached result of the same filter, without evaluation.
+     *
+     * @return the hit count.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of filters answered by re-filtering a cached result, of a broader filter or of the same
+     * filter over fewer records.
+     *
+     * @return the reuse count.
+     */
+    public synchronized long getReuseCount() {
+        return reuses;
+    }
+
+    /**
+     * Returns the number of filters answered by scanning the whole store.
+     *
+     * @return the scan count.
+     */
+    public synchronized long getScanCount() {
+        return scans;
+    }
+
+    /**
+     * Returns a string representation of this {@code QueryResultCache}.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code QueryResultCache}.
+     */
+    @Override
+    public synchronized String toString() {
+        return "{\"type\":\"QueryResultCache\",\"entries\":\"" + entries.size() + "\",\"hits\":\"" + hits
+            + "\",\"reuses\":\"" + reuses + "\",\"scans\":\"" + scans + "\"}";
+    }
+}
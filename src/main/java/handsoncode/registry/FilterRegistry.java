@@ -0,0 +1,330 @@
+package handsoncode.registry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+
+/**
+ * {@code FilterRegistry} holds named filters loaded from the {@code .json} files of a directory, one filter per file,
+ * named after the file without its extension, and reloads them when the files change.
+ * <p>
+ * Lookups read the current {@link FilterSnapshot}, an immutable map published through a single volatile reference:
+ * they take no lock and never see a partially applied reload. After {@link #watch()}, a daemon thread waits for
+ * changes with a {@link WatchService}, lets a burst of events settle, re-parses only the files whose content changed
+ * with {@link FilterFactory#fromString(String)}, prepares the new filters, and publishes a new snapshot.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * FilterRegistry registry = new FilterRegistry(Path.of("rules"));
+ * registry.watch();
+ *
+ * Filter spam = registry.get("spam");        // rules/spam.json, lock-free
+ * boolean flagged = spam != null && spam.matches(comment);
+ * }</pre>
+ *
+ * <p>Preparing a filter with {@link FilterFactory#prepare(Filter)} computes its {@link Filter#referencedProperties()}
+ * and builds the evaluation plans of all its nodes off the hot path. A file that fails to parse keeps the
+ * filter last loaded from it, if any, and is reported by {@link FilterSnapshot#getErrors()}.</p>
+ *
+ * <p>Listeners are called after the registry lock is released, so a slow listener delays neither
+ * {@link #reload()} nor the watch thread's next reload, and an exception thrown by one listener reaches neither the
+ * other listeners nor the watch thread.</p>
+ */
+public class FilterRegistry implements AutoCloseable {
+
+    /** Extension of the files holding filters. */
+    public static final String EXTENSION = ".json";
+
+    /** Time to wait after a change for the rest of a burst of events, such as an editor saving a file. */
+    static final long SETTLE_MILLIS = 50;
+
+    private final Path directory;
+    private final Map<String, String> contents = new HashMap<>();
+    private final List<Consumer<FilterSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private volatile FilterSnapshot snapshot = new FilterSnapshot(0, Collections.emptyMap(), Collections.emptyMap());
+    private final AtomicBoolean notifying = new AtomicBoolean();
+    private volatile long notified;
+    private WatchService watcher;
+    private boolean closed;
+
+    /**
+     * Constructs a registry and loads every filter of a directory.
+     *
+     * @param directory the directory holding the {@code .json} files (must not be {@code null}).
+     * @throws NullPointerException if {@code directory} is {@code null}.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public FilterRegistry(Path directory) throws IOException {
+        this.directory = Objects.requireNonNull(directory, "directory must not be null");
+        if (reload().getVersion() == 0) {
+            snapshot = new FilterSnapshot(1, Collections.emptyMap(), Collections.emptyMap());
+        }
+        notified = snapshot.getVersion();
+    }
+
+    /**
+     * Returns a filter of the current snapshot by name, without locking.
+     *
+     * @param name the filter name.
+     * @return the filter, or {@code null} if there is no filter by that name.
+     */
+    public Filter get(String name) {
+        return snapshot.get(name);
+    }
+
+    /**
+     * Returns the current snapshot. Use it to read several filters from the same version.
+     *
+     * @return the current snapshot.
+     */
+    public FilterSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the watched directory.
+     *
+     * @return the directory.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Registers a listener called with new snapshots, in version order and never concurrently. Snapshots published
+     * while the listeners are still running are coalesced: the listeners then receive only the latest one. A
+     * {@link RuntimeException} thrown by the listener is ignored.
+     *
+     * @param listener the listener (must not be {@code null}).
+     */
+    public void addListener(Consumer<FilterSnapshot> listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener to remove.
+     */
+    public void removeListener(Consumer<FilterSnapshot> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Rescans the whole directory and publishes a new snapshot if any file was added, changed or removed.
+     *
+     * @return the current snapshot after the rescan.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public FilterSnapshot reload() throws IOException {
+        FilterSnapshot reloaded = rescan();
+        notifyListeners();
+        return reloaded;
+    }
+
+    private synchronized FilterSnapshot rescan() throws IOException {
+        Set<String> names = new HashSet<>(contents.keySet());
+        names.addAll(snapshot.getErrors().keySet());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                names.add(nameOf(file));
+            }
+        }
+        return apply(names);
+    }
+
+    /**
+     * Starts watching the directory on a daemon thread. Calling it again has no effect.
+     *
+     * @throws IOException if the directory cannot be watched.
+     * @throws IllegalStateException if the registry is closed.
+     */
+    public void watch() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The registry is closed");
+            }
+            if (watcher != null) {
+                return;
+            }
+            WatchService service = directory.getFileSystem().newWatchService();
+            try {
+                directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                // Changes made between the initial load and the registration would otherwise be missed.
+                rescan();
+            } catch (IOException e) {
+                service.close();
+                throw e;
+            }
+            watcher = service;
+            Thread thread = new Thread(() -> run(service), "filter-registry-" + directory.getFileName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+        notifyListeners();
+    }
+
+    /**
+     * Stops watching the directory. The last snapshot stays readable.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                // The watcher is released anyway.
+            }
+            watcher = null;
+        }
+    }
+
+    private void run(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Set<String> changed = new HashSet<>();
+                boolean overflow = false;
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            Path file = (Path) event.context();
+                            if (file.toString().endsWith(EXTENSION)) {
+                                changed.add(nameOf(file));
+                            }
+                        }
+                    }
+                    key.reset();
+                    key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                try {
+                    if (overflow) {
+                        reload();
+                    } else if (!changed.isEmpty()) {
+                        synchronized (this) {
+                            apply(changed);
+                        }
+                        notifyListeners();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // The directory is unreadable for now; the next event triggers another attempt.
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Closed: stop watching.
+        }
+    }
+
+    /** Re-parses the files of {@code names} whose content changed and publishes a new snapshot if needed. */
+    private FilterSnapshot apply(Set<String> names) {
+        FilterSnapshot current = snapshot;
+        Map<String, Filter> filters = new TreeMap<>(current.getFilters());
+        Map<String, String> errors = new TreeMap<>(current.getErrors());
+        boolean changed = false;
+        for (String name : names) {
+            Path file = directory.resolve(name + EXTENSION);
+            if (!Files.isRegularFile(file)) {
+                changed |= contents.remove(name) != null | filters.remove(name) != null | errors.remove(name) != null;
+                continue;
+            }
+            String content;
+            try {
+                content = Files.readString(file, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                String error = "Cannot read " + file + ": " + e.getMessage();
+                contents.remove(name);
+                changed |= !error.equals(errors.put(name, error));
+                continue;
+            }
+            if (content.equals(contents.get(name))) {
+                continue;
+            }
+            contents.put(name, content);
+            changed = true;
+            try {
+                Filter filter = FilterFactory.fromString(content);
+                if (filter == null) {
+                    throw new IllegalArgumentException("The file holds no filter");
+                }
+                FilterFactory.prepare(filter);
+                filters.put(name, filter);
+                errors.remove(name);
+            } catch (RuntimeException e) {
+                errors.put(name, String.valueOf(e.getMessage()));
+            }
+        }
+        if (!changed) {
+            return current;
+        }
+        FilterSnapshot published = new FilterSnapshot(current.getVersion() + 1, filters, errors);
+        snapshot = published;
+        return published;
+    }
+
+    /**
+     * Calls the listeners with the current snapshot if they have not seen it yet. Called without the registry lock;
+     * a thread that finds another one notifying leaves it the new snapshot, which it delivers before stopping.
+     */
+    private void notifyListeners() {
+        while (snapshot.getVersion() > notified && notifying.compareAndSet(false, true)) {
+            try {
+                FilterSnapshot current;
+                while ((current = snapshot).getVersion() > notified) {
+                    notified = current.getVersion();
+                    for (Consumer<FilterSnapshot> listener : listeners) {
+                        try {
+                            listener.accept(current);
+                        } catch (RuntimeException e) {
+                            // A failing listener must not keep the others, or the watch thread, from the snapshot.
+                        }
+                    }
+                }
+            } finally {
+                notifying.set(false);
+            }
+        }
+    }
+
+    private static String nameOf(Path file) {
+        String fileName = file.getFileName().toString();
+        return fileName.substring(0, fileName.length() - EXTENSION.length());
+    }
+
+    /**
+     * Returns a string representation of this {@code FilterRegistry} and its current snapshot.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code FilterRegistry}.
+     */
+    @Override
+    public String toString() {
+        return "{\"directory\":\"" + directory + "\",\"snapshot\":" + snapshot + "}";
+    }
+}
@@ -0,0 +1,85 @@
+package handsoncode.registry;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import handsoncode.filter.Filter;
+
+/**
+ * {@code FilterSnapshot} is an immutable version of the named filters of a {@link FilterRegistry}.
+ * <p>
+ * A reload publishes a new snapshot as a whole, so a reader holding a snapshot sees one consistent rule set,
+ * never a mix of old and new files. Files that fail to parse are reported by {@link #getErrors()}; the filter
+ * last loaded from such a file, if any, stays in the snapshot.
+ * </p>
+ */
+public final class FilterSnapshot {
+
+    private final long version;
+    private final Map<String, Filter> filters;
+    private final Map<String, String> errors;
+
+    FilterSnapshot(long version, Map<String, Filter> filters, Map<String, String> errors) {
+        this.version = version;
+        this.filters = Collections.unmodifiableMap(filters);
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * Returns the version of this snapshot, incremented by every reload that changed the registry.
+     *
+     * @return the snapshot version, starting at {@code 1} for the initial load.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns a filter by name.
+     *
+     * @param name the filter name, the name of its file without the {@code .json} extension.
+     * @return the filter, or {@code null} if there is no filter by that name.
+     */
+    public Filter get(String name) {
+        return filters.get(name);
+    }
+
+    /**
+     * Returns the names of the filters.
+     *
+     * @return an unmodifiable set of names.
+     */
+    public Set<String> getNames() {
+        return filters.keySet();
+    }
+
+    /**
+     * Returns the filters by name.
+     *
+     * @return an unmodifiable map from name to filter.
+     */
+    public Map<String, Filter> getFilters() {
+        return filters;
+    }
+
+    /**
+     * Returns the files that failed to parse, by filter name.
+     *
+     * @return an unmodifiable map from name to error message.
+     */
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns a string representation of this {@code FilterSnapshot}, listing its version, names and errors.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code FilterSnapshot}.
+     */
+    @Override
+    public String toString() {
+        return "{\"version\":\"" + version + "\",\"filters\":\"" + filters.keySet() + "\",\"errors\":\"" + errors.keySet() + "\"}";
+    }
+}
@@ -0,0 +1,78 @@
+package handsoncode.resource;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * {@code ArrayResource} is the array-backed implementation of {@link Resource}:
+ * the value of each property is stored at the index given by its slot in the {@link ResourceSchema}.
+ *
+ * Example Usage:
+ * <pre>{@code
+ * ResourceSchema schema = ResourceSchema.of("firstname", "age");
+ * ArrayResource resource = ArrayResource.fromMap(schema, Map.of("firstname", "Joe", "age", "35"));
+ * BoundFilter bound = FilterFactory.greaterThan("age", 30).bind(schema);
+ * boolean result = bound.matches(resource);  // true
+ * }</pre>
+ */
+public final class ArrayResource implements Resource {
+
+    private final ResourceSchema schema;
+    private final String[] values;
+
+    /**
+     * Constructs an {@code ArrayResource} from values given in slot order.
+     *
+     * @param schema the schema of the resource (must not be {@code null}).
+     * @param values the value of every slot, {@code null} for absent properties. The array is copied.
+     * @throws NullPointerException if {@code schema} or {@code values} is {@code null}.
+     * @throws IllegalArgumentException if the number of values does not match the schema size.
+     */
+    public ArrayResource(ResourceSchema schema, String... values) {
+        this.schema = Objects.requireNonNull(schema, "schema must not be null");
+        Objects.requireNonNull(values, "values must not be null");
+        if (values.length != schema.size()) {
+            throw new IllegalArgumentException("Expected " + schema.size() + " values, but found: " + values.length);
+        }
+        this.values = values.clone();
+    }
+
+    /**
+     * Creates an {@code ArrayResource} from a {@code Map} resource.
+     * Properties of the map that are not declared by the schema are dropped.
+     *
+     * @param schema the schema of the resource (must not be {@code null}).
+     * @param resource the resource to convert (must not be {@code null}).
+     * @return a new {@code ArrayResource} holding the values of the map.
+     * @throws NullPointerException if {@code schema} or {@code resource} is {@code null}.
+     */
+    public static ArrayResource fromMap(ResourceSchema schema, Map<String, String> resource) {
+        Objects.requireNonNull(schema, "schema must not be null");
+        Objects.requireNonNull(resource, "resource must not be null");
+        String[] values = new String[schema.size()];
+        for (int slot = 0; slot < values.length; slot++) {
+            values[slot] = resource.get(schema.propertyAt(slot));
+        }
+        return new ArrayResource(schema, values);
+    }
+
+    @Override
+    public ResourceSchema getSchema() {
+        return schema;
+    }
+
+    @Override
+    public String get(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Returns a string representation of this {@code ArrayResource}, listing its present properties.
+     *
+     * @return a string representation of the {@code ArrayResource}.
+     */
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+}
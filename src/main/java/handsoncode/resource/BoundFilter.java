@@ -0,0 +1,39 @@
+package handsoncode.resource;
+
+import handsoncode.filter.EvaluationContext;
+
+/**
+ * A {@link handsoncode.filter.Filter} whose property names have been resolved to the slots of a
+ * {@link ResourceSchema}. Instances are obtained from {@link handsoncode.filter.Filter#bind(ResourceSchema)}.
+ *
+ * Example Usage:
+ * <pre>{@code
+ * ResourceSchema schema = ResourceSchema.of("role", "age");
+ * BoundFilter bound = FilterFactory.equalsTo("role", "administrator").bind(schema);
+ * boolean result = bound.matches(new ArrayResource(schema, "administrator", "35"));  // true
+ * }</pre>
+ *
+ * <p>A bound filter must only be evaluated against resources of the schema it was bound to.</p>
+ */
+@FunctionalInterface
+public interface BoundFilter {
+
+    /**
+     * Checks if the filter matches the given resource, memoizing parsed values in {@code context}.
+     *
+     * @param resource the resource to check, of the schema this filter was bound to (never {@code null}).
+     * @param context the evaluation context of {@code resource} (never {@code null}).
+     * @return {@code true} if the filter matches, {@code false} otherwise.
+     */
+    boolean matches(Resource resource, EvaluationContext context);
+
+    /**
+     * Checks if the filter matches the given resource.
+     *
+     * @param resource the resource to check, of the schema this filter was bound to (never {@code null}).
+     * @return {@code true} if the filter matches, {@code false} otherwise.
+     */
+    default boolean matches(Resource resource) {
+        return matches(resource, EvaluationContext.uncached());
+    }
+}
@@ -0,0 +1,169 @@
+package handsoncode.resource;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@code LazyResource} is a {@link Resource} loading each property from a {@link PropertySource} on first
+ * access, and keeping it for later accesses.
+ * <p>
+ * Properties can also be prefetched in a single batch, see {@link #prefetch(int...)}, or in the background with
+ * {@link #prefetchAsync(Executor, int...)}, before the resource is evaluated.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * LazyResource resource = new LazyResource(source);
+ * resource.prefetchAsync(executor, schema.slotOf("status"), schema.slotOf("owner"))
+ *     .thenApply(loaded -> bound.matches(resource, new EvaluationContext()));
+ * }</pre>
+ *
+ * <p>Instances are not thread-safe: a resource must not be read while a prefetch is running. Completion of the
+ * future returned by {@link #prefetchAsync(Executor, int...)} makes the loaded values visible to the threads
+ * waiting on it.</p>
+ */
+public final class LazyResource implements Resource {
+
+    private final PropertySource source;
+    private final String[] values;
+    private final boolean[] loaded;
+    private int fetchCount;
+
+    /**
+     * Constructs a {@code LazyResource} with no property loaded yet.
+     *
+     * @param source the source of the property values (must not be {@code null}).
+     * @throws NullPointerException if {@code source} is {@code null}.
+     */
+    public LazyResource(PropertySource source) {
+        this.source = Objects.requireNonNull(source, "source must not be null");
+        int size = source.getSchema().size();
+        this.values = new String[size];
+        this.loaded = new boolean[size];
+    }
+
+    @Override
+    public ResourceSchema getSchema() {
+        return source.getSchema();
+    }
+
+    /**
+     * Returns the value of a property, loading it from the source on first access.
+     *
+     * @param slot a slot of {@link #getSchema()}.
+     * @return the value of the property, or {@code null} if the property is absent.
+     */
+    @Override
+    public String get(int slot) {
+        if (!loaded[slot]) {
+            values[slot] = source.load(slot);
+            loaded[slot] = true;
+            fetchCount++;
+        }
+        return values[slot];
+    }
+
+    /**
+     * Checks whether a property has already been loaded.
+     *
+     * @param slot a slot of {@link #getSchema()}.
+     * @return {@code true} if reading the property does not call the source.
+     */
+    public boolean isLoaded(int slot) {
+        return loaded[slot];
+    }
+
+    /**
+     * Returns the cost of reading a property: {@code 0} once loaded, the cost given by the source otherwise.
+     *
+     * @param slot a slot of {@link #getSchema()}.
+     * @return the relative cost of reading the property.
+     */
+    public double fetchCost(int slot) {
+        return loaded[slot] ? 0 : source.cost(slot);
+    }
+
+    /**
+     * Loads the properties not loaded yet among {@code slots} with a single call to
+     * {@link PropertySource#loadAll(int[])}.
+     *
+     * @param slots the slots to load (must not be {@code null}).
+     * @throws NullPointerException if {@code slots} is {@code null}.
+     */
+    public void prefetch(int... slots) {
+        Objects.requireNonNull(slots, "slots must not be null");
+        int[] missing = new int[slots.length];
+        int count = 0;
+        for (int slot : slots) {
+            if (!loaded[slot]) {
+                // Marked first so that a slot listed twice is requested once.
+                loaded[slot] = true;
+                missing[count++] = slot;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        missing = Arrays.copyOf(missing, count);
+        String[] fetched;
+        try {
+            fetched = source.loadAll(missing);
+        } catch (RuntimeException e) {
+            for (int slot : missing) {
+                loaded[slot] = false;
+            }
+            throw e;
+        }
+        for (int i = 0; i < count; i++) {
+            values[missing[i]] = fetched[i];
+        }
+        fetchCount += count;
+    }
+
+    /**
+     * Runs {@link #prefetch(int...)} on {@code executor}.
+     *
+     * @param executor the executor running the batch (must not be {@code null}).
+     * @param slots the slots to load (must not be {@code null}).
+     * @return a future completed with this resource once the batch is loaded, or exceptionally if it failed.
+     * @throws NullPointerException if {@code executor} or {@code slots} is {@code null}.
+     */
+    public CompletableFuture<LazyResource> prefetchAsync(Executor executor, int... slots) {
+        Objects.requireNonNull(executor, "executor must not be null");
+        int[] copy = Objects.requireNonNull(slots, "slots must not be null").clone();
+        return CompletableFuture.supplyAsync(() -> {
+            prefetch(copy);
+            return this;
+        }, executor);
+    }
+
+    /**
+     * Returns the number of properties loaded from the source so far.
+     *
+     * @return the number of fetched properties.
+     */
+    public int getFetchCount() {
+        return fetchCount;
+    }
+
+    /**
+     * Returns a string representation of this {@code LazyResource}, listing its loaded properties only.
+     *
+     * @return a string representation of the {@code LazyResource}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder("{");
+        for (int slot = 0; slot < values.length; slot++) {
+            if (loaded[slot] && values[slot] != null) {
+                if (string.length() > 1) {
+                    string.append(", ");
+                }
+                string.append(getSchema().propertyAt(slot)).append('=').append(values[slot]);
+            }
+        }
+        return string.append('}').toString();
+    }
+}
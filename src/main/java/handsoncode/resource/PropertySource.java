@@ -0,0 +1,63 @@
+package handsoncode.resource;
+
+/**
+ * Loads the property values of one resource on demand, for resources backed by expensive lookups such as
+ * decompression or a secondary store rather than an in-memory {@code Map}.
+ * <p>
+ * A {@link LazyResource} over a source loads each property at most once. Every property has a fetch cost, in
+ * the relative units of {@link handsoncode.query.FilterCost}, so that evaluation can prefer the filters whose
+ * properties are cheap or already loaded, see {@link handsoncode.query.CostAwareEvaluator}.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * PropertySource source = new PropertySource() {
+ *     public ResourceSchema getSchema() { return schema; }
+ *     public String load(int slot) { return archive.read(id, schema.propertyAt(slot)); }
+ *     public double cost(int slot) { return slot == BODY ? 500 : 20; }
+ * };
+ * boolean result = evaluator.matches(new LazyResource(source));
+ * }</pre>
+ */
+public interface PropertySource {
+
+    /**
+     * Returns the schema describing the slots of the resource.
+     *
+     * @return the schema of the resource.
+     */
+    ResourceSchema getSchema();
+
+    /**
+     * Loads the value of a property.
+     *
+     * @param slot a slot of {@link #getSchema()}.
+     * @return the value of the property, or {@code null} if the property is absent.
+     */
+    String load(int slot);
+
+    /**
+     * Returns the cost of loading a property. The default implementation returns {@code 1}.
+     *
+     * @param slot a slot of {@link #getSchema()}.
+     * @return the relative fetch cost, not negative.
+     */
+    default double cost(int slot) {
+        return 1;
+    }
+
+    /**
+     * Loads several properties at once. The default implementation loads them one at a time; sources that can
+     * share a lookup between properties, such as one decompression or one round trip, should override it.
+     *
+     * @param slots the slots to load, without duplicates.
+     * @return the value of every slot, in the order of {@code slots}, {@code null} for absent properties.
+     */
+    default String[] loadAll(int[] slots) {
+        String[] values = new String[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            values[i] = load(slots[i]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,100 @@
+package handsoncode.resource;
+
+import java.util.Map;
+
+import handsoncode.filter.EvaluationContext;
+
+/**
+ * Represents a resource whose properties are addressed by the slots of a {@link ResourceSchema}.
+ * <p>
+ * This is the slot-indexed counterpart of the {@code Map<String, String>} resources accepted by
+ * {@link handsoncode.filter.Filter#matches(Map)}. Filters bound to the same schema with
+ * {@link handsoncode.filter.Filter#bind(ResourceSchema)} read properties through {@link #get(int)}
+ * without hashing property names.
+ * </p>
+ *
+ * <p>A property whose value is {@code null} is indistinguishable from an absent property.</p>
+ */
+public interface Resource {
+
+    /**
+     * Returns the schema describing the slots of this resource.
+     *
+     * @return the schema of this resource.
+     */
+    ResourceSchema getSchema();
+
+    /**
+     * Returns the value stored at a slot.
+     *
+     * @param slot a slot of {@link #getSchema()}.
+     * @return the value of the property, or {@code null} if the property is absent.
+     */
+    String get(int slot);
+
+    /**
+     * Checks whether a property has a value.
+     *
+     * @param slot a slot of {@link #getSchema()}.
+     * @return {@code true} if the property is present.
+     */
+    default boolean contains(int slot) {
+        return get(slot) != null;
+    }
+
+    /**
+     * Checks whether a property has a non-blank value, as required by {@link handsoncode.filter.IsPresentFilter}.
+     *
+     * @param slot a slot of {@link #getSchema()}.
+     * @return {@code true} if the property is present and not blank.
+     */
+    default boolean isPresent(int slot) {
+        String value = get(slot);
+        return value != null && !value.isBlank();
+    }
+
+    /**
+     * Checks whether a property is equal to a value, ignoring case, as required by {@link handsoncode.filter.IsEqualFilter}.
+     *
+     * @param slot a slot of {@link #getSchema()}.
+     * @param value the value to compare with (never {@code null}).
+     * @return {@code true} if the property is present and equal to {@code value}, ignoring case.
+     */
+    default boolean equalsIgnoreCase(int slot, String value) {
+        String propertyValue = get(slot);
+        return propertyValue != null && propertyValue.equalsIgnoreCase(value);
+    }
+
+    /**
+     * Returns the numeric value of a present property, as compared by the numeric filters.
+     *
+     * @param slot a slot of {@link #getSchema()} holding a value.
+     * @param context the evaluation context memoizing parsed values.
+     * @return the parsed value.
+     * @throws IllegalArgumentException if the value is not a valid number.
+     */
+    default double numericValue(int slot, EvaluationContext context) {
+        return context.numericValue(getSchema().propertyAt(slot), get(slot));
+    }
+
+    /**
+     * Returns the value of a property as a character sequence, for regular expression matching.
+     * Implementations may return a view that is only valid until the next call on this resource.
+     *
+     * @param slot a slot of {@link #getSchema()}.
+     * @return the value of the property, or {@code null} if the property is absent.
+     */
+    default CharSequence getText(int slot) {
+        return get(slot);
+    }
+
+    /**
+     * Returns a read-only {@code Map} view of this resource, so it can be evaluated by any
+     * {@link handsoncode.filter.Filter} through {@link handsoncode.filter.Filter#matches(Map)}.
+     *
+     * @return an unmodifiable {@code Map<String,String>} backed by this resource.
+     */
+    default Map<String, String> asMap() {
+        return new ResourceMap(this);
+    }
+}
@@ -0,0 +1,84 @@
+package handsoncode.resource;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only {@code Map} adapter over a {@link Resource}, used by {@link Resource#asMap()}.
+ * Lookups resolve the key to a slot through the schema; absent slots are not listed as entries.
+ */
+class ResourceMap extends AbstractMap<String, String> {
+
+    private final Resource resource;
+
+    ResourceMap(Resource resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int slot = resource.getSchema().slotOf((String) key);
+        return slot == ResourceSchema.NO_SLOT ? null : resource.get(slot);
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (int slot = 0; slot < resource.getSchema().size(); slot++) {
+                    if (resource.get(slot) != null) {
+                        size++;
+                    }
+                }
+                return size;
+            }
+        };
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+
+        private int next = advance(0);
+
+        private int advance(int from) {
+            int slot = from;
+            while (slot < resource.getSchema().size() && resource.get(slot) == null) {
+                slot++;
+            }
+            return slot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < resource.getSchema().size();
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int slot = next;
+            next = advance(slot + 1);
+            return new SimpleImmutableEntry<>(resource.getSchema().propertyAt(slot), resource.get(slot));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package handsoncode.resource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * {@code ResourceSchema} maps property names to integer slots.
+ * <p>
+ * A schema is the shared layout of a family of {@link Resource} instances: every property name
+ * is assigned a fixed slot once, so that reading a property becomes an array index instead of a
+ * hash lookup on a {@code Map<String, String>}. Filters are resolved against a schema with
+ * {@link handsoncode.filter.Filter#bind(ResourceSchema)}.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * ResourceSchema schema = ResourceSchema.of("firstname", "lastname", "age");
+ * int ageSlot = schema.slotOf("age");        // 2
+ * int missing = schema.slotOf("height");     // ResourceSchema.NO_SLOT
+ * }</pre>
+ *
+ * <p>Schemas are immutable and can be shared freely between threads.</p>
+ */
+public final class ResourceSchema {
+
+    /** Slot returned by {@link #slotOf(String)} for properties that are not part of the schema. */
+    public static final int NO_SLOT = -1;
+
+    private final String[] properties;
+    private final Map<String, Integer> slots;
+
+    /**
+     * Constructs a {@code ResourceSchema} assigning slots in the iteration order of {@code properties}.
+     *
+     * @param properties the property names of the schema (must not be {@code null} nor contain {@code null}).
+     * @throws NullPointerException if {@code properties} or any of its elements is {@code null}.
+     * @throws IllegalArgumentException if a property name appears more than once.
+     */
+    public ResourceSchema(List<String> properties) {
+        Objects.requireNonNull(properties, "properties must not be null");
+        this.properties = new String[properties.size()];
+        this.slots = new HashMap<>();
+        for (int slot = 0; slot < this.properties.length; slot++) {
+            String property = Objects.requireNonNull(properties.get(slot), "property must not be null");
+            if (slots.putIfAbsent(property, slot) != null) {
+                throw new IllegalArgumentException("Property '" + property + "' is declared more than once");
+            }
+            this.properties[slot] = property;
+        }
+    }
+
+    /**
+     * Creates a schema from the given property names.
+     *
+     * @param properties the property names, in slot order.
+     * @return a new {@code ResourceSchema}.
+     * @throws NullPointerException if any property name is {@code null}.
+     * @throws IllegalArgumentException if a property name appears more than once.
+     */
+    public static ResourceSchema of(String... properties) {
+        return new ResourceSchema(Arrays.asList(properties));
+    }
+
+    /**
+     * Creates a schema covering every property found in the given resources, in first-seen order.
+     *
+     * @param resources the resources to scan (must not be {@code null}).
+     * @return a new {@code ResourceSchema} containing the union of all property names.
+     */
+    public static ResourceSchema fromResources(Iterable<? extends Map<String, String>> resources) {
+        Objects.requireNonNull(resources, "resources must not be null");
+        Set<String> properties = new LinkedHashSet<>();
+        for (Map<String, String> resource : resources) {
+            properties.addAll(resource.keySet());
+        }
+        return new ResourceSchema(List.copyOf(properties));
+    }
+
+    /**
+     * Returns the slot assigned to a property.
+     *
+     * @param property the property name.
+     * @return the slot of the property, or {@link #NO_SLOT} if the schema does not declare it.
+     */
+    public int slotOf(String property) {
+        Integer slot = slots.get(property);
+        return slot == null ? NO_SLOT : slot;
+    }
+
+    /**
+     * Returns the property name stored at a slot.
+     *
+     * @param slot the slot, between {@code 0} and {@link #size()} (exclusive).
+     * @return the property name.
+     * @throws ArrayIndexOutOfBoundsException if the slot is out of range.
+     */
+    public String propertyAt(int slot) {
+        return properties[slot];
+    }
+
+    /**
+     * Returns the number of slots in this schema.
+     *
+     * @return the number of properties.
+     */
+    public int size() {
+        return properties.length;
+    }
+
+    /**
+     * Returns the property names of this schema in slot order.
+     *
+     * @return an unmodifiable list of property names.
+     */
+    public List<String> getProperties() {
+        return Collections.unmodifiableList(Arrays.asList(properties));
+    }
+
+    /**
+     * Returns a string representation of this {@code ResourceSchema}, listing its properties in slot order.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code ResourceSchema}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder schemastring = new StringBuilder("{\"type\":\"Schema\",\"properties\":[");
+        for (int slot = 0; slot < properties.length; slot++) {
+            if (slot > 0) {
+                schemastring.append(",");
+            }
+            schemastring.append("\"").append(properties[slot]).append("\"");
+        }
+        return schemastring.append("]}").toString();
+    }
+}
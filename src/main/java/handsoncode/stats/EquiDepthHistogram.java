@@ -0,0 +1,150 @@
+package handsoncode.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * {@code EquiDepthHistogram} summarizes the distribution of a numeric property with buckets holding the
+ * same number of values each, so that dense ranges get narrow buckets.
+ * <p>
+ * It estimates the fraction of values below or above a threshold by locating the threshold's bucket and
+ * interpolating linearly inside it. It is built from a sample of the values by {@link StatisticsCollector}.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * EquiDepthHistogram ages = EquiDepthHistogram.of(new double[] {18, 25, 25, 31, 40, 65}, 3);
+ * double younger = ages.fractionBelow(30);  // about 0.5
+ * }</pre>
+ */
+public final class EquiDepthHistogram {
+
+    private final double[] bounds;
+
+    private EquiDepthHistogram(double[] bounds) {
+        this.bounds = bounds;
+    }
+
+    /**
+     * Builds a histogram from values.
+     *
+     * @param values the values to summarize (must not be empty). The array is not modified.
+     * @param buckets the maximal number of buckets, at least 1.
+     * @return a new histogram.
+     * @throws IllegalArgumentException if {@code values} is empty or {@code buckets} is not positive.
+     */
+    public static EquiDepthHistogram of(double[] values, int buckets) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("At least one value is required");
+        }
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("buckets must be positive, but found: " + buckets);
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int count = Math.min(buckets, sorted.length);
+        double[] bounds = new double[count + 1];
+        for (int i = 0; i < count; i++) {
+            bounds[i] = sorted[(int) ((long) i * sorted.length / count)];
+        }
+        bounds[count] = sorted[sorted.length - 1];
+        return new EquiDepthHistogram(bounds);
+    }
+
+    /**
+     * Returns the number of buckets.
+     *
+     * @return the number of buckets.
+     */
+    public int getBuckets() {
+        return bounds.length - 1;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(bounds.length);
+        for (double bound : bounds) {
+            out.writeDouble(bound);
+        }
+    }
+
+    static EquiDepthHistogram readFrom(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 2) {
+            throw new IOException("Invalid number of histogram bounds: " + length);
+        }
+        double[] bounds = new double[length];
+        for (int i = 0; i < length; i++) {
+            bounds[i] = in.readDouble();
+        }
+        return new EquiDepthHistogram(bounds);
+    }
+
+    /**
+     * Returns the bucket boundaries, from the smallest to the largest sampled value.
+     *
+     * @return a copy of the {@code getBuckets() + 1} boundaries.
+     */
+    public double[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Estimates the fraction of values strictly below a threshold.
+     *
+     * @param threshold the threshold.
+     * @return the estimated fraction, between {@code 0} and {@code 1}.
+     */
+    public double fractionBelow(double threshold) {
+        int buckets = getBuckets();
+        if (threshold <= bounds[0]) {
+            return 0;
+        }
+        if (threshold > bounds[buckets]) {
+            return 1;
+        }
+        int bucket = 0;
+        while (bucket < buckets - 1 && bounds[bucket + 1] < threshold) {
+            bucket++;
+        }
+        double low = bounds[bucket];
+        double high = bounds[bucket + 1];
+        double inside = high > low ? (threshold - low) / (high - low) : 1;
+        return (bucket + Math.min(1, inside)) / buckets;
+    }
+
+    /**
+     * Estimates the fraction of values strictly above a threshold.
+     *
+     * @param threshold the threshold.
+     * @return the estimated fraction, between {@code 0} and {@code 1}.
+     */
+    public double fractionAbove(double threshold) {
+        int buckets = getBuckets();
+        if (threshold >= bounds[buckets]) {
+            return 0;
+        }
+        if (threshold < bounds[0]) {
+            return 1;
+        }
+        int bucket = buckets - 1;
+        while (bucket > 0 && bounds[bucket] > threshold) {
+            bucket--;
+        }
+        double low = bounds[bucket];
+        double high = bounds[bucket + 1];
+        double inside = high > low ? (high - threshold) / (high - low) : 0;
+        return (buckets - 1 - bucket + Math.max(0, inside)) / buckets;
+    }
+
+    /**
+     * Returns a string representation of this {@code EquiDepthHistogram}, listing its bucket boundaries.
+     *
+     * @return a string representation of the {@code EquiDepthHistogram}.
+     */
+    @Override
+    public String toString() {
+        return "{\"type\":\"EquiDepthHistogram\",\"bounds\":\"" + Arrays.toString(bounds) + "\"}";
+    }
+}
@@ -0,0 +1,253 @@
+package handsoncode.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * {@code PropertyStatistics} summarizes the values of one property over a collection of resources.
+ * <p>
+ * It is produced by {@link StatisticsCollector} and holds the number of resources carrying the property,
+ * an estimate of its distinct values, its most frequent values, an {@link EquiDepthHistogram} of its numeric
+ * values and a uniform sample of its values. Values are compared case-insensitively, like
+ * {@link handsoncode.filter.IsEqualFilter}.
+ * </p>
+ *
+ * <p>Instances are immutable.</p>
+ */
+public final class PropertyStatistics {
+
+    private final String property;
+    private final long presentCount;
+    private final long nonBlankCount;
+    private final long numericCount;
+    private final long distinctCount;
+    private final Map<String, Long> mostFrequent;
+    private final boolean mostFrequentExact;
+    private final EquiDepthHistogram histogram;
+    private final double min;
+    private final double max;
+    private final List<String> sample;
+
+    PropertyStatistics(String property, long presentCount, long nonBlankCount, long numericCount, long distinctCount,
+                       Map<String, Long> mostFrequent, boolean mostFrequentExact, EquiDepthHistogram histogram,
+                       double min, double max, List<String> sample) {
+        this.property = property;
+        this.presentCount = presentCount;
+        this.nonBlankCount = nonBlankCount;
+        this.numericCount = numericCount;
+        this.distinctCount = distinctCount;
+        this.mostFrequent = Collections.unmodifiableMap(mostFrequent);
+        this.mostFrequentExact = mostFrequentExact;
+        this.histogram = histogram;
+        this.min = min;
+        this.max = max;
+        this.sample = Collections.unmodifiableList(sample);
+    }
+
+    /**
+     * Returns the name of the property.
+     *
+     * @return the property name.
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Returns the number of resources holding a value for the property.
+     *
+     * @return the number of resources where the property is set.
+     */
+    public long getPresentCount() {
+        return presentCount;
+    }
+
+    /**
+     * Returns the number of resources holding a non-blank value, i.e. matched by {@link handsoncode.filter.IsPresentFilter}.
+     *
+     * @return the number of non-blank values.
+     */
+    public long getNonBlankCount() {
+        return nonBlankCount;
+    }
+
+    /**
+     * Returns the number of values that parse as numbers.
+     *
+     * @return the number of numeric values.
+     */
+    public long getNumericCount() {
+        return numericCount;
+    }
+
+    /**
+     * Returns the estimated number of distinct values, ignoring case.
+     *
+     * @return the distinct count estimate, exact for small cardinalities.
+     */
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    /**
+     * Returns the most frequent values, case-folded, with their number of occurrences, from the most frequent.
+     *
+     * @return an unmodifiable map from folded value to count.
+     */
+    public Map<String, Long> getMostFrequentValues() {
+        return mostFrequent;
+    }
+
+    /**
+     * Checks whether {@link #getMostFrequentValues()} lists every distinct value with its exact count.
+     *
+     * @return {@code true} if the property has few enough distinct values to be tracked exactly.
+     */
+    public boolean isMostFrequentExact() {
+        return mostFrequentExact;
+    }
+
+    /**
+     * Returns the histogram of the numeric values.
+     *
+     * @return the histogram, or {@code null} if no value is numeric.
+     */
+    public EquiDepthHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Returns the smallest numeric value.
+     *
+     * @return the minimum, or {@code NaN} if no value is numeric.
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the largest numeric value.
+     *
+     * @return the maximum, or {@code NaN} if no value is numeric.
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Returns a uniform sample of the values, used to estimate the selectivity of regular expressions.
+     *
+     * @return an unmodifiable list of sampled values.
+     */
+    public List<String> getSample() {
+        return sample;
+    }
+
+    /**
+     * Estimates the fraction of the resources holding the property whose value equals {@code value}, ignoring case.
+     *
+     * @param folded the value, case-folded with {@link handsoncode.utils.UtilsFilter#foldCase(String)}.
+     * @return the estimated fraction of the present values.
+     */
+    double equalityFraction(String folded) {
+        if (presentCount == 0) {
+            return 0;
+        }
+        Long count = mostFrequent.get(folded);
+        if (count != null) {
+            return (double) count / presentCount;
+        }
+        if (mostFrequentExact) {
+            return 0;
+        }
+        long tracked = 0;
+        for (long frequent : mostFrequent.values()) {
+            tracked += frequent;
+        }
+        long others = Math.max(1, distinctCount - mostFrequent.size());
+        return Math.max(0, (double) (presentCount - tracked) / others / presentCount);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        writeString(out, property);
+        out.writeLong(presentCount);
+        out.writeLong(nonBlankCount);
+        out.writeLong(numericCount);
+        out.writeLong(distinctCount);
+        out.writeInt(mostFrequent.size());
+        for (Map.Entry<String, Long> entry : mostFrequent.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+        out.writeBoolean(mostFrequentExact);
+        out.writeBoolean(histogram != null);
+        if (histogram != null) {
+            histogram.writeTo(out);
+        }
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeInt(sample.size());
+        for (String value : sample) {
+            writeString(out, value);
+        }
+    }
+
+    static PropertyStatistics readFrom(DataInput in) throws IOException {
+        String property = readString(in);
+        long presentCount = in.readLong();
+        long nonBlankCount = in.readLong();
+        long numericCount = in.readLong();
+        long distinctCount = in.readLong();
+        int frequentCount = in.readInt();
+        Map<String, Long> mostFrequent = new LinkedHashMap<>();
+        for (int i = 0; i < frequentCount; i++) {
+            mostFrequent.put(readString(in), in.readLong());
+        }
+        boolean mostFrequentExact = in.readBoolean();
+        EquiDepthHistogram histogram = in.readBoolean() ? EquiDepthHistogram.readFrom(in) : null;
+        double min = in.readDouble();
+        double max = in.readDouble();
+        int sampleSize = in.readInt();
+        List<String> sample = new ArrayList<>(sampleSize);
+        for (int i = 0; i < sampleSize; i++) {
+            sample.add(readString(in));
+        }
+        return new PropertyStatistics(property, presentCount, nonBlankCount, numericCount, distinctCount, mostFrequent,
+            mostFrequentExact, histogram, min, max, sample);
+    }
+
+    /** Writes a string of any length, unlike {@link DataOutput#writeUTF(String)}. */
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a string representation of this {@code PropertyStatistics}.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code PropertyStatistics}.
+     */
+    @Override
+    public String toString() {
+        return "{\"property\":\"" + property + "\",\"present\":\"" + presentCount + "\",\"nonBlank\":\"" + nonBlankCount
+            + "\",\"numeric\":\"" + numericCount + "\",\"distinct\":\"" + distinctCount
+            + "\",\"mostFrequent\":\"" + mostFrequent + "\",\"range\":\""
+            + String.format(Locale.ROOT, "[%s, %s]", min, max) + "\"}";
+    }
+}
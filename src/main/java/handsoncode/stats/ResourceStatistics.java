@@ -0,0 +1,269 @@
+package handsoncode.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import handsoncode.filter.AndFilter;
+import handsoncode.filter.FalseFilter;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterVisitor;
+import handsoncode.filter.GreaterThanFilter;
+import handsoncode.filter.IsEqualFilter;
+import handsoncode.filter.IsPresentFilter;
+import handsoncode.filter.LessThanFilter;
+import handsoncode.filter.MatchesExpressionFilter;
+import handsoncode.filter.NotFilter;
+import handsoncode.filter.OrFilter;
+import handsoncode.filter.TrueFilter;
+import handsoncode.utils.UtilsFilter;
+
+/**
+ * {@code ResourceStatistics} holds the {@link PropertyStatistics} of a collection of resources and estimates
+ * the selectivity of filters from them, without evaluating the filters on the collection.
+ * <p>
+ * Leaf estimates use the statistics of their property: the non-blank rate for {@link IsPresentFilter}, the most
+ * frequent values or a uniform share of the remaining distinct values for {@link IsEqualFilter}, the histogram
+ * for {@link GreaterThanFilter} and {@link LessThanFilter}, and the value sample for {@link MatchesExpressionFilter}.
+ * Logical filters combine the estimates of their children assuming independence. Custom filters are estimated at
+ * {@link #UNKNOWN_SELECTIVITY}.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * ResourceStatistics statistics = StatisticsCollector.collect(users);
+ * statistics.selectivity(FilterFactory.greaterThan("age", 30));      // e.g. 0.41
+ * statistics.estimateCount(FilterFactory.isPresent("email"));        // e.g. 870
+ * }</pre>
+ *
+ * <p>Instances are immutable.</p>
+ */
+public final class ResourceStatistics {
+
+    /** Selectivity assumed for filter types the estimator does not know. */
+    public static final double UNKNOWN_SELECTIVITY = 0.5;
+
+    private final long count;
+    private final Map<String, PropertyStatistics> properties;
+    private final FilterVisitor<Double> estimator = new Estimator();
+
+    ResourceStatistics(long count, Map<String, PropertyStatistics> properties) {
+        this.count = count;
+        this.properties = Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * Returns the number of resources the statistics were collected over.
+     *
+     * @return the number of resources.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the statistics of every property seen, by property name.
+     *
+     * @return an unmodifiable map of property statistics.
+     */
+    public Map<String, PropertyStatistics> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Returns the statistics of a property.
+     *
+     * @param property the property name.
+     * @return the statistics, or {@code null} if no resource holds the property.
+     */
+    public PropertyStatistics getProperty(String property) {
+        return properties.get(property);
+    }
+
+    /**
+     * Estimates the fraction of the resources matching a filter.
+     *
+     * @param filter the filter (must not be {@code null}).
+     * @return the estimated selectivity, between {@code 0} and {@code 1}.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     */
+    public double selectivity(Filter filter) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        if (count == 0) {
+            return 0;
+        }
+        return clamp(filter.accept(estimator));
+    }
+
+    /**
+     * Estimates the number of resources matching a filter.
+     *
+     * @param filter the filter (must not be {@code null}).
+     * @return the estimated number of matches, rounded.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     */
+    public long estimateCount(Filter filter) {
+        return Math.round(selectivity(filter) * count);
+    }
+
+    /**
+     * Writes these statistics, for instance next to a persisted store, see {@link #readFrom(DataInput)}.
+     *
+     * @param out the output (must not be {@code null}).
+     * @throws IOException if {@code out} fails.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeInt(properties.size());
+        for (PropertyStatistics statistics : properties.values()) {
+            statistics.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads statistics written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in the input (must not be {@code null}).
+     * @return the statistics.
+     * @throws IOException if {@code in} fails.
+     */
+    public static ResourceStatistics readFrom(DataInput in) throws IOException {
+        long count = in.readLong();
+        int size = in.readInt();
+        Map<String, PropertyStatistics> properties = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            PropertyStatistics statistics = PropertyStatistics.readFrom(in);
+            properties.put(statistics.getProperty(), statistics);
+        }
+        return new ResourceStatistics(count, properties);
+    }
+
+    private static double clamp(double selectivity) {
+        if (Double.isNaN(selectivity)) {
+            return 0;
+        }
+        return Math.max(0, Math.min(1, selectivity));
+    }
+
+    /** Fraction of the resources holding a numeric value for {@code property}. */
+    private double numericRate(PropertyStatistics statistics) {
+        return (double) statistics.getNumericCount() / count;
+    }
+
+    /**
+     * Returns a string representation of these {@code ResourceStatistics}, listing the statistics of every property.
+     * The string format is a JSON-like representation.
+     *
+     * @return a string representation of the {@code ResourceStatistics}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder statisticsstring = new StringBuilder("{\"count\":\"" + count + "\",\"properties\":[");
+        Iterator<PropertyStatistics> propertyIterator = properties.values().iterator();
+        while (propertyIterator.hasNext()) {
+            statisticsstring.append(propertyIterator.next());
+            if (propertyIterator.hasNext()) {
+                statisticsstring.append(",");
+            }
+        }
+        return statisticsstring.append("]}").toString();
+    }
+
+    /** Estimates the selectivity of every filter type. */
+    private final class Estimator implements FilterVisitor<Double> {
+
+        @Override
+        public Double visitTrue(TrueFilter filter) {
+            return 1.0;
+        }
+
+        @Override
+        public Double visitFalse(FalseFilter filter) {
+            return 0.0;
+        }
+
+        @Override
+        public Double visitGreaterThan(GreaterThanFilter filter) {
+            PropertyStatistics statistics = properties.get(filter.getProperty());
+            // No value is greater than NaN, and the histogram has no fraction above it.
+            if (statistics == null || statistics.getHistogram() == null || Double.isNaN(filter.getValue())) {
+                return 0.0;
+            }
+            return numericRate(statistics) * statistics.getHistogram().fractionAbove(filter.getValue());
+        }
+
+        @Override
+        public Double visitLessThan(LessThanFilter filter) {
+            PropertyStatistics statistics = properties.get(filter.getProperty());
+            if (statistics == null || statistics.getHistogram() == null || Double.isNaN(filter.getValue())) {
+                return 0.0;
+            }
+            return numericRate(statistics) * statistics.getHistogram().fractionBelow(filter.getValue());
+        }
+
+        @Override
+        public Double visitEqualsTo(IsEqualFilter filter) {
+            PropertyStatistics statistics = properties.get(filter.getProperty());
+            if (statistics == null) {
+                return 0.0;
+            }
+            double presence = (double) statistics.getPresentCount() / count;
+            return presence * statistics.equalityFraction(UtilsFilter.foldCase(filter.getValue()));
+        }
+
+        @Override
+        public Double visitIsPresent(IsPresentFilter filter) {
+            PropertyStatistics statistics = properties.get(filter.getProperty());
+            return statistics == null ? 0.0 : (double) statistics.getNonBlankCount() / count;
+        }
+
+        @Override
+        public Double visitMatchesExpression(MatchesExpressionFilter filter) {
+            PropertyStatistics statistics = properties.get(filter.getProperty());
+            if (statistics == null || statistics.getSample().isEmpty()) {
+                return 0.0;
+            }
+            int matched = 0;
+            for (String value : statistics.getSample()) {
+                if (filter.matches(Collections.singletonMap(filter.getProperty(), value))) {
+                    matched++;
+                }
+            }
+            double presence = (double) statistics.getPresentCount() / count;
+            return presence * matched / statistics.getSample().size();
+        }
+
+        @Override
+        public Double visitNot(NotFilter filter) {
+            return 1 - clamp(filter.getFilter().accept(this));
+        }
+
+        @Override
+        public Double visitAnd(AndFilter filter) {
+            double selectivity = 1;
+            for (Filter child : filter.getFilters()) {
+                selectivity *= clamp(child.accept(this));
+            }
+            return selectivity;
+        }
+
+        @Override
+        public Double visitOr(OrFilter filter) {
+            double rejected = 1;
+            for (Filter child : filter.getFilters()) {
+                rejected *= 1 - clamp(child.accept(this));
+            }
+            return 1 - rejected;
+        }
+
+        @Override
+        public Double visitOther(Filter filter) {
+            return UNKNOWN_SELECTIVITY;
+        }
+    }
+}
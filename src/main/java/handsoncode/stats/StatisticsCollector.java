@@ -0,0 +1,263 @@
+package handsoncode.stats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+import handsoncode.resource.ResourceSchema;
+import handsoncode.store.ResourceStore;
+import handsoncode.store.StoredResource;
+import handsoncode.utils.UtilsFilter;
+
+/**
+ * {@code StatisticsCollector} gathers {@link PropertyStatistics} over a collection of resources in a single pass
+ * and bounded memory.
+ * <p>
+ * For every property it counts present, non-blank and numeric values, estimates distinct values with a
+ * {@link HyperLogLog}, tracks the most frequent values with the Space-Saving algorithm, and keeps uniform
+ * reservoir samples of the values and of the numeric values, the latter being summarized by an
+ * {@link EquiDepthHistogram} when {@link #build()} is called.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * ResourceStatistics statistics = StatisticsCollector.collect(users);
+ * double selectivity = statistics.selectivity(FilterFactory.equalsTo("role", "administrator"));
+ * }</pre>
+ *
+ * <p>A collector is not thread-safe. Sampling is seeded, so collecting the same resources twice gives the same statistics.</p>
+ */
+public class StatisticsCollector {
+
+    /** Default number of most frequent values tracked per property. */
+    public static final int DEFAULT_MOST_FREQUENT = 32;
+
+    /** Default number of values sampled per property. */
+    public static final int DEFAULT_SAMPLE_SIZE = 1024;
+
+    /** Default number of histogram buckets. */
+    public static final int DEFAULT_BUCKETS = 32;
+
+    private final int mostFrequent;
+    private final int sampleSize;
+    private final int buckets;
+    private final SplittableRandom random = new SplittableRandom(0x5EED);
+    private final Map<String, Accumulator> accumulators = new LinkedHashMap<>();
+    private long total;
+
+    /**
+     * Constructs a collector with the default sizes.
+     */
+    public StatisticsCollector() {
+        this(DEFAULT_MOST_FREQUENT, DEFAULT_SAMPLE_SIZE, DEFAULT_BUCKETS);
+    }
+
+    /**
+     * Constructs a collector.
+     *
+     * @param mostFrequent the number of most frequent values reported per property.
+     * @param sampleSize the number of values sampled per property.
+     * @param buckets the maximal number of histogram buckets.
+     * @throws IllegalArgumentException if any size is not positive.
+     */
+    public StatisticsCollector(int mostFrequent, int sampleSize, int buckets) {
+        if (mostFrequent <= 0 || sampleSize <= 0 || buckets <= 0) {
+            throw new IllegalArgumentException("Sizes must be positive, but found: mostFrequent=" + mostFrequent
+                + ", sampleSize=" + sampleSize + ", buckets=" + buckets);
+        }
+        this.mostFrequent = mostFrequent;
+        this.sampleSize = sampleSize;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Collects the statistics of a collection of resources with the default sizes.
+     *
+     * @param resources the resources (must not be {@code null}).
+     * @return the statistics of {@code resources}.
+     * @throws NullPointerException if {@code resources} is {@code null}.
+     */
+    public static ResourceStatistics collect(Iterable<? extends Map<String, String>> resources) {
+        Objects.requireNonNull(resources, "resources must not be null");
+        StatisticsCollector collector = new StatisticsCollector();
+        for (Map<String, String> resource : resources) {
+            collector.add(resource);
+        }
+        return collector.build();
+    }
+
+    /**
+     * Collects the statistics of the records of a store with the default sizes, decoding values straight
+     * from the stored records.
+     *
+     * @param store the store (must not be {@code null}).
+     * @return the statistics of the records of {@code store}.
+     * @throws NullPointerException if {@code store} is {@code null}.
+     */
+    public static ResourceStatistics collect(ResourceStore store) {
+        Objects.requireNonNull(store, "store must not be null");
+        StatisticsCollector collector = new StatisticsCollector();
+        ResourceSchema schema = store.getSchema();
+        Accumulator[] slots = new Accumulator[schema.size()];
+        for (int slot = 0; slot < slots.length; slot++) {
+            slots[slot] = collector.accumulator(schema.propertyAt(slot));
+        }
+        StoredResource resource = store.cursor();
+        long size = store.size();
+        for (long id = 0; id < size; id++) {
+            resource.moveTo(id);
+            collector.total++;
+            for (int slot = 0; slot < slots.length; slot++) {
+                String value = resource.get(slot);
+                if (value != null) {
+                    slots[slot].add(value);
+                }
+            }
+        }
+        return collector.build();
+    }
+
+    /**
+     * Adds a resource to the statistics. Properties with a {@code null} value count as absent.
+     *
+     * @param resource the resource (must not be {@code null}).
+     * @throws NullPointerException if {@code resource} is {@code null}.
+     */
+    public void add(Map<String, String> resource) {
+        Objects.requireNonNull(resource, "resource must not be null");
+        total++;
+        for (Map.Entry<String, String> entry : resource.entrySet()) {
+            if (entry.getValue() != null) {
+                accumulator(entry.getKey()).add(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of resources added so far.
+     *
+     * @return the number of resources.
+     */
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * Builds the statistics of the resources added so far. The collector can keep collecting afterwards.
+     *
+     * @return a snapshot of the statistics.
+     */
+    public ResourceStatistics build() {
+        Map<String, PropertyStatistics> properties = new LinkedHashMap<>();
+        for (Accumulator accumulator : accumulators.values()) {
+            properties.put(accumulator.property, accumulator.build());
+        }
+        return new ResourceStatistics(total, properties);
+    }
+
+    private Accumulator accumulator(String property) {
+        return accumulators.computeIfAbsent(property, Accumulator::new);
+    }
+
+    /** Running statistics of one property. */
+    private final class Accumulator {
+
+        private final String property;
+        private final HyperLogLog distinct = new HyperLogLog();
+        private final Map<String, long[]> counters = new HashMap<>();
+        private final int capacity = 4 * mostFrequent;
+        private boolean evicted;
+        private long present;
+        private long nonBlank;
+        private long numeric;
+        private double min = Double.NaN;
+        private double max = Double.NaN;
+        private final List<String> sample = new ArrayList<>();
+        private double[] numericSample = new double[16];
+        private int numericSampled;
+
+        Accumulator(String property) {
+            this.property = property;
+        }
+
+        void add(String value) {
+            present++;
+            if (!value.isBlank()) {
+                nonBlank++;
+            }
+            String folded = UtilsFilter.foldCase(value);
+            distinct.add(folded);
+            count(folded);
+            if (sample.size() < sampleSize) {
+                sample.add(value);
+            } else {
+                long slot = random.nextLong(present);
+                if (slot < sampleSize) {
+                    sample.set((int) slot, value);
+                }
+            }
+
+            Double number = UtilsFilter.safeParseDouble(value);
+            if (number != null && !number.isNaN()) {
+                numeric++;
+                min = Double.isNaN(min) ? number : Math.min(min, number);
+                max = Double.isNaN(max) ? number : Math.max(max, number);
+                if (numericSampled < sampleSize) {
+                    if (numericSampled == numericSample.length) {
+                        numericSample = Arrays.copyOf(numericSample, Math.min(sampleSize, numericSampled * 2));
+                    }
+                    numericSample[numericSampled++] = number;
+                } else {
+                    long slot = random.nextLong(numeric);
+                    if (slot < sampleSize) {
+                        numericSample[(int) slot] = number;
+                    }
+                }
+            }
+        }
+
+        /** Space-Saving: a value that is not tracked replaces the least frequent one and inherits its count. */
+        private void count(String folded) {
+            long[] counter = counters.get(folded);
+            if (counter != null) {
+                counter[0]++;
+            } else if (counters.size() < capacity) {
+                counters.put(folded, new long[] {1});
+            } else {
+                Iterator<Map.Entry<String, long[]>> entries = counters.entrySet().iterator();
+                Map.Entry<String, long[]> least = entries.next();
+                while (entries.hasNext()) {
+                    Map.Entry<String, long[]> entry = entries.next();
+                    if (entry.getValue()[0] < least.getValue()[0]) {
+                        least = entry;
+                    }
+                }
+                long[] replaced = counters.remove(least.getKey());
+                replaced[0]++;
+                counters.put(folded, replaced);
+                evicted = true;
+            }
+        }
+
+        PropertyStatistics build() {
+            List<Map.Entry<String, long[]>> entries = new ArrayList<>(counters.entrySet());
+            entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+            Map<String, Long> frequent = new LinkedHashMap<>();
+            for (Map.Entry<String, long[]> entry : entries.subList(0, Math.min(mostFrequent, entries.size()))) {
+                frequent.put(entry.getKey(), entry.getValue()[0]);
+            }
+            boolean exact = !evicted && frequent.size() == counters.size();
+            long distinctCount = evicted ? Math.max(distinct.estimate(), counters.size()) : counters.size();
+            EquiDepthHistogram histogram = numericSampled == 0
+                ? null : EquiDepthHistogram.of(Arrays.copyOf(numericSample, numericSampled), buckets);
+            return new PropertyStatistics(property, present, nonBlank, numeric, distinctCount, frequent, exact,
+                histogram, min, max, new ArrayList<>(sample));
+        }
+    }
+}
@@ -0,0 +1,596 @@
+package handsoncode.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+import handsoncode.bitmap.RoaringBitmap;
+import handsoncode.filter.AndFilter;
+import handsoncode.filter.EvaluationContext;
+import handsoncode.filter.FalseFilter;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.filter.FilterVisitor;
+import handsoncode.filter.GreaterThanFilter;
+import handsoncode.filter.IsEqualFilter;
+import handsoncode.filter.IsPresentFilter;
+import handsoncode.filter.LessThanFilter;
+import handsoncode.filter.MatchesExpressionFilter;
+import handsoncode.filter.NotFilter;
+import handsoncode.filter.OrFilter;
+import handsoncode.filter.TrueFilter;
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+import handsoncode.stats.ResourceStatistics;
+import handsoncode.stats.StatisticsCollector;
+import handsoncode.utils.UtilsFilter;
+
+/**
+ * {@code IndexedResourceStore} is a {@link ResourceStore} that also indexes every property of its schema,
+ * so that {@link #count(Filter)} can be answered without visiting the records.
+ * <p>
+ * For every property the store dictionary-encodes the case-folded values, keeping the code of every record and
+ * the records holding each code, and keeps the records holding a non-blank value and the numeric values sorted
+ * with their record ids. {@link IsEqualFilter},
+ * {@link IsPresentFilter}, {@link GreaterThanFilter}, {@link LessThanFilter}, {@link TrueFilter} and
+ * {@link FalseFilter} leaves are answered by these indexes, and {@code AND}, {@code OR} and {@code NOT}
+ * combinations of them by {@link RoaringBitmap} operations; a single range is answered from the sorted values alone.
+ * </p>
+ * <p>
+ * Leaves that cannot be pushed down, such as {@link MatchesExpressionFilter}, custom filters, or numeric
+ * comparisons on a property holding non-numeric values, are evaluated on the stored records: only on the
+ * candidates of the indexed siblings of an {@code AND}, only on the records not already matched by the indexed
+ * siblings of an {@code OR}, and on every record otherwise. Counting never allocates per match. In these scans,
+ * and in {@link #forEachMatch(Filter, LongConsumer)}, an {@link IsEqualFilter} compares dictionary codes.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * IndexedResourceStore store = new IndexedResourceStore(ResourceSchema.of("role", "age"));
+ * users.forEach(store::add);
+ *
+ * long admins = store.count(FilterFactory.and(List.of(
+ *     FilterFactory.equalsTo("role", "admin"), FilterFactory.greaterThan("age", 30))));
+ * }</pre>
+ *
+ * <p>A pushed-down count does not evaluate the records the indexes exclude, so it may succeed where a scan
+ * would throw on such a record. Indexes are on-heap and address at most {@link Integer#MAX_VALUE} records.
+ * Adding and counting are synchronized; {@link #forEachMatch(Filter, LongConsumer)} only binds its filter under
+ * the lock and scans alongside appends.</p>
+ *
+ * <p>{@link #save(Path)} writes the records, indexes and statistics to a versioned file; {@link #open(Path)} maps
+ * it back, so that a restarted process serves queries without re-indexing:</p>
+ * <pre>{@code
+ * store.save(Path.of("users.store"));
+ * // after a restart
+ * IndexedResourceStore store = IndexedResourceStore.open(Path.of("users.store"));
+ * }</pre>
+ */
+public class IndexedResourceStore extends ResourceStore {
+
+    private final PropertyIndex[] indexes;
+    private StoreFile source;
+    private ResourceStatistics statistics;
+
+    /**
+     * Constructs an empty {@code IndexedResourceStore} with the default chunk size.
+     *
+     * @param schema the properties records may hold (must not be {@code null}).
+     * @throws NullPointerException if {@code schema} is {@code null}.
+     * @throws IllegalArgumentException if the schema has more than 65535 properties.
+     */
+    public IndexedResourceStore(ResourceSchema schema) {
+        this(schema, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs an empty {@code IndexedResourceStore}.
+     *
+     * @param schema the properties records may hold (must not be {@code null}).
+     * @param chunkSize the size in bytes of each direct buffer holding records; bounds the size of a record.
+     * @throws NullPointerException if {@code schema} is {@code null}.
+     * @throws IllegalArgumentException if the schema has more than 65535 properties or {@code chunkSize} is not positive.
+     */
+    public IndexedResourceStore(ResourceSchema schema, int chunkSize) {
+        super(schema, chunkSize);
+        this.indexes = new PropertyIndex[schema.size()];
+        for (int slot = 0; slot < indexes.length; slot++) {
+            indexes[slot] = new PropertyIndex();
+        }
+    }
+
+    /** Constructs a store over the mapped records of {@code source}, reading its indexes on first use. */
+    IndexedResourceStore(ResourceSchema schema, int chunkSize, ByteBuffer[] chunks, int[] used, LongBuffer[] index,
+                         long size, StoreFile source) {
+        super(schema, chunkSize, chunks, used, index, size);
+        this.indexes = new PropertyIndex[schema.size()];
+        this.source = source;
+    }
+
+    /**
+     * Reopens a store written by {@link #save(Path)}. Records are memory-mapped and paged in as they are visited;
+     * the indexes of a property are read on first use. Records can still be appended; the file is not modified.
+     *
+     * @param file the store file (must not be {@code null}).
+     * @return the reopened store, which must be closed to release the file.
+     * @throws NullPointerException if {@code file} is {@code null}.
+     * @throws IOException if the file cannot be read, is not a store file or was written by another format version.
+     */
+    public static IndexedResourceStore open(Path file) throws IOException {
+        return StoreFile.open(Objects.requireNonNull(file, "file must not be null"));
+    }
+
+    /**
+     * Writes the records, indexes and statistics of this store to a file, replacing it atomically.
+     * Statistics are collected first if needed, see {@link #getStatistics()}.
+     *
+     * @param file the file to write (must not be {@code null}).
+     * @throws NullPointerException if {@code file} is {@code null}.
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void save(Path file) throws IOException {
+        Objects.requireNonNull(file, "file must not be null");
+        PropertyIndex[] loaded = new PropertyIndex[indexes.length];
+        for (int slot = 0; slot < loaded.length; slot++) {
+            loaded[slot] = index(slot);
+        }
+        StoreFile.write(this, file, loaded, getStatistics());
+    }
+
+    /**
+     * Returns the statistics of the records of this store, read from the store file when the store was reopened
+     * and nothing was added since, collected otherwise. Adding a record discards them.
+     *
+     * @return the statistics of the records.
+     */
+    public synchronized ResourceStatistics getStatistics() {
+        if (statistics == null) {
+            if (source != null && source.size() == size()) {
+                try {
+                    statistics = source.readStatistics();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            } else {
+                statistics = StatisticsCollector.collect(this);
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Appends a resource and indexes its properties. Properties with a {@code null} value are not stored.
+     *
+     * @param resource the resource to append (must not be {@code null}).
+     * @return the id of the new record, the ids being consecutive from {@code 0}.
+     * @throws NullPointerException if {@code resource} is {@code null}.
+     * @throws IllegalArgumentException if the resource has a property the schema does not declare,
+     *                                  or if the encoded record does not fit in a chunk.
+     * @throws IllegalStateException if the store already holds {@link Integer#MAX_VALUE} records.
+     */
+    @Override
+    public synchronized long add(Map<String, String> resource) {
+        if (size() == Integer.MAX_VALUE) {
+            throw new IllegalStateException("An indexed store holds at most " + Integer.MAX_VALUE + " records");
+        }
+        for (int slot = 0; slot < indexes.length; slot++) {
+            index(slot);
+        }
+        long id = super.add(resource);
+        ResourceSchema schema = getSchema();
+        for (int slot = 0; slot < indexes.length; slot++) {
+            indexes[slot].add((int) id, resource.get(schema.propertyAt(slot)));
+        }
+        statistics = null;
+        return id;
+    }
+
+    /**
+     * Calls {@code action} with the id of every record matching a filter, in id order. Equality is evaluated
+     * on dictionary codes, see {@link #bind(Filter)}. The filter is bound under the lock of the store and the
+     * records are scanned outside it, so that appends proceed meanwhile; the scan sees the records added before
+     * it started.
+     *
+     * @param filter the filter to evaluate (must not be {@code null}).
+     * @param action the action receiving the ids of the matching records (must not be {@code null}).
+     * @throws IllegalArgumentException if the filter cannot evaluate a record, see {@link Filter#matches(Map)}.
+     */
+    @Override
+    public void forEachMatch(Filter filter, LongConsumer action) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        Objects.requireNonNull(action, "action must not be null");
+        BoundFilter bound;
+        long records;
+        synchronized (this) {
+            bound = bind(filter);
+            records = size();
+        }
+        scan(bound, records, action);
+    }
+
+    /**
+     * Binds a filter to the records of this store, resolving the value of every {@link IsEqualFilter} to its
+     * dictionary code once: the bound filter then compares one {@code int} per record, and a value no record
+     * holds is bound to {@link FalseFilter}. Other leaves are bound to the schema.
+     *
+     * @param filter the filter to bind.
+     * @return a bound filter accepting the {@link StoredResource}s of this store only.
+     */
+    @Override
+    protected BoundFilter bind(Filter filter) {
+        return filter.accept(new Binder());
+    }
+
+    /**
+     * Counts the records matching a filter, from the indexes where possible. The indexes are read under the lock
+     * of the store; the records left to visit, if any, are scanned outside it, like {@link #forEachMatch}.
+     *
+     * @param filter the filter to evaluate (must not be {@code null}).
+     * @return the number of matching records.
+     * @throws IllegalArgumentException if the filter cannot evaluate a record it has to visit, see {@link Filter#matches(Map)}.
+     */
+    @Override
+    public long count(Filter filter) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        RoaringBitmap candidates = null;
+        BoundFilter bound;
+        long records;
+        synchronized (this) {
+            records = size();
+            Pushdown pushdown = new Pushdown((int) records);
+            Long cardinality = pushdown.cardinality(filter);
+            if (cardinality != null) {
+                return cardinality;
+            }
+            Filter residual = filter;
+            if (filter instanceof AndFilter) {
+                // Without any indexed child, every record is visited.
+                Split split = pushdown.split(((AndFilter) filter).getFilters());
+                if (split.indexed != null && split.residual.isEmpty()) {
+                    return split.indexed.getCardinality();
+                }
+                if (split.indexed != null) {
+                    // The bitmap may be shared with an index, which appends modify.
+                    candidates = split.indexed.clone();
+                    residual = FilterFactory.and(split.residual);
+                }
+            } else {
+                RoaringBitmap matches = filter.accept(pushdown);
+                if (matches != null) {
+                    return matches.getCardinality();
+                }
+            }
+            bound = bind(residual);
+        }
+        long[] count = new long[1];
+        if (candidates == null) {
+            scan(bound, records, id -> count[0]++);
+        } else {
+            StoredResource resource = cursor();
+            EvaluationContext context = new EvaluationContext();
+            for (int id = candidates.nextValue(0); id >= 0 && id < records; id = candidates.nextValue(id + 1)) {
+                context.reset();
+                if (bound.matches(resource.moveTo(id), context)) {
+                    count[0]++;
+                }
+            }
+        }
+        return count[0];
+    }
+
+    /**
+     * Returns the ids of the records matching a filter, computed from the indexes where possible
+     * like {@link #count(Filter)}.
+     *
+     * @param filter the filter to evaluate (must not be {@code null}).
+     * @return a new bitmap of the ids of the matching records, which later additions do not modify.
+     * @throws IllegalArgumentException if the filter cannot evaluate a record it has to visit, see {@link Filter#matches(Map)}.
+     */
+    public synchronized RoaringBitmap matching(Filter filter) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        Pushdown pushdown = new Pushdown((int) size());
+        RoaringBitmap matches = filter.accept(pushdown);
+        if (matches == null) {
+            return pushdown.scan(null, false, filter);
+        }
+        return matches.clone();
+    }
+
+    /**
+     * Releases the buffers and indexes of this store, and the file it was reopened from.
+     */
+    @Override
+    public synchronized void close() {
+        super.close();
+        for (int slot = 0; slot < indexes.length; slot++) {
+            indexes[slot] = new PropertyIndex();
+        }
+        statistics = null;
+        if (source != null) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                // The mappings are released once garbage collected anyway.
+            }
+            source = null;
+        }
+    }
+
+    /** Returns the indexes of {@code slot}, reading them from the store file on first use. */
+    private synchronized PropertyIndex index(int slot) {
+        if (indexes[slot] == null) {
+            try {
+                indexes[slot] = source.readIndex(slot);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return indexes[slot];
+    }
+
+    /** Indexed and non-indexed children of a logical filter. */
+    private static final class Split {
+
+        RoaringBitmap indexed;
+        final List<Filter> residual = new ArrayList<>();
+    }
+
+    /**
+     * Computes the records matching a filter from the indexes, or {@code null} when the filter has no index
+     * support at all. Returned bitmaps may be shared with the indexes and must not be modified.
+     */
+    private final class Pushdown implements FilterVisitor<RoaringBitmap> {
+
+        private final int size;
+
+        Pushdown(int size) {
+            this.size = size;
+        }
+
+        /** Answers a single range from the sorted values alone, or returns {@code null}. */
+        Long cardinality(Filter filter) {
+            if (filter instanceof GreaterThanFilter) {
+                PropertyIndex index = index(((GreaterThanFilter) filter).getProperty());
+                if (index == null) {
+                    return 0L;
+                }
+                return index.isNumeric() ? (long) index.countGreaterThan(((GreaterThanFilter) filter).getValue()) : null;
+            }
+            if (filter instanceof LessThanFilter) {
+                PropertyIndex index = index(((LessThanFilter) filter).getProperty());
+                if (index == null) {
+                    return 0L;
+                }
+                return index.isNumeric() ? (long) index.countLessThan(((LessThanFilter) filter).getValue()) : null;
+            }
+            return null;
+        }
+
+        private PropertyIndex index(String property) {
+            int slot = getSchema().slotOf(property);
+            return slot == ResourceSchema.NO_SLOT ? null : IndexedResourceStore.this.index(slot);
+        }
+
+        Split split(List<Filter> filters) {
+            Split split = new Split();
+            for (Filter child : filters) {
+                RoaringBitmap records = child.accept(this);
+                if (records == null) {
+                    split.residual.add(child);
+                } else {
+                    split.indexed = split.indexed == null ? records : split.indexed.and(records);
+                }
+            }
+            return split;
+        }
+
+        /**
+         * Returns the records matching {@code residual} among {@code candidates}, among the records not in
+         * {@code candidates} if {@code skipCandidates}, or among every record if {@code candidates} is {@code null}.
+         */
+        RoaringBitmap scan(RoaringBitmap candidates, boolean skipCandidates, Filter residual) {
+            RoaringBitmap records = new RoaringBitmap();
+            BoundFilter bound = bind(residual);
+            StoredResource resource = cursor();
+            EvaluationContext context = new EvaluationContext();
+            int id = next(candidates, skipCandidates, 0);
+            while (id >= 0 && id < size) {
+                context.reset();
+                if (bound.matches(resource.moveTo(id), context)) {
+                    records.add(id);
+                }
+                id = next(candidates, skipCandidates, id + 1);
+            }
+            return records;
+        }
+
+        private int next(RoaringBitmap candidates, boolean skipCandidates, int from) {
+            if (candidates == null) {
+                return from;
+            }
+            return skipCandidates ? candidates.nextAbsentValue(from) : candidates.nextValue(from);
+        }
+
+        @Override
+        public RoaringBitmap visitTrue(TrueFilter filter) {
+            return RoaringBitmap.range(0, size);
+        }
+
+        @Override
+        public RoaringBitmap visitFalse(FalseFilter filter) {
+            return new RoaringBitmap();
+        }
+
+        @Override
+        public RoaringBitmap visitGreaterThan(GreaterThanFilter filter) {
+            PropertyIndex index = index(filter.getProperty());
+            if (index == null) {
+                return new RoaringBitmap();
+            }
+            return index.isNumeric() ? index.greaterThan(filter.getValue()) : null;
+        }
+
+        @Override
+        public RoaringBitmap visitLessThan(LessThanFilter filter) {
+            PropertyIndex index = index(filter.getProperty());
+            if (index == null) {
+                return new RoaringBitmap();
+            }
+            return index.isNumeric() ? index.lessThan(filter.getValue()) : null;
+        }
+
+        @Override
+        public RoaringBitmap visitEqualsTo(IsEqualFilter filter) {
+            PropertyIndex index = index(filter.getProperty());
+            return index == null ? new RoaringBitmap() : index.withCode(index.code(UtilsFilter.foldCase(filter.getValue())));
+        }
+
+        @Override
+        public RoaringBitmap visitIsPresent(IsPresentFilter filter) {
+            PropertyIndex index = index(filter.getProperty());
+            return index == null ? new RoaringBitmap() : index.present();
+        }
+
+        @Override
+        public RoaringBitmap visitMatchesExpression(MatchesExpressionFilter filter) {
+            return null;
+        }
+
+        @Override
+        public RoaringBitmap visitNot(NotFilter filter) {
+            RoaringBitmap records = filter.getFilter().accept(this);
+            return records == null ? null : RoaringBitmap.range(0, size).andNot(records);
+        }
+
+        @Override
+        public RoaringBitmap visitAnd(AndFilter filter) {
+            Split split = split(filter.getFilters());
+            if (split.indexed == null || split.residual.isEmpty()) {
+                return split.indexed;
+            }
+            return scan(split.indexed, false, FilterFactory.and(split.residual));
+        }
+
+        @Override
+        public RoaringBitmap visitOr(OrFilter filter) {
+            RoaringBitmap indexed = null;
+            List<Filter> residual = new ArrayList<>();
+            for (Filter child : filter.getFilters()) {
+                RoaringBitmap records = child.accept(this);
+                if (records == null) {
+                    residual.add(child);
+                } else {
+                    indexed = indexed == null ? records : indexed.or(records);
+                }
+            }
+            if (indexed == null || residual.isEmpty()) {
+                return indexed;
+            }
+            return indexed.or(scan(indexed, true, FilterFactory.or(residual)));
+        }
+
+        @Override
+        public RoaringBitmap visitOther(Filter filter) {
+            return null;
+        }
+    }
+
+    /** Binds equality leaves to dictionary codes and every other leaf to the schema. */
+    private final class Binder implements FilterVisitor<BoundFilter> {
+
+        private final ResourceSchema schema = getSchema();
+
+        @Override
+        public BoundFilter visitTrue(TrueFilter filter) {
+            return filter.bind(schema);
+        }
+
+        @Override
+        public BoundFilter visitFalse(FalseFilter filter) {
+            return filter.bind(schema);
+        }
+
+        @Override
+        public BoundFilter visitGreaterThan(GreaterThanFilter filter) {
+            return filter.bind(schema);
+        }
+
+        @Override
+        public BoundFilter visitLessThan(LessThanFilter filter) {
+            return filter.bind(schema);
+        }
+
+        @Override
+        public BoundFilter visitEqualsTo(IsEqualFilter filter) {
+            int slot = schema.slotOf(filter.getProperty());
+            int code = slot == ResourceSchema.NO_SLOT ? ValueDictionary.NO_CODE : index(slot).code(UtilsFilter.foldCase(filter.getValue()));
+            if (code == ValueDictionary.NO_CODE) {
+                return FalseFilter.getInstance().bind(schema);
+            }
+            int[] codes = index(slot).codes();
+            return (resource, context) -> codes[(int) ((StoredResource) resource).getId()] == code;
+        }
+
+        @Override
+        public BoundFilter visitIsPresent(IsPresentFilter filter) {
+            return filter.bind(schema);
+        }
+
+        @Override
+        public BoundFilter visitMatchesExpression(MatchesExpressionFilter filter) {
+            return filter.bind(schema);
+        }
+
+        @Override
+        public BoundFilter visitNot(NotFilter filter) {
+            BoundFilter bound = filter.getFilter().accept(this);
+            return (resource, context) -> !bound.matches(resource, context);
+        }
+
+        @Override
+        public BoundFilter visitAnd(AndFilter filter) {
+            BoundFilter[] bound = bindAll(filter.getFilters());
+            return (resource, context) -> {
+                for (BoundFilter child : bound) {
+                    if (!child.matches(resource, context)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+
+        @Override
+        public BoundFilter visitOr(OrFilter filter) {
+            BoundFilter[] bound = bindAll(filter.getEvaluatedFilters());
+            return (resource, context) -> {
+                for (BoundFilter child : bound) {
+                    if (child.matches(resource, context)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+
+        @Override
+        public BoundFilter visitOther(Filter filter) {
+            return filter.bind(schema);
+        }
+
+        private BoundFilter[] bindAll(List<Filter> filters) {
+            BoundFilter[] bound = new BoundFilter[filters.size()];
+            for (int i = 0; i < bound.length; i++) {
+                bound[i] = filters.get(i).accept(this);
+            }
+            return bound;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package handsoncode.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+import handsoncode.filter.AndFilter;
+import handsoncode.filter.EvaluationContext;
+import handsoncode.filter.FalseFilter;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterVisitor;
+import handsoncode.filter.GreaterThanFilter;
+import handsoncode.filter.IsEqualFilter;
+import handsoncode.filter.IsPresentFilter;
+import handsoncode.filter.LessThanFilter;
+import handsoncode.filter.MatchesExpressionFilter;
+import handsoncode.filter.NotFilter;
+import handsoncode.filter.OrFilter;
+import handsoncode.filter.TrueFilter;
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+import handsoncode.utils.UtilsFilter;
+
+/**
+ * {@code PartitionedResourceStore} is a {@link ResourceStore} that groups its records into blocks of consecutive
+ * ids and keeps a zone map of every block, so that scans skip the blocks that provably hold no match.
+ * <p>
+ * A zone map holds, for every property, the minimum and maximum of its numeric values, how many records hold it
+ * and a small Bloom filter of its values, ignoring case. From them, a scan decides per block whether
+ * {@link GreaterThanFilter}, {@link LessThanFilter}, {@link IsEqualFilter} and {@link IsPresentFilter} leaves may
+ * match, and whether they may fail, and combines the answers through {@code AND}, {@code OR} and {@code NOT}:
+ * a block whose records cannot match is skipped, a block whose records all match is reported without evaluating
+ * them, and the other blocks are scanned. Data appended in time order, filtered on narrow time ranges, thus only
+ * reads the few blocks of the range.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * PartitionedResourceStore store = new PartitionedResourceStore(ResourceSchema.of("time", "level"), 4096);
+ * events.forEach(store::add);
+ * long errors = store.count(FilterFactory.and(List.of(
+ *     FilterFactory.greaterThan("time", from), FilterFactory.lessThan("time", to),
+ *     FilterFactory.equalsTo("level", "error"))));
+ * int scanned = store.candidateBlocks(filter);  // blocks a scan evaluates
+ * }</pre>
+ *
+ * <p>A block holding a value that numeric comparisons reject is always scanned by filters comparing that property,
+ * so pruning never hides the exception a scan would throw. Adding is synchronized; scans snapshot the blocks under
+ * the lock and run alongside appends, evaluating every record of a block still filling up.</p>
+ */
+public class PartitionedResourceStore extends ResourceStore {
+
+    /** Default number of records of a block. */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private static final int MAY_MATCH = 1;
+    private static final int MAY_FAIL = 2;
+    private static final int MAY_THROW = 4;
+    private static final int UNKNOWN = MAY_MATCH | MAY_FAIL;
+
+    private final int blockSize;
+    private final int bloomBits;
+    private final List<ZoneMap> zones = new ArrayList<>();
+
+    /**
+     * Constructs an empty {@code PartitionedResourceStore} with the default block and chunk sizes.
+     *
+     * @param schema the properties records may hold (must not be {@code null}).
+     * @throws NullPointerException if {@code schema} is {@code null}.
+     * @throws IllegalArgumentException if the schema has more than 65535 properties.
+     */
+    public PartitionedResourceStore(ResourceSchema schema) {
+        this(schema, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs an empty {@code PartitionedResourceStore} with the default chunk size.
+     *
+     * @param schema the properties records may hold (must not be {@code null}).
+     * @param blockSize the number of records of a block (must be positive).
+     * @throws NullPointerException if {@code schema} is {@code null}.
+     * @throws IllegalArgumentException if the schema has more than 65535 properties or {@code blockSize} is not positive.
+     */
+    public PartitionedResourceStore(ResourceSchema schema, int blockSize) {
+        this(schema, blockSize, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs an empty {@code PartitionedResourceStore}.
+     *
+     * @param schema the properties records may hold (must not be {@code null}).
+     * @param blockSize the number of records of a block (must be positive).
+     * @param chunkSize the size in bytes of each direct buffer holding records; bounds the size of a record.
+     * @throws NullPointerException if {@code schema} is {@code null}.
+     * @throws IllegalArgumentException if the schema has more than 65535 properties, or {@code blockSize} or
+     *                                  {@code chunkSize} is not positive.
+     */
+    public PartitionedResourceStore(ResourceSchema schema, int blockSize, int chunkSize) {
+        super(schema, chunkSize);
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        this.blockSize = blockSize;
+        // About four bits per record and two hash functions, between 64 bits and 8 KiB per property and block.
+        int bits = (int) Math.max(64, Math.min(1 << 16, 4L * blockSize));
+        this.bloomBits = Integer.highestOneBit(bits - 1) << 1;
+    }
+
+    /**
+     * Appends a resource to the store and adds its values to the zone map of the last block.
+     *
+     * @param resource the resource to append (must not be {@code null}).
+     * @return the id of the new record, the ids being consecutive from {@code 0}.
+     * @throws NullPointerException if {@code resource} is {@code null}.
+     * @throws IllegalArgumentException if the resource has a property the schema does not declare,
+     *                                  or if the encoded record does not fit in a chunk.
+     */
+    @Override
+    public synchronized long add(Map<String, String> resource) {
+        long id = super.add(resource);
+        if (id % blockSize == 0) {
+            zones.add(new ZoneMap(getSchema().size(), bloomBits));
+        }
+        ZoneMap zone = zones.get(zones.size() - 1);
+        zone.addRecord();
+        ResourceSchema schema = getSchema();
+        for (Map.Entry<String, String> property : resource.entrySet()) {
+            if (property.getValue() != null) {
+                zone.add(schema.slotOf(property.getKey()), property.getValue());
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Calls {@code action} with the id of every record matching a filter, in id order, skipping the blocks that
+     * hold no match and reporting the blocks that only hold matches without evaluating their records.
+     * The blocks are taken under the lock of the store and scanned outside it, so that appends proceed meanwhile;
+     * the scan sees the records added before it started, and does not prune the last block if it was not full.
+     *
+     * @param filter the filter to evaluate (must not be {@code null}).
+     * @param action the action receiving the ids of the matching records (must not be {@code null}).
+     * @throws IllegalArgumentException if the filter cannot evaluate a record, see {@link Filter#matches(Map)}.
+     */
+    @Override
+    public void forEachMatch(Filter filter, LongConsumer action) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        Objects.requireNonNull(action, "action must not be null");
+        List<ZoneMap> blocks;
+        long records;
+        synchronized (this) {
+            blocks = new ArrayList<>(zones);
+            records = size();
+        }
+        BoundFilter bound = null;
+        StoredResource resource = null;
+        EvaluationContext context = null;
+        Pruner pruner = new Pruner(getSchema());
+        for (int block = 0; block < blocks.size(); block++) {
+            long first = (long) block * blockSize;
+            long end = Math.min(first + blockSize, records);
+            // The zone map of a block still filling up is being written by appends.
+            int outcome = end - first == blockSize ? pruner.outcome(filter, blocks.get(block)) : UNKNOWN;
+            if ((outcome & MAY_MATCH) == 0) {
+                continue;
+            }
+            if (outcome == MAY_MATCH) {
+                for (long id = first; id < end; id++) {
+                    action.accept(id);
+                }
+                continue;
+            }
+            if (bound == null) {
+                bound = bind(filter);
+                resource = cursor();
+                context = new EvaluationContext();
+            }
+            for (long id = first; id < end; id++) {
+                resource.moveTo(id);
+                context.reset();
+                if (bound.matches(resource, context)) {
+                    action.accept(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of blocks a scan for {@code filter} evaluates record by record: the blocks that neither
+     * provably hold no match nor provably hold only matches.
+     *
+     * @param filter the filter (must not be {@code null}).
+     * @return the number of blocks to scan.
+     * @throws NullPointerException if {@code filter} is {@code null}.
+     */
+    public synchronized int candidateBlocks(Filter filter) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        Pruner pruner = new Pruner(getSchema());
+        int candidates = 0;
+        for (ZoneMap zone : zones) {
+            int outcome = pruner.outcome(filter, zone);
+            if ((outcome & MAY_MATCH) != 0 && outcome != MAY_MATCH) {
+                candidates++;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the number of blocks of the store, the last one possibly partial.
+     *
+     * @return the number of blocks.
+     */
+    public synchronized int blockCount() {
+        return zones.size();
+    }
+
+    /**
+     * Returns the number of records of a block.
+     *
+     * @return the block size.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Releases the buffers and the zone maps of this store.
+     */
+    @Override
+    public synchronized void close() {
+        super.close();
+        zones.clear();
+    }
+
+    /**
+     * Computes what the records of a block may do for a filter, as a combination of {@link #MAY_MATCH},
+     * {@link #MAY_FAIL} and {@link #MAY_THROW}. Anything the zone map cannot decide may both match and fail.
+     */
+    private static final class Pruner implements FilterVisitor<Integer> {
+
+        private final ResourceSchema schema;
+        private ZoneMap zone;
+
+        Pruner(ResourceSchema schema) {
+            this.schema = schema;
+        }
+
+        int outcome(Filter filter, ZoneMap zone) {
+            this.zone = zone;
+            int outcome = filter.accept(this);
+            // A record that may throw is evaluated, whether or not an AND or OR would short-circuit before it.
+            return (outcome & MAY_THROW) != 0 ? UNKNOWN : outcome;
+        }
+
+        @Override
+        public Integer visitTrue(TrueFilter filter) {
+            return MAY_MATCH;
+        }
+
+        @Override
+        public Integer visitFalse(FalseFilter filter) {
+            return MAY_FAIL;
+        }
+
+        @Override
+        public Integer visitGreaterThan(GreaterThanFilter filter) {
+            int slot = schema.slotOf(filter.getProperty());
+            if (slot == ResourceSchema.NO_SLOT) {
+                return MAY_FAIL;
+            }
+            if (zone.nonNumeric(slot)) {
+                return UNKNOWN | MAY_THROW;
+            }
+            int outcome = zone.numeric(slot) > 0 && zone.max(slot) > filter.getValue() ? MAY_MATCH : 0;
+            if (zone.numeric(slot) < zone.records() || !(zone.min(slot) > filter.getValue())) {
+                outcome |= MAY_FAIL;
+            }
+            return outcome;
+        }
+
+        @Override
+        public Integer visitLessThan(LessThanFilter filter) {
+            int slot = schema.slotOf(filter.getProperty());
+            if (slot == ResourceSchema.NO_SLOT) {
+                return MAY_FAIL;
+            }
+            if (zone.nonNumeric(slot)) {
+                return UNKNOWN | MAY_THROW;
+            }
+            int outcome = zone.numeric(slot) > 0 && zone.min(slot) < filter.getValue() ? MAY_MATCH : 0;
+            if (zone.numeric(slot) < zone.records() || !(zone.max(slot) < filter.getValue())) {
+                outcome |= MAY_FAIL;
+            }
+            return outcome;
+        }
+
+        @Override
+        public Integer visitEqualsTo(IsEqualFilter filter) {
+            int slot = schema.slotOf(filter.getProperty());
+            if (slot == ResourceSchema.NO_SLOT || !zone.mightContain(slot, UtilsFilter.foldCase(filter.getValue()))) {
+                return MAY_FAIL;
+            }
+            return UNKNOWN;
+        }
+
+        @Override
+        public Integer visitIsPresent(IsPresentFilter filter) {
+            int slot = schema.slotOf(filter.getProperty());
+            if (slot == ResourceSchema.NO_SLOT || zone.nonBlank(slot) == 0) {
+                return MAY_FAIL;
+            }
+            return zone.nonBlank(slot) == zone.records() ? MAY_MATCH : UNKNOWN;
+        }
+
+        @Override
+        public Integer visitMatchesExpression(MatchesExpressionFilter filter) {
+            int slot = schema.slotOf(filter.getProperty());
+            if (slot == ResourceSchema.NO_SLOT || zone.present(slot) == 0) {
+                return MAY_FAIL;
+            }
+            return UNKNOWN;
+        }
+
+        @Override
+        public Integer visitNot(NotFilter filter) {
+            int outcome = filter.getFilter().accept(this);
+            return (outcome & MAY_THROW) | (outcome & MAY_MATCH) << 1 | (outcome & MAY_FAIL) >>> 1;
+        }
+
+        @Override
+        public Integer visitAnd(AndFilter filter) {
+            int outcome = MAY_MATCH;
+            for (Filter child : filter.getFilters()) {
+                int result = child.accept(this);
+                outcome = (outcome & result & MAY_MATCH) | ((outcome | result) & (MAY_FAIL | MAY_THROW));
+            }
+            return outcome;
+        }
+
+        @Override
+        public Integer visitOr(OrFilter filter) {
+            int outcome = MAY_FAIL;
+            for (Filter child : filter.getFilters()) {
+                int result = child.accept(this);
+                outcome = ((outcome | result) & (MAY_MATCH | MAY_THROW)) | (outcome & result & MAY_FAIL);
+            }
+            return outcome;
+        }
+
+        @Override
+        public Integer visitOther(Filter filter) {
+            return UNKNOWN | MAY_THROW;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package handsoncode.store;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import handsoncode.bitmap.RoaringBitmap;
+import handsoncode.utils.UtilsFilter;
+
+/**
+ * Indexes of one property of an {@link IndexedResourceStore}: the dictionary code of the case-folded value of
+ * every record, the records holding each code, the records holding a non-blank value, and the numeric values
+ * sorted with their record ids.
+ * <p>
+ * The sorted numeric arrays are rebuilt lazily, on the first range lookup after records were added.
+ * Values that do not parse as numbers (blank values included) are counted apart: a numeric comparison
+ * throws on them, so ranges over a property holding any of them are not answered from the index.
+ * </p>
+ */
+final class PropertyIndex {
+
+    private final ValueDictionary dictionary = new ValueDictionary();
+    private final List<RoaringBitmap> postings = new ArrayList<>();
+    private RoaringBitmap present = new RoaringBitmap();
+    private int[] codes = new int[16];
+    private int nonNumeric;
+
+    private double[] values = new double[16];
+    private int[] ids = new int[16];
+    private int numeric;
+    private int sorted;
+
+    /** Indexes the value of record {@code id}, which is {@code null} if the record lacks the property. */
+    void add(int id, String value) {
+        if (id == codes.length) {
+            codes = Arrays.copyOf(codes, id * 2);
+        }
+        if (value == null) {
+            codes[id] = ValueDictionary.NO_CODE;
+            return;
+        }
+        int code = dictionary.encode(UtilsFilter.foldCase(value));
+        if (code == postings.size()) {
+            postings.add(new RoaringBitmap());
+        }
+        postings.get(code).add(id);
+        codes[id] = code;
+        if (!value.isBlank()) {
+            present.add(id);
+        }
+        Double number = UtilsFilter.safeParseDouble(value);
+        if (number == null) {
+            nonNumeric++;
+        } else if (!number.isNaN()) {
+            if (numeric == values.length) {
+                values = Arrays.copyOf(values, numeric * 2);
+                ids = Arrays.copyOf(ids, numeric * 2);
+            }
+            values[numeric] = number;
+            ids[numeric] = id;
+            numeric++;
+        }
+    }
+
+    /** Returns the dictionary code of {@code folded}, or {@link ValueDictionary#NO_CODE} if no record holds it. */
+    int code(String folded) {
+        return dictionary.lookup(folded);
+    }
+
+    /**
+     * Returns the dictionary codes by record id, {@link ValueDictionary#NO_CODE} for an absent value. A scan may
+     * read them without the store lock: later additions write past the current records or into a new array,
+     * never over the codes already held.
+     */
+    int[] codes() {
+        return codes;
+    }
+
+    /** Records holding the value of {@code code}; must not be modified. */
+    RoaringBitmap withCode(int code) {
+        return code == ValueDictionary.NO_CODE ? new RoaringBitmap() : postings.get(code);
+    }
+
+    /** Records with a non-blank value; must not be modified. */
+    RoaringBitmap present() {
+        return present;
+    }
+
+    /** Checks whether numeric comparisons can be answered from the sorted values. */
+    boolean isNumeric() {
+        return nonNumeric == 0;
+    }
+
+    /** Number of records whose value is greater than {@code value}. */
+    int countGreaterThan(double value) {
+        sort();
+        return numeric - upperBound(value);
+    }
+
+    /** Number of records whose value is less than {@code value}. */
+    int countLessThan(double value) {
+        sort();
+        return lowerBound(value);
+    }
+
+    RoaringBitmap greaterThan(double value) {
+        sort();
+        return records(upperBound(value), numeric);
+    }
+
+    RoaringBitmap lessThan(double value) {
+        sort();
+        return records(0, lowerBound(value));
+    }
+
+    /** Writes the indexes of the first {@code records} records, see {@link #readFrom(DataInput)}. */
+    void writeTo(DataOutput out, int records) throws IOException {
+        sort();
+        out.writeInt(dictionary.size());
+        for (int code = 0; code < dictionary.size(); code++) {
+            StoreFile.writeString(out, dictionary.decode(code));
+            postings.get(code).writeTo(out);
+        }
+        present.writeTo(out);
+        out.writeInt(records);
+        for (int id = 0; id < records; id++) {
+            out.writeInt(codes[id]);
+        }
+        out.writeInt(nonNumeric);
+        out.writeInt(numeric);
+        for (int i = 0; i < numeric; i++) {
+            out.writeDouble(values[i]);
+            out.writeInt(ids[i]);
+        }
+    }
+
+    /** Reads indexes written by {@link #writeTo(DataOutput, int)}. */
+    static PropertyIndex readFrom(DataInput in) throws IOException {
+        PropertyIndex index = new PropertyIndex();
+        int codes = in.readInt();
+        for (int code = 0; code < codes; code++) {
+            index.dictionary.encode(StoreFile.readString(in));
+            index.postings.add(RoaringBitmap.readFrom(in));
+        }
+        index.present = RoaringBitmap.readFrom(in);
+        int records = in.readInt();
+        index.codes = new int[Math.max(16, records)];
+        for (int id = 0; id < records; id++) {
+            index.codes[id] = in.readInt();
+        }
+        index.nonNumeric = in.readInt();
+        index.numeric = in.readInt();
+        index.values = new double[Math.max(16, index.numeric)];
+        index.ids = new int[index.values.length];
+        for (int i = 0; i < index.numeric; i++) {
+            index.values[i] = in.readDouble();
+            index.ids[i] = in.readInt();
+        }
+        index.sorted = index.numeric;
+        return index;
+    }
+
+    /** Records of the sorted values from {@code from} to {@code to}, added in id order. */
+    private RoaringBitmap records(int from, int to) {
+        int[] range = Arrays.copyOfRange(ids, from, to);
+        Arrays.sort(range);
+        RoaringBitmap records = new RoaringBitmap();
+        for (int id : range) {
+            records.add(id);
+        }
+        return records;
+    }
+
+    /** Index of the first sorted value greater than {@code value}. */
+    private int upperBound(double value) {
+        int low = 0;
+        int high = numeric;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] > value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /** Index of the first sorted value not less than {@code value}. */
+    private int lowerBound(double value) {
+        int low = 0;
+        int high = numeric;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void sort() {
+        if (sorted != numeric) {
+            sort(0, numeric - 1);
+            sorted = numeric;
+        }
+    }
+
+    /** Quicksort of {@link #values} carrying {@link #ids} along, recursing on the smaller side. */
+    private void sort(int low, int high) {
+        while (high - low > 16) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < values[low]) {
+                swap(middle, low);
+            }
+            if (values[high] < values[low]) {
+                swap(high, low);
+            }
+            if (values[high] < values[middle]) {
+                swap(high, middle);
+            }
+            double pivot = values[middle];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && values[j] < values[j - 1]; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+}
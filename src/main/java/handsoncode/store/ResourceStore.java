@@ -0,0 +1,321 @@
+package handsoncode.store;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+import handsoncode.filter.EvaluationContext;
+import handsoncode.filter.Filter;
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+
+/**
+ * {@code ResourceStore} keeps resources off the Java heap, in direct {@link ByteBuffer} chunks, so that
+ * very large datasets can be filtered with a small heap and without long garbage collection pauses.
+ * <p>
+ * Property names are dictionary-encoded by the slots of the store's {@link ResourceSchema}: a record
+ * only holds the slots and UTF-8 bytes of its present properties. Record positions are kept off-heap too.
+ * Any {@link Filter} is evaluated by binding it to the schema and running it over a {@link StoredResource},
+ * a flyweight view that is moved from record to record and, for the library filters, compares values
+ * directly on the stored bytes.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * ResourceStore store = new ResourceStore(ResourceSchema.of("firstname", "age"));
+ * store.add(Map.of("firstname", "Joe", "age", "35"));
+ * store.add(Map.of("firstname", "John", "age", "25"));
+ *
+ * long count = store.count(FilterFactory.greaterThan("age", 30));  // 1
+ * }</pre>
+ *
+ * <p>Record layout: an unsigned 16-bit field count, then for every present property its unsigned 16-bit slot and
+ * the 32-bit end offset of its value relative to the record start, sorted by slot, then the concatenated values.</p>
+ *
+ * <p>Appends are synchronized; scans may run concurrently with appends and see the records added before they started.</p>
+ */
+public class ResourceStore implements AutoCloseable {
+
+    /** Default size in bytes of the direct buffers holding records. */
+    public static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+
+    static final int INDEX_CHUNK_SHIFT = 20;
+    static final int INDEX_CHUNK_MASK = (1 << INDEX_CHUNK_SHIFT) - 1;
+    static final int MAX_SLOTS = 0xFFFF;
+
+    private final ResourceSchema schema;
+    private final int chunkSize;
+
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private volatile LongBuffer[] index = new LongBuffer[0];
+    private volatile long size;
+    private int position;
+    private int[] used = new int[0];
+
+    /**
+     * Constructs an empty {@code ResourceStore} with the default chunk size.
+     *
+     * @param schema the properties records may hold (must not be {@code null}).
+     * @throws NullPointerException if {@code schema} is {@code null}.
+     * @throws IllegalArgumentException if the schema has more than 65535 properties.
+     */
+    public ResourceStore(ResourceSchema schema) {
+        this(schema, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs an empty {@code ResourceStore}.
+     *
+     * @param schema the properties records may hold (must not be {@code null}).
+     * @param chunkSize the size in bytes of each direct buffer holding records; bounds the size of a record.
+     * @throws NullPointerException if {@code schema} is {@code null}.
+     * @throws IllegalArgumentException if the schema has more than 65535 properties or {@code chunkSize} is not positive.
+     */
+    public ResourceStore(ResourceSchema schema, int chunkSize) {
+        this.schema = Objects.requireNonNull(schema, "schema must not be null");
+        if (schema.size() > MAX_SLOTS) {
+            throw new IllegalArgumentException("A store supports at most " + MAX_SLOTS + " properties, but found: " + schema.size());
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive, but found: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Constructs a store over existing record buffers, such as read-only buffers mapped from a file.
+     * Records appended later go to new chunks; a read-only index chunk is copied before it is written.
+     */
+    ResourceStore(ResourceSchema schema, int chunkSize, ByteBuffer[] chunks, int[] used, LongBuffer[] index, long size) {
+        this(schema, chunkSize);
+        this.chunks = chunks;
+        this.used = used;
+        this.index = index;
+        this.size = size;
+        this.position = chunks.length == 0 ? 0 : used[chunks.length - 1];
+    }
+
+    /**
+     * Appends a resource. Properties with a {@code null} value are not stored.
+     *
+     * @param resource the resource to append (must not be {@code null}).
+     * @return the id of the new record, the ids being consecutive from {@code 0}.
+     * @throws NullPointerException if {@code resource} is {@code null}.
+     * @throws IllegalArgumentException if the resource has a property the schema does not declare,
+     *                                  or if the encoded record does not fit in a chunk.
+     */
+    public synchronized long add(Map<String, String> resource) {
+        Objects.requireNonNull(resource, "resource must not be null");
+        for (String property : resource.keySet()) {
+            if (schema.slotOf(property) == ResourceSchema.NO_SLOT) {
+                throw new IllegalArgumentException("Property '" + property + "' is not part of the store schema");
+            }
+        }
+
+        int fields = 0;
+        byte[][] values = new byte[schema.size()][];
+        int recordSize = 2;
+        for (int slot = 0; slot < values.length; slot++) {
+            String value = resource.get(schema.propertyAt(slot));
+            if (value != null) {
+                values[slot] = value.getBytes(StandardCharsets.UTF_8);
+                recordSize += 6 + values[slot].length;
+                fields++;
+            }
+        }
+        if (recordSize > chunkSize) {
+            throw new IllegalArgumentException("Record of " + recordSize + " bytes does not fit in a chunk of " + chunkSize + " bytes");
+        }
+
+        ByteBuffer[] currentChunks = chunks;
+        if (currentChunks.length == 0 || position + recordSize > chunkSize || currentChunks[currentChunks.length - 1].isReadOnly()) {
+            used = Arrays.copyOf(used, currentChunks.length + 1);
+            if (currentChunks.length > 0) {
+                used[currentChunks.length - 1] = position;
+            }
+            currentChunks = Arrays.copyOf(currentChunks, currentChunks.length + 1);
+            currentChunks[currentChunks.length - 1] = ByteBuffer.allocateDirect(chunkSize);
+            chunks = currentChunks;
+            position = 0;
+        }
+        ByteBuffer chunk = currentChunks[currentChunks.length - 1];
+
+        int header = position;
+        int end = 2 + 6 * fields;
+        chunk.putShort(header, (short) fields);
+        header += 2;
+        for (int slot = 0; slot < values.length; slot++) {
+            byte[] value = values[slot];
+            if (value != null) {
+                chunk.put(position + end, value);
+                end += value.length;
+                chunk.putShort(header, (short) slot);
+                chunk.putInt(header + 2, end);
+                header += 6;
+            }
+        }
+
+        long id = size;
+        indexChunk(id).put((int) (id & INDEX_CHUNK_MASK), ((long) (currentChunks.length - 1) << 32) | position);
+        position += end;
+        size = id + 1;
+        return id;
+    }
+
+    private LongBuffer indexChunk(long id) {
+        int chunk = (int) (id >>> INDEX_CHUNK_SHIFT);
+        LongBuffer[] currentIndex = index;
+        if (chunk == currentIndex.length) {
+            currentIndex = Arrays.copyOf(currentIndex, chunk + 1);
+            currentIndex[chunk] = ByteBuffer.allocateDirect(8 << INDEX_CHUNK_SHIFT).asLongBuffer();
+            index = currentIndex;
+        } else if (currentIndex[chunk].isReadOnly()) {
+            LongBuffer copy = ByteBuffer.allocateDirect(8 << INDEX_CHUNK_SHIFT).asLongBuffer();
+            copy.put(currentIndex[chunk].duplicate().clear());
+            currentIndex = currentIndex.clone();
+            currentIndex[chunk] = copy;
+            index = currentIndex;
+        }
+        return currentIndex[chunk];
+    }
+
+    /**
+     * Returns the number of records in the store.
+     *
+     * @return the number of records.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the schema dictionary-encoding the property names of the records.
+     *
+     * @return the schema of the store.
+     */
+    public ResourceSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns the number of off-heap bytes reserved by the store, for records and their positions.
+     *
+     * @return the reserved off-heap memory in bytes.
+     */
+    public long getReservedBytes() {
+        return (long) chunks.length * chunkSize + ((long) index.length << (INDEX_CHUNK_SHIFT + 3));
+    }
+
+    /**
+     * Creates a flyweight view over the records of this store. A view is not thread-safe:
+     * use one per scanning thread.
+     *
+     * @return a new {@link StoredResource}, not positioned on any record.
+     */
+    public StoredResource cursor() {
+        return new StoredResource(this);
+    }
+
+    /**
+     * Copies a record back to the heap.
+     *
+     * @param id the id of the record.
+     * @return a new {@code Map} holding the properties of the record.
+     * @throws IndexOutOfBoundsException if {@code id} is not the id of a record.
+     */
+    public Map<String, String> get(long id) {
+        return new HashMap<>(cursor().moveTo(id).asMap());
+    }
+
+    /**
+     * Counts the records matching a filter.
+     *
+     * @param filter the filter to evaluate (must not be {@code null}).
+     * @return the number of matching records.
+     * @throws IllegalArgumentException if the filter cannot evaluate a record, see {@link Filter#matches(Map)}.
+     */
+    public long count(Filter filter) {
+        long[] count = new long[1];
+        forEachMatch(filter, id -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Calls {@code action} with the id of every record matching a filter, in id order.
+     *
+     * @param filter the filter to evaluate (must not be {@code null}).
+     * @param action the action receiving the ids of the matching records (must not be {@code null}).
+     * @throws IllegalArgumentException if the filter cannot evaluate a record, see {@link Filter#matches(Map)}.
+     */
+    public void forEachMatch(Filter filter, LongConsumer action) {
+        Objects.requireNonNull(filter, "filter must not be null");
+        Objects.requireNonNull(action, "action must not be null");
+        scan(bind(filter), size, action);
+    }
+
+    /** Calls {@code action} with the id of every record below {@code records} that {@code bound} matches. */
+    void scan(BoundFilter bound, long records, LongConsumer action) {
+        StoredResource resource = cursor();
+        EvaluationContext context = new EvaluationContext();
+        for (long id = 0; id < records; id++) {
+            resource.moveTo(id);
+            context.reset();
+            if (bound.matches(resource, context)) {
+                action.accept(id);
+            }
+        }
+    }
+
+    /**
+     * Binds a filter for the evaluation over the cursors of this store. The default binds it to the schema,
+     * see {@link Filter#bind(ResourceSchema)}.
+     *
+     * @param filter the filter to bind.
+     * @return a bound filter accepting the {@link StoredResource}s of this store.
+     */
+    protected BoundFilter bind(Filter filter) {
+        return filter.bind(schema);
+    }
+
+    /**
+     * Releases the buffers of this store. Direct memory is returned once the buffers are garbage collected;
+     * cursors created before closing must not be used anymore.
+     */
+    @Override
+    public synchronized void close() {
+        chunks = new ByteBuffer[0];
+        index = new LongBuffer[0];
+        used = new int[0];
+        size = 0;
+        position = 0;
+    }
+
+    ByteBuffer chunk(int chunk) {
+        return chunks[chunk];
+    }
+
+    int chunkCount() {
+        return chunks.length;
+    }
+
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    /** Number of bytes holding records at the start of chunk {@code chunk}; call while holding the lock. */
+    int usedBytes(int chunk) {
+        return chunk == chunks.length - 1 ? position : used[chunk];
+    }
+
+    long location(long id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Record " + id + " does not exist, size is " + size);
+        }
+        return index[(int) (id >>> INDEX_CHUNK_SHIFT)].get((int) (id & INDEX_CHUNK_MASK));
+    }
+}
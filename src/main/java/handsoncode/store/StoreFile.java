@@ -0,0 +1,288 @@
+package handsoncode.store;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import handsoncode.resource.ResourceSchema;
+import handsoncode.stats.ResourceStatistics;
+
+/**
+ * On-disk format of an {@link IndexedResourceStore}, and the open file of a store reopened from it.
+ * <p>
+ * Layout, big-endian: the magic number, the format version and the offset of the footer; the used bytes of every
+ * record chunk, 8-byte aligned, in the in-memory record layout of {@link ResourceStore}; the record positions, one
+ * {@code long} per record as in memory; one section per property with its {@link PropertyIndex}; the
+ * {@link ResourceStatistics}; and the footer, holding the chunk size, the schema, the number of records and the
+ * offset and length of every section.
+ * </p>
+ * <p>
+ * Reopening maps the record chunks and positions read-only, so records are paged in by the operating system as
+ * they are visited, and reads the footer only. The indexes of a property are read from their section on first use.
+ * The file stays open until the store is closed.
+ * </p>
+ */
+final class StoreFile implements AutoCloseable {
+
+    /** {@code "FLST"}. */
+    static final int MAGIC = 0x464C5354;
+
+    /** Version of the format written by {@link #write(IndexedResourceStore, Path)}. */
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 16;
+    private static final int INDEX_REGION = 1 << ResourceStore.INDEX_CHUNK_SHIFT;
+    private static final int WINDOW = 1 << 30;
+
+    private final FileChannel channel;
+    private final long[] sections;
+    private final long statisticsOffset;
+    private final long statisticsLength;
+    private final long size;
+
+    private StoreFile(FileChannel channel, long[] sections, long statisticsOffset, long statisticsLength, long size) {
+        this.channel = channel;
+        this.sections = sections;
+        this.statisticsOffset = statisticsOffset;
+        this.statisticsLength = statisticsLength;
+        this.size = size;
+    }
+
+    /**
+     * Writes a store to a temporary file next to {@code file}, then moves it over {@code file}, so that a crash
+     * never leaves a partial file behind. The caller holds the lock of the store.
+     */
+    static void write(IndexedResourceStore store, Path file, PropertyIndex[] indexes, ResourceStatistics statistics) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(0);
+
+            int chunks = store.chunkCount();
+            long[] chunkOffsets = new long[chunks];
+            int[] chunkLengths = new int[chunks];
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                chunkOffsets[chunk] = align(out, channel);
+                chunkLengths[chunk] = store.usedBytes(chunk);
+                ByteBuffer bytes = store.chunk(chunk).duplicate();
+                bytes.clear().limit(chunkLengths[chunk]);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+
+            long records = store.size();
+            long positionsOffset = align(out, channel);
+            for (long id = 0; id < records; id++) {
+                out.writeLong(store.location(id));
+            }
+
+            long[] sections = new long[2 * indexes.length];
+            for (int slot = 0; slot < indexes.length; slot++) {
+                sections[2 * slot] = align(out, channel);
+                indexes[slot].writeTo(out, (int) records);
+                sections[2 * slot + 1] = position(out, channel) - sections[2 * slot];
+            }
+            long statisticsOffset = position(out, channel);
+            statistics.writeTo(out);
+            long statisticsLength = position(out, channel) - statisticsOffset;
+
+            long footer = position(out, channel);
+            ResourceSchema schema = store.getSchema();
+            out.writeInt(store.chunkSize());
+            out.writeInt(schema.size());
+            for (String property : schema.getProperties()) {
+                writeString(out, property);
+            }
+            out.writeLong(records);
+            out.writeInt(chunks);
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                out.writeLong(chunkOffsets[chunk]);
+                out.writeInt(chunkLengths[chunk]);
+            }
+            out.writeLong(positionsOffset);
+            for (long section : sections) {
+                out.writeLong(section);
+            }
+            out.writeLong(statisticsOffset);
+            out.writeLong(statisticsLength);
+            out.flush();
+
+            ByteBuffer footerOffset = ByteBuffer.allocate(8).putLong(0, footer);
+            while (footerOffset.hasRemaining()) {
+                channel.write(footerOffset, 8 + footerOffset.position());
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Reopens a store written by {@link #write(IndexedResourceStore, Path, PropertyIndex[], ResourceStatistics)}. */
+    static IndexedResourceStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Read the whole header.
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a store file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported store file version " + header.getInt(4) + " in " + file + ", expected " + VERSION);
+            }
+            long footer = header.getLong(8);
+            if (footer < HEADER_BYTES || footer >= channel.size()) {
+                throw new IOException(file + " is incomplete");
+            }
+
+            DataInput in = new DataInputStream(new MappedInput(channel, footer, channel.size() - footer));
+            int chunkSize = in.readInt();
+            int properties = in.readInt();
+            List<String> names = new ArrayList<>(properties);
+            for (int slot = 0; slot < properties; slot++) {
+                names.add(readString(in));
+            }
+            ResourceSchema schema = new ResourceSchema(names);
+            long size = in.readLong();
+            int chunkCount = in.readInt();
+            ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+            int[] used = new int[chunkCount];
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                long offset = in.readLong();
+                used[chunk] = in.readInt();
+                chunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, offset, used[chunk]);
+            }
+            long positionsOffset = in.readLong();
+            LongBuffer[] index = new LongBuffer[(int) ((size + INDEX_REGION - 1) / INDEX_REGION)];
+            for (int region = 0; region < index.length; region++) {
+                long ids = Math.min(INDEX_REGION, size - (long) region * INDEX_REGION);
+                index[region] = channel.map(FileChannel.MapMode.READ_ONLY, positionsOffset + 8L * region * INDEX_REGION, 8 * ids)
+                    .asLongBuffer();
+            }
+            long[] sections = new long[2 * properties];
+            for (int i = 0; i < sections.length; i++) {
+                sections[i] = in.readLong();
+            }
+            long statisticsOffset = in.readLong();
+            long statisticsLength = in.readLong();
+            StoreFile source = new StoreFile(channel, sections, statisticsOffset, statisticsLength, size);
+            return new IndexedResourceStore(schema, chunkSize, chunks, used, index, size, source);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Number of records in the file. */
+    long size() {
+        return size;
+    }
+
+    /** Reads the indexes of the property of {@code slot}. */
+    PropertyIndex readIndex(int slot) throws IOException {
+        return PropertyIndex.readFrom(new DataInputStream(new MappedInput(channel, sections[2 * slot], sections[2 * slot + 1])));
+    }
+
+    ResourceStatistics readStatistics() throws IOException {
+        return ResourceStatistics.readFrom(new DataInputStream(new MappedInput(channel, statisticsOffset, statisticsLength)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** Writes a string of any length, unlike {@link DataOutput#writeUTF(String)}. */
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long position(DataOutputStream out, FileChannel channel) throws IOException {
+        out.flush();
+        return channel.position();
+    }
+
+    /** Pads the file to a multiple of 8 bytes and returns the new position. */
+    private static long align(DataOutputStream out, FileChannel channel) throws IOException {
+        long position = position(out, channel);
+        while (position % 8 != 0) {
+            out.writeByte(0);
+            position++;
+        }
+        return position(out, channel);
+    }
+
+    /** Reads a section of the file through read-only mappings of at most {@link #WINDOW} bytes. */
+    private static final class MappedInput extends InputStream {
+
+        private final FileChannel channel;
+        private long offset;
+        private long remaining;
+        private ByteBuffer window = ByteBuffer.allocate(0);
+
+        MappedInput(FileChannel channel, long offset, long length) {
+            this.channel = channel;
+            this.offset = offset;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return window.hasRemaining() || next() ? window.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int from, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!window.hasRemaining() && !next()) {
+                return -1;
+            }
+            int count = Math.min(length, window.remaining());
+            window.get(bytes, from, count);
+            return count;
+        }
+
+        private boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            int length = (int) Math.min(WINDOW, remaining);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            offset += length;
+            remaining -= length;
+            return true;
+        }
+    }
+}
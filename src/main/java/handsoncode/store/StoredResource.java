@@ -0,0 +1,236 @@
+package handsoncode.store;
+
+import java.nio.ByteBuffer;
+
+import handsoncode.filter.EvaluationContext;
+import handsoncode.resource.Resource;
+import handsoncode.resource.ResourceSchema;
+import handsoncode.utils.UtilsFilter;
+
+/**
+ * {@code StoredResource} is a flyweight {@link Resource} view over the records of a {@link ResourceStore}.
+ * <p>
+ * A single instance is moved from record to record with {@link #moveTo(long)}. The checks performed by
+ * bound library filters ({@link #contains(int)}, {@link #isPresent(int)}, {@link #equalsIgnoreCase(int, String)},
+ * {@link #numericValue(int, EvaluationContext)} and {@link #getText(int)}) decode values into a reusable buffer
+ * and do not allocate; only {@link #get(int)} materializes a {@link String}.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * StoredResource resource = store.cursor();
+ * BoundFilter bound = FilterFactory.equalsTo("role", "administrator").bind(store.getSchema());
+ * for (long id = 0; id < store.size(); id++) {
+ *     boolean result = bound.matches(resource.moveTo(id));
+ * }
+ * }</pre>
+ *
+ * <p>A view is not thread-safe, and the sequence returned by {@link #getText(int)} is only valid until the next call.</p>
+ */
+public final class StoredResource implements Resource {
+
+    private final ResourceStore store;
+    private final ResourceSchema schema;
+    private final Text text = new Text();
+
+    private ByteBuffer chunk;
+    private int base;
+    private int fields;
+    private long id = -1;
+
+    private char[] chars = new char[64];
+    private int length;
+
+    StoredResource(ResourceStore store) {
+        this.store = store;
+        this.schema = store.getSchema();
+    }
+
+    /**
+     * Positions this view on a record.
+     *
+     * @param id the id of the record.
+     * @return this view.
+     * @throws IndexOutOfBoundsException if {@code id} is not the id of a record.
+     */
+    public StoredResource moveTo(long id) {
+        long location = store.location(id);
+        this.chunk = store.chunk((int) (location >>> 32));
+        this.base = (int) location;
+        this.fields = chunk.getShort(base) & 0xFFFF;
+        this.id = id;
+        return this;
+    }
+
+    /**
+     * Returns the id of the record this view is positioned on.
+     *
+     * @return the record id, or {@code -1} if the view was never positioned.
+     */
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public ResourceSchema getSchema() {
+        return schema;
+    }
+
+    @Override
+    public String get(int slot) {
+        return decode(slot) ? new String(chars, 0, length) : null;
+    }
+
+    @Override
+    public boolean contains(int slot) {
+        return find(slot) >= 0;
+    }
+
+    @Override
+    public boolean isPresent(int slot) {
+        if (!decode(slot)) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!Character.isWhitespace(chars[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the property to {@code value} with the semantics of {@link String#equalsIgnoreCase(String)}.
+     * Differing surrogates, which {@code equalsIgnoreCase} compares as code points, are left to it on the
+     * materialized value.
+     */
+    @Override
+    public boolean equalsIgnoreCase(int slot, String value) {
+        if (!decode(slot) || length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c1 = chars[i];
+            char c2 = value.charAt(i);
+            if (c1 != c2) {
+                if (Character.isSurrogate(c1) || Character.isSurrogate(c2)) {
+                    return new String(chars, 0, length).equalsIgnoreCase(value);
+                }
+                char u1 = Character.toUpperCase(c1);
+                char u2 = Character.toUpperCase(c2);
+                if (u1 != u2 && Character.toLowerCase(u1) != Character.toLowerCase(u2)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses plain decimal values in place with {@link UtilsFilter#parseExactDecimal(CharSequence)}, exactly and
+     * without allocation; any other form is delegated to {@code context}.
+     */
+    @Override
+    public double numericValue(int slot, EvaluationContext context) {
+        if (decode(slot)) {
+            double value = UtilsFilter.parseExactDecimal(text);
+            if (!Double.isNaN(value)) {
+                return value;
+            }
+        }
+        return context.numericValue(schema.propertyAt(slot), get(slot));
+    }
+
+    @Override
+    public CharSequence getText(int slot) {
+        return decode(slot) ? text : null;
+    }
+
+    /**
+     * Returns a string representation of the record this view is positioned on.
+     *
+     * @return a string representation of the {@code StoredResource}.
+     */
+    @Override
+    public String toString() {
+        return "#" + id + " " + asMap();
+    }
+
+    /** Returns the header entry of {@code slot} in the current record, or {@code -1} if the property is absent. */
+    private int find(int slot) {
+        int low = 0;
+        int high = fields - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int candidate = chunk.getShort(base + 2 + 6 * middle) & 0xFFFF;
+            if (candidate < slot) {
+                low = middle + 1;
+            } else if (candidate > slot) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /** Decodes the UTF-8 value of {@code slot} into {@link #chars}; returns {@code false} if the property is absent. */
+    private boolean decode(int slot) {
+        int entry = find(slot);
+        if (entry < 0) {
+            return false;
+        }
+        int from = base + (entry == 0 ? 2 + 6 * fields : chunk.getInt(base + 2 + 6 * entry - 4));
+        int to = base + chunk.getInt(base + 2 + 6 * entry + 2);
+        if (chars.length < to - from) {
+            chars = new char[Math.max(to - from, chars.length * 2)];
+        }
+
+        int count = 0;
+        int position = from;
+        while (position < to) {
+            int b = chunk.get(position++);
+            if (b >= 0) {
+                chars[count++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | (chunk.get(position++) & 0x3F));
+            } else if ((b & 0xF0) == 0xE0) {
+                chars[count++] = (char) (((b & 0x0F) << 12) | ((chunk.get(position++) & 0x3F) << 6) | (chunk.get(position++) & 0x3F));
+            } else {
+                int codePoint = ((b & 0x07) << 18) | ((chunk.get(position++) & 0x3F) << 12)
+                    | ((chunk.get(position++) & 0x3F) << 6) | (chunk.get(position++) & 0x3F);
+                chars[count++] = Character.highSurrogate(codePoint);
+                chars[count++] = Character.lowSurrogate(codePoint);
+            }
+        }
+        length = count;
+        return true;
+    }
+
+    /** Reusable view over the decoded value. */
+    private final class Text implements CharSequence {
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+}
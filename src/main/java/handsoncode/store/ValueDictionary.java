@@ -0,0 +1,45 @@
+package handsoncode.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary of the distinct case-folded values of one property, assigning them consecutive {@code int} codes
+ * in order of first appearance.
+ */
+final class ValueDictionary {
+
+    /** Code of a value the dictionary does not hold, and of an absent property. */
+    static final int NO_CODE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /** Returns the code of {@code folded}, assigning the next code if it is new. */
+    int encode(String folded) {
+        Integer code = codes.get(folded);
+        if (code == null) {
+            code = values.size();
+            codes.put(folded, code);
+            values.add(folded);
+        }
+        return code;
+    }
+
+    /** Returns the code of {@code folded}, or {@link #NO_CODE} if the dictionary does not hold it. */
+    int lookup(String folded) {
+        Integer code = codes.get(folded);
+        return code == null ? NO_CODE : code;
+    }
+
+    /** Returns the folded value of {@code code}. */
+    String decode(int code) {
+        return values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+}
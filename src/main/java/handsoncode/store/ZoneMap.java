@@ -0,0 +1,126 @@
+package handsoncode.store;
+
+import java.util.Arrays;
+
+import handsoncode.utils.UtilsFilter;
+
+/**
+ * Summary of the values of a block of consecutive records, per slot: the number of records holding a value, a
+ * non-blank value and a number, the range of the numbers, whether a value is not a number, and a Bloom filter of
+ * the case-folded values. Summaries only grow, so they stay valid, if less precise, for every record they saw.
+ */
+final class ZoneMap {
+
+    private static final int BLOOM_HASHES = 2;
+
+    private final int bloomMask;
+    private final int[] present;
+    private final int[] nonBlank;
+    private final int[] numeric;
+    private final boolean[] nonNumeric;
+    private final double[] min;
+    private final double[] max;
+    private final long[][] blooms;
+    private int records;
+
+    /**
+     * @param slots the number of slots of the schema.
+     * @param bloomBits the number of bits of each Bloom filter, a power of two.
+     */
+    ZoneMap(int slots, int bloomBits) {
+        this.bloomMask = bloomBits - 1;
+        this.present = new int[slots];
+        this.nonBlank = new int[slots];
+        this.numeric = new int[slots];
+        this.nonNumeric = new boolean[slots];
+        this.min = new double[slots];
+        this.max = new double[slots];
+        this.blooms = new long[slots][];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+    }
+
+    /** Counts a new record of the block; its values are then added with {@link #add(int, String)}. */
+    void addRecord() {
+        records++;
+    }
+
+    void add(int slot, String value) {
+        present[slot]++;
+        if (!value.isBlank()) {
+            nonBlank[slot]++;
+        }
+        try {
+            double number = UtilsFilter.parseDouble(value);
+            // NaN is never greater nor less than a threshold: it is counted as a record that is not in range.
+            if (!Double.isNaN(number)) {
+                numeric[slot]++;
+                min[slot] = Math.min(min[slot], number);
+                max[slot] = Math.max(max[slot], number);
+            }
+        } catch (NumberFormatException e) {
+            nonNumeric[slot] = true;
+        }
+        if (blooms[slot] == null) {
+            blooms[slot] = new long[(bloomMask + 1) >>> 6];
+        }
+        long hash = hash(UtilsFilter.foldCase(value));
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (int) (hash + i * (hash >>> 32)) & bloomMask;
+            blooms[slot][bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    int records() {
+        return records;
+    }
+
+    int present(int slot) {
+        return present[slot];
+    }
+
+    int nonBlank(int slot) {
+        return nonBlank[slot];
+    }
+
+    int numeric(int slot) {
+        return numeric[slot];
+    }
+
+    /** Whether a record holds a value of the slot that numeric comparisons reject. */
+    boolean nonNumeric(int slot) {
+        return nonNumeric[slot];
+    }
+
+    double min(int slot) {
+        return min[slot];
+    }
+
+    double max(int slot) {
+        return max[slot];
+    }
+
+    /** Whether a record may hold a value of the slot equal to {@code folded}, a case-folded value. */
+    boolean mightContain(int slot, String folded) {
+        long[] bloom = blooms[slot];
+        if (bloom == null) {
+            return false;
+        }
+        long hash = hash(folded);
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (int) (hash + i * (hash >>> 32)) & bloomMask;
+            if ((bloom[bit >>> 6] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Spreads the hash code of a value over 64 bits, whose halves serve as the two Bloom hash functions. */
+    private static long hash(String value) {
+        long hash = value.hashCode() * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 29;
+        hash *= 0xBF58476D1CE4E5B9L;
+        return hash ^ hash >>> 32;
+    }
+}
@@ -0,0 +1,95 @@
+package handsoncode.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * {@code StripedWeakCache} caches a value computed from each key instance, without keeping the keys alive.
+ * <p>
+ * Entries are spread by {@link System#identityHashCode(Object)} over weakly keyed maps, each under its own lock, so
+ * that threads looking up different keys rarely contend. Values are computed outside any lock: two threads missing
+ * the same key may both compute it, and the last one stores its value. It is meant for values derived from immutable
+ * keys, such as analyses of filter trees.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * StripedWeakCache<Filter, String> identities = new StripedWeakCache<>();
+ * String identity = identities.get(filter, Filter::toString);  // computed once per filter instance
+ * }</pre>
+ *
+ * <p>Instances are thread-safe.</p>
+ *
+ * @param <K> the type of the keys, compared with {@link Object#equals(Object)}.
+ * @param <V> the type of the cached values.
+ */
+public final class StripedWeakCache<K, V> {
+
+    private static final int STRIPES = 16;
+
+    private final List<Map<K, V>> stripes = new ArrayList<>(STRIPES);
+
+    /**
+     * Constructs an empty {@code StripedWeakCache}.
+     */
+    public StripedWeakCache() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.add(new WeakHashMap<>());
+        }
+    }
+
+    private Map<K, V> stripe(K key) {
+        return stripes.get(System.identityHashCode(key) & (STRIPES - 1));
+    }
+
+    /**
+     * Returns the value cached for a key.
+     *
+     * @param key the key (must not be {@code null}).
+     * @return the cached value, or {@code null} if there is none.
+     * @throws NullPointerException if {@code key} is {@code null}.
+     */
+    public V get(K key) {
+        Map<K, V> stripe = stripe(Objects.requireNonNull(key, "key must not be null"));
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    /**
+     * Returns the value cached for a key, computing and caching it first if there is none.
+     *
+     * @param key the key (must not be {@code null}).
+     * @param compute computes the value of a key, outside any lock (must not be {@code null} nor return {@code null}).
+     * @return the cached value.
+     * @throws NullPointerException if {@code key} or {@code compute} is {@code null}.
+     */
+    public V get(K key, Function<? super K, ? extends V> compute) {
+        Objects.requireNonNull(compute, "compute must not be null");
+        V value = get(key);
+        if (value == null) {
+            value = compute.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Caches the value of a key, replacing any previous one.
+     *
+     * @param key the key (must not be {@code null}).
+     * @param value the value (must not be {@code null}).
+     * @throws NullPointerException if {@code key} or {@code value} is {@code null}.
+     */
+    public void put(K key, V value) {
+        Map<K, V> stripe = stripe(Objects.requireNonNull(key, "key must not be null"));
+        Objects.requireNonNull(value, "value must not be null");
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+}
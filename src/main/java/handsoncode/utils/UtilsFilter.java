@@ -38,10 +38,151 @@ public final class UtilsFilter {
      */
     public static Double safeParseDouble(String value) {
         try {
-            return Double.parseDouble(value);
+            return parseDouble(value);
         } catch (NumberFormatException | NullPointerException e) {
             return null;
         }
     }
 
+    /**
+     * Parses the value of a numeric property into a primitive double, without boxing.
+     * <p>
+     * This is the parsing step shared by the numeric comparison filters: unlike {@link #safeParseDouble(String)}
+     * it reports an invalid value by throwing, with a message naming the offending property.
+     * </p>
+     *
+     * Example Usage:
+     * <pre>{@code
+     * double age = UtilsFilter.parseNumericProperty("age", "35");  // Returns 35.0
+     * UtilsFilter.parseNumericProperty("age", "abc");               // Throws IllegalArgumentException
+     * }</pre>
+     *
+     * @param property The name of the property being parsed, used in the error message.
+     * @param value The string value to parse (may be {@code null}).
+     * @return The parsed value.
+     * @throws IllegalArgumentException if {@code value} is {@code null} or not a valid number.
+     */
+    public static double parseNumericProperty(String property, String value) {
+        try {
+            return parseDouble(value);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException("Property '" + property + "' must be a valid integer, but found: '" + value + "'");
+        }
+    }
+
+    /** The powers of ten represented exactly by a double. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Parses a string into a double exactly as {@link Double#parseDouble(String)} does, without allocating
+     * for plain decimals.
+     * <p>
+     * Plain decimals are converted by {@link #parseExactDecimal(CharSequence)}. Any other string, including
+     * exponents, surrounding whitespace, suffixes and invalid values, is handed to {@code Double.parseDouble}.
+     * </p>
+     *
+     * Example Usage:
+     * <pre>{@code
+     * double height = UtilsFilter.parseDouble("1.70");  // Returns 1.7
+     * }</pre>
+     *
+     * @param value The string value to parse (must not be {@code null}).
+     * @return The parsed value.
+     * @throws NumberFormatException if {@code value} is not a valid number.
+     * @throws NullPointerException if {@code value} is {@code null}.
+     */
+    public static double parseDouble(String value) {
+        double result = parseExactDecimal(value);
+        return Double.isNaN(result) ? Double.parseDouble(value) : result;
+    }
+
+    /**
+     * Parses a plain decimal exactly as {@link Double#parseDouble(String)} does, without allocating, or returns
+     * {@link Double#NaN} if the value is not a plain decimal.
+     * <p>
+     * Values made of an optional sign, at most 18 significant digits and an optional decimal point, whose digits
+     * fit in 53 bits and have at most 22 decimals, are converted by a single exact operation on doubles, which is
+     * correctly rounded. The value is read through {@link CharSequence#charAt(int)}, so that decoded buffers are
+     * parsed in place.
+     * </p>
+     *
+     * Example Usage:
+     * <pre>{@code
+     * double height = UtilsFilter.parseExactDecimal("1.70");   // Returns 1.7
+     * double other = UtilsFilter.parseExactDecimal("1.7e0");   // Returns NaN: not a plain decimal
+     * }</pre>
+     *
+     * @param value The characters to parse (must not be {@code null}).
+     * @return The parsed value, or {@code NaN} if {@code value} is not a plain decimal.
+     * @throws NullPointerException if {@code value} is {@code null}.
+     */
+    public static double parseExactDecimal(CharSequence value) {
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            i++;
+        }
+        long digits = 0;
+        int significant = 0;
+        int decimals = 0;
+        boolean anyDigit = false;
+        boolean point = false;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                if (point) {
+                    decimals++;
+                }
+                if (digits == 0 && c == '0') {
+                    continue;
+                }
+                if (++significant > 18) {
+                    return Double.NaN;
+                }
+                digits = digits * 10 + (c - '0');
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (!anyDigit || digits > 1L << 53 || decimals >= POWERS_OF_TEN.length) {
+            return Double.NaN;
+        }
+        double result = decimals == 0 ? digits : digits / POWERS_OF_TEN[decimals];
+        return negative ? -result : result;
+    }
+
+    /**
+     * Folds the case of a string so that two strings are {@link String#equalsIgnoreCase(String) equal ignoring case}
+     * exactly when their folded forms are {@link String#equals(Object) equal}.
+     * <p>
+     * Every code point is mapped to the lower case of its upper case, which is the comparison
+     * {@code equalsIgnoreCase} performs code point by code point, surrogate pairs included.
+     * </p>
+     *
+     * Example Usage:
+     * <pre>{@code
+     * String folded = UtilsFilter.foldCase("Bloggs");  // Returns "bloggs"
+     * }</pre>
+     *
+     * @param value The string to fold (must not be {@code null}).
+     * @return The folded string.
+     */
+    public static String foldCase(String value) {
+        StringBuilder folded = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = value.codePointAt(i);
+            folded.appendCodePoint(Character.toLowerCase(Character.toUpperCase(codePoint)));
+            i += Character.charCount(codePoint);
+        }
+        return folded.toString();
+    }
+
 }
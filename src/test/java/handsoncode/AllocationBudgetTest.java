@@ -0,0 +1,155 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import handsoncode.filter.EvaluationContext;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.utils.UtilsFilter;
+
+/**
+ * Fails when evaluating a filter allocates more than its budget, measured with
+ * {@code com.sun.management.ThreadMXBean.getThreadAllocatedBytes} once the JIT has compiled the path.
+ * Every path is run in rounds until it is within budget, so that a slow compilation does not fail the test.
+ */
+public class AllocationBudgetTest {
+
+    private static final int CALLS = 20_000;
+    private static final int MAX_ROUNDS = 100;
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** Matchers allocated by regular expressions: the Matcher object and its group arrays. */
+    private static final int PATTERN_BUDGET = 512;
+
+    private static final Map<String, String> RESOURCE = new HashMap<>(Map.of(
+        "age", "35", "height", "1.70", "role", "Administrator", "name", "Joe Bloggs", "empty", " "));
+
+    private static boolean sink;
+
+    @BeforeClass
+    public static void checkSupport(){
+        Assume.assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /** The least number of bytes allocated per call over a round, across the rounds run. */
+    private static double allocatedPerCall(Filter filter, EvaluationContext context, double budget) {
+        long thread = Thread.currentThread().getId();
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < MAX_ROUNDS && best > budget; round++) {
+            long before = THREADS.getThreadAllocatedBytes(thread);
+            if (context == null) {
+                for (int i = 0; i < CALLS; i++) {
+                    sink ^= filter.matches(RESOURCE);
+                }
+            } else {
+                for (int i = 0; i < CALLS; i++) {
+                    context.reset();
+                    sink ^= filter.matches(RESOURCE, context);
+                }
+            }
+            best = Math.min(best, (THREADS.getThreadAllocatedBytes(thread) - before) / (double) CALLS);
+        }
+        return best;
+    }
+
+    private static void assertBudget(Map<String, Filter> filters, double budget) {
+        // The measuring loop takes bytes of a fixed overhead, far below one byte per call.
+        double perCall = Math.max(budget, 1);
+        EvaluationContext context = new EvaluationContext();
+        for (Map.Entry<String, Filter> filter : filters.entrySet()) {
+            double allocated = allocatedPerCall(filter.getValue(), null, perCall);
+            assertTrue(filter.getKey() + " allocates " + allocated + " bytes per matches(Map)", allocated < perCall);
+            allocated = allocatedPerCall(filter.getValue(), context, perCall);
+            assertTrue(filter.getKey() + " allocates " + allocated + " bytes per matches(Map, EvaluationContext)", allocated < perCall);
+        }
+    }
+
+    @Test
+    public void testLeavesDoNotAllocate(){
+        Map<String, Filter> filters = new LinkedHashMap<>();
+        filters.put("GreaterThan", FilterFactory.greaterThan("age", 18));
+        filters.put("GreaterThan decimal", FilterFactory.greaterThan("height", 1.5));
+        filters.put("GreaterThan missing", FilterFactory.greaterThan("weight", 1.5));
+        filters.put("LessThan", FilterFactory.lessThan("age", 18));
+        filters.put("LessThan decimal", FilterFactory.lessThan("height", 1.5));
+        filters.put("EqualsTo", FilterFactory.equalsTo("role", "administrator"));
+        filters.put("EqualsTo missing", FilterFactory.equalsTo("team", "core"));
+        filters.put("isPresent", FilterFactory.isPresent("name"));
+        filters.put("isPresent blank", FilterFactory.isPresent("empty"));
+        filters.put("TrueFilter", FilterFactory.trueFilter());
+        filters.put("FalseFilter", FilterFactory.falseFilter());
+        assertBudget(filters, 0);
+    }
+
+    @Test
+    public void testLogicalFiltersDoNotAllocate(){
+        Filter adult = FilterFactory.greaterThan("age", 18);
+        Filter admin = FilterFactory.equalsTo("role", "administrator");
+        Filter named = FilterFactory.isPresent("name");
+        Map<String, Filter> filters = new LinkedHashMap<>();
+        filters.put("NOT", FilterFactory.not(admin));
+        filters.put("AND", FilterFactory.and(List.of(adult, admin, named)));
+        filters.put("AND short-circuit", FilterFactory.and(List.of(FilterFactory.falseFilter(), adult)));
+        filters.put("OR", FilterFactory.or(List.of(FilterFactory.not(named), FilterFactory.lessThan("age", 18), admin)));
+        filters.put("OR short-circuit", FilterFactory.or(List.of(FilterFactory.trueFilter(), adult)));
+        filters.put("nested tree", FilterFactory.and(List.of(
+            FilterFactory.or(List.of(FilterFactory.lessThan("height", 1.2), FilterFactory.not(FilterFactory.lessThan("age", 30)))),
+            FilterFactory.not(FilterFactory.or(List.of(FilterFactory.equalsTo("role", "guest"), FilterFactory.isPresent("banned")))),
+            FilterFactory.and(List.of(adult, FilterFactory.greaterThan("age", 20), FilterFactory.lessThan("age", 40))))));
+        assertBudget(filters, 0);
+    }
+
+    @Test
+    public void testPatternsStayWithinBudget(){
+        Map<String, Filter> filters = new LinkedHashMap<>();
+        filters.put("MatchesExpression", FilterFactory.matchesExpression("name", "Blo+gs$"));
+        filters.put("OR of patterns", FilterFactory.or(List.of(
+            FilterFactory.matchesExpression("name", "^Jane"), FilterFactory.matchesExpression("name", "Bloggs$"))));
+        filters.put("AND with pattern", FilterFactory.and(List.of(
+            FilterFactory.greaterThan("age", 18), FilterFactory.matchesExpression("role", "admin"))));
+        assertBudget(filters, PATTERN_BUDGET);
+    }
+
+    @Test
+    public void testParseDoubleMatchesJdk(){
+        List<String> values = new ArrayList<>(List.of(
+            "0", "-0", "+0", "00012", "1.70", ".5", "5.", "-12.250", "123456789012345678", "1234567890123456789",
+            "9007199254740993", "0.1", "0.30000000000000004", "1e3", " 7 ", "7d", "Infinity", "NaN", "0x10p0",
+            "3.14159265358979323846", "0.0000000000000000000001", "0.00000000000000000000001", "179769313486231570"));
+        Random random = new Random(9);
+        for (int i = 0; i < 10_000; i++) {
+            values.add(String.valueOf(random.nextInt(1_000_000)) + "." + random.nextInt(1_000_000));
+            values.add(String.valueOf(random.nextLong() % 1_000_000_000_000L / Math.pow(10, random.nextInt(12))));
+        }
+        for (String value : values) {
+            assertEquals(value, Double.doubleToRawLongBits(Double.parseDouble(value)), Double.doubleToRawLongBits(UtilsFilter.parseDouble(value)));
+            double exact = UtilsFilter.parseExactDecimal(new StringBuilder(value));
+            assertTrue(value, Double.isNaN(exact) || Double.doubleToRawLongBits(exact) == Double.doubleToRawLongBits(Double.parseDouble(value)));
+        }
+        assertEquals(1.7, UtilsFilter.parseExactDecimal("1.70"), 0);
+        assertTrue(Double.isNaN(UtilsFilter.parseExactDecimal("1e3")));
+        for (String invalid : new String[] {"", "-", "+", ".", "1.2.3", "1,5", "abc", "--1", "1-"}) {
+            try {
+                UtilsFilter.parseDouble(invalid);
+                fail("Expected a NumberFormatException for '" + invalid + "'");
+            } catch (NumberFormatException e) {
+                // Expected.
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package handsoncode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import handsoncode.column.ColumnKernels;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+
+public class ColumnKernelsTest {
+
+    private static final int[] SIZES = {0, 1, 3, 63, 64, 65, 127, 1000, 4099};
+
+    private static double[] column(Random random, int rows) {
+        double[] column = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            int kind = random.nextInt(20);
+            column[i] = kind == 0 ? Double.NaN : kind == 1 ? Double.POSITIVE_INFINITY : kind == 2 ? -0.0 : random.nextInt(100) - 10;
+        }
+        return column;
+    }
+
+    private static long[] expected(double[] column, java.util.function.DoublePredicate predicate) {
+        long[] mask = new long[ColumnKernels.words(column.length)];
+        for (int i = 0; i < column.length; i++) {
+            if (predicate.test(column[i])) {
+                mask[i / 64] |= 1L << (i % 64);
+            }
+        }
+        return mask;
+    }
+
+    @Test
+    public void testImplementation(){
+        assertEquals(Boolean.getBoolean("handsoncode.column.expectVectorized"), ColumnKernels.isVectorized());
+    }
+
+    @Test
+    public void testComparisonsMatchScalarLoops(){
+        Random random = new Random(3);
+        for (int rows : SIZES) {
+            double[] column = column(random, rows);
+            for (double threshold : new double[] {-20, 0, 17, 17.5, 89, 1000, Double.NaN}) {
+                assertArrayEquals(expected(column, v -> v > threshold), ColumnKernels.greaterThan(column, threshold));
+                assertArrayEquals(expected(column, v -> v < threshold), ColumnKernels.lessThan(column, threshold));
+                assertArrayEquals(expected(column, v -> v > threshold && v < threshold + 30), ColumnKernels.between(column, threshold, threshold + 30));
+            }
+            assertArrayEquals(expected(column, v -> !Double.isNaN(v)), ColumnKernels.present(column));
+        }
+    }
+
+    @Test
+    public void testBitmaskCombinations(){
+        Random random = new Random(4);
+        for (int rows : SIZES) {
+            double[] column = column(random, rows);
+            long[] above = ColumnKernels.greaterThan(column, 30);
+            long[] below = ColumnKernels.lessThan(column, 60);
+            assertArrayEquals(expected(column, v -> v > 30 && v < 60), ColumnKernels.and(above, below));
+            assertArrayEquals(expected(column, v -> v > 30 || v < 60), ColumnKernels.or(above, below));
+            assertArrayEquals(expected(column, v -> !(v > 30)), ColumnKernels.not(above, rows));
+            assertEquals(column.length - ColumnKernels.cardinality(above), ColumnKernels.cardinality(ColumnKernels.not(above, rows)));
+        }
+        try {
+            ColumnKernels.and(new long[1], new long[2]);
+            fail("Bitmasks of different lengths must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+        try {
+            ColumnKernels.not(new long[1], 65);
+            fail("A bitmask too short for its rows must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    private static final RandomFilters FILTERS = new RandomFilters(3, 4, random -> {
+        String property = random.nextBoolean() ? "age" : "score";
+        switch (random.nextInt(5)) {
+            case 0:
+            case 1:
+                return FilterFactory.greaterThan(property, random.nextInt(100) - 10);
+            case 2:
+            case 3:
+                return FilterFactory.lessThan(property, random.nextInt(100) - 10);
+            default:
+                return random.nextBoolean() ? FilterFactory.isPresent(property) : FilterFactory.trueFilter();
+        }
+    });
+
+    @Test
+    public void testEvaluateMatchesFilters(){
+        Random random = new Random(5);
+        int rows = 300;
+        Map<String, double[]> columns = Map.of("age", column(random, rows), "score", column(random, rows));
+        List<Map<String, String>> resources = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            Map<String, String> resource = new HashMap<>();
+            for (Map.Entry<String, double[]> column : columns.entrySet()) {
+                double value = column.getValue()[i];
+                if (!Double.isNaN(value)) {
+                    resource.put(column.getKey(), String.valueOf(value));
+                }
+            }
+            resources.add(resource);
+        }
+        for (int i = 0; i < 300; i++) {
+            Filter filter = FILTERS.filter(random, 4);
+            long[] mask = ColumnKernels.evaluate(filter, columns, rows);
+            for (int row = 0; row < rows; row++) {
+                boolean selected = (mask[row / 64] & 1L << (row % 64)) != 0;
+                assertEquals(filter + " on row " + row, filter.matches(resources.get(row)), selected);
+            }
+        }
+    }
+
+    @Test
+    public void testEvaluateRejectsUnsupportedFilters(){
+        Map<String, double[]> columns = Map.of("age", new double[] {1, 2});
+        Filter[] unsupported = {
+            FilterFactory.equalsTo("age", "1"),
+            FilterFactory.matchesExpression("age", "1"),
+            FilterFactory.greaterThan("missing", 1),
+        };
+        for (Filter filter : unsupported) {
+            try {
+                ColumnKernels.evaluate(filter, columns, 2);
+                fail("Expected an IllegalArgumentException for " + filter);
+            } catch (IllegalArgumentException e) {
+                // Expected.
+            }
+        }
+        try {
+            ColumnKernels.evaluate(FilterFactory.lessThan("age", 1), columns, 3);
+            fail("A column of the wrong length must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.query.ContinuousQueryEngine;
+import handsoncode.query.MatchDelta;
+
+public class ContinuousQueryTest {
+
+    @Test
+    public void testMatchSetsFollowUpserts(){
+
+        ContinuousQueryEngine engine = new ContinuousQueryEngine();
+        List<MatchDelta> deltas = new ArrayList<>();
+        engine.addListener(deltas::add);
+
+        engine.upsert("joe", TestData.getUserAge35());
+        engine.register("olderThan30", FilterFactory.greaterThan("age", 30));
+        engine.register("admins", FilterFactory.equalsTo("role", "administrator"));
+        engine.upsert("john", TestData.getUserAge25());
+
+        assertEquals(Set.of("joe"), engine.getMatches("olderThan30"));
+        assertEquals(Set.of("joe", "john"), engine.getMatches("admins"));
+        assertEquals(List.of(
+            new MatchDelta("olderThan30", "joe", MatchDelta.Type.ADDED),
+            new MatchDelta("admins", "joe", MatchDelta.Type.ADDED),
+            new MatchDelta("admins", "john", MatchDelta.Type.ADDED)), deltas);
+
+        deltas.clear();
+        Map<String, String> olderJohn = new HashMap<>(TestData.getUserAge25());
+        olderJohn.put("age", "40");
+        engine.upsert("john", olderJohn);
+
+        assertEquals(List.of(new MatchDelta("olderThan30", "john", MatchDelta.Type.ADDED)), deltas);
+
+        deltas.clear();
+        engine.remove("joe");
+
+        assertEquals(Set.of("john"), engine.getMatches("olderThan30"));
+        assertEquals(2, deltas.size());
+    }
+
+    @Test
+    public void testOnlyFiltersReadingChangedPropertiesAreEvaluated(){
+
+        int[] evaluations = new int[1];
+        Filter counting = resource -> {
+            evaluations[0]++;
+            return true;
+        };
+
+        ContinuousQueryEngine engine = new ContinuousQueryEngine();
+        engine.register("roleCheck", FilterFactory.and(List.of(FilterFactory.isPresent("role"), counting)));
+        engine.register("ageCheck", FilterFactory.lessThan("age", 30));
+
+        engine.upsert("john", TestData.getUserAge25());
+        assertEquals(1, evaluations[0]);
+
+        // The custom filter makes "roleCheck" unindexed: it is re-evaluated on every change.
+        Map<String, String> updated = new HashMap<>(TestData.getUserAge25());
+        updated.put("age", "26");
+        engine.upsert("john", updated);
+        assertEquals(2, evaluations[0]);
+
+        engine.unregister("roleCheck");
+        engine.register("nameCheck", FilterFactory.not(FilterFactory.matchesExpression("firstname", "^jo")));
+        updated.put("age", "45");
+        engine.upsert("john", updated);
+
+        assertEquals(Set.of(), engine.getMatches("ageCheck"));
+        assertEquals(Set.of(), engine.getMatches("nameCheck"));
+        assertTrue(engine.getFilterIds().containsAll(Set.of("ageCheck", "nameCheck")));
+    }
+
+    @Test
+    public void testFailedUpsertLeavesEngineUnchanged(){
+
+        ContinuousQueryEngine engine = new ContinuousQueryEngine();
+        engine.register("olderThan30", FilterFactory.greaterThan("age", 30));
+        engine.upsert("joe", TestData.getUserAge35());
+
+        Map<String, String> broken = new HashMap<>(TestData.getUserAge35());
+        broken.put("age", "unknown");
+        try {
+            engine.upsert("joe", broken);
+        } catch (IllegalArgumentException e) {
+            assertEquals(TestData.getUserAge35(), engine.getResource("joe"));
+            assertEquals(Set.of("joe"), engine.getMatches("olderThan30"));
+            return;
+        }
+        throw new AssertionError("Expected IllegalArgumentException");
+    }
+}
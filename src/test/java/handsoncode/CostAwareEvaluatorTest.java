@@ -0,0 +1,161 @@
+package handsoncode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.query.CostAwareEvaluator;
+import handsoncode.resource.LazyResource;
+import handsoncode.resource.PropertySource;
+import handsoncode.resource.ResourceSchema;
+
+public class CostAwareEvaluatorTest {
+
+    private static final ResourceSchema SCHEMA = ResourceSchema.of("age", "role", "name", "body");
+
+    /** A source over a map, recording the slots it loads; the body is expensive to load. */
+    private static final class RecordingSource implements PropertySource {
+
+        final Map<String, String> values;
+        final List<Integer> loads = new ArrayList<>();
+        int batches;
+
+        RecordingSource(Map<String, String> values) {
+            this.values = values;
+        }
+
+        @Override
+        public ResourceSchema getSchema() {
+            return SCHEMA;
+        }
+
+        @Override
+        public String load(int slot) {
+            loads.add(slot);
+            return values.get(SCHEMA.propertyAt(slot));
+        }
+
+        @Override
+        public double cost(int slot) {
+            return SCHEMA.propertyAt(slot).equals("body") ? 1_000 : 50;
+        }
+
+        @Override
+        public String[] loadAll(int[] slots) {
+            batches++;
+            return PropertySource.super.loadAll(slots);
+        }
+    }
+
+    private static final RandomFilters FILTERS = new RandomFilters(4, 4, random -> {
+        switch (random.nextInt(6)) {
+            case 0:
+                return FilterFactory.greaterThan("age", random.nextInt(100));
+            case 1:
+                return FilterFactory.lessThan("age", random.nextInt(100));
+            case 2:
+                return FilterFactory.equalsTo("role", random.nextBoolean() ? "admin" : "user");
+            case 3:
+                return FilterFactory.isPresent(random.nextBoolean() ? "role" : "body");
+            case 4:
+                return FilterFactory.matchesExpression(random.nextBoolean() ? "name" : "body", random.nextInt(10) + "$");
+            default:
+                return random.nextBoolean() ? FilterFactory.trueFilter() : FilterFactory.falseFilter();
+        }
+    });
+
+    @Test
+    public void testResultsMatchFilters(){
+        Random random = new Random(50);
+        List<Map<String, String>> resources = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Map<String, String> resource = new HashMap<>();
+            resource.put("age", String.valueOf(random.nextInt(100)));
+            resource.put("name", "user" + i);
+            if (random.nextBoolean()) {
+                resource.put("role", random.nextBoolean() ? "Admin" : "user");
+            }
+            if (random.nextBoolean()) {
+                resource.put("body", "text " + random.nextInt(100));
+            }
+            resources.add(resource);
+        }
+        for (int i = 0; i < 300; i++) {
+            Filter filter = FILTERS.filter(random, 4);
+            CostAwareEvaluator evaluator = CostAwareEvaluator.compile(filter, SCHEMA);
+            for (Map<String, String> resource : resources) {
+                LazyResource lazy = new LazyResource(new RecordingSource(resource));
+                if (i % 2 == 0) {
+                    evaluator.prefetch(lazy);
+                }
+                assertEquals(filter.toString(), filter.matches(resource), evaluator.matches(lazy));
+            }
+        }
+    }
+
+    @Test
+    public void testCheapAndLoadedChildrenRunFirst(){
+        Filter filter = FilterFactory.and(List.of(
+            FilterFactory.matchesExpression("body", "urgent"), FilterFactory.equalsTo("role", "admin")));
+        CostAwareEvaluator evaluator = CostAwareEvaluator.compile(filter, SCHEMA);
+
+        RecordingSource user = new RecordingSource(Map.of("role", "user", "body", "urgent"));
+        assertFalse(evaluator.matches(new LazyResource(user)));
+        assertEquals(List.of(SCHEMA.slotOf("role")), user.loads);
+
+        RecordingSource admin = new RecordingSource(Map.of("role", "admin", "body", "urgent"));
+        assertTrue(evaluator.matches(new LazyResource(admin)));
+        assertEquals(List.of(SCHEMA.slotOf("role"), SCHEMA.slotOf("body")), admin.loads);
+
+        // Once the body is loaded, the pattern is cheaper than fetching the role and fails first.
+        RecordingSource loaded = new RecordingSource(Map.of("role", "admin", "body", "routine"));
+        LazyResource resource = new LazyResource(loaded);
+        resource.get(SCHEMA.slotOf("body"));
+        assertFalse(evaluator.matches(resource));
+        assertEquals(List.of(SCHEMA.slotOf("body")), loaded.loads);
+        assertEquals(1, resource.getFetchCount());
+    }
+
+    @Test
+    public void testFirstSlotsArePrefetchedInOneBatch() throws Exception {
+        Filter adult = FilterFactory.and(List.of(FilterFactory.greaterThan("age", 17), FilterFactory.lessThan("age", 65)));
+        Filter filter = FilterFactory.and(List.of(FilterFactory.or(List.of(FilterFactory.equalsTo("role", "admin"),
+            FilterFactory.and(List.of(FilterFactory.isPresent("role"), FilterFactory.matchesExpression("name", "^J"))))), adult));
+        CostAwareEvaluator evaluator = CostAwareEvaluator.compile(filter, SCHEMA);
+        assertArrayEquals(new int[] {0}, CostAwareEvaluator.compile(adult, SCHEMA).getRequiredSlots());
+        assertArrayEquals(new int[0], evaluator.getRequiredSlots());
+        assertArrayEquals(new int[] {0, 1, 2}, evaluator.getReferencedSlots());
+
+        // The age range is cheaper than the OR, which reads the role and may read the name.
+        RecordingSource source = new RecordingSource(Map.of("age", "40", "role", "Admin", "name", "Joe"));
+        LazyResource resource = new LazyResource(source);
+        evaluator.prefetch(resource);
+        assertEquals(1, source.batches);
+        assertTrue(resource.isLoaded(0) && !resource.isLoaded(1) && !resource.isLoaded(2));
+        assertTrue(evaluator.matches(resource));
+        assertEquals(List.of(0, 1), source.loads);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RecordingSource async = new RecordingSource(Map.of("age", "70", "role", "admin"));
+            assertFalse(evaluator.matchesAsync(new LazyResource(async), executor).get());
+            assertEquals(1, async.batches);
+            assertEquals(List.of(0), async.loads);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
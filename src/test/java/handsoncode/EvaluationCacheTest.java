@@ -0,0 +1,253 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import handsoncode.cache.CacheStatistics;
+import handsoncode.cache.EvaluationCache;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+
+public class EvaluationCacheTest {
+
+    /** A filter counting its evaluations. */
+    private static Filter counting(Filter filter, AtomicInteger evaluations) {
+        return FilterFactory.and(List.of(filter, FilterFactory.not(FilterFactory.not(resource -> {
+            evaluations.incrementAndGet();
+            return true;
+        }))));
+    }
+
+    @Test
+    public void testResultsAreCachedPerVersion(){
+        AtomicInteger evaluations = new AtomicInteger();
+        Filter filter = counting(FilterFactory.greaterThan("age", 17), evaluations);
+        EvaluationCache cache = new EvaluationCache(100, Duration.ofMinutes(1));
+
+        assertTrue(cache.matches(filter, "joe", 1, Map.of("age", "35")));
+        assertTrue(cache.matches(filter, "joe", 1, Map.of("age", "35")));
+        assertEquals(1, evaluations.get());
+
+        assertFalse(cache.matches(filter, "joe", 2, Map.of("age", "15")));
+        assertFalse(cache.matches(filter, "joe", 2, Map.of("age", "15")));
+        assertTrue(cache.matches(filter, "ann", 2, Map.of("age", "40")));
+        assertEquals(2, cache.size());
+
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(2, statistics.getHitCount());
+        assertEquals(3, statistics.getMissCount());
+        assertEquals(0.4, statistics.getHitRate(), 1e-9);
+        assertEquals(2, statistics.getSize());
+    }
+
+    @Test
+    public void testEquivalentFiltersShareResults(){
+        Filter adult = FilterFactory.greaterThan("age", 17);
+        Filter admin = FilterFactory.equalsTo("role", "admin");
+        Filter active = FilterFactory.isPresent("active");
+        Filter first = FilterFactory.and(List.of(adult, FilterFactory.and(List.of(admin, active))));
+        Filter second = FilterFactory.and(List.of(adult, FilterFactory.not(FilterFactory.not(admin)), active, adult));
+        Filter third = FilterFactory.or(List.of(FilterFactory.and(List.of(adult, admin, active))));
+        EvaluationCache cache = new EvaluationCache(100, Duration.ofMinutes(1));
+
+        assertEquals(cache.identity(first), cache.identity(second));
+        assertEquals(cache.identity(first), cache.identity(third));
+        assertNotEquals(cache.identity(first), cache.identity(FilterFactory.or(List.of(adult, admin, active))));
+        assertNotEquals(cache.identity(first), cache.identity(FilterFactory.and(List.of(admin, adult, active))));
+        assertNotEquals(cache.identity(admin), cache.identity(FilterFactory.not(admin)));
+
+        Map<String, String> resource = Map.of("age", "30", "role", "admin", "active", "yes");
+        assertTrue(cache.matches(first, "joe", 1, resource));
+        assertTrue(cache.matches(second, "joe", 1, resource));
+        assertEquals(1, cache.getStatistics().getHitCount());
+    }
+
+    @Test
+    public void testEntriesExpire(){
+        AtomicLong now = new AtomicLong();
+        AtomicInteger evaluations = new AtomicInteger();
+        Filter filter = counting(FilterFactory.trueFilter(), evaluations);
+        EvaluationCache cache = new EvaluationCache(100, Duration.ofSeconds(10), now::get);
+
+        cache.matches(filter, "joe", 1, Map.of());
+        now.addAndGet(Duration.ofSeconds(9).toNanos());
+        cache.matches(filter, "joe", 1, Map.of());
+        assertEquals(1, evaluations.get());
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        cache.matches(filter, "joe", 1, Map.of());
+        assertEquals(2, evaluations.get());
+        assertEquals(1, cache.getStatistics().getExpirationCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted(){
+        AtomicInteger evaluations = new AtomicInteger();
+        Filter filter = counting(FilterFactory.trueFilter(), evaluations);
+        EvaluationCache cache = new EvaluationCache(3, Duration.ofMinutes(1));
+        for (String id : new String[] {"a", "b", "c", "a", "d"}) {
+            cache.matches(filter, id, 1, Map.of());
+        }
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+        assertEquals(4, evaluations.get());
+
+        // "b" was the least recently used.
+        cache.matches(filter, "a", 1, Map.of());
+        cache.matches(filter, "c", 1, Map.of());
+        cache.matches(filter, "d", 1, Map.of());
+        assertEquals(4, evaluations.get());
+        cache.matches(filter, "b", 1, Map.of());
+        assertEquals(5, evaluations.get());
+    }
+
+    @Test
+    public void testInvalidation(){
+        Filter adult = FilterFactory.greaterThan("age", 17);
+        Filter admin = FilterFactory.equalsTo("role", "admin");
+        EvaluationCache cache = new EvaluationCache(100, Duration.ofMinutes(1));
+        for (String id : new String[] {"a", "b", "c"}) {
+            cache.matches(adult, id, 1, Map.of("age", "20", "role", "user"));
+            cache.matches(admin, id, 1, Map.of("age", "20", "role", "user"));
+        }
+        assertEquals(2, cache.invalidate("b"));
+        assertEquals(0, cache.invalidate("b"));
+        assertEquals(2, cache.invalidate(FilterFactory.and(List.of(admin))));
+        assertEquals(2, cache.size());
+
+        // Without a version change, a changed resource is only seen after invalidation.
+        assertTrue(cache.matches(adult, "a", 1, Map.of("age", "10")));
+        cache.invalidate("a");
+        assertFalse(cache.matches(adult, "a", 1, Map.of("age", "10")));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(7, cache.getStatistics().getInvalidationCount());
+    }
+
+    @Test
+    public void testInvalidationDuringEvaluation(){
+        EvaluationCache cache = new EvaluationCache(100, Duration.ofMinutes(1));
+        Filter adult = FilterFactory.greaterThan("age", 17);
+        // The resource changes, and is invalidated, while its old data is being evaluated.
+        Filter racing = resource -> {
+            cache.invalidate("a");
+            return adult.matches(resource);
+        };
+        assertTrue(cache.matches(racing, "a", 1, Map.of("age", "20")));
+        assertEquals(0, cache.size());
+        assertFalse(cache.matches(racing, "a", 1, Map.of("age", "10")));
+
+        Filter dropped = resource -> {
+            cache.invalidate(FilterFactory.trueFilter());
+            return true;
+        };
+        assertTrue(cache.matches(dropped, "b", 1, Map.of()));
+        assertEquals(0, cache.size());
+        assertTrue(cache.matches(adult, "b", 1, Map.of("age", "20")));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testErrorsAreNotCached(){
+        EvaluationCache cache = new EvaluationCache(100, Duration.ofMinutes(1));
+        Filter filter = FilterFactory.greaterThan("age", 17);
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.matches(filter, "joe", 1, Map.of("age", "old"));
+                fail("A non-numeric value must be rejected");
+            } catch (IllegalArgumentException e) {
+                // Expected.
+            }
+        }
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getStatistics().getMissCount());
+
+        // The cached filter short-circuits on the type; the reordered one reaches the non-numeric value.
+        Filter number = FilterFactory.equalsTo("type", "num");
+        Filter positive = FilterFactory.greaterThan("v", 5);
+        Map<String, String> text = Map.of("type", "str", "v", "abc");
+        assertFalse(cache.matches(FilterFactory.and(List.of(number, positive)), "doc", 1, text));
+        try {
+            cache.matches(FilterFactory.and(List.of(positive, number)), "doc", 1, text);
+            fail("A reordered filter must not share the cached result");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testInvalidArguments(){
+        try {
+            new EvaluationCache(0, Duration.ofMinutes(1));
+            fail("A maximum size of 0 must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+        try {
+            new EvaluationCache(10, Duration.ZERO);
+            fail("A time to live of 0 must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+        try {
+            new EvaluationCache(10, Duration.ofMinutes(1)).matches(FilterFactory.trueFilter(), null, 1, Map.of());
+            fail("A null resource id must be rejected");
+        } catch (NullPointerException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        EvaluationCache cache = new EvaluationCache(1_000, Duration.ofMinutes(1));
+        List<Filter> filters = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            filters.add(FilterFactory.greaterThan("age", i * 10));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int seed = thread;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        int resource = (i * 31 + seed) % 500;
+                        int version = i / 5_000;
+                        Map<String, String> data = Map.of("age", String.valueOf((resource + version) % 100));
+                        Filter filter = filters.get(i % filters.size());
+                        assertEquals(filter.matches(data), cache.matches(filter, "r" + resource, version, data));
+                        if (i % 1_000 == 0) {
+                            cache.invalidate("r" + resource);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(cache.size() <= 1_000);
+        CacheStatistics statistics = cache.getStatistics();
+        assertEquals(160_000, statistics.getHitCount() + statistics.getMissCount());
+        assertTrue(statistics.getHitCount() > 0);
+    }
+}
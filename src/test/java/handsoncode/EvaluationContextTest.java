@@ -0,0 +1,102 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import handsoncode.filter.EvaluationContext;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.resource.ArrayResource;
+import handsoncode.resource.ResourceSchema;
+
+public class EvaluationContextTest {
+
+    @Test
+    public void testContextAgreesWithPlainEvaluation(){
+
+        Filter filter = FilterFactory.and(List.of(
+            FilterFactory.greaterThan("age", 20),
+            FilterFactory.lessThan("age", 30),
+            FilterFactory.not(FilterFactory.greaterThan("height", 1.80)),
+            FilterFactory.or(List.of(FilterFactory.lessThan("age", 26), FilterFactory.greaterThan("age", 100)))
+        ));
+        EvaluationContext context = new EvaluationContext();
+
+        for (Map<String, String> user : List.of(TestData.getUserAge35(), TestData.getUserAge25())) {
+            assertEquals(filter.matches(user), context.matches(filter, user));
+        }
+    }
+
+    @Test
+    public void testPropertyParsedOncePerResource(){
+
+        // Every read of "age" returns a larger number: only a memoized parse sees the same value twice.
+        Map<String, String> drifting = new HashMap<>() {
+            private int reads;
+
+            @Override
+            public String get(Object key) {
+                return "age".equals(key) ? String.valueOf(25 + 10 * reads++) : super.get(key);
+            }
+        };
+        drifting.put("age", "25");
+
+        Filter between = FilterFactory.and(List.of(FilterFactory.greaterThan("age", 20), FilterFactory.lessThan("age", 30)));
+
+        assertTrue(new EvaluationContext().matches(between, drifting));
+        assertFalse(between.matches(drifting));
+    }
+
+    @Test
+    public void testResetForgetsPreviousResource(){
+
+        Filter olderThan30 = FilterFactory.greaterThan("age", 30);
+        EvaluationContext context = new EvaluationContext();
+
+        assertTrue(context.matches(olderThan30, TestData.getUserAge35()));
+        assertFalse(context.matches(olderThan30, TestData.getUserAge25()));
+    }
+
+    @Test
+    public void testManyProperties(){
+
+        Map<String, String> resource = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            resource.put("p" + i, String.valueOf(i));
+        }
+        EvaluationContext context = new EvaluationContext();
+        context.reset();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(FilterFactory.lessThan("p" + i, i + 0.5).matches(resource, context));
+            assertFalse(FilterFactory.greaterThan("p" + i, i).matches(resource, context));
+        }
+    }
+
+    @Test
+    public void testBoundFilterWithContext(){
+
+        ResourceSchema schema = ResourceSchema.of("age", "height");
+        ArrayResource resource = new ArrayResource(schema, "25", "1.70");
+        EvaluationContext context = new EvaluationContext();
+
+        Filter filter = FilterFactory.and(List.of(FilterFactory.greaterThan("age", 20), FilterFactory.lessThan("height", 2)));
+
+        assertTrue(filter.bind(schema).matches(resource, context));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidValueIsReportedOnEveryLeaf(){
+
+        Filter filter = FilterFactory.or(List.of(FilterFactory.greaterThan("firstname", 30), FilterFactory.trueFilter()));
+        EvaluationContext context = new EvaluationContext();
+
+        context.matches(filter, TestData.getUserAge35());
+    }
+}
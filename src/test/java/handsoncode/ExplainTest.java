@@ -0,0 +1,86 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.query.Explain;
+import handsoncode.query.PlanNode;
+
+public class ExplainTest {
+
+    @Test
+    public void testExplain(){
+
+        Filter filter = FilterFactory.and(List.of(FilterFactory.greaterThan("age", 30), FilterFactory.not(FilterFactory.isPresent("height"))));
+        PlanNode plan = Explain.explain(filter);
+
+        assertFalse(plan.isAnalyzed());
+        assertEquals("AND", plan.getType());
+        assertEquals(2, plan.getChildren().size());
+        assertTrue(plan.getChildren().get(0).getCost() > plan.getChildren().get(1).getCost());
+
+        String expected = "{\"type\":\"AND\",\"cost\":\"5.4\",\"filters\":["
+            + "{\"type\":\"GreaterThan\",\"property\":\"age\",\"value\":\"30.0\",\"cost\":\"4.0\"},"
+            + "{\"type\":\"NOT\",\"cost\":\"1.2\",\"filter\":{\"type\":\"isPresent\",\"property\":\"height\",\"cost\":\"1.0\"}}]}";
+        assertEquals(expected, plan.toJson());
+        assertEquals("AND  (cost=5.4)\n  GreaterThan age 30.0  (cost=4.0)\n  NOT  (cost=1.2)\n    isPresent height  (cost=1.0)\n", plan.toText());
+    }
+
+    @Test
+    public void testAnalyze(){
+
+        Filter filter = FilterFactory.or(List.of(FilterFactory.lessThan("age", 30), FilterFactory.equalsTo("lastname", "bloggs")));
+        List<Map<String, String>> sample = List.of(TestData.getUserAge25(), TestData.getUserAge35(), TestData.getUserAge35());
+
+        PlanNode plan = Explain.analyze(filter, sample);
+        PlanNode lessThan = plan.getChildren().get(0);
+        PlanNode equalsTo = plan.getChildren().get(1);
+
+        assertTrue(plan.isAnalyzed());
+        assertEquals(3, plan.getInvocations());
+        assertEquals(3, plan.getMatches());
+        assertEquals(3, lessThan.getInvocations());
+        assertEquals(1, lessThan.getMatches());
+        assertEquals(2, equalsTo.getInvocations());
+        assertEquals(1.0, equalsTo.getSelectivity(), 0);
+        assertTrue(plan.getNanos() >= lessThan.getNanos());
+        assertTrue(plan.toText().contains("EqualsTo lastname bloggs  (cost=2.0 calls=2 matched=2 selectivity=1.000"));
+        assertTrue(plan.toJson().contains("\"type\":\"LessThan\",\"property\":\"age\",\"value\":\"30.0\",\"cost\":\"4.0\",\"invocations\":\"3\",\"matches\":\"1\""));
+    }
+
+    @Test
+    public void testAnalyzeCountsErrors(){
+
+        Filter filter = FilterFactory.and(List.of(FilterFactory.isPresent("firstname"), FilterFactory.greaterThan("firstname", 3)));
+
+        PlanNode plan = Explain.analyze(filter, List.of(TestData.getUserAge35(), TestData.getUserAge25()));
+
+        assertEquals(2, plan.getErrors());
+        assertEquals(2, plan.getChildren().get(1).getErrors());
+        assertEquals(0, plan.getMatches());
+        assertTrue(plan.toText().contains("errors=2"));
+    }
+
+    @Test
+    public void testCombinedPatterns(){
+
+        Filter filter = FilterFactory.or(List.of(FilterFactory.matchesExpression("firstname", "^J"),
+            FilterFactory.equalsTo("lastname", "bloggs"), FilterFactory.matchesExpression("firstname", "n$")));
+
+        PlanNode plan = Explain.analyze(filter, List.of(TestData.getUserAge25(), TestData.getUserAge35()));
+
+        assertEquals(2, plan.getChildren().size());
+        PlanNode patterns = plan.getChildren().get(0);
+        assertEquals("MatchesAny", patterns.getType());
+        assertEquals(2, patterns.getInvocations());
+        assertTrue(plan.toText().contains("\n  MatchesAny firstname ^J, n$  (cost=16.0 calls=2"));
+    }
+}
@@ -0,0 +1,150 @@
+package handsoncode;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.filter.FilterImplication;
+
+public class FilterImplicationTest {
+
+    private static Filter gt(int value) {
+        return FilterFactory.greaterThan("age", value);
+    }
+
+    private static Filter lt(int value) {
+        return FilterFactory.lessThan("age", value);
+    }
+
+    private static Filter and(Filter... filters) {
+        return FilterFactory.and(List.of(filters));
+    }
+
+    private static Filter or(Filter... filters) {
+        return FilterFactory.or(List.of(filters));
+    }
+
+    private static final RandomFilters FILTERS = new RandomFilters(3, 3, random -> {
+        switch (random.nextInt(6)) {
+            case 0:
+                return gt(random.nextInt(10) * 10);
+            case 1:
+                return lt(random.nextInt(10) * 10);
+            case 2:
+                return FilterFactory.equalsTo(random.nextBoolean() ? "role" : "age", random.nextBoolean() ? "admin" : "40");
+            case 3:
+                return FilterFactory.isPresent(random.nextBoolean() ? "role" : "age");
+            case 4:
+                return FilterFactory.matchesExpression("role", "^a");
+            default:
+                return random.nextBoolean() ? FilterFactory.trueFilter() : FilterFactory.falseFilter();
+        }
+    });
+
+    @Test
+    public void testIntervals(){
+        assertTrue(FilterImplication.implies(gt(30), gt(20)));
+        assertTrue(FilterImplication.implies(gt(30), gt(30)));
+        assertFalse(FilterImplication.implies(gt(20), gt(30)));
+        assertTrue(FilterImplication.implies(and(gt(20), lt(30)), and(gt(10), lt(40))));
+        assertFalse(FilterImplication.implies(and(gt(20), lt(50)), and(gt(10), lt(40))));
+        assertTrue(FilterImplication.implies(gt(30), FilterFactory.not(lt(30))));
+        assertFalse(FilterImplication.implies(FilterFactory.not(lt(30)), gt(30)));
+        assertTrue(FilterImplication.implies(gt(30), FilterFactory.isPresent("age")));
+        assertTrue(FilterImplication.isUnsatisfiable(and(gt(30), lt(20))));
+        assertTrue(FilterImplication.isUnsatisfiable(and(gt(30), lt(30))));
+        assertFalse(FilterImplication.isUnsatisfiable(and(gt(30), lt(31))));
+    }
+
+    @Test
+    public void testNaNThresholds(){
+        Filter aboveNaN = FilterFactory.greaterThan("age", Double.NaN);
+        Filter belowNaN = FilterFactory.lessThan("age", Double.NaN);
+        Filter forty = FilterFactory.equalsTo("age", "40");
+        // No value is above or below NaN, so their negations always hold and constrain nothing.
+        assertFalse(FilterImplication.implies(forty, aboveNaN));
+        assertFalse(FilterImplication.implies(forty, belowNaN));
+        assertTrue(FilterImplication.implies(forty, FilterFactory.not(aboveNaN)));
+        assertFalse(FilterImplication.isUnsatisfiable(and(forty, FilterFactory.not(belowNaN))));
+        assertFalse(FilterImplication.isUnsatisfiable(and(gt(30), FilterFactory.not(aboveNaN), FilterFactory.not(belowNaN))));
+        assertTrue(FilterImplication.isUnsatisfiable(aboveNaN));
+        assertTrue(FilterImplication.isUnsatisfiable(and(forty, belowNaN)));
+    }
+
+    @Test
+    public void testEqualityAndPresence(){
+        Filter admin = FilterFactory.equalsTo("role", "admin");
+        assertTrue(FilterImplication.implies(admin, FilterFactory.isPresent("role")));
+        assertTrue(FilterImplication.implies(FilterFactory.equalsTo("role", "ADMIN"), admin));
+        assertTrue(FilterImplication.implies(admin, FilterFactory.not(FilterFactory.equalsTo("role", "user"))));
+        assertFalse(FilterImplication.implies(FilterFactory.isPresent("role"), admin));
+        assertTrue(FilterImplication.implies(FilterFactory.equalsTo("age", "40"), and(gt(30), lt(50))));
+        assertTrue(FilterImplication.isUnsatisfiable(and(FilterFactory.equalsTo("age", "40"), gt(40))));
+        assertTrue(FilterImplication.isUnsatisfiable(and(admin, FilterFactory.not(FilterFactory.isPresent("role")))));
+        assertTrue(FilterImplication.isUnsatisfiable(and(admin, FilterFactory.equalsTo("role", "user"))));
+
+        // Case pairs outside the Basic Multilingual Plane are equal ignoring case.
+        Filter capital = FilterFactory.equalsTo("k", "\uD801\uDC00");
+        Filter small = FilterFactory.equalsTo("k", "\uD801\uDC28");
+        assertFalse(FilterImplication.implies(capital, FilterFactory.not(small)));
+        assertTrue(FilterImplication.isEquivalent(capital, small));
+    }
+
+    @Test
+    public void testBooleanStructure(){
+        Filter admin = FilterFactory.equalsTo("role", "admin");
+        Filter pattern = FilterFactory.matchesExpression("name", "^J");
+        assertTrue(FilterImplication.implies(and(admin, gt(30)), admin));
+        assertTrue(FilterImplication.implies(admin, or(admin, pattern)));
+        assertTrue(FilterImplication.implies(and(pattern, gt(30)), and(gt(20), pattern)));
+        assertFalse(FilterImplication.implies(pattern, FilterFactory.matchesExpression("name", "^Jo")));
+        assertTrue(FilterImplication.implies(or(gt(50), and(gt(40), admin)), gt(35)));
+        assertTrue(FilterImplication.isEquivalent(
+            and(admin, or(gt(30), lt(10))), or(and(admin, gt(30)), and(lt(10), admin))));
+        assertTrue(FilterImplication.isEquivalent(FilterFactory.not(and(admin, pattern)),
+            or(FilterFactory.not(admin), FilterFactory.not(pattern))));
+        assertTrue(FilterImplication.isUnsatisfiable(and(pattern, FilterFactory.not(pattern))));
+        assertTrue(FilterImplication.implies(FilterFactory.falseFilter(), admin));
+        assertTrue(FilterImplication.implies(admin, FilterFactory.trueFilter()));
+        assertFalse(FilterImplication.implies(FilterFactory.trueFilter(), admin));
+    }
+
+    @Test
+    public void testImplicationsHoldOnData(){
+        Random random = new Random(48);
+        List<Map<String, String>> resources = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Map<String, String> resource = new HashMap<>();
+            if (random.nextInt(4) > 0) {
+                resource.put("age", random.nextInt(8) == 0 ? "40" : String.valueOf(random.nextInt(100)));
+            }
+            if (random.nextBoolean()) {
+                resource.put("role", random.nextBoolean() ? "Admin" : "user");
+            }
+            resources.add(resource);
+        }
+        int implications = 0;
+        for (int i = 0; i < 3_000; i++) {
+            Filter premise = FILTERS.filter(random, 3);
+            Filter conclusion = FILTERS.filter(random, 3);
+            if (!FilterImplication.implies(premise, conclusion)) {
+                continue;
+            }
+            implications++;
+            for (Map<String, String> resource : resources) {
+                assertTrue(premise + " => " + conclusion + " on " + resource,
+                    !premise.matches(resource) || conclusion.matches(resource));
+            }
+        }
+        assertTrue(implications > 100);
+    }
+}
@@ -0,0 +1,154 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.gson.JsonParseException;
+
+import handsoncode.filter.EvaluationContext;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.filter.FilterProgram;
+import handsoncode.resource.ArrayResource;
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+
+public class FilterProgramTest {
+
+    private static final RandomFilters FILTERS = new RandomFilters(4, 4, random -> {
+        switch (random.nextInt(6)) {
+            case 0:
+                return FilterFactory.greaterThan("age", random.nextInt(100));
+            case 1:
+                return FilterFactory.lessThan("age", random.nextInt(100));
+            case 2:
+                return FilterFactory.equalsTo("role", random.nextBoolean() ? "admin" : "user");
+            case 3:
+                return FilterFactory.isPresent("role");
+            case 4:
+                return FilterFactory.matchesExpression("name", random.nextInt(10) + "$");
+            default:
+                return random.nextBoolean() ? FilterFactory.trueFilter() : FilterFactory.falseFilter();
+        }
+    });
+
+    @Test
+    public void testProgramsMatchFilters(){
+        Random random = new Random(17);
+        ResourceSchema schema = ResourceSchema.of("age", "role", "name");
+        List<Map<String, String>> resources = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Map<String, String> resource = new HashMap<>();
+            resource.put("age", String.valueOf(random.nextInt(100)));
+            resource.put("name", "user" + i);
+            if (random.nextBoolean()) {
+                resource.put("role", random.nextBoolean() ? "Admin" : "user");
+            }
+            resources.add(resource);
+        }
+        for (int i = 0; i < 500; i++) {
+            Filter filter = FILTERS.filter(random, 5);
+            FilterProgram compiled = FilterProgram.compile(filter);
+            FilterProgram parsed = FilterProgram.parse(filter.toString());
+            BoundFilter bound = compiled.bind(schema);
+            for (Map<String, String> resource : resources) {
+                boolean expected = filter.matches(resource);
+                assertEquals(filter.toString(), expected, compiled.matches(resource));
+                assertEquals(filter.toString(), expected, parsed.matches(resource));
+                assertEquals(filter.toString(), expected, bound.matches(ArrayResource.fromMap(schema, resource), new EvaluationContext()));
+            }
+        }
+    }
+
+    @Test
+    public void testDeepNotChainFolds(){
+        Filter filter = FilterFactory.isPresent("role");
+        for (int i = 0; i < 100_000; i++) {
+            filter = FilterFactory.not(filter);
+        }
+        FilterProgram program = FilterProgram.compile(filter);
+        assertEquals(1, program.getInstructionCount());
+        assertTrue(program.matches(Map.of("role", "admin")));
+
+        program = FilterProgram.compile(FilterFactory.not(filter));
+        assertEquals(2, program.getInstructionCount());
+        assertFalse(program.matches(Map.of("role", "admin")));
+    }
+
+    @Test
+    public void testParsesDeeplyNestedJson(){
+        int depth = 50_000;
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            json.append(i % 3 == 0 ? "{\"type\":\"NOT\",\"filter\":" : "{\"type\":\"AND\",\"filters\":[{\"type\":\"isPresent\",\"property\":\"p" + i + "\"},");
+        }
+        json.append("{\"type\":\"EqualsTo\",\"property\":\"role\",\"value\":\"admin\"}");
+        for (int i = depth - 1; i >= 0; i--) {
+            json.append(i % 3 == 0 ? "}" : "]}");
+        }
+
+        FilterProgram program = FilterProgram.parse(json.toString());
+        assertEquals(depth - (depth + 2) / 3 + 1, program.getLeafCount());
+
+        Map<String, String> resource = new HashMap<>();
+        for (int i = 0; i < depth; i++) {
+            resource.put("p" + i, "x");
+        }
+        resource.put("role", "user");
+        // The innermost leaf is false and every AND passes it on: the result is the parity of the NOT levels.
+        assertEquals((depth + 2) / 3 % 2 == 1, program.matches(resource));
+
+        // The AND of level 1 now fails, negated by the outermost NOT.
+        resource.remove("p1");
+        assertTrue(program.matches(resource));
+    }
+
+    @Test
+    public void testDeepOrChainShortCircuits(){
+        Filter filter = FilterFactory.equalsTo("role", "admin");
+        for (int i = 0; i < 20_000; i++) {
+            filter = FilterFactory.or(List.of(filter, FilterFactory.greaterThan("age", i)));
+        }
+        FilterProgram program = FilterProgram.compile(filter);
+        assertEquals(20_001, program.getLeafCount());
+        assertTrue(program.matches(Map.of("role", "admin", "age", "not a number")));
+        assertTrue(program.matches(Map.of("role", "user", "age", "19999.5")));
+        assertFalse(program.matches(Map.of("role", "user", "age", "-1")));
+    }
+
+    @Test
+    public void testParseErrors(){
+        String[] invalid = {
+            "", "{", "{\"type\":\"NoSuchFilter\"}", "{\"type\":\"GreaterThan\",\"property\":\"age\"}",
+            "{\"type\":\"GreaterThan\",\"property\":\"age\",\"value\":\"old\"}", "{\"property\":\"age\"}",
+            "{\"type\":\"NOT\",\"filter\":{\"type\":\"TrueFilter\"}} trailing", "{\"type\":\"OR\",\"filters\":[{\"type\":\"TrueFilter\"}"
+        };
+        for (String json : invalid) {
+            try {
+                FilterProgram.parse(json);
+                fail("Expected a parse error for " + json);
+            } catch (JsonParseException e) {
+                // Expected.
+            }
+        }
+        try {
+            FilterProgram.parse("{\"type\":\"AND\",\"filters\":[]}");
+            fail("An empty AND must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+        FilterProgram escaped = FilterProgram.parse(
+            "{\"comment\":[{\"x\":\"}\"}],\"type\":\"equalsto\",\"property\":\"na\\u006De\",\"value\":\"a\\\"b\"}");
+        assertTrue(escaped.matches(Map.of("name", "A\"B")));
+    }
+}
@@ -0,0 +1,268 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.registry.FilterRegistry;
+import handsoncode.registry.FilterSnapshot;
+
+public class FilterRegistryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private void write(String name, Filter filter) throws IOException {
+        write(name, filter.toString());
+    }
+
+    private void write(String name, String content) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Path temporary = folder.getRoot().toPath().resolve(name + ".tmp");
+        Files.writeString(temporary, content);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for the registry to reload");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void testLoadsFiltersByFileName() throws IOException {
+        write("adults.json", FilterFactory.greaterThan("age", 17));
+        write("active.json", FilterFactory.equalsTo("status", "active"));
+        write("notes.txt", "not a filter");
+
+        try (FilterRegistry registry = new FilterRegistry(folder.getRoot().toPath())) {
+            FilterSnapshot snapshot = registry.snapshot();
+            assertEquals(1, snapshot.getVersion());
+            assertEquals(Set.of("active", "adults"), snapshot.getNames());
+            assertTrue(registry.get("adults").matches(Map.of("age", "30")));
+            assertTrue(registry.get("active").matches(Map.of("status", "ACTIVE")));
+            assertNull(registry.get("notes"));
+            assertTrue(snapshot.getErrors().isEmpty());
+        }
+    }
+
+    @Test
+    public void testEmptyDirectory() throws IOException {
+        try (FilterRegistry registry = new FilterRegistry(folder.getRoot().toPath())) {
+            assertEquals(1, registry.snapshot().getVersion());
+            assertTrue(registry.snapshot().getNames().isEmpty());
+            assertSame(registry.snapshot(), registry.reload());
+        }
+    }
+
+    @Test
+    public void testReloadReparsesChangedFilesOnly() throws IOException {
+        write("adults.json", FilterFactory.greaterThan("age", 17));
+        write("active.json", FilterFactory.equalsTo("status", "active"));
+
+        try (FilterRegistry registry = new FilterRegistry(folder.getRoot().toPath())) {
+            FilterSnapshot before = registry.snapshot();
+            Filter active = registry.get("active");
+
+            assertSame(before, registry.reload());
+
+            write("adults.json", FilterFactory.greaterThan("age", 20));
+            FilterSnapshot after = registry.reload();
+            assertEquals(before.getVersion() + 1, after.getVersion());
+            assertSame(active, after.get("active"));
+            assertFalse(after.get("adults").matches(Map.of("age", "19")));
+
+            // The old snapshot is unchanged.
+            assertTrue(before.get("adults").matches(Map.of("age", "19")));
+        }
+    }
+
+    @Test
+    public void testParseErrorKeepsLastGoodFilter() throws IOException {
+        write("adults.json", FilterFactory.greaterThan("age", 17));
+
+        try (FilterRegistry registry = new FilterRegistry(folder.getRoot().toPath())) {
+            Filter adults = registry.get("adults");
+
+            write("adults.json", "{\"type\":\"GreaterThanFilter\",");
+            write("broken.json", "{\"type\":\"NoSuchFilter\"}");
+            write("empty.json", "");
+            FilterSnapshot snapshot = registry.reload();
+            assertSame(adults, snapshot.get("adults"));
+            assertEquals(Set.of("adults", "broken", "empty"), snapshot.getErrors().keySet());
+            assertNull(snapshot.get("broken"));
+
+            // Unchanged broken files do not publish new versions.
+            assertSame(snapshot, registry.reload());
+
+            write("adults.json", FilterFactory.lessThan("age", 18));
+            snapshot = registry.reload();
+            assertFalse(snapshot.getErrors().containsKey("adults"));
+            assertTrue(snapshot.get("adults").matches(Map.of("age", "10")));
+        }
+    }
+
+    @Test
+    public void testDeletedFileIsRemoved() throws IOException {
+        write("adults.json", FilterFactory.greaterThan("age", 17));
+        write("broken.json", "{");
+
+        try (FilterRegistry registry = new FilterRegistry(folder.getRoot().toPath())) {
+            Files.delete(folder.getRoot().toPath().resolve("adults.json"));
+            Files.delete(folder.getRoot().toPath().resolve("broken.json"));
+            FilterSnapshot snapshot = registry.reload();
+            assertNull(snapshot.get("adults"));
+            assertTrue(snapshot.getNames().isEmpty());
+            assertTrue(snapshot.getErrors().isEmpty());
+        }
+    }
+
+    @Test
+    public void testSnapshotIsImmutable() throws IOException {
+        write("adults.json", FilterFactory.greaterThan("age", 17));
+
+        try (FilterRegistry registry = new FilterRegistry(folder.getRoot().toPath())) {
+            FilterSnapshot snapshot = registry.snapshot();
+            try {
+                snapshot.getFilters().put("all", FilterFactory.trueFilter());
+                fail("The snapshot must not be modifiable");
+            } catch (UnsupportedOperationException e) {
+                // Expected.
+            }
+            assertTrue(snapshot.toString().contains("\"version\":\"1\""));
+        }
+    }
+
+    @Test
+    public void testWatchPublishesChanges() throws IOException, InterruptedException {
+        write("adults.json", FilterFactory.greaterThan("age", 17));
+
+        try (FilterRegistry registry = new FilterRegistry(folder.getRoot().toPath())) {
+            List<FilterSnapshot> published = new ArrayList<>();
+            registry.addListener(snapshot -> {
+                synchronized (published) {
+                    published.add(snapshot);
+                }
+            });
+            registry.watch();
+            registry.watch();
+
+            write("active.json", FilterFactory.equalsTo("status", "active"));
+            await(() -> registry.get("active") != null);
+
+            write("adults.json", FilterFactory.greaterThan("age", 20));
+            await(() -> !registry.get("adults").matches(Map.of("age", "19")));
+
+            Files.delete(folder.getRoot().toPath().resolve("active.json"));
+            await(() -> registry.get("active") == null);
+
+            synchronized (published) {
+                assertFalse(published.isEmpty());
+                assertSame(registry.snapshot(), published.get(published.size() - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testFailingListenerIsContained() throws IOException, InterruptedException {
+        write("adults.json", FilterFactory.greaterThan("age", 17));
+
+        try (FilterRegistry registry = new FilterRegistry(folder.getRoot().toPath())) {
+            List<FilterSnapshot> published = new ArrayList<>();
+            registry.addListener(snapshot -> {
+                throw new IllegalStateException("listener failure");
+            });
+            registry.addListener(snapshot -> {
+                synchronized (published) {
+                    published.add(snapshot);
+                }
+            });
+
+            write("active.json", FilterFactory.equalsTo("status", "active"));
+            FilterSnapshot reloaded = registry.reload();
+            synchronized (published) {
+                assertEquals(List.of(reloaded), published);
+            }
+
+            // The watch thread survives the failing listener and keeps publishing.
+            registry.watch();
+            write("adults.json", FilterFactory.greaterThan("age", 20));
+            await(() -> !registry.get("adults").matches(Map.of("age", "19")));
+            write("minors.json", FilterFactory.lessThan("age", 18));
+            await(() -> registry.get("minors") != null);
+            await(() -> {
+                synchronized (published) {
+                    return published.get(published.size() - 1) == registry.snapshot();
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testConcurrentReadersSeeWholeSnapshots() throws Exception {
+        write("a.json", FilterFactory.equalsTo("v", "0"));
+        write("b.json", FilterFactory.equalsTo("v", "0"));
+
+        try (FilterRegistry registry = new FilterRegistry(folder.getRoot().toPath())) {
+            List<Throwable> failures = new ArrayList<>();
+            Thread reader = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 20_000; i++) {
+                        FilterSnapshot snapshot = registry.snapshot();
+                        assertNotNull(snapshot.get("a"));
+                        assertNotNull(snapshot.get("b"));
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            reader.start();
+            for (int i = 1; i <= 20; i++) {
+                write("a.json", FilterFactory.equalsTo("v", String.valueOf(i)));
+                write("b.json", FilterFactory.equalsTo("v", String.valueOf(i)));
+                registry.reload();
+            }
+            reader.join();
+            assertTrue(failures.toString(), failures.isEmpty());
+            assertTrue(registry.get("a").matches(Map.of("v", "20")));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWatchAfterClose() throws IOException {
+        FilterRegistry registry = new FilterRegistry(folder.getRoot().toPath());
+        registry.close();
+        registry.watch();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullDirectory() throws IOException {
+        new FilterRegistry(null);
+    }
+}
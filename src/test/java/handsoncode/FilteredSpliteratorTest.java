@@ -0,0 +1,94 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.query.FilterCost;
+import handsoncode.query.FilteredSpliterator;
+
+public class FilteredSpliteratorTest {
+
+    private static List<Map<String, String>> users(int count) {
+        List<Map<String, String>> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(Map.of("id", String.valueOf(i), "age", String.valueOf(i % 100), "role", i % 3 == 0 ? "admin" : "user"));
+        }
+        return users;
+    }
+
+    @Test
+    public void testAsPredicate(){
+
+        Filter olderThan30 = FilterFactory.greaterThan("age", 30);
+
+        assertTrue(olderThan30.asPredicate().test(TestData.getUserAge35()));
+        assertFalse(olderThan30.asPredicate().test(TestData.getUserAge25()));
+    }
+
+    @Test
+    public void testSequentialAndParallelAgree(){
+
+        List<Map<String, String>> users = users(20_000);
+        Filter filter = FilterFactory.and(List.of(FilterFactory.greaterThan("age", 50), FilterFactory.matchesExpression("role", "^adm")));
+
+        List<Map<String, String>> expected = users.stream().filter(filter.asPredicate()).collect(Collectors.toList());
+
+        assertEquals(expected, FilteredSpliterator.stream(users, filter, false).collect(Collectors.toList()));
+        assertEquals(expected, FilteredSpliterator.stream(users, filter, true).collect(Collectors.toList()));
+        assertEquals(expected.size(), FilteredSpliterator.stream(users, filter, true).count());
+    }
+
+    @Test
+    public void testShortCircuit(){
+
+        AtomicInteger evaluations = new AtomicInteger();
+        Filter counting = resource -> evaluations.incrementAndGet() > 0 && "3".equals(resource.get("id"));
+
+        assertEquals("3", FilteredSpliterator.stream(users(1_000), counting, false).findFirst().get().get("id"));
+        assertEquals(4, evaluations.get());
+    }
+
+    @Test
+    public void testGranularityFollowsCost(){
+
+        List<Map<String, String>> users = users(1_000);
+
+        Spliterator<Map<String, String>> cheap = new FilteredSpliterator(users.spliterator(), FilterFactory.isPresent("id"));
+        assertNull(cheap.trySplit());
+
+        Spliterator<Map<String, String>> expensive = new FilteredSpliterator(users.spliterator(), FilterFactory.isPresent("id"), 1);
+        Spliterator<Map<String, String>> prefix = expensive.trySplit();
+        assertEquals(500, expensive.estimateSize());
+        assertEquals(500, prefix.estimateSize());
+
+        // 25ns per resource: 500 resources carry 12.5us, 250 resources less than twice the 5us target.
+        Spliterator<Map<String, String>> bounded = new FilteredSpliterator(users.spliterator(), FilterFactory.isPresent("id"), 5_000);
+        assertEquals(500, bounded.trySplit().estimateSize());
+        assertEquals(250, bounded.trySplit().estimateSize());
+        assertEquals(250, bounded.estimateSize());
+        assertNull(bounded.trySplit());
+        assertFalse(expensive.hasCharacteristics(Spliterator.SIZED));
+        assertTrue(expensive.hasCharacteristics(Spliterator.ORDERED));
+    }
+
+    @Test
+    public void testStaticCost(){
+
+        assertTrue(FilterCost.estimate(FilterFactory.matchesExpression("a", "b")) > FilterCost.estimate(FilterFactory.greaterThan("a", 1)));
+        assertTrue(FilterCost.estimate(FilterFactory.greaterThan("a", 1)) > FilterCost.estimate(FilterFactory.equalsTo("a", "b")));
+        assertTrue(FilterCost.estimate(FilterFactory.equalsTo("a", "b")) > FilterCost.estimate(FilterFactory.isPresent("a")));
+    }
+}
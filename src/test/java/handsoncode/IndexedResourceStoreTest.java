@@ -0,0 +1,236 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import handsoncode.bitmap.RoaringBitmap;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.resource.ResourceSchema;
+import handsoncode.store.IndexedResourceStore;
+
+public class IndexedResourceStoreTest {
+
+    private static final String[] ROLES = {"admin", "Admin", "user", "guest", " "};
+
+    private static List<Map<String, String>> users(int count) {
+        Random random = new Random(42);
+        List<Map<String, String>> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, String> user = new HashMap<>();
+            if (random.nextInt(10) > 0) {
+                user.put("role", ROLES[random.nextInt(ROLES.length)]);
+            }
+            if (random.nextInt(5) > 0) {
+                user.put("age", random.nextInt(4) == 0 ? String.valueOf(random.nextInt(100)) + ".5" : String.valueOf(random.nextInt(100)));
+            }
+            user.put("name", "user" + i);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static IndexedResourceStore store(List<Map<String, String>> users) {
+        IndexedResourceStore store = new IndexedResourceStore(ResourceSchema.of("role", "age", "name", "email"), 1 << 16);
+        users.forEach(store::add);
+        return store;
+    }
+
+    @Test
+    public void testCountsMatchScan(){
+
+        List<Map<String, String>> users = users(5_000);
+        IndexedResourceStore store = store(users);
+
+        Filter admins = FilterFactory.equalsTo("role", "ADMIN");
+        Filter older = FilterFactory.greaterThan("age", 40);
+        Filter younger = FilterFactory.lessThan("age", 20.5);
+        Filter hasRole = FilterFactory.isPresent("role");
+        Filter regex = FilterFactory.matchesExpression("name", "7$");
+        List<Filter> filters = List.of(
+            admins, older, younger, hasRole,
+            FilterFactory.equalsTo("role", "nobody"),
+            FilterFactory.equalsTo("email", "x"),
+            FilterFactory.greaterThan("phone", 1),
+            FilterFactory.trueFilter(),
+            FilterFactory.falseFilter(),
+            FilterFactory.not(admins),
+            FilterFactory.not(older),
+            FilterFactory.and(List.of(admins, older)),
+            FilterFactory.or(List.of(admins, younger, FilterFactory.not(hasRole))),
+            FilterFactory.and(List.of(admins, regex)),
+            FilterFactory.or(List.of(admins, regex)),
+            FilterFactory.not(FilterFactory.and(List.of(older, regex))),
+            FilterFactory.and(List.of(FilterFactory.or(List.of(admins, regex)), FilterFactory.not(younger))),
+            regex
+        );
+
+        for (Filter filter : filters) {
+            long expected = users.stream().filter(filter::matches).count();
+            assertEquals(filter.toString(), expected, store.count(filter));
+
+            RoaringBitmap matching = store.matching(filter);
+            assertEquals(filter.toString(), expected, matching.getCardinality());
+            matching.forEach(id -> assertTrue(filter.matches(users.get(id))));
+        }
+    }
+
+    @Test
+    public void testResidualOnlyVisitsCandidates(){
+
+        List<Map<String, String>> users = users(5_000);
+        IndexedResourceStore store = store(users);
+        AtomicInteger evaluations = new AtomicInteger();
+        Filter counting = resource -> evaluations.incrementAndGet() > 0 && resource.get("name").endsWith("1");
+        Filter admins = FilterFactory.equalsTo("role", "admin");
+
+        long expected = users.stream().filter(user -> admins.matches(user) && counting.matches(user)).count();
+        evaluations.set(0);
+
+        assertEquals(expected, store.count(FilterFactory.and(List.of(counting, admins))));
+        assertEquals(users.stream().filter(admins::matches).count(), evaluations.get());
+    }
+
+    @Test
+    public void testScansCompareDictionaryCodes(){
+
+        List<Map<String, String>> users = new ArrayList<>(users(2_000));
+        users.add(Map.of("role", "ÅDMIN", "name", "x"));
+        IndexedResourceStore store = store(users);
+
+        for (Filter filter : List.of(FilterFactory.equalsTo("role", "admin"), FilterFactory.equalsTo("role", "ådmin"),
+                FilterFactory.not(FilterFactory.equalsTo("role", "user")), FilterFactory.equalsTo("email", "x"))) {
+            List<Long> expected = new ArrayList<>();
+            for (int id = 0; id < users.size(); id++) {
+                if (filter.matches(users.get(id))) {
+                    expected.add((long) id);
+                }
+            }
+            List<Long> actual = new ArrayList<>();
+            store.forEachMatch(filter, actual::add);
+            assertEquals(filter.toString(), expected, actual);
+        }
+    }
+
+    @Test
+    public void testUnknownValueShortCircuits(){
+
+        IndexedResourceStore store = store(users(2_000));
+        AtomicInteger evaluations = new AtomicInteger();
+        Filter counting = resource -> evaluations.incrementAndGet() > 0;
+
+        store.forEachMatch(FilterFactory.and(List.of(FilterFactory.equalsTo("role", "nobody"), counting)), id -> { });
+        assertEquals(0, store.count(FilterFactory.and(List.of(FilterFactory.equalsTo("role", "nobody"), counting))));
+
+        assertEquals(0, evaluations.get());
+    }
+
+    @Test
+    public void testNonNumericValuesAreNotPushedDown(){
+
+        List<Map<String, String>> users = new ArrayList<>(users(100));
+        users.add(Map.of("age", "unknown", "name", "x"));
+        IndexedResourceStore store = store(users);
+
+        Filter filter = FilterFactory.and(List.of(FilterFactory.equalsTo("name", "user1"), FilterFactory.greaterThan("age", -1)));
+        assertEquals(users.stream().filter(filter::matches).count(), store.count(filter));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonNumericValuesThrowOnScan(){
+
+        List<Map<String, String>> users = new ArrayList<>(users(100));
+        users.add(Map.of("age", "unknown", "name", "x"));
+
+        store(users).count(FilterFactory.greaterThan("age", 10));
+    }
+
+    @Test
+    public void testCountsSeeNewRecords(){
+
+        IndexedResourceStore store = store(users(100));
+        Filter filter = FilterFactory.greaterThan("age", 1000);
+        assertEquals(0, store.count(filter));
+
+        store.add(Map.of("age", "2000"));
+        store.add(Map.of("age", "1500"));
+
+        assertEquals(2, store.count(filter));
+        assertEquals(2, store.count(FilterFactory.equalsTo("age", "2000")) + store.count(FilterFactory.and(List.of(filter, FilterFactory.lessThan("age", 1600)))));
+    }
+
+    @Test
+    public void testScansRunAlongsideAppends() throws Exception {
+        List<Map<String, String>> users = users(1_000);
+        IndexedResourceStore store = store(users);
+        Filter filter = FilterFactory.equalsTo("role", "admin");
+        long expected = users.stream().filter(filter::matches).count();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        long[] seen = new long[1];
+        try {
+            store.forEachMatch(filter, id -> {
+                if (seen[0]++ == 0) {
+                    try {
+                        // Enough appends to grow the code arrays the scan reads.
+                        executor.submit(() -> {
+                            for (int i = 0; i < 2_000; i++) {
+                                store.add(Map.of("role", "ADMIN"));
+                            }
+                        }).get(10, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new AssertionError("A scan blocked an append", e);
+                    }
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(expected, seen[0]);
+        assertEquals(expected + 2_000, store.count(filter));
+    }
+
+    @Test
+    public void testCountsRunAlongsideAppends() throws Exception {
+        List<Map<String, String>> users = users(1_000);
+        IndexedResourceStore store = store(users);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicInteger evaluations = new AtomicInteger();
+        Filter appending = resource -> {
+            if (evaluations.getAndIncrement() == 0) {
+                try {
+                    executor.submit(() -> {
+                        for (int i = 0; i < 100; i++) {
+                            store.add(Map.of("role", "admin"));
+                        }
+                    }).get(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new AssertionError("A count blocked an append", e);
+                }
+            }
+            return true;
+        };
+        try {
+            // Indexed candidates with a residual filter, then a scan of every record.
+            Filter hasRole = FilterFactory.isPresent("role");
+            long expected = users.stream().filter(hasRole::matches).count();
+            assertEquals(expected, store.count(FilterFactory.and(List.of(hasRole, appending))));
+            evaluations.set(0);
+            assertEquals(users.size() + 100, store.count(appending));
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(users.size() + 200, store.size());
+    }
+}
@@ -0,0 +1,264 @@
+package handsoncode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.google.gson.JsonParseException;
+
+import handsoncode.column.ColumnKernels;
+import handsoncode.filter.AndFilter;
+import handsoncode.filter.CombinedPatternsFilter;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.filter.GreaterThanFilter;
+import handsoncode.filter.IsEqualFilter;
+import handsoncode.filter.IsPresentFilter;
+import handsoncode.filter.LessThanFilter;
+import handsoncode.filter.NotFilter;
+import handsoncode.filter.OrFilter;
+import handsoncode.resource.ResourceSchema;
+import handsoncode.store.IndexedResourceStore;
+import handsoncode.store.ResourceStore;
+
+public class LazyParsingTest {
+
+    private static final RandomFilters FILTERS = new RandomFilters(3, 4, random -> {
+        switch (random.nextInt(6)) {
+            case 0:
+                return FilterFactory.greaterThan("age", random.nextInt(100));
+            case 1:
+                return FilterFactory.lessThan("age", random.nextInt(100));
+            case 2:
+                return FilterFactory.equalsTo("role", random.nextBoolean() ? "admin" : "user");
+            case 3:
+                return FilterFactory.isPresent(random.nextBoolean() ? "role" : "email");
+            case 4:
+                return FilterFactory.matchesExpression("name", "[0-9]" + random.nextInt(10) + "$");
+            default:
+                return random.nextBoolean() ? FilterFactory.trueFilter() : FilterFactory.falseFilter();
+        }
+    });
+
+    private static List<Map<String, String>> resources(Random random) {
+        List<Map<String, String>> resources = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Map<String, String> resource = new HashMap<>();
+            resource.put("age", String.valueOf(random.nextInt(100)));
+            resource.put("name", "user" + i);
+            if (random.nextBoolean()) {
+                resource.put("role", random.nextBoolean() ? "ADMIN" : "user");
+            }
+            resources.add(resource);
+        }
+        return resources;
+    }
+
+    @Test
+    public void testLazyFiltersMatchEagerFilters(){
+        Random random = new Random(5);
+        List<Map<String, String>> resources = resources(random);
+        ResourceStore store = new ResourceStore(ResourceSchema.of("age", "name", "role", "email"));
+        resources.forEach(store::add);
+        for (int i = 0; i < 300; i++) {
+            String json = FILTERS.filter(random, 4).toString();
+            Filter eager = FilterFactory.fromString(json);
+            Filter lazy = FilterFactory.fromStringLazy(json);
+            for (Map<String, String> resource : resources) {
+                assertEquals(json, eager.matches(resource), lazy.matches(resource));
+            }
+            assertEquals(json, store.count(eager), store.count(lazy));
+            assertEquals(eager.referencedProperties().getProperties(), lazy.referencedProperties().getProperties());
+            assertEquals(json, lazy.toString());
+        }
+    }
+
+    @Test
+    public void testUnreachedChildrenAreNotParsed(){
+        String json = "{\"type\":\"OR\",\"filters\":["
+            + "{\"type\":\"EqualsTo\",\"property\":\"role\",\"value\":\"admin\"},"
+            + "{\"type\":\"MatchesExpression\",\"property\":\"name\",\"value\":\"[unclosed\"},"
+            + "{\"type\":\"NoSuchFilter\"}]}";
+        try {
+            FilterFactory.fromString(json);
+            fail("The eager parser compiles every child");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+
+        Filter lazy = FilterFactory.fromStringLazy(json);
+        assertTrue(lazy.matches(Map.of("role", "Admin")));
+        try {
+            lazy.matches(Map.of("role", "user", "name", "joe"));
+            fail("The invalid child is reported when it is reached");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("[unclosed"));
+        }
+    }
+
+    @Test
+    public void testLazyPatternsAreCombined(){
+        String json = "{\"type\":\"OR\",\"filters\":["
+            + "{\"type\":\"MatchesExpression\",\"property\":\"name\",\"value\":\"^J\"},"
+            + "{ \"value\" : \"n$\", \"property\" : \"name\", \"type\" : \"matchesexpression\" },"
+            + "{\"type\":\"NoSuchFilter\"},"
+            + "{\"type\":\"MatchesExpression\",\"property\":\"role\",\"value\":\"[unclosed\"}]}";
+        Filter lazy = FilterFactory.fromStringLazy(json);
+        List<Filter> evaluated = ((OrFilter) lazy).getEvaluatedFilters();
+        assertEquals(3, evaluated.size());
+        assertTrue(evaluated.get(0) instanceof CombinedPatternsFilter);
+        // Both patterns on the name are evaluated first; the invalid children stay unparsed.
+        assertTrue(lazy.matches(Map.of("name", "Jim")));
+        assertTrue(lazy.matches(Map.of("name", "Ann")));
+    }
+
+    @Test
+    public void testAccessorsReturnParsedChildren(){
+        String json = "{\"type\":\"AND\",\"filters\":["
+            + "{\"type\":\"GreaterThan\",\"property\":\"age\",\"value\":\"30\"},"
+            + "{\"type\":\"LessThan\",\"property\":\"age\",\"value\":\"40\"},"
+            + "{\"type\":\"NOT\",\"filter\":{\"type\":\"IsPresent\",\"property\":\"role\"}},"
+            + "{\"type\":\"OR\",\"filters\":[{\"type\":\"EqualsTo\",\"property\":\"name\",\"value\":\"Joe\"}]}]}";
+        Filter lazy = FilterFactory.fromStringLazy(json);
+        List<Filter> children = ((AndFilter) lazy).getFilters();
+        assertTrue(children.get(0) instanceof GreaterThanFilter);
+        assertTrue(children.get(1) instanceof LessThanFilter);
+        assertTrue(((NotFilter) children.get(2)).getFilter() instanceof IsPresentFilter);
+        assertTrue(((OrFilter) children.get(3)).getFilters().get(0) instanceof IsEqualFilter);
+        assertTrue(((OrFilter) children.get(3)).getEvaluatedFilters().get(0) instanceof IsEqualFilter);
+        for (Filter child : children) {
+            assertSame(child, children.get(children.indexOf(child)));
+        }
+
+        // Range folding and sorted-index counting recognize the parsed children.
+        List<Map<String, String>> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(Map.of("age", String.valueOf(i), "name", i % 2 == 0 ? "Joe" : "Ann"));
+        }
+        IndexedResourceStore store = new IndexedResourceStore(ResourceSchema.of("age", "name", "role"), 1 << 10);
+        users.forEach(store::add);
+        Filter eager = FilterFactory.fromString(json);
+        assertEquals(4, store.count(lazy));
+        assertEquals(store.count(eager), store.count(lazy));
+
+        String range = "{\"type\":\"AND\",\"filters\":[" + children.get(0) + "," + children.get(1) + "]}";
+        Map<String, double[]> columns = Map.of("age", new double[] {25, 35, 45});
+        assertArrayEquals(ColumnKernels.evaluate(FilterFactory.fromString(range), columns, 3),
+            ColumnKernels.evaluate(FilterFactory.fromStringLazy(range), columns, 3));
+    }
+
+    @Test
+    public void testPrepareParsesEveryChild(){
+        // Evaluating on an empty resource would stop at the first child of the AND.
+        String json = "{\"type\":\"AND\",\"filters\":["
+            + "{\"type\":\"IsPresent\",\"property\":\"role\"},"
+            + "{\"type\":\"OR\",\"filters\":[{\"type\":\"MatchesExpression\",\"property\":\"name\",\"value\":\"[unclosed\"}]}]}";
+        Filter lazy = FilterFactory.fromStringLazy(json);
+        assertFalse(lazy.matches(Map.of()));
+        try {
+            FilterFactory.prepare(lazy);
+            fail("Preparing parses the children an evaluation skips");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("[unclosed"));
+        }
+
+        Filter valid = FilterFactory.fromStringLazy(json.replace("[unclosed", "^J"));
+        assertSame(valid, FilterFactory.prepare(valid));
+        assertTrue(valid.matches(Map.of("role", "admin", "name", "Joe")));
+    }
+
+    @Test
+    public void testPrepareDeeplyNestedFilter(){
+        StringBuilder json = new StringBuilder();
+        int depth = 20_000;
+        for (int i = 0; i < depth; i++) {
+            json.append(i % 2 == 0 ? "{\"type\":\"NOT\",\"filter\":" : "{\"type\":\"OR\",\"filters\":[");
+        }
+        json.append("{\"type\":\"IsPresent\",\"property\":\"role\"}");
+        for (int i = depth - 1; i >= 0; i--) {
+            json.append(i % 2 == 0 ? "}" : "]}");
+        }
+        Filter lazy = FilterFactory.fromStringLazy(json.toString());
+        assertSame(lazy, FilterFactory.prepare(lazy));
+        assertEquals(List.of("role"), List.copyOf(lazy.referencedProperties().getProperties()));
+    }
+
+    @Test
+    public void testNestedAndSpacedJson(){
+        String json = " {\n  \"filters\" : [ { \"type\" : \"NOT\", \"filter\" : {\"type\":\"isPresent\",\"property\":\"a\\\"b\"} },"
+            + " {\"type\":\"AND\",\"filters\":[{\"type\":\"GreaterThan\",\"property\":\"age\",\"value\":\"18\"}],"
+            + "\"comment\":{\"nested\":[1, \"]}\", {}]}} ],\n  \"type\" : \"or\" } ";
+        Filter lazy = FilterFactory.fromStringLazy(json);
+        assertTrue(lazy.matches(Map.of("a\"b", "x", "age", "30")));
+        assertFalse(lazy.matches(Map.of("a\"b", "x", "age", "3")));
+        assertTrue(lazy.matches(Map.of("age", "3")));
+    }
+
+    @Test
+    public void testInvalidInput(){
+        assertNull(FilterFactory.fromStringLazy(null));
+        assertNull(FilterFactory.fromStringLazy(""));
+        try {
+            FilterFactory.fromStringLazy("{\"type\":\"OR\",\"filters\":[{\"type\":\"TrueFilter\"");
+            fail("Malformed JSON must be rejected");
+        } catch (JsonParseException e) {
+            // Expected.
+        }
+        try {
+            FilterFactory.fromStringLazy("{\"type\":\"AND\",\"filters\":[]}");
+            fail("An empty AND must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testConcurrentMaterialization() throws Exception {
+        List<Filter> children = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            children.add(FilterFactory.equalsTo("id", String.valueOf(i)));
+        }
+        String json = FilterFactory.or(children).toString();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 5; round++) {
+                Filter lazy = FilterFactory.fromStringLazy(json);
+                List<Future<Integer>> results = new ArrayList<>();
+                for (int thread = 0; thread < 8; thread++) {
+                    int offset = thread;
+                    results.add(executor.submit(() -> {
+                        int matches = 0;
+                        for (int id = offset; id < 2_500; id += 8) {
+                            if (lazy.matches(Map.of("id", String.valueOf(id)))) {
+                                matches++;
+                            }
+                        }
+                        return matches;
+                    }));
+                }
+                int total = 0;
+                for (Future<Integer> result : results) {
+                    total += result.get();
+                }
+                assertEquals(2_000, total);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.query.LimitQuery;
+
+public class LimitQueryTest {
+
+    private static List<Map<String, String>> users(int count) {
+        List<Map<String, String>> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, String> user = new HashMap<>();
+            user.put("id", String.valueOf(i));
+            user.put("role", i % 3 == 0 ? "admin" : "user");
+            if (i % 7 != 0) {
+                user.put("age", String.valueOf((i * 37) % 100));
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    @Test
+    public void testFirstStopsScanning(){
+
+        AtomicInteger evaluations = new AtomicInteger();
+        Filter admins = FilterFactory.equalsTo("role", "admin");
+        Filter counting = resource -> evaluations.incrementAndGet() > 0 && admins.matches(resource);
+
+        List<Map<String, String>> first = LimitQuery.first(counting, 5).execute(users(10_000));
+
+        assertEquals(List.of("0", "3", "6", "9", "12"), first.stream().map(user -> user.get("id")).collect(Collectors.toList()));
+        assertEquals(13, evaluations.get());
+    }
+
+    @Test
+    public void testParallelFirstMatchesSequential(){
+
+        List<Map<String, String>> users = users(50_000);
+        Filter filter = FilterFactory.and(List.of(FilterFactory.equalsTo("role", "admin"), FilterFactory.greaterThan("age", 50)));
+
+        for (int limit : new int[] {0, 1, 50, 5_000, 100_000}) {
+            List<Map<String, String>> expected = users.stream().filter(filter::matches).limit(limit).collect(Collectors.toList());
+            assertEquals(expected, LimitQuery.first(filter, limit).execute(users));
+            assertEquals(expected, LimitQuery.first(filter, limit).executeParallel(users));
+        }
+        assertEquals(3, LimitQuery.first(filter, 3).executeParallel(new LinkedList<>(users)).size());
+    }
+
+    @Test
+    public void testParallelFirstCancelsRemainingChunks(){
+
+        AtomicInteger evaluations = new AtomicInteger();
+        Filter counting = resource -> evaluations.incrementAndGet() > 0;
+
+        LimitQuery.first(counting, 10).executeParallel(users(1_000_000));
+
+        assertTrue(evaluations.get() < 100_000);
+    }
+
+    @Test
+    public void testParallelFirstOnlyThrowsWhereSequentialDoes(){
+
+        List<Map<String, String>> users = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            users.add(Map.of("id", String.valueOf(i), "age", i == 1_000 ? "99" : i == 5_000 ? "unknown" : "10"));
+        }
+        Filter adults = FilterFactory.greaterThan("age", 50);
+
+        for (int run = 0; run < 20; run++) {
+            assertEquals(List.of(users.get(1_000)), LimitQuery.first(adults, 1).execute(users));
+            assertEquals(List.of(users.get(1_000)), LimitQuery.first(adults, 1).executeParallel(users));
+            try {
+                LimitQuery.first(adults, 2).executeParallel(users);
+                fail("The sequential scan reaches the non-numeric age before a second match");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("unknown"));
+            }
+        }
+    }
+
+    @Test
+    public void testTopByNumericProperty(){
+
+        List<Map<String, String>> users = users(20_000);
+        Filter admins = FilterFactory.equalsTo("role", "admin");
+        Comparator<Map<String, String>> byAge = Comparator.comparing((Map<String, String> user) -> user.get("age") == null)
+            .thenComparing(user -> user.get("age") == null ? 0 : Double.parseDouble(user.get("age")), Comparator.reverseOrder());
+
+        List<Map<String, String>> expected = users.stream().filter(admins::matches).sorted(byAge).limit(50).collect(Collectors.toList());
+
+        assertEquals(expected, LimitQuery.top(admins, "age", true, 50).execute(users));
+        assertEquals(expected, LimitQuery.top(admins, "age", true, 50).executeParallel(users));
+    }
+
+    @Test
+    public void testTopRanksMissingValuesLast(){
+
+        List<Map<String, String>> users = users(10);
+        List<Map<String, String>> youngest = LimitQuery.top(FilterFactory.trueFilter(), "age", false, 10).execute(users);
+
+        assertEquals(10, youngest.size());
+        assertEquals("0", youngest.get(8).get("id"));
+        assertEquals("7", youngest.get(9).get("id"));
+        assertEquals("11", youngest.get(0).get("age"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTopRejectsNonNumericValues(){
+
+        LimitQuery.top(FilterFactory.trueFilter(), "role", true, 5).executeParallel(users(5_000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLimit(){
+
+        LimitQuery.first(FilterFactory.trueFilter(), -1);
+    }
+
+    @Test
+    public void testToString(){
+
+        assertEquals("{\"type\":\"Top\",\"limit\":\"5\",\"property\":\"age\",\"order\":\"DESC\",\"filter\":{\"type\":\"TrueFilter\",\"value\":\"true\"}}",
+            LimitQuery.top(FilterFactory.trueFilter(), "age", true, 5).toString());
+    }
+}
@@ -0,0 +1,192 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import handsoncode.filter.CombinedPatternsFilter;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.filter.FilterProgram;
+import handsoncode.filter.MatchesExpressionFilter;
+import handsoncode.filter.MultiPatternMatcher;
+import handsoncode.filter.OrFilter;
+import handsoncode.resource.ArrayResource;
+import handsoncode.resource.ResourceSchema;
+import handsoncode.store.IndexedResourceStore;
+
+public class MultiPatternMatcherTest {
+
+    private static final List<String> PATTERNS = List.of(
+        "casino", "free\\.money", "he", "she", "hers", "ÅNGSTRÖM", "", "^start", "end$", "[0-9]{3}-[0-9]{4}",
+        "(a)\\1", "\\Qa.b\\E", "(?x) sp ace", "v[i1]agra"
+    );
+
+    private static boolean expected(List<String> regexes, String text) {
+        for (String regex : regexes) {
+            if (Pattern.compile(regex, Pattern.CASE_INSENSITIVE).matcher(text).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testMatchesLikeSeparatePatterns(){
+
+        Random random = new Random(3);
+        String alphabet = "aehrsAEHRS .-0123456789ÅåöÖngtrmcinoxbpvfy1";
+        for (int round = 0; round < 2_000; round++) {
+            List<String> regexes = new ArrayList<>();
+            for (String pattern : PATTERNS) {
+                if (random.nextInt(3) == 0 && !pattern.isEmpty()) {
+                    regexes.add(pattern);
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(30); i > 0; i--) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            MultiPatternMatcher matcher = MultiPatternMatcher.compile(regexes);
+            assertEquals(regexes + " on '" + text + "'", expected(regexes, text.toString()), matcher.find(text));
+        }
+    }
+
+    @Test
+    public void testLiteralsShareOneScan(){
+
+        List<String> regexes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            regexes.add("banned" + i);
+        }
+        regexes.add("fr[e3]{2}");
+        regexes.add("m[o0]ney");
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(regexes);
+
+        assertEquals(500, matcher.getLiteralCount());
+        assertEquals(2, matcher.getRegexCount());
+        assertEquals(2, matcher.getScanCount());
+        assertTrue(matcher.find("this text contains BANNED42 somewhere"));
+        assertTrue(matcher.find("fr33 stuff"));
+        assertFalse(matcher.find("banned is fine alone"));
+    }
+
+    @Test
+    public void testAsciiOnlyCaseFolding(){
+
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(List.of("ångström", "kelvin"));
+
+        assertFalse(matcher.find("ÅNGSTRÖM"));
+        assertTrue(matcher.find("ångström"));
+        assertTrue(matcher.find("KELVIN"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsInvalidPatterns(){
+
+        MultiPatternMatcher.compile(List.of("valid", "[invalid"));
+    }
+
+    @Test
+    public void testOrOfPatternsMatchesLikeChildren(){
+
+        List<Filter> children = new ArrayList<>();
+        for (String pattern : PATTERNS) {
+            children.add(FilterFactory.matchesExpression("comment", pattern.isEmpty() ? "^$" : pattern));
+        }
+        children.add(FilterFactory.equalsTo("role", "admin"));
+        children.add(FilterFactory.matchesExpression("role", "^gu"));
+        Filter or = FilterFactory.or(children);
+        ResourceSchema schema = ResourceSchema.of("comment", "role");
+
+        for (String comment : List.of("", "nothing here", "Play CASINO", "call 555-1234", "sheer", "the end", "a.b", "aa")) {
+            for (String role : List.of("admin", "guest", "user")) {
+                Map<String, String> resource = Map.of("comment", comment, "role", role);
+                boolean expected = children.stream().anyMatch(child -> child.matches(resource));
+                assertEquals(comment + "/" + role, expected, or.matches(resource));
+                assertEquals(comment + "/" + role, expected, or.bind(schema).matches(ArrayResource.fromMap(schema, resource)));
+            }
+        }
+        assertEquals(children, ((OrFilter) or).getFilters());
+    }
+
+    @Test
+    public void testEvaluatorsUseCombinedPatterns(){
+
+        Filter or = FilterFactory.or(List.of(FilterFactory.matchesExpression("comment", "casino"),
+            FilterFactory.equalsTo("role", "admin"), FilterFactory.matchesExpression("comment", "^call")));
+        List<Filter> evaluated = ((OrFilter) or).getEvaluatedFilters();
+        assertEquals(2, evaluated.size());
+        assertTrue(evaluated.get(0) instanceof CombinedPatternsFilter);
+        assertEquals("comment", ((CombinedPatternsFilter) evaluated.get(0)).getProperty());
+        assertEquals(2, ((CombinedPatternsFilter) evaluated.get(0)).getFilters().size());
+
+        IndexedResourceStore store = new IndexedResourceStore(ResourceSchema.of("comment", "role"), 1 << 10);
+        List<Map<String, String>> resources = List.of(Map.of("comment", "Play CASINO", "role", "user"),
+            Map.of("comment", "call me", "role", "guest"), Map.of("comment", "hello", "role", "admin"), Map.of("comment", "hello"));
+        resources.forEach(store::add);
+        assertEquals(3, store.count(or));
+    }
+
+    @Test
+    public void testSubclassedPatternsAreNotCombined(){
+
+        Filter never = new MatchesExpressionFilter("comment", "casino") {
+            @Override
+            public boolean matches(Map<String, String> resource) {
+                return false;
+            }
+        };
+        Filter or = FilterFactory.or(List.of(never, FilterFactory.matchesExpression("comment", "^call")));
+        assertEquals(((OrFilter) or).getFilters(), ((OrFilter) or).getEvaluatedFilters());
+        assertFalse(or.matches(Map.of("comment", "casino")));
+    }
+
+    @Test
+    public void testPatternsAreNotMovedPastThrowingSiblings(){
+
+        Filter or = FilterFactory.or(List.of(FilterFactory.matchesExpression("t", "zzz"),
+            FilterFactory.greaterThan("age", 3), FilterFactory.matchesExpression("t", "abc")));
+        Map<String, String> resource = Map.of("t", "abc", "age", "notnum");
+        assertEquals(((OrFilter) or).getFilters(), ((OrFilter) or).getEvaluatedFilters());
+        List<Filter> evaluators = List.of(or, FilterFactory.fromStringLazy(or.toString()));
+        for (Filter filter : evaluators) {
+            try {
+                filter.matches(resource);
+                fail("The comparison is reached before the second pattern");
+            } catch (IllegalArgumentException e) {
+                // Expected.
+            }
+        }
+        try {
+            FilterProgram.compile(or).matches(resource);
+            fail("The comparison is reached before the second pattern");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+        ResourceSchema schema = ResourceSchema.of("t", "age");
+        IndexedResourceStore store = new IndexedResourceStore(schema, 1 << 10);
+        store.add(resource);
+        try {
+            store.forEachMatch(or, id -> { });
+            fail("The comparison is reached before the second pattern");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+
+        // Siblings that cannot throw do not prevent combining.
+        Filter safe = FilterFactory.or(List.of(FilterFactory.matchesExpression("t", "zzz"),
+            FilterFactory.isPresent("x"), FilterFactory.equalsTo("age", "3"), FilterFactory.matchesExpression("t", "abc")));
+        assertEquals(3, ((OrFilter) safe).getEvaluatedFilters().size());
+        assertTrue(safe.matches(resource));
+    }
+}
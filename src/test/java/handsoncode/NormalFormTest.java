@@ -0,0 +1,190 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import handsoncode.filter.AndFilter;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.filter.NormalForm;
+import handsoncode.filter.NotFilter;
+import handsoncode.filter.OrFilter;
+
+public class NormalFormTest {
+
+    private static final RandomFilters FILTERS = new RandomFilters(4, 4, random -> {
+        switch (random.nextInt(6)) {
+            case 0:
+                return FilterFactory.greaterThan("age", random.nextInt(100));
+            case 1:
+                return FilterFactory.lessThan("age", random.nextInt(100));
+            case 2:
+                return FilterFactory.equalsTo("role", random.nextBoolean() ? "admin" : "user");
+            case 3:
+                return FilterFactory.isPresent(random.nextBoolean() ? "role" : "age");
+            case 4:
+                return FilterFactory.matchesExpression("name", random.nextInt(10) + "$");
+            default:
+                return random.nextBoolean() ? FilterFactory.trueFilter() : FilterFactory.falseFilter();
+        }
+    });
+
+    private static boolean isLeaf(Filter filter) {
+        return !(filter instanceof AndFilter || filter instanceof OrFilter || filter instanceof NotFilter);
+    }
+
+    @Test
+    public void testNormalFormsMatchFilters(){
+        Random random = new Random(49);
+        List<Map<String, String>> resources = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Map<String, String> resource = new HashMap<>();
+            if (random.nextInt(4) > 0) {
+                resource.put("age", String.valueOf(random.nextInt(100)));
+            }
+            resource.put("name", "user" + i);
+            if (random.nextBoolean()) {
+                resource.put("role", random.nextBoolean() ? "Admin" : "user");
+            }
+            resources.add(resource);
+        }
+        for (int i = 0; i < 500; i++) {
+            Filter filter = FILTERS.filter(random, 4);
+            NormalForm dnf = NormalForm.toDnf(filter, 64);
+            NormalForm cnf = NormalForm.toCnf(filter, 64);
+            Filter negationFree = NormalForm.pushNegations(filter);
+            for (Map<String, String> resource : resources) {
+                boolean expected = filter.matches(resource);
+                assertEquals(filter.toString(), expected, negationFree.matches(resource));
+                assertEquals(dnf.toString(), expected, dnf.toFilter().matches(resource));
+                assertEquals(cnf.toString(), expected, cnf.toFilter().matches(resource));
+            }
+            for (NormalForm form : new NormalForm[] {dnf, cnf}) {
+                assertTrue(form.getClauses().size() <= 64);
+                for (List<Filter> clause : form.getClauses()) {
+                    for (Filter literal : clause) {
+                        Filter atom = literal instanceof NotFilter ? ((NotFilter) literal).getFilter() : literal;
+                        assertTrue(form.toString(), isLeaf(atom) || !form.isComplete());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNegationsArePushedToLeaves(){
+        Filter admin = FilterFactory.equalsTo("role", "admin");
+        Filter adult = FilterFactory.greaterThan("age", 17);
+        Filter filter = FilterFactory.not(FilterFactory.and(List.of(admin, FilterFactory.not(FilterFactory.or(List.of(
+            adult, FilterFactory.not(FilterFactory.trueFilter())))))));
+        assertEquals(FilterFactory.or(List.of(FilterFactory.not(admin), FilterFactory.or(List.of(adult, FilterFactory.falseFilter())))).toString(),
+            NormalForm.pushNegations(filter).toString());
+
+        NormalForm dnf = NormalForm.toDnf(filter);
+        assertTrue(dnf.isDisjunctive());
+        assertTrue(dnf.isComplete());
+        assertEquals(2, dnf.getClauses().size());
+        assertEquals(FilterFactory.or(List.of(FilterFactory.not(admin), adult)).toString(), dnf.toFilter().toString());
+    }
+
+    @Test
+    public void testDistributionAndSimplification(){
+        Filter a = FilterFactory.isPresent("a");
+        Filter b = FilterFactory.isPresent("b");
+        Filter c = FilterFactory.isPresent("c");
+        Filter filter = FilterFactory.and(List.of(FilterFactory.or(List.of(a, b)), FilterFactory.or(List.of(FilterFactory.not(a), c))));
+        NormalForm dnf = NormalForm.toDnf(filter);
+        // a AND NOT a is dropped.
+        assertEquals(3, dnf.getClauses().size());
+        NormalForm cnf = NormalForm.toCnf(filter);
+        assertEquals(2, cnf.getClauses().size());
+
+        assertEquals(FilterFactory.falseFilter().toString(), NormalForm.toDnf(FilterFactory.and(List.of(a, FilterFactory.not(a)))).toFilter().toString());
+        assertEquals(FilterFactory.trueFilter().toString(), NormalForm.toCnf(FilterFactory.or(List.of(a, FilterFactory.not(a)))).toFilter().toString());
+        assertEquals(FilterFactory.trueFilter().toString(), NormalForm.toDnf(FilterFactory.or(List.of(a, FilterFactory.trueFilter()))).toFilter().toString());
+    }
+
+    @Test
+    public void testExplosionIsBounded(){
+        // (x0 OR y0) AND ... AND (x19 OR y19) has 2^20 DNF clauses.
+        List<Filter> conjuncts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            conjuncts.add(FilterFactory.or(List.of(FilterFactory.isPresent("x" + i), FilterFactory.isPresent("y" + i))));
+        }
+        Filter filter = FilterFactory.and(conjuncts);
+        NormalForm dnf = NormalForm.toDnf(filter, 1000);
+        assertFalse(dnf.isComplete());
+        assertEquals(512, dnf.getClauses().size());
+        for (List<Filter> clause : dnf.getClauses()) {
+            assertEquals(20, clause.size());
+        }
+        NormalForm cnf = NormalForm.toCnf(filter, 1000);
+        assertTrue(cnf.isComplete());
+        assertEquals(20, cnf.getClauses().size());
+
+        Map<String, String> resource = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            resource.put((i % 3 == 0 ? "x" : "y") + i, "1");
+        }
+        assertTrue(dnf.toFilter().matches(resource));
+        resource.remove("y19");
+        assertFalse(dnf.toFilter().matches(resource));
+    }
+
+    @Test
+    public void testComplementedRanges(){
+        Filter filter = FilterFactory.and(List.of(FilterFactory.not(FilterFactory.greaterThan("age", 65)),
+            FilterFactory.not(FilterFactory.lessThan("age", 18)), FilterFactory.greaterThan("score", 10),
+            FilterFactory.not(FilterFactory.lessThan("score", 10)), FilterFactory.lessThan("score", 20)));
+        List<List<Filter>> clauses = NormalForm.toDnf(filter).getClauses();
+        assertEquals(1, clauses.size());
+        List<NormalForm.Range> ranges = NormalForm.ranges(clauses.get(0));
+        assertEquals(2, ranges.size());
+
+        NormalForm.Range age = ranges.get(0);
+        assertEquals("age", age.getProperty());
+        assertEquals(18, age.getLow(), 0);
+        assertTrue(age.isLowInclusive());
+        assertEquals(65, age.getHigh(), 0);
+        assertTrue(age.isHighInclusive());
+        assertTrue(age.includesMissing());
+        assertFalse(age.isEmpty());
+
+        NormalForm.Range score = ranges.get(1);
+        assertEquals(10, score.getLow(), 0);
+        assertFalse(score.isLowInclusive());
+        assertEquals(20, score.getHigh(), 0);
+        assertFalse(score.isHighInclusive());
+        assertFalse(score.includesMissing());
+
+        // A record without an age, or with NaN, satisfies the complemented range.
+        assertTrue(filter.matches(Map.of("score", "15")));
+        assertTrue(filter.matches(Map.of("score", "15", "age", "NaN")));
+        assertFalse(filter.matches(Map.of("score", "15", "age", "70")));
+
+        NormalForm.Range empty = NormalForm.ranges(List.of(FilterFactory.not(FilterFactory.greaterThan("age", 10)),
+            FilterFactory.not(FilterFactory.lessThan("age", 11)))).get(0);
+        assertTrue(empty.isEmpty());
+        assertTrue(empty.includesMissing());
+
+        // NOT (age > NaN) and NOT (age < NaN) always hold, while age > NaN never does.
+        NormalForm.Range unbounded = NormalForm.ranges(List.of(FilterFactory.not(FilterFactory.greaterThan("age", Double.NaN)),
+            FilterFactory.not(FilterFactory.lessThan("age", Double.NaN)), FilterFactory.not(FilterFactory.lessThan("age", 18)))).get(0);
+        assertFalse(unbounded.isEmpty());
+        assertEquals(18, unbounded.getLow(), 0);
+        assertEquals(Double.POSITIVE_INFINITY, unbounded.getHigh(), 0);
+        assertTrue(unbounded.includesMissing());
+        assertTrue(NormalForm.ranges(List.of(FilterFactory.greaterThan("age", Double.NaN))).get(0).isEmpty());
+        assertTrue(NormalForm.ranges(List.of(FilterFactory.lessThan("age", Double.NaN),
+            FilterFactory.not(FilterFactory.lessThan("age", 18)))).get(0).isEmpty());
+    }
+}
@@ -0,0 +1,180 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.resource.ResourceSchema;
+import handsoncode.store.PartitionedResourceStore;
+import handsoncode.store.ResourceStore;
+
+public class PartitionedResourceStoreTest {
+
+    private static final ResourceSchema SCHEMA = ResourceSchema.of("time", "level", "host", "note");
+    private static final String[] LEVELS = {"debug", "info", "warn", "error"};
+
+    /** Time-ordered events; levels and hosts change slowly, so that blocks hold few of them. */
+    private static List<Map<String, String>> events(Random random, int count) {
+        List<Map<String, String>> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, String> event = new HashMap<>();
+            event.put("time", String.valueOf(1_000_000 + i * 10 + random.nextInt(10)));
+            event.put("level", LEVELS[(i / 700 + (random.nextInt(50) == 0 ? 1 : 0)) % LEVELS.length].toUpperCase());
+            if (random.nextInt(3) > 0) {
+                event.put("host", "host-" + (i / 1_500));
+            }
+            if (i % 2_000 < 100) {
+                event.put("note", random.nextBoolean() ? " " : "restart");
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static final RandomFilters FILTERS = new RandomFilters(3, 3, random -> {
+        switch (random.nextInt(7)) {
+            case 0:
+                return FilterFactory.greaterThan("time", 1_000_000 + random.nextInt(110_000));
+            case 1:
+                return FilterFactory.lessThan("time", 1_000_000 + random.nextInt(110_000));
+            case 2:
+                return FilterFactory.equalsTo("level", LEVELS[random.nextInt(LEVELS.length)]);
+            case 3:
+                return FilterFactory.equalsTo("host", "HOST-" + random.nextInt(10));
+            case 4:
+                return FilterFactory.isPresent(random.nextBoolean() ? "note" : "host");
+            case 5:
+                return FilterFactory.matchesExpression("host", "-" + random.nextInt(10) + "$");
+            default:
+                return random.nextBoolean() ? FilterFactory.trueFilter() : FilterFactory.greaterThan("missing", 1);
+        }
+    });
+
+    private static List<Long> matches(ResourceStore store, Filter filter) {
+        List<Long> ids = new ArrayList<>();
+        store.forEachMatch(filter, ids::add);
+        return ids;
+    }
+
+    @Test
+    public void testPrunedScansMatchFullScans(){
+        Random random = new Random(8);
+        ResourceStore plain = new ResourceStore(SCHEMA);
+        PartitionedResourceStore partitioned = new PartitionedResourceStore(SCHEMA, 256);
+        for (Map<String, String> event : events(random, 10_000)) {
+            plain.add(event);
+            partitioned.add(event);
+        }
+        assertEquals(40, partitioned.blockCount());
+        for (int i = 0; i < 500; i++) {
+            Filter filter = FILTERS.filter(random, 4);
+            assertEquals(filter.toString(), matches(plain, filter), matches(partitioned, filter));
+        }
+    }
+
+    @Test
+    public void testNarrowRangesScanFewBlocks(){
+        PartitionedResourceStore store = new PartitionedResourceStore(SCHEMA, 1_000);
+        events(new Random(9), 100_000).forEach(store::add);
+        assertEquals(100, store.blockCount());
+
+        Filter range = FilterFactory.and(List.of(
+            FilterFactory.greaterThan("time", 1_500_000), FilterFactory.lessThan("time", 1_520_000)));
+        assertTrue(store.candidateBlocks(range) <= 3);
+        assertEquals(1_999, store.count(range), 2);
+
+        // Blocks inside the range match entirely, and blocks of other levels are skipped.
+        Filter errors = FilterFactory.and(List.of(range, FilterFactory.equalsTo("level", "Error")));
+        assertTrue(store.candidateBlocks(errors) <= 3);
+        assertTrue(store.candidateBlocks(FilterFactory.not(range)) <= 3);
+        assertEquals(0, store.candidateBlocks(FilterFactory.greaterThan("time", 5_000_000)));
+        assertEquals(0, store.candidateBlocks(FilterFactory.equalsTo("host", "host-999")));
+        assertTrue(store.candidateBlocks(FilterFactory.isPresent("note")) <= 50);
+    }
+
+    @Test
+    public void testSupplementaryCaseFolding(){
+        PartitionedResourceStore store = new PartitionedResourceStore(SCHEMA, 100);
+        events(new Random(11), 1_000).forEach(store::add);
+        store.add(Map.of("time", "0", "host", "\uD801\uDC00"));
+        Filter filter = FilterFactory.equalsTo("host", "\uD801\uDC28");
+        assertTrue(filter.matches(Map.of("host", "\uD801\uDC00")));
+        assertEquals(1, store.candidateBlocks(filter));
+        assertEquals(1, store.count(filter));
+    }
+
+    @Test
+    public void testPruningDoesNotHideErrors(){
+        Filter filter = FilterFactory.and(List.of(
+            FilterFactory.greaterThan("time", 2_000_000), FilterFactory.equalsTo("level", "fatal")));
+        ResourceStore plain = new ResourceStore(SCHEMA);
+        PartitionedResourceStore partitioned = new PartitionedResourceStore(SCHEMA, 100);
+        for (Map<String, String> event : events(new Random(10), 1_000)) {
+            plain.add(event);
+            partitioned.add(event);
+        }
+        assertEquals(0, partitioned.count(filter));
+
+        plain.add(Map.of("time", "yesterday", "level", "info"));
+        partitioned.add(Map.of("time", "yesterday", "level", "info"));
+        for (ResourceStore store : new ResourceStore[] {plain, partitioned}) {
+            try {
+                store.count(filter);
+                fail("A non-numeric time must be reported");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("yesterday"));
+            }
+        }
+        // Short-circuited before the comparison, the record is not an error.
+        Filter guarded = FilterFactory.and(List.of(FilterFactory.equalsTo("level", "fatal"), FilterFactory.greaterThan("time", 2_000_000)));
+        assertEquals(plain.count(guarded), partitioned.count(guarded));
+    }
+
+    @Test
+    public void testInvalidBlockSize(){
+        try {
+            new PartitionedResourceStore(SCHEMA, 0);
+            fail("A block size of 0 must be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testScansRunAlongsideAppends() throws Exception {
+        PartitionedResourceStore store = new PartitionedResourceStore(SCHEMA, 100);
+        events(new Random(12), 250).forEach(store::add);
+        Filter filter = FilterFactory.greaterThan("time", 0);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        long[] seen = new long[1];
+        try {
+            store.forEachMatch(filter, id -> {
+                if (seen[0]++ == 0) {
+                    try {
+                        executor.submit(() -> store.add(Map.of("time", "1"))).get(10, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new AssertionError("A scan blocked an append", e);
+                    }
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+        // The scan sees the records added before it started.
+        assertEquals(250, seen[0]);
+        assertEquals(251, store.count(filter));
+    }
+}
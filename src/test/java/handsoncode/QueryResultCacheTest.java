@@ -0,0 +1,108 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import handsoncode.bitmap.RoaringBitmap;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.query.QueryResultCache;
+import handsoncode.resource.ResourceSchema;
+import handsoncode.store.ResourceStore;
+
+public class QueryResultCacheTest {
+
+    private static final ResourceSchema SCHEMA = ResourceSchema.of("age", "role");
+
+    private static void fill(ResourceStore store, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            Map<String, String> resource = new HashMap<>();
+            resource.put("age", String.valueOf(random.nextInt(100)));
+            if (random.nextBoolean()) {
+                resource.put("role", random.nextInt(4) == 0 ? "admin" : "user");
+            }
+            store.add(resource);
+        }
+    }
+
+    private static RoaringBitmap scan(ResourceStore store, Filter filter) {
+        RoaringBitmap ids = new RoaringBitmap();
+        store.forEachMatch(filter, id -> ids.add((int) id));
+        return ids;
+    }
+
+    @Test
+    public void testNarrowedQueriesReuseBroaderResults(){
+        Random random = new Random(48);
+        ResourceStore store = new ResourceStore(SCHEMA);
+        fill(store, random, 5_000);
+        QueryResultCache cache = new QueryResultCache(store, 16);
+
+        Filter adults = FilterFactory.greaterThan("age", 17);
+        Filter admins = FilterFactory.and(List.of(adults, FilterFactory.equalsTo("role", "Admin")));
+        Filter seniorAdmins = FilterFactory.and(List.of(FilterFactory.equalsTo("role", "admin"), FilterFactory.greaterThan("age", 64)));
+        assertEquals(scan(store, adults), cache.matching(adults));
+        assertEquals(1, cache.getScanCount());
+        assertEquals(scan(store, admins), cache.matching(admins));
+        assertEquals(scan(store, seniorAdmins), cache.matching(seniorAdmins));
+        assertEquals(2, cache.getReuseCount());
+        assertEquals(1, cache.getScanCount());
+
+        assertEquals(scan(store, admins).getCardinality(), cache.count(admins));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(scan(store, FilterFactory.lessThan("age", 18)), cache.matching(FilterFactory.lessThan("age", 18)));
+        assertEquals(2, cache.getScanCount());
+    }
+
+    @Test
+    public void testAppendedRecordsAreIncluded(){
+        Random random = new Random(49);
+        ResourceStore store = new ResourceStore(SCHEMA);
+        fill(store, random, 1_000);
+        QueryResultCache cache = new QueryResultCache(store, 4);
+        Filter adults = FilterFactory.greaterThan("age", 17);
+        Filter admins = FilterFactory.and(List.of(adults, FilterFactory.equalsTo("role", "admin")));
+        cache.matching(adults);
+
+        fill(store, random, 500);
+        assertEquals(scan(store, admins), cache.matching(admins));
+        assertEquals(scan(store, adults), cache.matching(adults));
+        assertEquals(2, cache.getReuseCount());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(scan(store, adults), cache.matching(adults));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testRandomQueriesMatchScans(){
+        Random random = new Random(50);
+        ResourceStore store = new ResourceStore(SCHEMA);
+        fill(store, random, 2_000);
+        QueryResultCache cache = new QueryResultCache(store, 8);
+        for (int i = 0; i < 300; i++) {
+            List<Filter> children = new ArrayList<>();
+            children.add(FilterFactory.greaterThan("age", random.nextInt(100)));
+            if (random.nextBoolean()) {
+                children.add(FilterFactory.lessThan("age", random.nextInt(100)));
+            }
+            if (random.nextBoolean()) {
+                children.add(FilterFactory.equalsTo("role", random.nextBoolean() ? "admin" : "user"));
+            }
+            Filter filter = FilterFactory.and(children);
+            assertEquals(filter.toString(), scan(store, filter), cache.matching(filter));
+            if (i % 50 == 0) {
+                fill(store, random, 100);
+            }
+        }
+        assertTrue(cache.size() <= 8);
+        assertTrue(cache.getReuseCount() > 0);
+    }
+}
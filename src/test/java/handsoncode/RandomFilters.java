@@ -0,0 +1,50 @@
+package handsoncode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+
+/**
+ * Generates random filter trees for the tests comparing an evaluator with {@link Filter#matches(java.util.Map)}:
+ * {@code AND}, {@code OR} and {@code NOT} nodes over leaves drawn by a test-specific function, which chooses the
+ * properties and values the test data holds.
+ */
+final class RandomFilters {
+
+    private final int leafOdds;
+    private final int maxChildren;
+    private final Function<Random, Filter> leaf;
+
+    /**
+     * @param leafOdds a node above the maximum depth is a leaf with probability {@code 1 / leafOdds}.
+     * @param maxChildren the maximum number of children of an {@code AND} or {@code OR}.
+     * @param leaf draws a leaf filter.
+     */
+    RandomFilters(int leafOdds, int maxChildren, Function<Random, Filter> leaf) {
+        this.leafOdds = leafOdds;
+        this.maxChildren = maxChildren;
+        this.leaf = leaf;
+    }
+
+    Filter filter(Random random, int depth) {
+        if (depth == 0 || random.nextInt(leafOdds) == 0) {
+            return leaf.apply(random);
+        }
+        List<Filter> children = new ArrayList<>();
+        for (int i = 1 + random.nextInt(maxChildren); i > 0; i--) {
+            children.add(filter(random, depth - 1));
+        }
+        switch (random.nextInt(3)) {
+            case 0:
+                return FilterFactory.and(children);
+            case 1:
+                return FilterFactory.or(children);
+            default:
+                return FilterFactory.not(children.get(0));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import handsoncode.filter.AndFilter;
+import handsoncode.filter.FalseFilter;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.filter.FilterVisitor;
+import handsoncode.filter.GreaterThanFilter;
+import handsoncode.filter.IsEqualFilter;
+import handsoncode.filter.IsPresentFilter;
+import handsoncode.filter.LessThanFilter;
+import handsoncode.filter.MatchesExpressionFilter;
+import handsoncode.filter.NotFilter;
+import handsoncode.filter.OrFilter;
+import handsoncode.filter.PropertyUsage;
+import handsoncode.filter.ReferencedProperties;
+import handsoncode.filter.TrueFilter;
+
+public class ReferencedPropertiesTest {
+
+    /** Counts the leaves of a tree. */
+    private static final FilterVisitor<Integer> LEAF_COUNTER = new FilterVisitor<>() {
+        public Integer visitTrue(TrueFilter filter) { return 1; }
+        public Integer visitFalse(FalseFilter filter) { return 1; }
+        public Integer visitGreaterThan(GreaterThanFilter filter) { return 1; }
+        public Integer visitLessThan(LessThanFilter filter) { return 1; }
+        public Integer visitEqualsTo(IsEqualFilter filter) { return 1; }
+        public Integer visitIsPresent(IsPresentFilter filter) { return 1; }
+        public Integer visitMatchesExpression(MatchesExpressionFilter filter) { return 1; }
+        public Integer visitNot(NotFilter filter) { return filter.getFilter().accept(this); }
+        public Integer visitAnd(AndFilter filter) { return filter.getFilters().stream().mapToInt(f -> f.accept(this)).sum(); }
+        public Integer visitOr(OrFilter filter) { return filter.getFilters().stream().mapToInt(f -> f.accept(this)).sum(); }
+        public Integer visitOther(Filter filter) { return 1; }
+    };
+
+    @Test
+    public void testUsagesPerProperty(){
+
+        Filter filter = FilterFactory.or(List.of(
+            FilterFactory.and(List.of(FilterFactory.greaterThan("age", 30), FilterFactory.lessThan("age", 60))),
+            FilterFactory.not(FilterFactory.equalsTo("role", "administrator")),
+            FilterFactory.isPresent("role"),
+            FilterFactory.matchesExpression("firstname", "^jo"),
+            FilterFactory.trueFilter()
+        ));
+
+        ReferencedProperties properties = filter.referencedProperties();
+
+        assertTrue(properties.isComplete());
+        assertEquals(Set.of("age", "role", "firstname"), properties.getProperties());
+        assertEquals(EnumSet.of(PropertyUsage.NUMERIC), properties.getUsages("age"));
+        assertEquals(EnumSet.of(PropertyUsage.EQUALITY, PropertyUsage.PRESENCE), properties.getUsages("role"));
+        assertEquals(EnumSet.of(PropertyUsage.REGEX), properties.getUsages("firstname"));
+        assertTrue(properties.getUsages("lastname").isEmpty());
+        assertFalse(properties.contains("lastname"));
+    }
+
+    @Test
+    public void testResultIsCached(){
+
+        Filter filter = FilterFactory.not(FilterFactory.isPresent("age"));
+
+        assertSame(filter.referencedProperties(), filter.referencedProperties());
+        assertSame(filter.referencedProperties(), ReferencedProperties.of(filter));
+        assertEquals(filter.referencedProperties(), FilterFactory.fromString(filter.toString()).referencedProperties());
+        assertEquals(filter.referencedProperties(), ReferencedProperties.analyze(filter));
+    }
+
+    @Test
+    public void testDeeplyNestedFilter(){
+
+        Filter filter = FilterFactory.isPresent("leaf");
+        for (int depth = 0; depth < 100_000; depth++) {
+            switch (depth % 3) {
+                case 0: filter = FilterFactory.not(filter); break;
+                case 1: filter = FilterFactory.and(List.of(filter, FilterFactory.greaterThan("age", depth))); break;
+                default: filter = FilterFactory.or(List.of(FilterFactory.equalsTo("role", "admin"), filter)); break;
+            }
+        }
+
+        assertEquals(Set.of("leaf", "age", "role"), ReferencedProperties.analyze(filter).getProperties());
+        assertEquals(Set.of("leaf", "age", "role"), filter.referencedProperties().getProperties());
+        assertSame(filter.referencedProperties(), ReferencedProperties.of(filter));
+    }
+
+    @Test
+    public void testCustomFilterIsIncomplete(){
+
+        Filter custom = resource -> resource.containsKey("secret");
+        Filter filter = FilterFactory.and(List.of(FilterFactory.isPresent("age"), custom));
+
+        assertFalse(filter.referencedProperties().isComplete());
+        assertEquals(Set.of("age"), filter.referencedProperties().getProperties());
+        assertEquals("{\"complete\":\"false\",\"properties\":{\"age\":\"[PRESENCE]\"}}", filter.referencedProperties().toString());
+    }
+
+    @Test
+    public void testVisitor(){
+
+        Filter filter = FilterFactory.and(List.of(
+            FilterFactory.not(FilterFactory.falseFilter()),
+            FilterFactory.or(List.of(FilterFactory.isPresent("age"), FilterFactory.equalsTo("role", "x"), resource -> true))
+        ));
+
+        assertEquals(Integer.valueOf(4), filter.accept(LEAF_COUNTER));
+    }
+}
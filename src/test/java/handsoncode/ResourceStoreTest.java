@@ -0,0 +1,155 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import handsoncode.filter.EvaluationContext;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.resource.ResourceSchema;
+import handsoncode.store.IndexedResourceStore;
+import handsoncode.store.ResourceStore;
+import handsoncode.store.StoredResource;
+
+public class ResourceStoreTest {
+
+    private static Map<String, String> resource(String... keyValues) {
+        Map<String, String> resource = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            resource.put(keyValues[i], keyValues[i + 1]);
+        }
+        return resource;
+    }
+
+    @Test
+    public void testStoredRecordsMatchLikeMaps(){
+
+        List<Map<String, String>> users = List.of(TestData.getUserAge35(), TestData.getUserAge25(),
+            resource("firstname", "Ångström", "age", "1e2", "height", " 1.5 ", "role", "ÅDMIN"));
+        ResourceStore store = new ResourceStore(ResourceSchema.fromResources(users), 128);
+        for (Map<String, String> user : users) {
+            store.add(user);
+        }
+
+        List<Filter> filters = List.of(
+            FilterFactory.greaterThan("age", 30),
+            FilterFactory.lessThan("height", 1.6),
+            FilterFactory.equalsTo("firstname", "åNGSTRÖM"),
+            FilterFactory.equalsTo("role", "ådmin"),
+            FilterFactory.isPresent("testEmpty"),
+            FilterFactory.isPresent("lastname"),
+            FilterFactory.matchesExpression("firstname", "^(jo|å)"),
+            FilterFactory.or(List.of(FilterFactory.not(FilterFactory.isPresent("height")), FilterFactory.trueFilter())),
+            resource -> resource.size() > 4
+        );
+
+        StoredResource cursor = store.cursor();
+        for (Filter filter : filters) {
+            List<Long> expected = new ArrayList<>();
+            for (int id = 0; id < users.size(); id++) {
+                if (filter.matches(users.get(id))) {
+                    expected.add((long) id);
+                }
+                assertEquals(filter.matches(users.get(id)), filter.bind(store.getSchema()).matches(cursor.moveTo(id)));
+            }
+            List<Long> actual = new ArrayList<>();
+            store.forEachMatch(filter, actual::add);
+            assertEquals(filter.toString(), expected, actual);
+        }
+    }
+
+    @Test
+    public void testSurrogatePairsCompareLikeStrings(){
+        // Deseret capital and small long I, equal ignoring case, and a supplementary character without case.
+        String[] values = {"\uD801\uDC00", "\uD801\uDC28", "x\uD801\uDC00", "\uD83D\uDE00", "\u00C5"};
+        ResourceSchema schema = ResourceSchema.of("k");
+        ResourceStore store = new ResourceStore(schema);
+        for (String value : values) {
+            store.add(Map.of("k", value));
+        }
+        StoredResource resource = store.cursor();
+        for (String expected : values) {
+            for (int id = 0; id < values.length; id++) {
+                Filter filter = FilterFactory.equalsTo("k", expected);
+                assertEquals(values[id] + " / " + expected, filter.matches(Map.of("k", values[id])),
+                    filter.bind(schema).matches(resource.moveTo(id), new EvaluationContext()));
+            }
+        }
+        assertEquals(2, store.count(FilterFactory.equalsTo("k", "\uD801\uDC28")));
+
+        IndexedResourceStore indexed = new IndexedResourceStore(schema);
+        for (String value : values) {
+            indexed.add(Map.of("k", value));
+        }
+        assertEquals(2, indexed.count(FilterFactory.equalsTo("k", "\uD801\uDC28")));
+        assertEquals(2, indexed.count(FilterFactory.and(List.of(FilterFactory.equalsTo("k", "\uD801\uDC00"),
+            FilterFactory.matchesExpression("k", "^.$")))));
+    }
+
+    @Test
+    public void testRecordsRoundTrip(){
+
+        ResourceStore store = new ResourceStore(ResourceSchema.of("firstname", "age", "testNull", "testEmpty", "lastname", "role"), 64);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, store.add(TestData.getUserAge35()));
+        }
+
+        Map<String, String> expected = new HashMap<>(TestData.getUserAge35());
+        expected.remove("testNull");
+
+        assertEquals(100, store.size());
+        assertEquals(expected, store.get(99));
+        assertEquals(100, store.count(FilterFactory.greaterThan("age", 34.5)));
+        assertTrue(store.getReservedBytes() > 100 * 40);
+    }
+
+    @Test
+    public void testNumericParsing(){
+
+        ResourceSchema schema = ResourceSchema.of("value");
+        ResourceStore store = new ResourceStore(schema);
+        String[] values = {"35", "-0.5", "+12.25", "1.", ".5", "0.1", "9007199254740993", "1e3", "1.5d", "NaN"};
+        for (String value : values) {
+            store.add(Map.of("value", value));
+        }
+
+        StoredResource cursor = store.cursor();
+        for (int id = 0; id < values.length; id++) {
+            assertEquals(values[id], Double.parseDouble(values[id]),
+                cursor.moveTo(id).numericValue(0, new EvaluationContext()), 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidNumber(){
+
+        ResourceStore store = new ResourceStore(ResourceSchema.of("age"));
+        store.add(Map.of("age", "thirty"));
+
+        store.count(FilterFactory.greaterThan("age", 30));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownProperty(){
+
+        ResourceStore store = new ResourceStore(ResourceSchema.of("age"));
+        store.add(TestData.getUserAge25());
+    }
+
+    @Test
+    public void testEmptyStore(){
+
+        ResourceStore store = new ResourceStore(ResourceSchema.of("age"));
+
+        assertEquals(0, store.count(FilterFactory.trueFilter()));
+        assertFalse(store.cursor().contains(0));
+    }
+}
@@ -0,0 +1,175 @@
+package handsoncode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import handsoncode.bitmap.RoaringBitmap;
+
+public class RoaringBitmapTest {
+
+    private static final int UNIVERSE = 5 << 16;
+
+    /** Random values mixing sparse partitions, dense partitions and long runs. */
+    private static BitSet randomSet(Random random) {
+        BitSet set = new BitSet();
+        for (int high = 0; high < UNIVERSE >>> 16; high++) {
+            int base = high << 16;
+            switch (random.nextInt(4)) {
+                case 0:
+                    for (int i = 0; i < 100; i++) {
+                        set.set(base + random.nextInt(1 << 16));
+                    }
+                    break;
+                case 1:
+                    for (int i = 0; i < 30_000; i++) {
+                        set.set(base + random.nextInt(1 << 16));
+                    }
+                    break;
+                case 2:
+                    for (int run = 0; run < 10; run++) {
+                        int start = base + random.nextInt(60_000);
+                        set.set(start, start + random.nextInt(5_000));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return set;
+    }
+
+    private static RoaringBitmap toBitmap(BitSet set, boolean optimize) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        set.stream().forEach(bitmap::add);
+        return optimize ? bitmap.runOptimize() : bitmap;
+    }
+
+    private static void assertSameValues(BitSet expected, RoaringBitmap actual) {
+        assertEquals(expected.cardinality(), actual.getCardinality());
+        assertArrayEquals(expected.stream().toArray(), actual.toArray());
+    }
+
+    @Test
+    public void testOperationsMatchBitSet(){
+
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            BitSet a = randomSet(random);
+            BitSet b = randomSet(random);
+            for (boolean optimizeA : new boolean[] {false, true}) {
+                for (boolean optimizeB : new boolean[] {false, true}) {
+                    RoaringBitmap x = toBitmap(a, optimizeA);
+                    RoaringBitmap y = toBitmap(b, optimizeB);
+
+                    BitSet and = (BitSet) a.clone();
+                    and.and(b);
+                    BitSet or = (BitSet) a.clone();
+                    or.or(b);
+                    BitSet andNot = (BitSet) a.clone();
+                    andNot.andNot(b);
+
+                    assertSameValues(and, x.and(y));
+                    assertSameValues(or, x.or(y));
+                    assertSameValues(andNot, x.andNot(y));
+                    assertSameValues(a, x);
+                    assertSameValues(b, y);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNextValueAndNextAbsentValue(){
+
+        Random random = new Random(11);
+        BitSet set = randomSet(random);
+        RoaringBitmap bitmap = toBitmap(set, true);
+        for (int i = 0; i < 10_000; i++) {
+            int from = random.nextInt(UNIVERSE + 1000);
+            assertEquals(set.nextSetBit(from), bitmap.nextValue(from));
+            assertEquals(set.nextClearBit(from), bitmap.nextAbsentValue(from));
+            assertEquals(set.get(from), bitmap.contains(from));
+        }
+    }
+
+    @Test
+    public void testRangeAndComplement(){
+
+        RoaringBitmap universe = RoaringBitmap.range(10, 200_000);
+        assertEquals(199_990, universe.getCardinality());
+        assertTrue(universe.getSizeInBytes() < 100);
+
+        RoaringBitmap odd = new RoaringBitmap();
+        for (int i = 1; i < 200_000; i += 2) {
+            odd.add(i);
+        }
+        RoaringBitmap even = universe.andNot(odd);
+        assertEquals(99_995, even.getCardinality());
+        assertFalse(even.contains(11));
+        assertTrue(even.contains(12));
+        assertEquals(universe, even.or(odd.and(universe)));
+    }
+
+    @Test
+    public void testCompression(){
+
+        RoaringBitmap sparse = new RoaringBitmap();
+        RoaringBitmap dense = new RoaringBitmap();
+        for (int i = 0; i < 10_000_000; i++) {
+            if (i % 10_000 == 0) {
+                sparse.add(i);
+            }
+            dense.add(i);
+        }
+        assertTrue(sparse.getSizeInBytes() < 4_000);
+        assertTrue(dense.getSizeInBytes() <= 10_000_000 / 8 + 16_384);
+        assertTrue(dense.runOptimize().getSizeInBytes() < 2_000);
+        assertEquals(10_000_000, dense.getCardinality());
+    }
+
+    @Test
+    public void testEqualsIgnoresRepresentation(){
+
+        RoaringBitmap bitmap = RoaringBitmap.of(1, 2, 3, 4, 5, 70_000);
+        RoaringBitmap optimized = RoaringBitmap.of(5, 4, 3, 2, 1, 70_000).runOptimize();
+
+        assertEquals(bitmap, optimized);
+        assertEquals(bitmap.hashCode(), optimized.hashCode());
+        assertNotEquals(bitmap, RoaringBitmap.of(1, 2, 3));
+    }
+
+    @Test
+    public void testResultsDoNotShareState(){
+
+        RoaringBitmap a = RoaringBitmap.of(1, 2, 3);
+        RoaringBitmap b = RoaringBitmap.of(100_000);
+        RoaringBitmap union = a.or(b);
+        RoaringBitmap copy = a.clone();
+
+        a.add(4);
+        b.add(100_001);
+
+        assertEquals(RoaringBitmap.of(1, 2, 3, 100_000), union);
+        assertEquals(RoaringBitmap.of(1, 2, 3), copy);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNegativeValues(){
+
+        new RoaringBitmap().add(-1);
+    }
+
+    @Test
+    public void testToString(){
+
+        assertEquals("{\"type\":\"RoaringBitmap\",\"cardinality\":\"3\",\"values\":\"[1, 5, 9]\"}", RoaringBitmap.of(9, 5, 1).toString());
+    }
+}
@@ -0,0 +1,101 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.resource.ArrayResource;
+import handsoncode.resource.BoundFilter;
+import handsoncode.resource.ResourceSchema;
+
+public class SchemaBindingTest {
+
+    private static final ResourceSchema schema = ResourceSchema.fromResources(
+        List.of(TestData.getUserAge35(), TestData.getUserAge25()));
+
+    @Test
+    public void testSchemaSlots(){
+
+        ResourceSchema nameAge = ResourceSchema.of("firstname", "age");
+
+        assertEquals(0, nameAge.slotOf("firstname"));
+        assertEquals(1, nameAge.slotOf("age"));
+        assertEquals(ResourceSchema.NO_SLOT, nameAge.slotOf("height"));
+        assertEquals("age", nameAge.propertyAt(1));
+        assertEquals("{\"type\":\"Schema\",\"properties\":[\"firstname\",\"age\"]}", nameAge.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicatedProperty(){
+        ResourceSchema.of("age", "age");
+    }
+
+    @Test
+    public void testBoundFiltersAgreeWithMapFilters(){
+
+        List<Filter> filters = List.of(
+            FilterFactory.trueFilter(),
+            FilterFactory.falseFilter(),
+            FilterFactory.greaterThan("age", 30),
+            FilterFactory.lessThan("age", 30),
+            FilterFactory.lessThan("height", 1.80),
+            FilterFactory.equalsTo("lastname", "bloggs"),
+            FilterFactory.isPresent("testEmpty"),
+            FilterFactory.isPresent("height"),
+            FilterFactory.matchesExpression("firstname", "^jo"),
+            FilterFactory.not(FilterFactory.equalsTo("role", "administrator")),
+            FilterFactory.and(List.of(FilterFactory.greaterThan("age", 20), FilterFactory.isPresent("height"))),
+            FilterFactory.or(List.of(FilterFactory.equalsTo("firstname", "John"), FilterFactory.lessThan("age", 0)))
+        );
+
+        for (Map<String, String> user : List.of(TestData.getUserAge35(), TestData.getUserAge25())) {
+            ArrayResource resource = ArrayResource.fromMap(schema, user);
+            for (Filter filter : filters) {
+                assertEquals(filter.toString(), filter.matches(user), filter.bind(schema).matches(resource));
+            }
+        }
+    }
+
+    @Test
+    public void testUnknownProperty(){
+
+        ArrayResource resource = ArrayResource.fromMap(schema, TestData.getUserAge35());
+
+        assertFalse(FilterFactory.greaterThan("weight", 10).bind(schema).matches(resource));
+        assertFalse(FilterFactory.isPresent("extra").bind(schema).matches(resource));
+        assertTrue(FilterFactory.not(FilterFactory.equalsTo("extra", "any")).bind(schema).matches(resource));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBoundGreaterThanException(){
+
+        ArrayResource resource = ArrayResource.fromMap(schema, TestData.getUserAge35());
+
+        FilterFactory.greaterThan("firstname", 30).bind(schema).matches(resource);
+    }
+
+    @Test
+    public void testMapAdapter(){
+
+        ArrayResource resource = ArrayResource.fromMap(schema, TestData.getUserAge25());
+        Map<String, String> view = resource.asMap();
+
+        assertEquals("John", view.get("firstname"));
+        assertTrue(view.containsKey("height"));
+        assertFalse(view.containsKey("testEmpty"));
+        assertNull(view.get("extra"));
+        assertEquals(TestData.getUserAge25(), view);
+
+        Filter custom = user -> user.containsKey("height");
+        BoundFilter bound = custom.bind(schema);
+        assertTrue(bound.matches(resource));
+    }
+}
@@ -0,0 +1,209 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.resource.ResourceSchema;
+import handsoncode.stats.EquiDepthHistogram;
+import handsoncode.stats.HyperLogLog;
+import handsoncode.stats.PropertyStatistics;
+import handsoncode.stats.ResourceStatistics;
+import handsoncode.stats.StatisticsCollector;
+import handsoncode.store.ResourceStore;
+import handsoncode.utils.UtilsFilter;
+
+public class StatisticsTest {
+
+    /** 10000 users: age 0..99 uniformly, role admin for 10%, email for even ids, unique names. */
+    private static List<Map<String, String>> users() {
+        List<Map<String, String>> users = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Map<String, String> user = new HashMap<>();
+            user.put("age", String.valueOf(i % 100));
+            user.put("role", i % 10 == 0 ? "Admin" : "user");
+            user.put("name", "name" + i);
+            if (i % 2 == 0) {
+                user.put("email", "user" + i + (i % 4 == 0 ? "@example.com" : "@test.org"));
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static double actual(List<Map<String, String>> resources, Filter filter) {
+        return resources.stream().filter(filter::matches).count() / (double) resources.size();
+    }
+
+    @Test
+    public void testHyperLogLogEstimatesDistinctValues() {
+        HyperLogLog small = new HyperLogLog();
+        for (int i = 0; i < 1000; i++) {
+            small.add("value" + (i % 10));
+        }
+        assertEquals(10, small.estimate());
+
+        HyperLogLog large = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            large.add("value" + i);
+        }
+        assertEquals(100_000, large.estimate(), 100_000 * 0.05);
+    }
+
+    @Test
+    public void testHyperLogLogMerge() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (int i = 0; i < 500; i++) {
+            first.add("a" + i);
+            second.add("b" + i);
+        }
+        first.merge(second);
+        assertEquals(1000, first.estimate(), 50);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHyperLogLogRejectsMismatchedPrecision() {
+        new HyperLogLog(10).merge(new HyperLogLog(12));
+    }
+
+    @Test
+    public void testEquiDepthHistogram() {
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        EquiDepthHistogram histogram = EquiDepthHistogram.of(values, 10);
+        assertEquals(10, histogram.getBuckets());
+        assertEquals(0.25, histogram.fractionBelow(250), 0.01);
+        assertEquals(0.75, histogram.fractionAbove(250), 0.01);
+        assertEquals(0, histogram.fractionBelow(-1), 0);
+        assertEquals(1, histogram.fractionBelow(5000), 0);
+        assertEquals(0, histogram.fractionAbove(999), 0);
+    }
+
+    @Test
+    public void testPropertyStatistics() {
+        List<Map<String, String>> users = users();
+        ResourceStatistics statistics = StatisticsCollector.collect(users);
+        assertEquals(10_000, statistics.getCount());
+
+        PropertyStatistics role = statistics.getProperty("role");
+        assertEquals(10_000, role.getPresentCount());
+        assertEquals(2, role.getDistinctCount());
+        assertTrue(role.isMostFrequentExact());
+        assertEquals(Long.valueOf(1000), role.getMostFrequentValues().get("admin"));
+
+        PropertyStatistics age = statistics.getProperty("age");
+        assertEquals(10_000, age.getNumericCount());
+        assertEquals(0, age.getMin(), 0);
+        assertEquals(99, age.getMax(), 0);
+
+        PropertyStatistics name = statistics.getProperty("name");
+        assertFalse(name.isMostFrequentExact());
+        assertEquals(10_000, name.getDistinctCount(), 500);
+
+        assertEquals(5000, statistics.getProperty("email").getPresentCount());
+        assertNull(statistics.getProperty("phone"));
+    }
+
+    @Test
+    public void testLeafSelectivity() {
+        List<Map<String, String>> users = users();
+        ResourceStatistics statistics = StatisticsCollector.collect(users);
+
+        Filter[] filters = {
+            FilterFactory.equalsTo("role", "ADMIN"),
+            FilterFactory.equalsTo("role", "guest"),
+            FilterFactory.equalsTo("name", "name42"),
+            FilterFactory.greaterThan("age", 30),
+            FilterFactory.lessThan("age", 10),
+            FilterFactory.isPresent("email"),
+            FilterFactory.isPresent("phone"),
+            FilterFactory.matchesExpression("email", "@example\\.com$"),
+        };
+        for (Filter filter : filters) {
+            assertEquals(filter.toString(), actual(users, filter), statistics.selectivity(filter), 0.03);
+        }
+    }
+
+    @Test
+    public void testFoldCaseMatchesEqualsIgnoreCase() {
+        // Deseret capital and small long I, a case pair outside the Basic Multilingual Plane.
+        String[][] pairs = {
+            {"Bloggs", "bLOGGS"}, {"\uD801\uDC00", "\uD801\uDC28"}, {"x\uD801\uDC00y", "X\uD801\uDC28Y"},
+            {"\u0130", "i"}, {"\u03A3", "\u03C2"}, {"\uD801", "\uD801"}, {"\uD801\uDC00", "\uD801\uDC01"},
+        };
+        for (String[] pair : pairs) {
+            assertEquals(pair[0] + " / " + pair[1], pair[0].equalsIgnoreCase(pair[1]),
+                UtilsFilter.foldCase(pair[0]).equals(UtilsFilter.foldCase(pair[1])));
+        }
+        assertEquals("\uD801\uDC28", UtilsFilter.foldCase("\uD801\uDC00"));
+
+        List<Map<String, String>> resources = List.of(Map.of("k", "\uD801\uDC00"), Map.of("k", "a"));
+        Filter filter = FilterFactory.equalsTo("k", "\uD801\uDC28");
+        assertEquals(0.5, StatisticsCollector.collect(resources).selectivity(filter), 0.01);
+    }
+
+    @Test
+    public void testLogicalSelectivity() {
+        List<Map<String, String>> users = users();
+        ResourceStatistics statistics = StatisticsCollector.collect(users);
+
+        Filter admins = FilterFactory.equalsTo("role", "admin");
+        Filter withEmail = FilterFactory.isPresent("email");
+        assertEquals(0.05, statistics.selectivity(FilterFactory.and(List.of(admins, withEmail))), 0.01);
+        assertEquals(0.55, statistics.selectivity(FilterFactory.or(List.of(admins, withEmail))), 0.01);
+        assertEquals(0.9, statistics.selectivity(FilterFactory.not(admins)), 0.01);
+        assertEquals(1, statistics.selectivity(FilterFactory.trueFilter()), 0);
+        assertEquals(0, statistics.selectivity(FilterFactory.falseFilter()), 0);
+        assertEquals(ResourceStatistics.UNKNOWN_SELECTIVITY, statistics.selectivity(resource -> true), 0);
+        assertEquals(1000, statistics.estimateCount(admins));
+    }
+
+    @Test
+    public void testNaNThresholds() {
+        List<Map<String, String>> users = users();
+        ResourceStatistics statistics = StatisticsCollector.collect(users);
+
+        Filter above = FilterFactory.greaterThan("age", Double.NaN);
+        Filter below = FilterFactory.lessThan("age", Double.NaN);
+        for (Filter filter : new Filter[] {above, below, FilterFactory.not(above), FilterFactory.not(below)}) {
+            assertEquals(filter.toString(), actual(users, filter), statistics.selectivity(filter), 0);
+        }
+        assertEquals(0, statistics.selectivity(FilterFactory.or(List.of(above, below))), 0);
+        assertEquals(statistics.selectivity(FilterFactory.isPresent("email")),
+            statistics.selectivity(FilterFactory.and(List.of(FilterFactory.isPresent("email"), FilterFactory.not(above)))), 1e-9);
+        assertEquals(0, statistics.estimateCount(above));
+    }
+
+    @Test
+    public void testCollectFromStore() {
+        List<Map<String, String>> users = users();
+        try (ResourceStore store = new ResourceStore(ResourceSchema.fromResources(users), 1 << 20)) {
+            users.forEach(store::add);
+            ResourceStatistics fromStore = StatisticsCollector.collect(store);
+            ResourceStatistics fromList = StatisticsCollector.collect(users);
+            assertEquals(fromList.getCount(), fromStore.getCount());
+            Filter filter = FilterFactory.and(List.of(FilterFactory.greaterThan("age", 50), FilterFactory.equalsTo("role", "user")));
+            assertEquals(fromList.selectivity(filter), fromStore.selectivity(filter), 0.02);
+        }
+    }
+
+    @Test
+    public void testEmptyStatistics() {
+        ResourceStatistics statistics = new StatisticsCollector().build();
+        assertEquals(0, statistics.selectivity(FilterFactory.trueFilter()), 0);
+        assertTrue(statistics.getProperties().isEmpty());
+    }
+}
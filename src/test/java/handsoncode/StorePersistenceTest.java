@@ -0,0 +1,185 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import handsoncode.bitmap.RoaringBitmap;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.resource.ResourceSchema;
+import handsoncode.stats.ResourceStatistics;
+import handsoncode.store.IndexedResourceStore;
+
+public class StorePersistenceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Map<String, String>> users(int count, int seed) {
+        Random random = new Random(seed);
+        String[] roles = {"admin", "Admin", "user", "guest", " ", "élève"};
+        List<Map<String, String>> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, String> user = new HashMap<>();
+            if (random.nextInt(10) > 0) {
+                user.put("role", roles[random.nextInt(roles.length)]);
+            }
+            if (random.nextInt(5) > 0) {
+                user.put("age", String.valueOf(random.nextInt(100)));
+            }
+            user.put("name", "user" + i);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static List<Filter> filters() {
+        Filter admins = FilterFactory.equalsTo("role", "ADMIN");
+        Filter older = FilterFactory.greaterThan("age", 40);
+        return List.of(
+            admins, older, FilterFactory.lessThan("age", 18), FilterFactory.isPresent("role"),
+            FilterFactory.equalsTo("role", "ÉLÈVE"), FilterFactory.not(admins),
+            FilterFactory.and(List.of(admins, older)),
+            FilterFactory.and(List.of(older, FilterFactory.matchesExpression("name", "7$"))),
+            FilterFactory.or(List.of(admins, FilterFactory.not(FilterFactory.isPresent("age"))))
+        );
+    }
+
+    @Test
+    public void testReopenedStoreAnswersLikeOriginal() throws IOException {
+        List<Map<String, String>> users = users(20_000, 7);
+        Path file = folder.getRoot().toPath().resolve("users.store");
+        IndexedResourceStore store = new IndexedResourceStore(ResourceSchema.of("role", "age", "name", "email"), 1 << 16);
+        users.forEach(store::add);
+        store.save(file);
+        assertFalse(Files.exists(file.resolveSibling("users.store.tmp")));
+
+        try (IndexedResourceStore reopened = IndexedResourceStore.open(file)) {
+            assertEquals(store.size(), reopened.size());
+            assertEquals(store.getSchema().getProperties(), reopened.getSchema().getProperties());
+            for (Filter filter : filters()) {
+                assertEquals(filter.toString(), store.count(filter), reopened.count(filter));
+                assertEquals(filter.toString(), store.matching(filter), reopened.matching(filter));
+            }
+            for (int id : new int[] {0, 1, 9_999, 19_999}) {
+                assertEquals(users.get(id), reopened.get(id));
+            }
+            assertEquals(store.getStatistics().toString(), reopened.getStatistics().toString());
+        }
+        store.close();
+    }
+
+    @Test
+    public void testAppendAfterReopen() throws IOException {
+        List<Map<String, String>> users = users(3_000, 11);
+        Path file = folder.getRoot().toPath().resolve("users.store");
+        IndexedResourceStore store = new IndexedResourceStore(ResourceSchema.of("role", "age", "name"), 1 << 12);
+        users.subList(0, 2_000).forEach(store::add);
+        store.save(file);
+
+        IndexedResourceStore expected = new IndexedResourceStore(ResourceSchema.of("role", "age", "name"));
+        users.forEach(expected::add);
+        try (IndexedResourceStore reopened = IndexedResourceStore.open(file)) {
+            users.subList(2_000, 3_000).forEach(reopened::add);
+            assertEquals(3_000, reopened.size());
+            for (Filter filter : filters()) {
+                assertEquals(filter.toString(), expected.count(filter), reopened.count(filter));
+            }
+            assertEquals(users.get(2_500), reopened.get(2_500));
+            assertEquals(3_000, reopened.getStatistics().getCount());
+
+            // Saving a reopened store over its own file keeps the mapped records valid.
+            reopened.save(file);
+            assertEquals(users.get(10), reopened.get(10));
+        }
+        try (IndexedResourceStore again = IndexedResourceStore.open(file)) {
+            assertEquals(3_000, again.size());
+            assertEquals(expected.count(filters().get(0)), again.count(filters().get(0)));
+        }
+    }
+
+    @Test
+    public void testEmptyStore() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("empty.store");
+        new IndexedResourceStore(ResourceSchema.of("role")).save(file);
+        try (IndexedResourceStore reopened = IndexedResourceStore.open(file)) {
+            assertEquals(0, reopened.size());
+            assertEquals(0, reopened.count(FilterFactory.trueFilter()));
+            reopened.add(Map.of("role", "admin"));
+            assertEquals(1, reopened.count(FilterFactory.equalsTo("role", "admin")));
+        }
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("other.store");
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        try {
+            IndexedResourceStore.open(file);
+            fail("A file without the magic number must be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("not a store file"));
+        }
+
+        Path store = folder.getRoot().toPath().resolve("users.store");
+        new IndexedResourceStore(ResourceSchema.of("role")).save(store);
+        byte[] bytes = Files.readAllBytes(store);
+        bytes[7] = 99;
+        Files.write(store, bytes);
+        try {
+            IndexedResourceStore.open(store);
+            fail("A file of another version must be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("version 99"));
+        }
+    }
+
+    @Test
+    public void testBitmapRoundTrip() throws IOException {
+        RoaringBitmap bitmap = RoaringBitmap.of(1, 5, 70_000);
+        for (int value = 200_000; value < 210_000; value += 2) {
+            bitmap.add(value);
+        }
+        RoaringBitmap runs = RoaringBitmap.range(1_000_000, 1_300_000);
+        for (RoaringBitmap expected : List.of(bitmap, runs, new RoaringBitmap())) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            expected.writeTo(new DataOutputStream(bytes));
+            RoaringBitmap read = RoaringBitmap.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertEquals(expected, read);
+            assertEquals(expected.getSizeInBytes(), read.getSizeInBytes());
+        }
+    }
+
+    @Test
+    public void testStatisticsRoundTrip() throws IOException {
+        IndexedResourceStore store = new IndexedResourceStore(ResourceSchema.of("role", "age", "name"));
+        users(2_000, 3).forEach(store::add);
+        ResourceStatistics statistics = store.getStatistics();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        statistics.writeTo(new DataOutputStream(bytes));
+        ResourceStatistics read = ResourceStatistics.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(statistics.toString(), read.toString());
+        for (Filter filter : filters()) {
+            assertEquals(statistics.selectivity(filter), read.selectivity(filter), 0);
+        }
+    }
+}
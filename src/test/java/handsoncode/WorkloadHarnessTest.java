@@ -0,0 +1,106 @@
+package handsoncode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import handsoncode.bench.LatencyHistogram;
+import handsoncode.bench.LoadHarness;
+import handsoncode.bench.WorkloadGenerator;
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+
+public class WorkloadHarnessTest {
+
+    @Test
+    public void testGeneratorIsReproducible(){
+        WorkloadGenerator first = new WorkloadGenerator(7).distribution(WorkloadGenerator.Distribution.GAUSSIAN);
+        WorkloadGenerator second = new WorkloadGenerator(7).distribution(WorkloadGenerator.Distribution.GAUSSIAN);
+        assertEquals(first.resources(50), second.resources(50));
+        assertEquals(first.filters(50).toString(), second.filters(50).toString());
+    }
+
+    @Test
+    public void testFiltersUseEveryType(){
+        Set<String> types = new HashSet<>();
+        for (Filter filter : new WorkloadGenerator(1).maxDepth(2).filters(500)) {
+            String json = filter.toString();
+            for (String type : FilterFactory.getFilterTypes()) {
+                if (json.contains("\"type\":\"" + type + "\"")) {
+                    types.add(type);
+                }
+            }
+        }
+        assertEquals(new HashSet<>(FilterFactory.getFilterTypes()), types);
+
+        for (Filter filter : new WorkloadGenerator(1).maxDepth(0).filters(200)) {
+            String json = filter.toString();
+            assertTrue(json, !json.contains("\"AND\"") && !json.contains("\"OR\"") && !json.contains("\"NOT\""));
+        }
+    }
+
+    @Test
+    public void testResourcesFollowSettings(){
+        List<Map<String, String>> resources = new WorkloadGenerator(3).propertyCount(5).presenceProbability(1)
+            .valueRange(100).distribution(WorkloadGenerator.Distribution.ZIPF).nonNumericFraction(0.2).resources(2_000);
+        int values = 0;
+        int text = 0;
+        int zeros = 0;
+        for (Map<String, String> resource : resources) {
+            assertEquals(5, resource.size());
+            for (String value : resource.values()) {
+                values++;
+                if (value.startsWith("text-")) {
+                    text++;
+                } else {
+                    int number = Integer.parseInt(value);
+                    assertTrue(number >= 0 && number < 100);
+                    zeros += number == 0 ? 1 : 0;
+                }
+            }
+        }
+        assertEquals(0.2, (double) text / values, 0.03);
+        // The most frequent Zipf value has a probability of 1 / H(100), about 19%.
+        assertEquals(0.19, (double) zeros / (values - text), 0.03);
+    }
+
+    @Test
+    public void testHistogramPercentiles(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 10);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_000, histogram.getPercentile(0.5), 500_000 * 0.04);
+        assertEquals(990_000, histogram.getPercentile(0.99), 990_000 * 0.04);
+        assertEquals(1_000_000, histogram.getPercentile(1));
+
+        LatencyHistogram other = new LatencyHistogram();
+        other.record(5);
+        histogram.merge(other);
+        assertEquals(5, histogram.getPercentile(0));
+    }
+
+    @Test
+    public void testHarnessReportsOperationsAndErrors() throws InterruptedException {
+        WorkloadGenerator generator = new WorkloadGenerator(11).nonNumericFraction(0.5);
+        List<Map<String, String>> resources = generator.resources(100);
+        Filter filter = FilterFactory.greaterThan("p0", 10);
+        LoadHarness harness = new LoadHarness(2, Duration.ofMillis(50), Duration.ofMillis(200));
+        LoadHarness.Report report = harness.run(random -> filter.matches(resources.get(random.nextInt(resources.size()))));
+
+        assertTrue(report.getOperations() > 0);
+        assertTrue(report.getErrors() > 0 && report.getErrors() < report.getOperations());
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getLatency(0.5) <= report.getLatency(0.99));
+        assertTrue(report.format(), report.format().startsWith("2 threads"));
+    }
+}
@@ -0,0 +1,79 @@
+package handsoncode.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.ToLongFunction;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+import handsoncode.query.FilteredSpliterator;
+
+/**
+ * Compares sequential filtering, a naive parallel stream and {@link FilteredSpliterator} on skewed data:
+ * a small cluster of resources carries long values that make a regular expression expensive, while
+ * the other resources are cheap to evaluate.
+ *
+ * <p>Run with {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=handsoncode.bench.FilteredSpliteratorBenchmark}; optional arguments are the number of
+ * resources and the fraction of expensive ones.</p>
+ */
+public class FilteredSpliteratorBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 15;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        double expensiveFraction = args.length > 1 ? Double.parseDouble(args[1]) : 0.03;
+
+        List<Map<String, String>> resources = skewedResources(size, expensiveFraction);
+        Filter filter = FilterFactory.or(List.of(
+            FilterFactory.equalsTo("kind", "archived"),
+            FilterFactory.matchesExpression("text", "needle-\\d+-end")
+        ));
+
+        System.out.printf("%d resources, %.1f%% expensive, parallelism %d%n", size, expensiveFraction * 100,
+            java.util.concurrent.ForkJoinPool.getCommonPoolParallelism());
+        run("sequential", resources, list -> list.stream().filter(filter::matches).count());
+        run("parallel().filter(f::matches)", resources, list -> list.parallelStream().filter(filter::matches).count());
+        run("FilteredSpliterator sequential", resources, list -> FilteredSpliterator.stream(list, filter, false).count());
+        run("FilteredSpliterator parallel", resources, list -> FilteredSpliterator.stream(list, filter, true).count());
+    }
+
+    private static void run(String name, List<Map<String, String>> resources, ToLongFunction<List<Map<String, String>>> query) {
+        long matches = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            matches = query.applyAsLong(resources);
+        }
+        long[] times = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            matches = query.applyAsLong(resources);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        System.out.printf("%-32s median %8.2f ms  min %8.2f ms  (%d matches)%n",
+            name, times[MEASURED_ROUNDS / 2] / 1e6, times[0] / 1e6, matches);
+    }
+
+    /** Expensive resources are clustered at the start, so equal-size splits get very unequal work. */
+    private static List<Map<String, String>> skewedResources(int size, double expensiveFraction) {
+        Random random = new Random(42);
+        StringBuilder longText = new StringBuilder();
+        while (longText.length() < 20_000) {
+            longText.append("needle-").append(random.nextInt(1000)).append(" haystack ");
+        }
+        String expensive = longText.toString();
+
+        List<Map<String, String>> resources = new ArrayList<>(size);
+        int expensiveCount = (int) (size * expensiveFraction);
+        for (int i = 0; i < size; i++) {
+            String text = i < expensiveCount ? expensive : "short text " + i;
+            resources.add(Map.of("id", String.valueOf(i), "kind", i % 10 == 0 ? "archived" : "live", "text", text));
+        }
+        return resources;
+    }
+}
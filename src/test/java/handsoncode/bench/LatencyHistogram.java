@@ -0,0 +1,103 @@
+package handsoncode.bench;
+
+/**
+ * Log-linear histogram of latencies in nanoseconds: every power of two is split into 32 buckets, so recorded values
+ * are kept within about 3% at constant memory, whatever the number of samples. Not thread-safe: every thread
+ * records into its own histogram, merged at the end.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BITS + 1) << SUB_BITS];
+    private long count;
+    private long max;
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values count as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[index(value)]++;
+        count++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds the samples of another histogram to this one.
+     *
+     * @param other the histogram to merge.
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the number of samples.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the largest recorded latency.
+     *
+     * @return the maximum in nanoseconds, 0 if empty.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the latency below which a fraction of the samples lies, rounded up to the end of its bucket.
+     *
+     * @param quantile the fraction, between 0 and 1.
+     * @return the latency in nanoseconds, 0 if empty.
+     * @throws IllegalArgumentException if {@code quantile} is not between 0 and 1.
+     */
+    public long getPercentile(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("quantile must be between 0 and 1");
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, lowest(i + 1) - 1);
+            }
+        }
+        return max;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    static long lowest(int index) {
+        int bucket = index >>> SUB_BITS;
+        int sub = index & (SUB_BUCKETS - 1);
+        if (bucket == 0) {
+            return sub;
+        }
+        int exponent = bucket + SUB_BITS - 1;
+        if (exponent >= 63) {
+            return Long.MAX_VALUE;
+        }
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    }
+}
@@ -0,0 +1,235 @@
+package handsoncode.bench;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs a task in a closed loop on several threads for a sustained period, and reports the throughput and the
+ * latency percentiles of the measured period. A warmup period, run the same way, lets the JIT compile the
+ * task before measuring. Exceptions thrown by the task count as errors, and their latency is recorded too.
+ *
+ * Example Usage:
+ * <pre>{@code
+ * LoadHarness harness = new LoadHarness(8, Duration.ofSeconds(5), Duration.ofSeconds(30));
+ * LoadHarness.Report report = harness.run(random -> filter.matches(resources.get(random.nextInt(size))));
+ * System.out.println(report.format());
+ * }</pre>
+ */
+public class LoadHarness {
+
+    /** A unit of work, given a random generator private to the calling thread. */
+    public interface Task {
+
+        /**
+         * Runs one operation.
+         *
+         * @param random the random generator of the calling thread.
+         * @throws Exception if the operation fails, counted as an error.
+         */
+        void run(SplittableRandom random) throws Exception;
+    }
+
+    private final int threads;
+    private final Duration warmup;
+    private final Duration duration;
+
+    /**
+     * Constructs a harness.
+     *
+     * @param threads the number of threads running the task (must be positive).
+     * @param warmup how long to run the task before measuring (must not be {@code null} nor negative).
+     * @param duration how long to measure (must not be {@code null}, must be positive).
+     */
+    public LoadHarness(int threads, Duration warmup, Duration duration) {
+        Objects.requireNonNull(warmup, "warmup must not be null");
+        Objects.requireNonNull(duration, "duration must not be null");
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        if (warmup.isNegative() || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("warmup must not be negative and duration must be positive");
+        }
+        this.threads = threads;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    /** The operations of one thread during the measured period. */
+    private static final class Worker extends Thread {
+
+        final Task task;
+        final SplittableRandom random;
+        final CountDownLatch start;
+        final LatencyHistogram latencies = new LatencyHistogram();
+        long measureFrom;
+        long measureUntil;
+        long errors;
+
+        Worker(Task task, SplittableRandom random, CountDownLatch start, int index) {
+            super("load-" + index);
+            this.task = task;
+            this.random = random;
+            this.start = start;
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            while (true) {
+                long begin = System.nanoTime();
+                if (begin - measureUntil >= 0 || isInterrupted()) {
+                    return;
+                }
+                boolean failed = false;
+                try {
+                    task.run(random);
+                } catch (Exception e) {
+                    failed = true;
+                }
+                if (begin - measureFrom >= 0) {
+                    latencies.record(System.nanoTime() - begin);
+                    if (failed) {
+                        errors++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the task and waits for the end of the measured period.
+     *
+     * @param task the task to run (must not be {@code null}).
+     * @return the report of the measured period.
+     * @throws InterruptedException if the calling thread is interrupted; the workers are stopped.
+     */
+    public Report run(Task task) throws InterruptedException {
+        Objects.requireNonNull(task, "task must not be null");
+        CountDownLatch start = new CountDownLatch(1);
+        SplittableRandom seeds = new SplittableRandom(42);
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(task, seeds.split(), start, i);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        long now = System.nanoTime();
+        long measureFrom = now + warmup.toNanos();
+        long measureUntil = measureFrom + duration.toNanos();
+        for (Worker worker : workers) {
+            worker.measureFrom = measureFrom;
+            worker.measureUntil = measureUntil;
+            worker.start();
+        }
+        start.countDown();
+        try {
+            for (Worker worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(Thread::interrupt);
+            throw e;
+        }
+        LatencyHistogram latencies = new LatencyHistogram();
+        long errors = 0;
+        for (Worker worker : workers) {
+            latencies.merge(worker.latencies);
+            errors += worker.errors;
+        }
+        return new Report(threads, duration, latencies, errors);
+    }
+
+    /** Throughput and latencies of a measured period. */
+    public static final class Report {
+
+        private final int threads;
+        private final Duration duration;
+        private final LatencyHistogram latencies;
+        private final long errors;
+
+        Report(int threads, Duration duration, LatencyHistogram latencies, long errors) {
+            this.threads = threads;
+            this.duration = duration;
+            this.latencies = latencies;
+            this.errors = errors;
+        }
+
+        /**
+         * Returns the number of operations completed during the measured period, errors included.
+         *
+         * @return the number of operations.
+         */
+        public long getOperations() {
+            return latencies.getCount();
+        }
+
+        /**
+         * Returns the number of operations that threw an exception.
+         *
+         * @return the number of errors.
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * Returns the number of operations per second, all threads together.
+         *
+         * @return the throughput.
+         */
+        public double getThroughput() {
+            return latencies.getCount() / (duration.toNanos() / 1e9);
+        }
+
+        /**
+         * Returns a latency percentile.
+         *
+         * @param quantile the fraction of operations at least as fast, between 0 and 1.
+         * @return the latency in nanoseconds.
+         */
+        public long getLatency(double quantile) {
+            return latencies.getPercentile(quantile);
+        }
+
+        /**
+         * Returns the latency histogram of the measured period.
+         *
+         * @return the merged histogram of all threads.
+         */
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+
+        /**
+         * Formats the report on one line for humans.
+         *
+         * @return the formatted report.
+         */
+        public String format() {
+            return String.format("%d threads: %,.0f ops/s, %.2f%% errors, latency p50 %,d ns, p90 %,d ns, p99 %,d ns, p99.9 %,d ns, max %,d ns",
+                threads, getThroughput(), getOperations() == 0 ? 0.0 : 100.0 * errors / getOperations(),
+                getLatency(0.5), getLatency(0.9), getLatency(0.99), getLatency(0.999), latencies.getMax());
+        }
+
+        /**
+         * Returns a string representation of this {@code Report}.
+         * The string format is a JSON-like representation.
+         *
+         * @return a string representation of the {@code Report}.
+         */
+        @Override
+        public String toString() {
+            return "{\"type\":\"LoadReport\",\"threads\":\"" + threads + "\",\"operations\":\"" + getOperations()
+                + "\",\"errors\":\"" + errors + "\",\"throughput\":\"" + getThroughput() + "\",\"p50\":\"" + getLatency(0.5)
+                + "\",\"p99\":\"" + getLatency(0.99) + "\",\"max\":\"" + latencies.getMax() + "\"}";
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package handsoncode.bench;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import handsoncode.filter.Filter;
+
+/**
+ * Evaluates random filters on random resources from a {@link WorkloadGenerator} under sustained load with
+ * {@link LoadHarness}, once per thread count, to size hardware and catch end-to-end regressions.
+ * Each operation evaluates one filter on one resource; non-numeric values compared by thresholds are errors.
+ *
+ * <p>Run with {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=handsoncode.bench.MacroBenchmark}; optional arguments are the measured seconds, the
+ * distribution, the fraction of non-numeric values, the maximum depth and width of the filters, and a comma-separated
+ * list of thread counts.</p>
+ */
+public class MacroBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        WorkloadGenerator.Distribution distribution = args.length > 1
+            ? WorkloadGenerator.Distribution.valueOf(args[1].toUpperCase()) : WorkloadGenerator.Distribution.ZIPF;
+        double nonNumericFraction = args.length > 2 ? Double.parseDouble(args[2]) : 0.01;
+        int maxDepth = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        int maxWidth = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+        String threadCounts = args.length > 5 ? args[5] : "1," + Runtime.getRuntime().availableProcessors();
+
+        WorkloadGenerator generator = new WorkloadGenerator(42).propertyCount(20).distribution(distribution)
+            .nonNumericFraction(nonNumericFraction).maxDepth(maxDepth).maxWidth(maxWidth);
+        List<Map<String, String>> resources = generator.resources(100_000);
+        List<Filter> filters = generator.filters(1_000);
+
+        System.out.printf("%d resources, %d filters, %s values, %.1f%% non-numeric, depth %d, width %d%n", resources.size(),
+            filters.size(), distribution, nonNumericFraction * 100, maxDepth, maxWidth);
+        for (String count : threadCounts.split(",")) {
+            LoadHarness harness = new LoadHarness(Integer.parseInt(count.trim()), Duration.ofSeconds(Math.max(1, seconds / 3)),
+                Duration.ofSeconds(seconds));
+            LoadHarness.Report report = harness.run(random ->
+                filters.get(random.nextInt(filters.size())).matches(resources.get(random.nextInt(resources.size()))));
+            System.out.println(report.format());
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package handsoncode.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Function;
+
+import handsoncode.filter.Filter;
+import handsoncode.filter.FilterFactory;
+
+/**
+ * Generates synthetic resources and random filter trees for macro benchmarks, reproducibly from a seed.
+ * <p>
+ * Resources have properties {@code p0} to {@code pN-1}, each present with a configurable probability. Values are
+ * integers drawn from a configurable distribution; a configurable fraction of them is replaced by text, on which
+ * {@code GreaterThanFilter} and {@code LessThanFilter} take their exception path. Filters draw their types evenly
+ * from {@link FilterFactory#getFilterTypes()}, and their thresholds and values from the same distribution as the
+ * resources, so that selectivities look like real ones.
+ * </p>
+ *
+ * Example Usage:
+ * <pre>{@code
+ * WorkloadGenerator generator = new WorkloadGenerator(42).propertyCount(20).distribution(Distribution.ZIPF)
+ *     .nonNumericFraction(0.01).maxDepth(4).maxWidth(5);
+ * List<Map<String, String>> resources = generator.resources(100_000);
+ * List<Filter> filters = generator.filters(1_000);
+ * }</pre>
+ */
+public class WorkloadGenerator {
+
+    /** Distributions of the generated values over {@code [0, valueRange)}. */
+    public enum Distribution {
+        /** Every value equally likely. */
+        UNIFORM,
+        /** A bell curve centered on the middle of the range, with a standard deviation of a sixth of it. */
+        GAUSSIAN,
+        /** Value {@code k} with a probability proportional to {@code 1 / (k + 1)}: a few values are very frequent. */
+        ZIPF
+    }
+
+    private static final List<String> LOGICAL_TYPES = List.of("and", "or", "not");
+
+    private final Random random;
+    private int propertyCount = 10;
+    private double presenceProbability = 0.9;
+    private int valueRange = 1_000;
+    private Distribution distribution = Distribution.UNIFORM;
+    private double nonNumericFraction = 0.0;
+    private int maxDepth = 3;
+    private int maxWidth = 4;
+    private double[] zipf;
+
+    /**
+     * Constructs a generator.
+     *
+     * @param seed the seed of the random generator; equal seeds and settings generate equal workloads.
+     */
+    public WorkloadGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Sets the number of properties of the resources, 10 by default.
+     *
+     * @param propertyCount the number of properties (must be positive).
+     * @return this generator.
+     */
+    public WorkloadGenerator propertyCount(int propertyCount) {
+        this.propertyCount = positive(propertyCount, "propertyCount");
+        return this;
+    }
+
+    /**
+     * Sets the probability of each property to be present in a resource, 0.9 by default.
+     *
+     * @param presenceProbability the probability, between 0 and 1.
+     * @return this generator.
+     */
+    public WorkloadGenerator presenceProbability(double presenceProbability) {
+        this.presenceProbability = probability(presenceProbability, "presenceProbability");
+        return this;
+    }
+
+    /**
+     * Sets the number of distinct values, 1000 by default.
+     *
+     * @param valueRange the values are drawn from {@code [0, valueRange)} (must be positive).
+     * @return this generator.
+     */
+    public WorkloadGenerator valueRange(int valueRange) {
+        this.valueRange = positive(valueRange, "valueRange");
+        this.zipf = null;
+        return this;
+    }
+
+    /**
+     * Sets the distribution of values, {@link Distribution#UNIFORM} by default.
+     *
+     * @param distribution the distribution (must not be {@code null}).
+     * @return this generator.
+     */
+    public WorkloadGenerator distribution(Distribution distribution) {
+        this.distribution = Objects.requireNonNull(distribution, "distribution must not be null");
+        return this;
+    }
+
+    /**
+     * Sets the fraction of values that are not numbers, 0 by default.
+     *
+     * @param nonNumericFraction the fraction, between 0 and 1.
+     * @return this generator.
+     */
+    public WorkloadGenerator nonNumericFraction(double nonNumericFraction) {
+        this.nonNumericFraction = probability(nonNumericFraction, "nonNumericFraction");
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of logical levels above the leaves of a filter, 3 by default.
+     *
+     * @param maxDepth the maximum depth (must not be negative).
+     * @return this generator.
+     */
+    public WorkloadGenerator maxDepth(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("maxDepth must not be negative");
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of children of an {@code AND} or {@code OR}, 4 by default.
+     *
+     * @param maxWidth the maximum width (must be positive).
+     * @return this generator.
+     */
+    public WorkloadGenerator maxWidth(int maxWidth) {
+        this.maxWidth = positive(maxWidth, "maxWidth");
+        return this;
+    }
+
+    private static int positive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+
+    private static double probability(double value, String name) {
+        if (!(value >= 0 && value <= 1)) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1");
+        }
+        return value;
+    }
+
+    /**
+     * Generates a resource.
+     *
+     * @return a new mutable resource.
+     */
+    public Map<String, String> resource() {
+        Map<String, String> resource = new HashMap<>();
+        for (int i = 0; i < propertyCount; i++) {
+            if (random.nextDouble() < presenceProbability) {
+                int value = value();
+                resource.put("p" + i, random.nextDouble() < nonNumericFraction ? "text-" + value : String.valueOf(value));
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Generates resources.
+     *
+     * @param count the number of resources.
+     * @return the resources.
+     */
+    public List<Map<String, String>> resources(int count) {
+        return generate(count, generator -> generator.resource());
+    }
+
+    /**
+     * Generates a random filter tree.
+     *
+     * @return a new filter.
+     */
+    public Filter filter() {
+        return filter(maxDepth);
+    }
+
+    /**
+     * Generates random filter trees.
+     *
+     * @param count the number of filters.
+     * @return the filters.
+     */
+    public List<Filter> filters(int count) {
+        return generate(count, generator -> generator.filter());
+    }
+
+    private <T> List<T> generate(int count, Function<WorkloadGenerator, T> generate) {
+        List<T> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(generate.apply(this));
+        }
+        return items;
+    }
+
+    private Filter filter(int depth) {
+        List<String> types = FilterFactory.getFilterTypes();
+        String type;
+        do {
+            type = types.get(random.nextInt(types.size())).toLowerCase();
+        } while (depth == 0 && LOGICAL_TYPES.contains(type));
+        String property = "p" + random.nextInt(propertyCount);
+        switch (type) {
+            case "greaterthan":
+                return FilterFactory.greaterThan(property, value());
+            case "lessthan":
+                return FilterFactory.lessThan(property, value());
+            case "equalsto":
+                return FilterFactory.equalsTo(property, String.valueOf(value()));
+            case "ispresent":
+                return FilterFactory.isPresent(property);
+            case "matchesexpression":
+                return FilterFactory.matchesExpression(property, random.nextBoolean() ? "^" + (1 + random.nextInt(9)) : random.nextInt(10) + "$");
+            case "truefilter":
+                return FilterFactory.trueFilter();
+            case "falsefilter":
+                return FilterFactory.falseFilter();
+            case "not":
+                return FilterFactory.not(filter(depth - 1));
+            case "and":
+            case "or":
+                List<Filter> children = new ArrayList<>();
+                for (int i = 1 + random.nextInt(maxWidth); i > 0; i--) {
+                    children.add(filter(depth - 1));
+                }
+                return type.equals("and") ? FilterFactory.and(children) : FilterFactory.or(children);
+            default:
+                throw new IllegalStateException("No generator for filter type " + type);
+        }
+    }
+
+    private int value() {
+        switch (distribution) {
+            case GAUSSIAN:
+                long value = Math.round(valueRange / 2.0 + random.nextGaussian() * valueRange / 6.0);
+                return (int) Math.max(0, Math.min(valueRange - 1, value));
+            case ZIPF:
+                if (zipf == null) {
+                    zipf = new double[valueRange];
+                    double sum = 0;
+                    for (int k = 0; k < valueRange; k++) {
+                        sum += 1.0 / (k + 1);
+                        zipf[k] = sum;
+                    }
+                }
+                int index = Arrays.binarySearch(zipf, random.nextDouble() * zipf[valueRange - 1]);
+                return Math.min(valueRange - 1, index >= 0 ? index : -index - 1);
+            default:
+                return random.nextInt(valueRange);
+        }
+    }
+}